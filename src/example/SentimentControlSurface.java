@@ -0,0 +1,46 @@
+/*
+ * SentimentControlSurface.java
+ *
+ * Rafael Bastos
+ */
+package example;
+
+import java.io.File;
+import java.io.IOException;
+
+import generic.Tuple;
+import tools.ControlSurface;
+import tools.ControlSurfaceGenerator;
+
+/**
+ * Generates the control surface of the sentiment FLS without a display, e.g.
+ * on a server started with -Djava.awt.headless=true.
+ * 
+ * Usage: SentimentControlSurface [resolution] [output file (.csv, .bin or .png)] [cos]
+ * 
+ * @author Rafael Bastos
+ */
+public class SentimentControlSurface {
+
+	public static void main(String args[]) throws IOException {
+		int resolution = args.length > 0 ? Integer.parseInt(args[0]) : 500;
+		File output = new File(args.length > 1 ? args[1] : "data" + File.separator + "control-surface.png");
+		boolean useCentroidDefuzzification = !(args.length > 2 && args[2].equalsIgnoreCase("cos"));
+
+		SentimentFLS fls = new SentimentFLS();
+		long start = System.currentTimeMillis();
+		ControlSurface surface = new ControlSurfaceGenerator(SentimentFLS.getEvaluatorFactory(useCentroidDefuzzification))
+				.generate(fls.negativity.getDomain(), resolution, fls.positivity.getDomain(), resolution);
+		surface.setLabels(new String[] { fls.negativity.getName(), fls.positivity.getName(), "Classification" });
+		System.out.println(resolution + "x" + resolution + " surface evaluated in " + (System.currentTimeMillis() - start) + "ms");
+
+		String name = output.getName().toLowerCase();
+		if (name.endsWith(".csv"))
+			surface.writeCSV(output);
+		else if (name.endsWith(".bin"))
+			surface.writeBinary(output);
+		else
+			surface.writePNG(output, 800, 800, new Tuple(0.0, 1.0));
+		System.out.println("Control surface written to " + output);
+	}
+}
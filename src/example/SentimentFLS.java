@@ -0,0 +1,264 @@
+/*
+ * SentimentFLS.java
+ *
+ * Created on Oct 07th 2022
+ *
+ * Rafael Bastos
+ */
+package example;
+
+import java.util.TreeMap;
+import java.util.concurrent.ForkJoinPool;
+
+import example.data.TweetDatasetReader;
+import example.tuning.SentimentParameters;
+import generic.Input;
+import generic.Output;
+import generic.Tuple;
+import intervalType2.sets.IntervalT2MF_Trapezoidal;
+import intervalType2.system.IT2_Antecedent;
+import intervalType2.system.IT2_Consequent;
+import intervalType2.system.IT2_Explanation;
+import intervalType2.system.IT2_Rule;
+import intervalType2.system.IT2_Rulebase;
+import tools.ControlSurfaceGenerator;
+import type1.sets.T1MF_Trapezoidal;
+
+/**
+ * The interval type-2 FLS used for the "Sentiment Analysis": inputs,
+ * membership functions and rules. Every instance owns its own inputs and
+ * rulebase, so independent instances can be evaluated concurrently.
+ * 
+ * @author Rafael Bastos
+ */
+public class SentimentFLS {
+	Input negativity, positivity; // the inputs to the FLS
+	Output classification; // the output of the FLS
+	IT2_Rulebase rulebase; // the rulebase captures the entire FLS
+
+	IntervalT2MF_Trapezoidal lowNegativityT2MF, moderateNegativityT2MF, highNegativityT2MF;
+	IntervalT2MF_Trapezoidal lowPositivityT2MF, moderatePositivityT2MF, highPositivityT2MF;
+	IntervalT2MF_Trapezoidal negativeClassificationT2MF, neutralClassificationT2MF, positiveClassificationT2MF;
+
+	public SentimentFLS() {
+		this(SentimentParameters.getDefault());
+	}
+
+	/**
+	 * Builds the FLS with the given membership function limits and levels,
+	 * e.g. a candidate of a parameter search.
+	 */
+	public SentimentFLS(SentimentParameters parameters) {
+
+		// Define the inputs
+		negativity = new Input("Negativity degree", new Tuple(0, 1));
+		positivity = new Input("Positivy degree", new Tuple(0, 1));
+		classification = new Output("Tweet classification", new Tuple(0, 1));
+
+		double lowerLowNegLimits[] = parameters.getLowerLimits(SentimentParameters.LOW_NEGATIVITY);
+		double upperLowNegLimits[] = parameters.getUpperLimits(SentimentParameters.LOW_NEGATIVITY);
+		double lowerModerateNegLimits[] = parameters.getLowerLimits(SentimentParameters.MODERATE_NEGATIVITY);
+		double upperModerateNegLimits[] = parameters.getUpperLimits(SentimentParameters.MODERATE_NEGATIVITY);
+		double lowerHighNegLimits[] = parameters.getLowerLimits(SentimentParameters.HIGH_NEGATIVITY);
+		double upperHighNegLimits[] = parameters.getUpperLimits(SentimentParameters.HIGH_NEGATIVITY);
+		
+		
+		double lowerLevels[] = parameters.getLowerLevels();
+		double upperLevels[] = parameters.getUpperLevels();
+
+		T1MF_Trapezoidal lowerLowNegativityMF = new T1MF_Trapezoidal("MF for lower low negativity", lowerLowNegLimits, lowerLevels);
+		T1MF_Trapezoidal upperLowNegativityMF = new T1MF_Trapezoidal("MF for upper low negativity", upperLowNegLimits, upperLevels);
+		lowNegativityT2MF = new IntervalT2MF_Trapezoidal("T2 MF for low negativity", upperLowNegativityMF, lowerLowNegativityMF);
+
+		T1MF_Trapezoidal lowerModerateNegativityMF = new T1MF_Trapezoidal("MF for lower moderate negativity", lowerModerateNegLimits, lowerLevels);
+		T1MF_Trapezoidal upperModerateNegativityMF = new T1MF_Trapezoidal("MF for upper moderate negativity", upperModerateNegLimits, upperLevels);
+		moderateNegativityT2MF = new IntervalT2MF_Trapezoidal("T2 MF for moderate negativity", upperModerateNegativityMF, lowerModerateNegativityMF);
+		
+		T1MF_Trapezoidal lowerHighNegativityMF = new T1MF_Trapezoidal("MF for lower high negativity", lowerHighNegLimits, lowerLevels);
+		T1MF_Trapezoidal upperHighNegativityMF = new T1MF_Trapezoidal("MF for upper high negativity", upperHighNegLimits, upperLevels);
+		highNegativityT2MF = new IntervalT2MF_Trapezoidal("T2 MF for high negativity", upperHighNegativityMF, lowerHighNegativityMF);
+
+
+		// Positivity input
+		double lowerLowPosLimits[] = parameters.getLowerLimits(SentimentParameters.LOW_POSITIVITY);
+		double upperLowPosLimits[] = parameters.getUpperLimits(SentimentParameters.LOW_POSITIVITY);
+		double lowerModeratePosLimits[] = parameters.getLowerLimits(SentimentParameters.MODERATE_POSITIVITY);
+		double upperModeratePosLimits[] = parameters.getUpperLimits(SentimentParameters.MODERATE_POSITIVITY);
+		double lowerHighPosLimits[] = parameters.getLowerLimits(SentimentParameters.HIGH_POSITIVITY);
+		double upperHighPosLimits[] = parameters.getUpperLimits(SentimentParameters.HIGH_POSITIVITY);
+
+		T1MF_Trapezoidal lowerLowPositivityMF = new T1MF_Trapezoidal("MF for lower low positivity", lowerLowPosLimits, lowerLevels);
+		T1MF_Trapezoidal upperLowPositivityMF = new T1MF_Trapezoidal("MF for upper low positivity", upperLowPosLimits, upperLevels);
+		lowPositivityT2MF = new IntervalT2MF_Trapezoidal("T2 MF for low positivity", upperLowPositivityMF, lowerLowPositivityMF);
+
+		T1MF_Trapezoidal lowerModeratePositivityMF = new T1MF_Trapezoidal("MF for lower moderate positivity", lowerModeratePosLimits, lowerLevels);
+		T1MF_Trapezoidal upperModeratePositivityMF = new T1MF_Trapezoidal("MF for upper moderate positivity", upperModeratePosLimits, upperLevels);
+		moderatePositivityT2MF = new IntervalT2MF_Trapezoidal("T2 MF for moderate positivity", upperModeratePositivityMF, lowerModeratePositivityMF);
+		
+		T1MF_Trapezoidal lowerHighPositivityMF = new T1MF_Trapezoidal("MF for lower high positivity", lowerHighPosLimits, lowerLevels);
+		T1MF_Trapezoidal upperHighPositivityMF = new T1MF_Trapezoidal("MF for upper high positivity", upperHighPosLimits, upperLevels);
+		highPositivityT2MF = new IntervalT2MF_Trapezoidal("T2 MF for high positivity", upperHighPositivityMF, lowerHighPositivityMF);
+
+		
+		// Classification output
+		double lowerNegativeLimits[] = parameters.getLowerLimits(SentimentParameters.NEGATIVE);
+		double upperNegativeLimits[] = parameters.getUpperLimits(SentimentParameters.NEGATIVE);
+		double lowerNeutralLimits[] = parameters.getLowerLimits(SentimentParameters.NEUTRAL);
+		double upperNeutralLimits[] = parameters.getUpperLimits(SentimentParameters.NEUTRAL);
+		double lowerPositiveLimits[] = parameters.getLowerLimits(SentimentParameters.POSITIVE);
+		double upperPositiveLimits[] = parameters.getUpperLimits(SentimentParameters.POSITIVE);
+
+		
+		T1MF_Trapezoidal lowerNegativeClassificationMF = new T1MF_Trapezoidal("Lower negative classification", lowerNegativeLimits, lowerLevels);
+		T1MF_Trapezoidal upperNegativeClassificationMF = new T1MF_Trapezoidal("Upper negative classification", upperNegativeLimits, upperLevels);
+		negativeClassificationT2MF = new IntervalT2MF_Trapezoidal("T2 negative classification", upperNegativeClassificationMF, lowerNegativeClassificationMF);
+		
+		T1MF_Trapezoidal lowerNeutralClassificationMF = new T1MF_Trapezoidal("Lower neutral classification", lowerNeutralLimits, lowerLevels);
+		T1MF_Trapezoidal upperNeutralClassificationMF = new T1MF_Trapezoidal("Upper neutral classification", upperNeutralLimits, upperLevels);
+		neutralClassificationT2MF = new IntervalT2MF_Trapezoidal("T2 neutral classification", upperNeutralClassificationMF, lowerNeutralClassificationMF);
+
+		T1MF_Trapezoidal lowerPositiveClassificationMF = new T1MF_Trapezoidal("Lower positive classification", lowerPositiveLimits, lowerLevels);
+		T1MF_Trapezoidal upperPositiveClassificationMF = new T1MF_Trapezoidal("Upper positive classification", upperPositiveLimits, upperLevels);
+		positiveClassificationT2MF = new IntervalT2MF_Trapezoidal("T2 positive classification", upperPositiveClassificationMF, lowerPositiveClassificationMF);
+
+		// Set up the antecedents and consequents - note how the inputs are associated...
+		IT2_Antecedent lowNegativity = new IT2_Antecedent("Low Negativity", lowNegativityT2MF, negativity);
+		IT2_Antecedent moderateNegativity = new IT2_Antecedent("Moderate Negativity", moderateNegativityT2MF, negativity);
+		IT2_Antecedent highNegativity = new IT2_Antecedent("High Negativity", highNegativityT2MF, negativity);
+
+		IT2_Antecedent lowPositivity = new IT2_Antecedent("Low Positivity", lowPositivityT2MF, positivity);
+		IT2_Antecedent moderatePositivity = new IT2_Antecedent("Moderate Positivity", moderatePositivityT2MF, positivity);
+		IT2_Antecedent highPositivity = new IT2_Antecedent("High Positivity", highPositivityT2MF, positivity);
+
+		IT2_Consequent negativeClassification = new IT2_Consequent("Negative", negativeClassificationT2MF, classification);
+		IT2_Consequent neutralClassification = new IT2_Consequent("Neutral", neutralClassificationT2MF, classification);
+		IT2_Consequent positiveClassification = new IT2_Consequent("Positive", positiveClassificationT2MF, classification);
+
+		// Set up the rulebase and add rules 
+		rulebase = new IT2_Rulebase(9);
+		rulebase.addRule(new IT2_Rule(new IT2_Antecedent[] { lowNegativity, lowPositivity }, neutralClassification));
+		rulebase.addRule(
+				new IT2_Rule(new IT2_Antecedent[] { moderateNegativity, moderatePositivity }, neutralClassification));
+		rulebase.addRule(new IT2_Rule(new IT2_Antecedent[] { highNegativity, highPositivity }, neutralClassification));
+		rulebase.addRule(
+				new IT2_Rule(new IT2_Antecedent[] { moderateNegativity, lowPositivity }, negativeClassification));
+		rulebase.addRule(new IT2_Rule(new IT2_Antecedent[] { highNegativity, lowPositivity }, negativeClassification));
+		rulebase.addRule(
+				new IT2_Rule(new IT2_Antecedent[] { highNegativity, moderatePositivity }, negativeClassification));
+		rulebase.addRule(
+				new IT2_Rule(new IT2_Antecedent[] { lowNegativity, moderatePositivity }, positiveClassification));
+		rulebase.addRule(
+				new IT2_Rule(new IT2_Antecedent[] { moderateNegativity, highPositivity }, positiveClassification));
+		rulebase.addRule(new IT2_Rule(new IT2_Antecedent[] { lowNegativity, highPositivity }, positiveClassification));
+
+	}
+
+	/**
+	 * Evaluates the FLS with centroid type reduction for the given inputs.
+	 * 
+	 * @param positivityMeasure
+	 * @param negativityMeasure
+	 * @return the type-reduced set (Xinf, Xsup) of the classification output
+	 */
+	public Tuple getClassification(double positivityMeasure, double negativityMeasure) {
+		// first, set the inputs
+		negativity.setInput(negativityMeasure);
+		positivity.setInput(positivityMeasure);
+
+		TreeMap<Output, Object[]> centroid = rulebase.evaluateGetCentroid(1); //0 Center of sets, 1 Centroid
+		Object[] centroidTip = centroid.get(classification);
+		return (Tuple) centroidTip[0];
+	}
+
+	/**
+	 * As getClassification(double, double), but also fills the given record
+	 * with the memberships and firing intervals of this evaluation.
+	 * 
+	 * @param explanation reused for every evaluation
+	 */
+	public Tuple getClassification(double positivityMeasure, double negativityMeasure, IT2_Explanation explanation) {
+		negativity.setInput(negativityMeasure);
+		positivity.setInput(positivityMeasure);
+
+		TreeMap<Output, Object[]> centroid = rulebase.evaluateGetCentroid(1, explanation);
+		Object[] centroidTip = centroid.get(classification);
+		return (Tuple) centroidTip[0];
+	}
+
+	/**
+	 * Returns the defuzzified output for the given inputs.
+	 * 
+	 * @param useCentroidDefuzzification centroid (true) or center of sets (false) type reduction
+	 */
+	public double evaluate(double negativityMeasure, double positivityMeasure, boolean useCentroidDefuzzification) {
+		negativity.setInput(negativityMeasure);
+		positivity.setInput(positivityMeasure);
+		return rulebase.evaluate(useCentroidDefuzzification ? 1 : 0).get(classification);
+	}
+
+	/**
+	 * Replaces the generic evaluation of the rulebase by an evaluator generated
+	 * for these membership functions and rules, see IT2_Rulebase.specialise().
+	 * The membership functions can no longer be changed afterwards.
+	 * 
+	 * @return false if no evaluator could be generated (e.g. without a JDK)
+	 */
+	public boolean specialise() {
+		return rulebase.specialise();
+	}
+
+	/**
+	 * Evaluates the FLS with centroid type reduction for many inputs at once,
+	 * see IT2_Rulebase.evaluateBatch(). The output arrays may be null.
+	 * 
+	 * @param positivityMeasures
+	 * @param negativityMeasures of the same length
+	 * @param pool evaluates the inputs in parallel, or null
+	 */
+	public void evaluateBatch(double[] positivityMeasures, double[] negativityMeasures, double[] punctual, double[] xInf,
+			double[] xSup, ForkJoinPool pool) {
+		Input[] inputs = rulebase.getInputs();
+		double[][] columns = new double[inputs.length][];
+		for (int i = 0; i < inputs.length; i++)
+			columns[i] = inputs[i] == negativity ? negativityMeasures : positivityMeasures;
+		rulebase.evaluateBatch(classification, 1, columns, punctual, xInf, xSup, pool); //1 Centroid
+	}
+
+	/**
+	 * Returns the classification set with the highest average membership of
+	 * the given (punctual) output as TweetDatasetReader label: NEGATIVE,
+	 * NEUTRAL or POSITIVE, NEUTRAL if all are equal and UNKNOWN if two sets
+	 * share the highest membership or the output is NaN.
+	 */
+	public byte getLinguisticClassification(double punctual) {
+		double negative = negativeClassificationT2MF.getFSAverage(punctual);
+		double neutral = neutralClassificationT2MF.getFSAverage(punctual);
+		double positive = positiveClassificationT2MF.getFSAverage(punctual);
+		if (negative > neutral && negative > positive)
+			return TweetDatasetReader.NEGATIVE;
+		if (neutral > negative && neutral > positive)
+			return TweetDatasetReader.NEUTRAL;
+		if (positive > negative && positive > neutral)
+			return TweetDatasetReader.POSITIVE;
+		if (positive == negative && positive == neutral)
+			return TweetDatasetReader.NEUTRAL;
+		return TweetDatasetReader.UNKNOWN;
+	}
+
+	/**
+	 * Returns a factory that gives every control surface worker its own FLS.
+	 * The surface is spanned by negativity (x) and positivity (y).
+	 */
+	public static ControlSurfaceGenerator.EvaluatorFactory getEvaluatorFactory(final boolean useCentroidDefuzzification) {
+		return new ControlSurfaceGenerator.EvaluatorFactory() {
+			public ControlSurfaceGenerator.Evaluator newEvaluator() {
+				final SentimentFLS fls = new SentimentFLS();
+				return new ControlSurfaceGenerator.Evaluator() {
+					public double evaluate(double x, double y) {
+						return fls.evaluate(x, y, useCentroidDefuzzification);
+					}
+				};
+			}
+		};
+	}
+}
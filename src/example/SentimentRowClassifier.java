@@ -0,0 +1,202 @@
+/*
+ * SentimentRowClassifier.java
+ *
+ * Rafael Bastos
+ */
+package example;
+
+import java.io.IOException;
+
+import example.data.ResultSchema;
+import example.data.ResultSink;
+import example.data.TweetDatasetReader;
+import generic.Tuple;
+import intervalType2.system.IT2_Explanation;
+
+/**
+ * Classifies the rows of a tweet dataset with a SentimentFLS and writes one
+ * result row per tweet: the scores, the type-reduced output, the memberships
+ * of all sets and the linguistic classification (see getOutputSchema()).
+ * 
+ * If two classification sets share the highest membership, the
+ * classification of the previous row is repeated. This state is exposed by
+ * get/setLinguisticClassification() so that an interrupted run can be
+ * resumed with identical output. Not thread-safe; every worker uses its own
+ * classifier.
+ * 
+ * @author Rafael Bastos
+ */
+public class SentimentRowClassifier {
+
+	private final SentimentFLS fls;
+	private final IT2_Explanation explanation;
+	private final int lowPositivity, moderatePositivity, highPositivity;
+	private final int lowNegativity, moderateNegativity, highNegativity;
+	private final int negativeClassification, neutralClassification, positiveClassification;
+	private String linguisticClassification = TweetDatasetReader.getLabelName(TweetDatasetReader.NEUTRAL);
+	private byte[] tweetID = new byte[64];
+
+	public SentimentRowClassifier() {
+		this(new SentimentFLS());
+	}
+
+	public SentimentRowClassifier(SentimentFLS fls) {
+		this.fls = fls;
+		// filled by every evaluation; look up where each set is recorded once
+		explanation = fls.rulebase.newExplanation();
+		lowPositivity = explanation.getAntecedentIndex(fls.lowPositivityT2MF);
+		moderatePositivity = explanation.getAntecedentIndex(fls.moderatePositivityT2MF);
+		highPositivity = explanation.getAntecedentIndex(fls.highPositivityT2MF);
+		lowNegativity = explanation.getAntecedentIndex(fls.lowNegativityT2MF);
+		moderateNegativity = explanation.getAntecedentIndex(fls.moderateNegativityT2MF);
+		highNegativity = explanation.getAntecedentIndex(fls.highNegativityT2MF);
+		negativeClassification = explanation.getConsequentIndex(fls.negativeClassificationT2MF);
+		neutralClassification = explanation.getConsequentIndex(fls.neutralClassificationT2MF);
+		positiveClassification = explanation.getConsequentIndex(fls.positiveClassificationT2MF);
+	}
+
+	public SentimentFLS getFLS() {
+		return fls;
+	}
+
+	/**
+	 * Returns the columns of the FLS output, one row per tweet.
+	 */
+	public static ResultSchema getOutputSchema() {
+		ResultSchema schema = new ResultSchema();
+		schema.addColumn("sequencial", ResultSchema.LONG);
+		schema.addColumn("classification", ResultSchema.TEXT);
+		schema.addColumn("tweetID", ResultSchema.TEXT);
+		String[] doubles = { "positivity", "negativity", "punctual", "Xinf", "Xsup", "lowerLowPositivityMF",
+				"upperLowPositivityMF", "lowerModeratePositivityMF", "upperModeratePositivityMF", "lowerHighPositivityMF",
+				"upperHighPositivityMF", "lowerLowNegativityMF", "upperLowNegativityMF", "lowerModerateNegativityMF",
+				"upperModerateNegativityMF", "lowerHighNegativityMF", "upperHighNegativityMF",
+				"lowerNegativeClassificationMF", "upperNegativeClassificationMF", "lowerNeutralClassificationMF",
+				"upperNeutralClassificationMF", "lowerPositiveClassificationMF", "upperPositiveClassificationMF" };
+		for (String name : doubles)
+			schema.addColumn(name, ResultSchema.DOUBLE);
+		schema.addCategoryColumn("linguisticClassification", new String[] { TweetDatasetReader.getLabelName(TweetDatasetReader.NEGATIVE),
+				TweetDatasetReader.getLabelName(TweetDatasetReader.NEUTRAL), TweetDatasetReader.getLabelName(TweetDatasetReader.POSITIVE) });
+		schema.addColumn("accuracy", ResultSchema.BYTE);
+		return schema;
+	}
+
+	/**
+	 * Classifies the current row of a cursor and writes its result row.
+	 * 
+	 * @param sequence the number written to the first column
+	 * @return 1 if the classification matches the label of the row, else 0
+	 */
+	public int classify(long sequence, TweetDatasetReader.RowCursor row, ResultSink out) throws IOException {
+		double positivityValue = row.getPositivity();
+		double negativityValue = row.getNegativity();
+		String label = TweetDatasetReader.getLabelName(row.getLabel());
+		if (label == null)
+			label = row.getField(TweetDatasetReader.LABEL_FIELD);
+
+		Tuple centroid = fls.getClassification(positivityValue, negativityValue, explanation);
+
+		String classification = getExplainedClassification();
+		if (classification != null)
+			linguisticClassification = classification;
+		int accuracy = linguisticClassification.equals(label) ? 1 : 0;
+
+		//Write the FLS output of sentiment analysis
+		out.putLong(sequence);
+		out.putText(label);
+		int tweetIDLength = row.copyField(TweetDatasetReader.ID_FIELD, tweetID, 0);
+		if (tweetIDLength > tweetID.length) {
+			tweetID = new byte[tweetIDLength];
+			row.copyField(TweetDatasetReader.ID_FIELD, tweetID, 0);
+		}
+		out.putText(tweetID, 0, tweetIDLength);
+		out.putDouble(positivityValue);
+		out.putDouble(negativityValue);
+		out.putDouble(centroid.getAverage());
+		out.putDouble(centroid.getLeft());
+		out.putDouble(centroid.getRight());
+		//positivity
+		putMemberships(out, lowPositivity);
+		putMemberships(out, moderatePositivity);
+		putMemberships(out, highPositivity);
+		//negativity
+		putMemberships(out, lowNegativity);
+		putMemberships(out, moderateNegativity);
+		putMemberships(out, highNegativity);
+		//punctual output
+		out.putDouble(explanation.getConsequentLower(negativeClassification));
+		out.putDouble(explanation.getConsequentUpper(negativeClassification));
+		out.putDouble(explanation.getConsequentLower(neutralClassification));
+		out.putDouble(explanation.getConsequentUpper(neutralClassification));
+		out.putDouble(explanation.getConsequentLower(positiveClassification));
+		out.putDouble(explanation.getConsequentUpper(positiveClassification));
+		out.putCategory(TweetDatasetReader.getLabel(linguisticClassification));
+		out.putByte((byte) accuracy);
+		out.endRow();
+		return accuracy;
+	}
+
+	/**
+	 * Classifies the current row of a cursor without writing a result row or
+	 * changing getLinguisticClassification().
+	 * 
+	 * @return the linguistic classification of the row, or null if it is a tie
+	 *         which repeats the classification of the previous row
+	 */
+	public String classify(TweetDatasetReader.RowCursor row) {
+		return classify(row.getPositivity(), row.getNegativity());
+	}
+
+	/**
+	 * Classifies a pair of scores like classify(RowCursor).
+	 */
+	public String classify(double positivity, double negativity) {
+		fls.getClassification(positivity, negativity, explanation);
+		return getExplainedClassification();
+	}
+
+	/**
+	 * Returns the classification of the last evaluation, or null on a tie
+	 * between two classification sets.
+	 */
+	private String getExplainedClassification() {
+		double avgNegativeClassification = (explanation.getConsequentUpper(negativeClassification) + explanation.getConsequentLower(negativeClassification))/2;
+		double avgNeutralClassification = (explanation.getConsequentUpper(neutralClassification) + explanation.getConsequentLower(neutralClassification))/2;
+		double avgPositiveClassification = (explanation.getConsequentUpper(positiveClassification) + explanation.getConsequentLower(positiveClassification))/2;
+
+		if (avgNegativeClassification > avgNeutralClassification && avgNegativeClassification > avgPositiveClassification) {
+			return "negative";
+		}
+		else if (avgNeutralClassification > avgNegativeClassification && avgNeutralClassification > avgPositiveClassification) {
+			return "neutral";
+		}
+		else if (avgPositiveClassification > avgNegativeClassification && avgPositiveClassification > avgNeutralClassification) {
+			return "positive";
+		}
+		else if (avgPositiveClassification == avgNegativeClassification && avgPositiveClassification == avgNeutralClassification) {
+			return "neutral";
+		}
+		return null;
+	}
+
+	private void putMemberships(ResultSink out, int antecedent) throws IOException {
+		out.putDouble(explanation.getAntecedentLower(antecedent));
+		out.putDouble(explanation.getAntecedentUpper(antecedent));
+	}
+
+	/**
+	 * Returns the classification of the last row (or "neutral" before the
+	 * first row).
+	 */
+	public String getLinguisticClassification() {
+		return linguisticClassification;
+	}
+
+	/**
+	 * Restores the classification of the last row, see
+	 * getLinguisticClassification().
+	 */
+	public void setLinguisticClassification(String linguisticClassification) {
+		this.linguisticClassification = linguisticClassification;
+	}
+}
@@ -0,0 +1,81 @@
+/*
+ * SentimentSpecialisationBenchmark.java
+ *
+ * Rafael Bastos
+ */
+package example;
+
+import java.util.Random;
+
+import generic.Tuple;
+
+/**
+ * Compares the generic evaluation of the sentiment FLS with the evaluator
+ * generated by SentimentFLS.specialise(): checks that both give identical
+ * results on a grid of inputs and reports the time per evaluation.
+ * 
+ * Usage: SentimentSpecialisationBenchmark [grid resolution] [evaluations]
+ * 
+ * @author Rafael Bastos
+ */
+public class SentimentSpecialisationBenchmark {
+
+	public static void main(String args[]) {
+		int resolution = args.length > 0 ? Integer.parseInt(args[0]) : 101;
+		int evaluations = args.length > 1 ? Integer.parseInt(args[1]) : 2000000;
+
+		SentimentFLS generic = new SentimentFLS();
+		SentimentFLS specialised = new SentimentFLS();
+		long start = System.nanoTime();
+		if (!specialised.specialise()) {
+			System.err.println("The rulebase could not be specialised (is a JDK available?).");
+			return;
+		}
+		System.out.println("Specialised in " + (System.nanoTime() - start) / 1000000 + "ms");
+
+		int mismatches = 0;
+		for (int i = 0; i < resolution; i++)
+			for (int j = 0; j < resolution; j++) {
+				double negativity = i / (resolution - 1.0), positivity = j / (resolution - 1.0);
+				if (!same(generic.evaluate(negativity, positivity, false), specialised.evaluate(negativity, positivity, false))
+						|| !same(generic.evaluate(negativity, positivity, true), specialised.evaluate(negativity, positivity, true)))
+					mismatches++;
+				Tuple a = generic.getClassification(positivity, negativity);
+				Tuple b = specialised.getClassification(positivity, negativity);
+				if (!same(a.getLeft(), b.getLeft()) || !same(a.getRight(), b.getRight()))
+					mismatches++;
+			}
+		System.out.println(resolution * resolution + " inputs compared, " + mismatches + " mismatches");
+
+		double[] negativity = new double[4096], positivity = new double[4096];
+		Random random = new Random(42);
+		for (int i = 0; i < negativity.length; i++) {
+			negativity[i] = random.nextDouble();
+			positivity[i] = random.nextDouble();
+		}
+		for (int round = 0; round < 3; round++) {
+			double genericTime = time(generic, negativity, positivity, evaluations);
+			double specialisedTime = time(specialised, negativity, positivity, evaluations);
+			System.out.printf("Center of sets: generic %.1fns, specialised %.1fns per evaluation (%.2fx)%n", genericTime,
+					specialisedTime, genericTime / specialisedTime);
+		}
+	}
+
+	private static boolean same(double a, double b) {
+		return Double.doubleToLongBits(a) == Double.doubleToLongBits(b);
+	}
+
+	/**
+	 * @return the average time of a center of sets evaluation in nanoseconds
+	 */
+	private static double time(SentimentFLS fls, double[] negativity, double[] positivity, int evaluations) {
+		double sum = 0.0;
+		long start = System.nanoTime();
+		for (int i = 0; i < evaluations; i++)
+			sum += fls.evaluate(negativity[i & 4095], positivity[i & 4095], false);
+		long time = System.nanoTime() - start;
+		if (sum == 42.0)
+			System.out.println(); // keeps the evaluations from being optimised away
+		return (double) time / evaluations;
+	}
+}
@@ -0,0 +1,213 @@
+/*
+ * BatchClassifier.java
+ *
+ * Rafael Bastos
+ */
+package example.batch;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+
+import example.SentimentRowClassifier;
+import example.data.TextResultSink;
+import example.data.TweetDatasetReader;
+
+/**
+ * Classifies a tweet dataset (or a byte range of it) into a CSV file like
+ * Sentiment, checkpointing its progress so that an interrupted run can be
+ * resumed.
+ * 
+ * Every few rows (and seconds) the output is flushed and forced to disk and
+ * then a Checkpoint is written holding the offset of the next input row, the
+ * counters and the length of the output up to that row. When started again
+ * with a checkpoint present, the output is truncated to that length, dropping
+ * rows written after the checkpoint, and classification continues at the
+ * recorded offset. Every row therefore appears exactly once in the output,
+ * which is identical to that of an uninterrupted run.
+ * 
+ * When classifying a range, the classification of the row before it must be
+ * given (see setPreviousClassification()), since Sentiment repeats it if the
+ * first row of the range is a tie.
+ * 
+ * Usage: BatchClassifier input output [--checkpoint-rows=n]
+ * [--checkpoint-seconds=s] [--range=start:end]
+ * [--previous-classification=label]
+ * 
+ * @author Rafael Bastos
+ */
+public class BatchClassifier {
+
+	private final File input, output, checkpointFile;
+	private long start = 0, end = Long.MAX_VALUE;
+	private long checkpointRows = 100000;
+	private long checkpointMillis = 60000;
+	private String previousClassification = TweetDatasetReader.getLabelName(TweetDatasetReader.NEUTRAL);
+
+	/**
+	 * Checkpoints are kept next to the output, in output + ".checkpoint".
+	 */
+	public BatchClassifier(File input, File output) {
+		this(input, output, new File(output.getPath() + ".checkpoint"));
+	}
+
+	public BatchClassifier(File input, File output, File checkpointFile) {
+		this.input = input;
+		this.output = output;
+		this.checkpointFile = checkpointFile;
+	}
+
+	public File getCheckpointFile() {
+		return checkpointFile;
+	}
+
+	/**
+	 * Restricts the run to the rows starting in [start, end), see
+	 * TweetDatasetReader.getChunk().
+	 */
+	public void setRange(long start, long end) {
+		if (start < 0 || end < start)
+			throw new IllegalArgumentException("Invalid range [" + start + ", " + end + ").");
+		this.start = start;
+		this.end = end;
+	}
+
+	/**
+	 * Sets the classification of the row before the range, which is repeated
+	 * if the first row of the range is a tie (default "neutral", as before the
+	 * first row of a dataset). Ignored when resuming from a checkpoint.
+	 */
+	public void setPreviousClassification(String previousClassification) {
+		if (TweetDatasetReader.getLabel(previousClassification) == TweetDatasetReader.UNKNOWN)
+			throw new IllegalArgumentException("Invalid classification " + previousClassification + ".");
+		this.previousClassification = previousClassification;
+	}
+
+	/**
+	 * Checkpoints after the given number of rows or milliseconds, whichever
+	 * comes first.
+	 */
+	public void setCheckpointInterval(long rows, long millis) {
+		if (rows < 1 || millis < 0)
+			throw new IllegalArgumentException("Invalid checkpoint interval.");
+		this.checkpointRows = rows;
+		this.checkpointMillis = millis;
+	}
+
+	/**
+	 * Classifies the remaining rows, resuming from the checkpoint if there is
+	 * one. A complete run only returns its result.
+	 */
+	public BatchResult run() throws IOException {
+		TweetDatasetReader reader = new TweetDatasetReader(input);
+		try {
+			TweetDatasetReader.Chunk chunk = reader.getChunk(start, Math.min(end, reader.getSize()));
+			Checkpoint checkpoint = Checkpoint.read(checkpointFile);
+			if (checkpoint != null)
+				check(checkpoint, reader, chunk);
+			else {
+				checkpoint = new Checkpoint();
+				checkpoint.input = input.getAbsolutePath();
+				checkpoint.inputSize = reader.getSize();
+				checkpoint.start = chunk.getStart();
+				checkpoint.end = chunk.getEnd();
+				checkpoint.nextOffset = chunk.getStart();
+				checkpoint.lastClassification = previousClassification;
+			}
+			if (checkpoint.complete)
+				return new BatchResult(checkpoint.rows, checkpoint.correct);
+			return classify(reader.getChunk(checkpoint.nextOffset, checkpoint.end), checkpoint);
+		} finally {
+			reader.close();
+		}
+	}
+
+	private void check(Checkpoint checkpoint, TweetDatasetReader reader, TweetDatasetReader.Chunk chunk) throws IOException {
+		if (!input.getAbsolutePath().equals(checkpoint.input) || reader.getSize() != checkpoint.inputSize
+				|| chunk.getStart() != checkpoint.start || chunk.getEnd() != checkpoint.end)
+			throw new IOException(checkpointFile + " belongs to a run over " + checkpoint.input + " [" + checkpoint.start
+					+ ", " + checkpoint.end + "); delete it to start over.");
+		if (!output.exists() || output.length() < checkpoint.outputBytes)
+			throw new IOException(output + " is shorter than recorded in " + checkpointFile + "; delete the checkpoint to start over.");
+	}
+
+	private BatchResult classify(TweetDatasetReader.Chunk remaining, Checkpoint checkpoint) throws IOException {
+		boolean resume = checkpoint.outputBytes > 0;
+		FileChannel channel = resume ? FileChannel.open(output.toPath(), StandardOpenOption.WRITE)
+				: FileChannel.open(output.toPath(), StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+						StandardOpenOption.TRUNCATE_EXISTING);
+		try {
+			// drop the rows written after the checkpoint
+			channel.truncate(checkpoint.outputBytes);
+			channel.position(checkpoint.outputBytes);
+			OutputStream out = Channels.newOutputStream(channel);
+			TextResultSink sink = new TextResultSink(out, SentimentRowClassifier.getOutputSchema(), "; ", !resume);
+			long outputStart = checkpoint.outputBytes;
+
+			SentimentRowClassifier classifier = new SentimentRowClassifier();
+			classifier.setLinguisticClassification(checkpoint.lastClassification);
+			TweetDatasetReader.RowCursor row = remaining.cursor();
+			long lastRows = checkpoint.rows;
+			long lastTime = System.currentTimeMillis();
+			while (row.next()) {
+				checkpoint.rows++;
+				checkpoint.correct += classifier.classify(checkpoint.rows, row, sink);
+				checkpoint.nextOffset = row.getRowEnd();
+				if (checkpoint.rows - lastRows >= checkpointRows
+						|| (checkpointMillis > 0 && System.currentTimeMillis() - lastTime >= checkpointMillis)) {
+					checkpoint(sink, channel, outputStart, classifier, checkpoint);
+					lastRows = checkpoint.rows;
+					lastTime = System.currentTimeMillis();
+				}
+			}
+			checkpoint.nextOffset = checkpoint.end;
+			checkpoint.complete = true;
+			checkpoint(sink, channel, outputStart, classifier, checkpoint);
+			return new BatchResult(checkpoint.rows, checkpoint.correct);
+		} finally {
+			channel.close();
+		}
+	}
+
+	private void checkpoint(TextResultSink sink, FileChannel channel, long outputStart, SentimentRowClassifier classifier,
+			Checkpoint checkpoint) throws IOException {
+		sink.flush();
+		channel.force(false);
+		checkpoint.outputBytes = outputStart + sink.getBytesWritten();
+		checkpoint.lastClassification = classifier.getLinguisticClassification();
+		checkpoint.write(checkpointFile);
+	}
+
+	public static void main(String args[]) throws IOException {
+		if (args.length < 2) {
+			System.err.println("Usage: BatchClassifier input output [--checkpoint-rows=n] [--checkpoint-seconds=s] [--range=start:end] [--previous-classification=label]");
+			System.exit(1);
+		}
+		BatchClassifier classifier = new BatchClassifier(new File(args[0]), new File(args[1]));
+		long rows = 100000, millis = 60000;
+		for (int i = 2; i < args.length; i++) {
+			String arg = args[i];
+			String value = arg.substring(arg.indexOf('=') + 1);
+			if (arg.startsWith("--checkpoint-rows="))
+				rows = Long.parseLong(value);
+			else if (arg.startsWith("--checkpoint-seconds="))
+				millis = (long) (Double.parseDouble(value) * 1000);
+			else if (arg.startsWith("--range=")) {
+				String[] range = value.split(":");
+				classifier.setRange(Long.parseLong(range[0]), Long.parseLong(range[1]));
+			} else if (arg.startsWith("--previous-classification="))
+				classifier.setPreviousClassification(value);
+			else
+				throw new IllegalArgumentException("Unknown option " + arg);
+		}
+		classifier.setCheckpointInterval(rows, millis);
+		if (classifier.getCheckpointFile().exists())
+			System.out.println("Resuming from " + classifier.getCheckpointFile() + "...");
+		BatchResult result = classifier.run();
+		System.out.println(result.getRows() + " rows classified.");
+		System.out.println(result.getAccuracy() + "% accuracy!");
+	}
+}
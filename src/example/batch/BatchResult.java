@@ -0,0 +1,44 @@
+/*
+ * BatchResult.java
+ *
+ * Rafael Bastos
+ */
+package example.batch;
+
+/**
+ * The number of rows classified by a batch run and how many of them were
+ * classified correctly.
+ * 
+ * @author Rafael Bastos
+ */
+public class BatchResult {
+
+	private final long rows, correct;
+
+	public BatchResult(long rows, long correct) {
+		this.rows = rows;
+		this.correct = correct;
+	}
+
+	public long getRows() {
+		return rows;
+	}
+
+	public long getCorrect() {
+		return correct;
+	}
+
+	/**
+	 * Returns the accuracy in percent, as printed by Sentiment.
+	 */
+	public double getAccuracy() {
+		return ((double) correct / (double) rows) * 100.0;
+	}
+
+	/**
+	 * Returns the combined result of this and another run.
+	 */
+	public BatchResult add(BatchResult other) {
+		return new BatchResult(rows + other.rows, correct + other.correct);
+	}
+}
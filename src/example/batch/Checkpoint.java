@@ -0,0 +1,120 @@
+/*
+ * Checkpoint.java
+ *
+ * Rafael Bastos
+ */
+package example.batch;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.Properties;
+
+/**
+ * The progress of a BatchClassifier: where to continue reading the input,
+ * how many bytes of the output are complete and the counters so far.
+ * Checkpoints are written to a temporary file which is then renamed over the
+ * previous one, so a crash leaves either the old or the new checkpoint,
+ * never a partial one.
+ * 
+ * @author Rafael Bastos
+ */
+public class Checkpoint {
+
+	private static final String FORMAT = "1";
+
+	String input;				// absolute path of the input
+	long inputSize;
+	long start, end;			// the byte range of the input being classified
+	long nextOffset;			// the first row not yet classified
+	long rows, correct;
+	long outputBytes;			// the length of the output holding exactly these rows
+	String lastClassification;	// see SentimentRowClassifier
+	boolean complete;
+
+	/**
+	 * Reads a checkpoint, or returns null if there is none.
+	 */
+	public static Checkpoint read(File file) throws IOException {
+		if (!file.exists())
+			return null;
+		Properties p = new Properties();
+		InputStream in = new FileInputStream(file);
+		try {
+			p.load(in);
+		} finally {
+			in.close();
+		}
+		if (!FORMAT.equals(p.getProperty("format")))
+			throw new IOException(file + " is not a checkpoint of a supported format.");
+		try {
+			Checkpoint c = new Checkpoint();
+			c.input = p.getProperty("input");
+			c.inputSize = Long.parseLong(p.getProperty("inputSize"));
+			c.start = Long.parseLong(p.getProperty("start"));
+			c.end = Long.parseLong(p.getProperty("end"));
+			c.nextOffset = Long.parseLong(p.getProperty("nextOffset"));
+			c.rows = Long.parseLong(p.getProperty("rows"));
+			c.correct = Long.parseLong(p.getProperty("correct"));
+			c.outputBytes = Long.parseLong(p.getProperty("outputBytes"));
+			c.lastClassification = p.getProperty("lastClassification");
+			c.complete = Boolean.parseBoolean(p.getProperty("complete"));
+			return c;
+		} catch (RuntimeException e) {
+			throw new IOException(file + " is not a valid checkpoint: " + e.getMessage());
+		}
+	}
+
+	/**
+	 * Replaces the checkpoint in the given file atomically.
+	 */
+	public void write(File file) throws IOException {
+		Properties p = new Properties();
+		p.setProperty("format", FORMAT);
+		p.setProperty("input", input);
+		p.setProperty("inputSize", Long.toString(inputSize));
+		p.setProperty("start", Long.toString(start));
+		p.setProperty("end", Long.toString(end));
+		p.setProperty("nextOffset", Long.toString(nextOffset));
+		p.setProperty("rows", Long.toString(rows));
+		p.setProperty("correct", Long.toString(correct));
+		p.setProperty("outputBytes", Long.toString(outputBytes));
+		p.setProperty("lastClassification", lastClassification);
+		p.setProperty("complete", Boolean.toString(complete));
+
+		File temporary = new File(file.getPath() + ".tmp");
+		FileOutputStream out = new FileOutputStream(temporary);
+		try {
+			p.store(out, "BatchClassifier checkpoint");
+			out.getFD().sync();
+		} finally {
+			out.close();
+		}
+		try {
+			Files.move(temporary.toPath(), file.toPath(), StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+		} catch (AtomicMoveNotSupportedException e) {
+			Files.move(temporary.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING);
+		}
+	}
+
+	public long getRows() {
+		return rows;
+	}
+
+	public long getCorrect() {
+		return correct;
+	}
+
+	public long getNextOffset() {
+		return nextOffset;
+	}
+
+	public boolean isComplete() {
+		return complete;
+	}
+}
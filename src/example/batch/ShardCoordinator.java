@@ -0,0 +1,297 @@
+/*
+ * ShardCoordinator.java
+ *
+ * Rafael Bastos
+ */
+package example.batch;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.List;
+
+import example.SentimentRowClassifier;
+import example.data.TweetDatasetReader;
+
+/**
+ * Classifies a tweet dataset with several local worker processes and merges
+ * their outputs.
+ * 
+ * The input is split into newline-aligned byte ranges (shards), one per
+ * worker. Every worker is a separate JVM running BatchClassifier on its range
+ * with its own FLS and heap, writing its own output and checkpoint into the
+ * work directory. The checkpoint is also the protocol: a shard is done when
+ * its checkpoint is complete, and it holds the counters of the shard. A
+ * worker that fails is started again and resumes from its checkpoint; so
+ * does a coordinator that is started again after a crash.
+ * 
+ * The outputs are merged in the order of the shards, with a single header
+ * and the rows numbered consecutively, so the result does not depend on
+ * which worker finished first. Since Sentiment repeats the classification of
+ * the previous row on a tie (see SentimentRowClassifier), every worker is
+ * given the classification of the row before its shard, so the result equals
+ * the output of a single BatchClassifier.
+ * 
+ * Usage: ShardCoordinator input output [--workers=n] [--heap=size]
+ * [--work-dir=dir] [--attempts=n] [--keep-shards]
+ * 
+ * @author Rafael Bastos
+ */
+public class ShardCoordinator {
+
+	private final File input, output, workDirectory;
+	private int workers = Runtime.getRuntime().availableProcessors();
+	private String heap = null;
+	private int attempts = 3;
+	private boolean keepShards = false;
+
+	/**
+	 * @param workDirectory holds the shard outputs, checkpoints and logs
+	 */
+	public ShardCoordinator(File input, File output, File workDirectory) {
+		this.input = input;
+		this.output = output;
+		this.workDirectory = workDirectory;
+	}
+
+	public void setWorkers(int workers) {
+		if (workers < 1)
+			throw new IllegalArgumentException("At least one worker is required.");
+		this.workers = workers;
+	}
+
+	/**
+	 * Sets the maximum heap of every worker, e.g. "512m"; null for the JVM default.
+	 */
+	public void setHeap(String heap) {
+		this.heap = heap;
+	}
+
+	/**
+	 * Sets how often a shard is started before the run fails.
+	 */
+	public void setAttempts(int attempts) {
+		this.attempts = attempts;
+	}
+
+	/**
+	 * Keeps the shard outputs and checkpoints after merging.
+	 */
+	public void setKeepShards(boolean keepShards) {
+		this.keepShards = keepShards;
+	}
+
+	/**
+	 * Classifies all shards, merges them into the output and returns the
+	 * combined counters.
+	 */
+	public BatchResult run() throws IOException, InterruptedException {
+		if (!workDirectory.isDirectory() && !workDirectory.mkdirs())
+			throw new IOException("Cannot create " + workDirectory + ".");
+		TweetDatasetReader reader = new TweetDatasetReader(input);
+		TweetDatasetReader.Chunk[] shards;
+		try {
+			shards = reader.split(workers);
+		} finally {
+			reader.close();
+		}
+		String[] previousClassifications = getPreviousClassifications(shards, new SentimentRowClassifier());
+
+		for (int attempt = 1; ; attempt++) {
+			List<Integer> pending = new ArrayList<Integer>();
+			for (int i = 0; i < shards.length; i++) {
+				Checkpoint checkpoint = Checkpoint.read(getCheckpointFile(i));
+				if (checkpoint == null || !checkpoint.isComplete())
+					pending.add(i);
+			}
+			if (pending.isEmpty())
+				break;
+			if (attempt > attempts)
+				throw new IOException("Shards " + pending + " failed " + attempts + " times; see the logs in " + workDirectory + ".");
+			Process[] processes = new Process[pending.size()];
+			for (int i = 0; i < processes.length; i++)
+				processes[i] = start(pending.get(i), shards[pending.get(i)], previousClassifications[pending.get(i)]);
+			for (Process process : processes)
+				process.waitFor();
+		}
+
+		BatchResult result = new BatchResult(0, 0);
+		for (int i = 0; i < shards.length; i++) {
+			Checkpoint checkpoint = Checkpoint.read(getCheckpointFile(i));
+			result = result.add(new BatchResult(checkpoint.getRows(), checkpoint.getCorrect()));
+		}
+		merge(shards.length);
+		if (!keepShards)
+			for (int i = 0; i < shards.length; i++) {
+				getShardOutput(i).delete();
+				getCheckpointFile(i).delete();
+				getLog(i).delete();
+			}
+		return result;
+	}
+
+	/**
+	 * Returns the classification of the row before each shard, i.e. that of
+	 * the last row before it which is not a tie.
+	 */
+	String[] getPreviousClassifications(TweetDatasetReader.Chunk[] shards, SentimentRowClassifier classifier) throws IOException {
+		String[] classifications = new String[shards.length];
+		TweetDatasetReader reader = new TweetDatasetReader(input);
+		try {
+			for (int i = 0; i < shards.length; i++)
+				classifications[i] = getClassificationBefore(reader, classifier, shards[i].getStart());
+		} finally {
+			reader.close();
+		}
+		return classifications;
+	}
+
+	/**
+	 * Classifies the rows before offset, going back in windows of doubling
+	 * size until one of them is not a tie.
+	 */
+	private static String getClassificationBefore(TweetDatasetReader reader, SentimentRowClassifier classifier, long offset)
+			throws IOException {
+		for (long window = 1 << 12; ; window *= 2) {
+			long start = Math.max(reader.getDataStart(), offset - window);
+			String classification = null;
+			TweetDatasetReader.RowCursor row = reader.getChunk(start, offset).cursor();
+			while (row.next()) {
+				String rowClassification = classifier.classify(row);
+				if (rowClassification != null)
+					classification = rowClassification;
+			}
+			if (classification != null)
+				return classification;
+			if (start == reader.getDataStart())
+				return TweetDatasetReader.getLabelName(TweetDatasetReader.NEUTRAL);
+		}
+	}
+
+	private File getShardOutput(int shard) {
+		return new File(workDirectory, "shard-" + shard + ".csv");
+	}
+
+	private File getCheckpointFile(int shard) {
+		return new File(workDirectory, "shard-" + shard + ".csv.checkpoint");
+	}
+
+	private File getLog(int shard) {
+		return new File(workDirectory, "shard-" + shard + ".log");
+	}
+
+	private Process start(int shard, TweetDatasetReader.Chunk range, String previousClassification) throws IOException {
+		List<String> command = new ArrayList<String>();
+		command.add(System.getProperty("java.home") + File.separator + "bin" + File.separator + "java");
+		if (heap != null)
+			command.add("-Xmx" + heap);
+		command.add("-cp");
+		command.add(System.getProperty("java.class.path"));
+		command.add(BatchClassifier.class.getName());
+		command.add(input.getAbsolutePath());
+		command.add(getShardOutput(shard).getAbsolutePath());
+		command.add("--range=" + range.getStart() + ":" + range.getEnd());
+		command.add("--previous-classification=" + previousClassification);
+		ProcessBuilder builder = new ProcessBuilder(command);
+		builder.redirectErrorStream(true);
+		builder.redirectOutput(ProcessBuilder.Redirect.appendTo(getLog(shard)));
+		return builder.start();
+	}
+
+	/**
+	 * Concatenates the shard outputs, keeping the header of the first one and
+	 * renumbering the first column.
+	 */
+	private void merge(int numberOfShards) throws IOException {
+		File temporary = new File(output.getPath() + ".tmp");
+		OutputStream out = new BufferedOutputStream(new FileOutputStream(temporary), 1 << 16);
+		try {
+			long sequence = 0;
+			for (int i = 0; i < numberOfShards; i++) {
+				InputStream in = new BufferedInputStream(new FileInputStream(getShardOutput(i)), 1 << 16);
+				try {
+					boolean header = true, lineStart = true, inNumber = false;
+					int b;
+					while ((b = in.read()) >= 0) {
+						if (header) {
+							if (i == 0)
+								out.write(b);
+							header = b != '\n';
+							continue;
+						}
+						if (lineStart) {
+							// replace the shard's sequence number by the global one
+							out.write(Long.toString(++sequence).getBytes(StandardCharsets.US_ASCII));
+							lineStart = false;
+							inNumber = true;
+						}
+						if (inNumber && b >= '0' && b <= '9')
+							continue;
+						inNumber = false;
+						out.write(b);
+						lineStart = b == '\n';
+					}
+				} finally {
+					in.close();
+				}
+			}
+		} finally {
+			out.close();
+		}
+		try {
+			Files.move(temporary.toPath(), output.toPath(), StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+		} catch (AtomicMoveNotSupportedException e) {
+			Files.move(temporary.toPath(), output.toPath(), StandardCopyOption.REPLACE_EXISTING);
+		}
+	}
+
+	public static void main(String args[]) throws IOException, InterruptedException {
+		if (args.length < 2) {
+			System.err.println("Usage: ShardCoordinator input output [--workers=n] [--heap=size] [--work-dir=dir] [--attempts=n] [--keep-shards]");
+			System.exit(1);
+		}
+		File output = new File(args[1]);
+		File workDirectory = new File(output.getPath() + ".shards");
+		int workers = Runtime.getRuntime().availableProcessors(), attempts = 3;
+		String heap = null;
+		boolean keepShards = false;
+		for (int i = 2; i < args.length; i++) {
+			String arg = args[i];
+			String value = arg.substring(arg.indexOf('=') + 1);
+			if (arg.startsWith("--workers="))
+				workers = Integer.parseInt(value);
+			else if (arg.startsWith("--heap="))
+				heap = value;
+			else if (arg.startsWith("--work-dir="))
+				workDirectory = new File(value);
+			else if (arg.startsWith("--attempts="))
+				attempts = Integer.parseInt(value);
+			else if (arg.equals("--keep-shards"))
+				keepShards = true;
+			else
+				throw new IllegalArgumentException("Unknown option " + arg);
+		}
+		ShardCoordinator coordinator = new ShardCoordinator(new File(args[0]), output, workDirectory);
+		coordinator.setWorkers(workers);
+		coordinator.setHeap(heap);
+		coordinator.setAttempts(attempts);
+		coordinator.setKeepShards(keepShards);
+		long start = System.nanoTime();
+		BatchResult result = coordinator.run();
+		System.out.println(result.getRows() + " rows classified by " + workers + " workers in "
+				+ (System.nanoTime() - start) / 1e9 + "s.");
+		System.out.println(result.getAccuracy() + "% accuracy!");
+		if (!keepShards)
+			workDirectory.delete();
+	}
+}
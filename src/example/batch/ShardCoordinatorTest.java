@@ -0,0 +1,153 @@
+/*
+ * ShardCoordinatorTest.java
+ *
+ * Rafael Bastos
+ */
+package example.batch;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import example.SentimentFLS;
+import example.SentimentRowClassifier;
+import example.data.TweetDatasetReader;
+import example.tuning.SentimentParameters;
+
+/**
+ * Checks that shards are classified as if the dataset was classified in one
+ * run, in particular where a shard starts with a tie.
+ *
+ * The default SentimentFLS practically never ties, so the classification of
+ * the row before each shard is checked with an FLS whose neutral
+ * classification set is the negative one moved slightly to the left: where
+ * the output falls on both plateaus, Sentiment repeats the previous
+ * classification. The dataset consists of
+ * long runs of such ties, each preceded by a row with a clear
+ * classification, so (almost) every shard starts with a tie which repeats a
+ * classification decided in an earlier shard, and ShardCoordinator has to
+ * look back further than its first window. The classifications it finds are
+ * compared with a sequential run over the dataset.
+ *
+ * The workers themselves use the default FLS; the merged output of
+ * ShardCoordinator on the same dataset is compared byte for byte with a
+ * single BatchClassifier run.
+ *
+ * Usage: ShardCoordinatorTest [workers] [seed]
+ *
+ * @author Rafael Bastos
+ */
+public class ShardCoordinatorTest {
+
+	private static final int BLOCKS = 24;
+	private static final int MAXIMUM_RUN = 4000;
+
+	public static void main(String args[]) throws IOException, InterruptedException {
+		int workers = args.length > 0 ? Integer.parseInt(args[0]) : 4;
+		long seed = args.length > 1 ? Long.parseLong(args[1]) : 42;
+		File directory = Files.createTempDirectory("shards").toFile();
+		File input = new File(directory, "input.csv");
+		File single = new File(directory, "single.csv"), sharded = new File(directory, "sharded.csv");
+		File workDirectory = new File(directory, "work");
+		ShardCoordinator coordinator = new ShardCoordinator(input, sharded, workDirectory);
+		coordinator.setWorkers(workers);
+
+		SentimentParameters parameters = SentimentParameters.getDefault();
+		for (int i = 0; i < 8; i++)
+			parameters = parameters.with(SentimentParameters.getLimitsIndex(SentimentParameters.NEUTRAL, false) + i,
+					parameters.get(SentimentParameters.getLimitsIndex(SentimentParameters.NEGATIVE, false) + i) - 0.05);
+		SentimentRowClassifier tying = new SentimentRowClassifier(new SentimentFLS(parameters));
+		writeDataset(input, tying, new Random(seed));
+
+		int tiedBoundaries = 0, wrongBoundaries = 0;
+		TweetDatasetReader reader = new TweetDatasetReader(input);
+		try {
+			TweetDatasetReader.Chunk[] shards = reader.split(workers);
+			String[] expected = new String[shards.length], first = new String[shards.length];
+			TweetDatasetReader.RowCursor row = reader.getAll().cursor();
+			String classification = TweetDatasetReader.getLabelName(TweetDatasetReader.NEUTRAL);
+			int shard = 0;
+			while (row.next()) {
+				String rowClassification = tying.classify(row);
+				if (shard < shards.length && row.getRowStart() == shards[shard].getStart()) {
+					expected[shard] = classification;
+					first[shard++] = rowClassification;
+				}
+				if (rowClassification != null)
+					classification = rowClassification;
+			}
+			String[] found = coordinator.getPreviousClassifications(shards, tying);
+			for (int i = 1; i < shards.length; i++) {
+				if (first[i] == null)
+					tiedBoundaries++;
+				if (!expected[i].equals(found[i]))
+					wrongBoundaries++;
+			}
+		} finally {
+			reader.close();
+		}
+
+		new BatchClassifier(input, single).run();
+		coordinator.run();
+		boolean same = Arrays.equals(Files.readAllBytes(single.toPath()), Files.readAllBytes(sharded.toPath()));
+
+		System.out.println(tiedBoundaries + " of " + (workers - 1) + " shard boundaries on a tie, " + wrongBoundaries
+				+ " previous classifications wrong; merged output " + (same ? "identical." : "differs."));
+		if (!same || tiedBoundaries == 0 || wrongBoundaries > 0) {
+			System.out.println("See " + directory + ".");
+			System.exit(1);
+		}
+		for (File file : new File[] { input, single, new File(single.getPath() + ".checkpoint"), sharded, workDirectory })
+			file.delete();
+		directory.delete();
+	}
+
+	/**
+	 * Writes runs of rows which are ties for the given classifier, each
+	 * preceded by a row it classifies as negative or positive, so that the
+	 * repeated classifications differ from the initial "neutral".
+	 */
+	private static void writeDataset(File file, SentimentRowClassifier classifier, Random random) throws IOException {
+		List<double[]> ties = new ArrayList<double[]>(), negative = new ArrayList<double[]>(), positive = new ArrayList<double[]>();
+		for (int p = 0; p <= 40; p++)
+			for (int n = 0; n <= 40; n++) {
+				double[] scores = { p / 40.0, n / 40.0 };
+				String classification = classifier.classify(scores[0], scores[1]);
+				if (classification == null)
+					ties.add(scores);
+				else if (classification.equals("negative"))
+					negative.add(scores);
+				else if (classification.equals("positive"))
+					positive.add(scores);
+			}
+		if (ties.isEmpty() || negative.isEmpty() || positive.isEmpty())
+			throw new IllegalStateException("No ties or clear classifications found.");
+
+		Writer out = new OutputStreamWriter(new FileOutputStream(file), StandardCharsets.UTF_8);
+		try {
+			out.write("tweetID,text,label,positivity,negativity\n");
+			long id = 1000000000L;
+			for (int block = 0; block < BLOCKS; block++) {
+				List<double[]> decided = random.nextBoolean() ? negative : positive;
+				writeRow(out, id++, decided.get(random.nextInt(decided.size())), random);
+				for (int i = MAXIMUM_RUN / 2 + random.nextInt(MAXIMUM_RUN / 2); i > 0; i--)
+					writeRow(out, id++, ties.get(random.nextInt(ties.size())), random);
+			}
+		} finally {
+			out.close();
+		}
+	}
+
+	private static void writeRow(Writer out, long id, double[] scores, Random random) throws IOException {
+		String label = TweetDatasetReader.getLabelName((byte) random.nextInt(3));
+		out.write(id + ",tweet," + label + "," + scores[0] + "," + scores[1] + "\n");
+	}
+}
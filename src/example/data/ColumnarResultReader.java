@@ -0,0 +1,132 @@
+/*
+ * ColumnarResultReader.java
+ *
+ * Rafael Bastos
+ */
+package example.data;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.DoubleBuffer;
+import java.nio.LongBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+/**
+ * Memory-maps the columns written by a ColumnarResultSink.
+ *
+ * @author Rafael Bastos
+ */
+public class ColumnarResultReader {
+
+	private final File directory;
+	private final ResultSchema schema = new ResultSchema();
+	private long rows;
+
+	public ColumnarResultReader(File directory) throws IOException {
+		this.directory = directory;
+		BufferedReader r = new BufferedReader(new InputStreamReader(
+				new FileInputStream(new File(directory, ColumnarResultSink.SCHEMA_FILE)), StandardCharsets.UTF_8));
+		try {
+			String line;
+			while ((line = r.readLine()) != null) {
+				if (line.startsWith("rows="))
+					rows = Long.parseLong(line.substring(5));
+				else if (line.startsWith("column=")) {
+					String[] parts = line.substring(7).split("\t");
+					byte type = ResultSchema.getType(parts[0]);
+					if (type == ResultSchema.CATEGORY)
+						schema.addCategoryColumn(parts[2], Arrays.copyOfRange(parts, 3, parts.length));
+					else
+						schema.addColumn(parts[2], type);
+				}
+			}
+		} finally {
+			r.close();
+		}
+	}
+
+	public ResultSchema getSchema() {
+		return schema;
+	}
+
+	public long getRowCount() {
+		return rows;
+	}
+
+	public DoubleBuffer getDoubles(String column) throws IOException {
+		return map(column, ResultSchema.DOUBLE).asDoubleBuffer();
+	}
+
+	public LongBuffer getLongs(String column) throws IOException {
+		return map(column, ResultSchema.LONG).asLongBuffer();
+	}
+
+	/**
+	 * Maps a BYTE or CATEGORY column.
+	 */
+	public ByteBuffer getBytes(String column) throws IOException {
+		int c = getColumn(column);
+		if (schema.getType(c) != ResultSchema.CATEGORY)
+			return map(column, ResultSchema.BYTE);
+		return map(new File(directory, ColumnarResultSink.getFileName(c, ResultSchema.CATEGORY)));
+	}
+
+	/**
+	 * Returns an accessor for a TEXT column.
+	 */
+	public TextColumn getText(String column) throws IOException {
+		int c = getColumn(column);
+		return new TextColumn(map(column, ResultSchema.TEXT).asLongBuffer(),
+				map(new File(directory, ColumnarResultSink.getTextFileName(c))));
+	}
+
+	public static class TextColumn {
+		private final LongBuffer ends;
+		private final ByteBuffer data;
+
+		TextColumn(LongBuffer ends, ByteBuffer data) {
+			this.ends = ends;
+			this.data = data;
+		}
+
+		public String get(int row) {
+			int start = row == 0 ? 0 : (int) ends.get(row - 1);
+			byte[] bytes = new byte[(int) ends.get(row) - start];
+			for (int i = 0; i < bytes.length; i++)
+				bytes[i] = data.get(start + i);
+			return new String(bytes, StandardCharsets.UTF_8);
+		}
+	}
+
+	private int getColumn(String column) {
+		int c = schema.getColumn(column);
+		if (c < 0)
+			throw new IllegalArgumentException("Unknown column " + column + ".");
+		return c;
+	}
+
+	private ByteBuffer map(String column, byte type) throws IOException {
+		int c = getColumn(column);
+		if (schema.getType(c) != type)
+			throw new IllegalArgumentException("Column " + column + " is of type "
+					+ ResultSchema.getTypeName(schema.getType(c)) + ".");
+		return map(new File(directory, ColumnarResultSink.getFileName(c, type)));
+	}
+
+	private static ByteBuffer map(File f) throws IOException {
+		FileChannel channel = FileChannel.open(f.toPath(), StandardOpenOption.READ);
+		try {
+			return channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()).order(ByteOrder.LITTLE_ENDIAN);
+		} finally {
+			channel.close();
+		}
+	}
+}
@@ -0,0 +1,214 @@
+/*
+ * ColumnarResultSink.java
+ *
+ * Rafael Bastos
+ */
+package example.data;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Writes result rows into a directory with one binary file per column, so
+ * that single columns can be memory-mapped by downstream analysis (see
+ * ColumnarResultReader).
+ *
+ * All values are little-endian: LONG columns hold 8 byte integers, DOUBLE
+ * columns 8 byte IEEE doubles, BYTE and CATEGORY columns one byte per row.
+ * TEXT columns consist of a data file with the concatenated UTF-8 values and
+ * an offsets file holding the end offset of every value as LONG. The file
+ * schema.txt lists the row count and the name, type, file and categories of
+ * every column; it is written on close().
+ *
+ * @author Rafael Bastos
+ */
+public class ColumnarResultSink implements ResultSink {
+
+	static final String SCHEMA_FILE = "schema.txt";
+	private static final int BUFFER_SIZE = 1 << 16;
+
+	private final File directory;
+	private final ResultSchema schema;
+	private final FileChannel[] channels, textChannels;
+	private final ByteBuffer[] buffers, textBuffers;
+	private final long[] textOffsets;
+	private int column = 0;
+	private long rows = 0;
+	private boolean closed = false;
+
+	public ColumnarResultSink(File directory, ResultSchema schema) throws IOException {
+		if (!directory.isDirectory() && !directory.mkdirs())
+			throw new IOException("Cannot create directory " + directory + ".");
+		this.directory = directory;
+		this.schema = schema;
+		int columns = schema.getNumberOfColumns();
+		channels = new FileChannel[columns];
+		textChannels = new FileChannel[columns];
+		buffers = new ByteBuffer[columns];
+		textBuffers = new ByteBuffer[columns];
+		textOffsets = new long[columns];
+		for (int c = 0; c < columns; c++) {
+			channels[c] = open(getFileName(c, schema.getType(c)));
+			buffers[c] = ByteBuffer.allocateDirect(BUFFER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+			if (schema.getType(c) == ResultSchema.TEXT) {
+				textChannels[c] = open(getTextFileName(c));
+				textBuffers[c] = ByteBuffer.allocateDirect(BUFFER_SIZE);
+			}
+		}
+	}
+
+	static String getFileName(int column, byte type) {
+		switch (type) {
+		case ResultSchema.LONG:
+			return "c" + column + ".i64";
+		case ResultSchema.DOUBLE:
+			return "c" + column + ".f64";
+		case ResultSchema.TEXT:
+			return "c" + column + ".off";
+		default:
+			return "c" + column + ".i8";
+		}
+	}
+
+	static String getTextFileName(int column) {
+		return "c" + column + ".txt";
+	}
+
+	private FileChannel open(String name) throws IOException {
+		return FileChannel.open(new File(directory, name).toPath(), StandardOpenOption.CREATE,
+				StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+	}
+
+	@Override
+	public ResultSchema getSchema() {
+		return schema;
+	}
+
+	@Override
+	public void putLong(long value) throws IOException {
+		ensure(nextColumn(ResultSchema.LONG), 8).putLong(value);
+	}
+
+	@Override
+	public void putDouble(double value) throws IOException {
+		ensure(nextColumn(ResultSchema.DOUBLE), 8).putDouble(value);
+	}
+
+	@Override
+	public void putByte(byte value) throws IOException {
+		ensure(nextColumn(ResultSchema.BYTE), 1).put(value);
+	}
+
+	@Override
+	public void putCategory(byte category) throws IOException {
+		ensure(nextColumn(ResultSchema.CATEGORY), 1).put(category);
+	}
+
+	@Override
+	public void putText(String value) throws IOException {
+		byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+		putText(bytes, 0, bytes.length);
+	}
+
+	@Override
+	public void putText(byte[] value, int offset, int length) throws IOException {
+		int c = nextColumn(ResultSchema.TEXT);
+		ByteBuffer text = textBuffers[c];
+		int written = 0;
+		while (written < length) {
+			if (!text.hasRemaining())
+				drain(textChannels[c], text);
+			int n = Math.min(length - written, text.remaining());
+			text.put(value, offset + written, n);
+			written += n;
+		}
+		textOffsets[c] += length;
+		ensure(c, 8).putLong(textOffsets[c]);
+	}
+
+	@Override
+	public void endRow() throws IOException {
+		if (column != schema.getNumberOfColumns())
+			throw new IllegalStateException("Row " + rows + " ends after " + column + " of " + schema.getNumberOfColumns()
+					+ " columns.");
+		column = 0;
+		rows++;
+	}
+
+	@Override
+	public long getRowCount() {
+		return rows;
+	}
+
+	@Override
+	public void flush() throws IOException {
+		for (int c = 0; c < channels.length; c++) {
+			drain(channels[c], buffers[c]);
+			if (textChannels[c] != null)
+				drain(textChannels[c], textBuffers[c]);
+		}
+	}
+
+	@Override
+	public void close() throws IOException {
+		if (closed)
+			return;
+		flush();
+		for (int c = 0; c < channels.length; c++) {
+			channels[c].close();
+			if (textChannels[c] != null)
+				textChannels[c].close();
+		}
+		writeSchema();
+		closed = true;
+	}
+
+	private void writeSchema() throws IOException {
+		Writer w = new OutputStreamWriter(new FileOutputStream(new File(directory, SCHEMA_FILE)), StandardCharsets.UTF_8);
+		try {
+			w.write("rows=" + rows + "\n");
+			w.write("byteOrder=LITTLE_ENDIAN\n");
+			for (int c = 0; c < schema.getNumberOfColumns(); c++) {
+				byte type = schema.getType(c);
+				w.write("column=" + ResultSchema.getTypeName(type) + "\t" + getFileName(c, type) + "\t" + schema.getName(c));
+				if (type == ResultSchema.CATEGORY)
+					for (String category : schema.getCategories(c))
+						w.write("\t" + category);
+				w.write("\n");
+			}
+		} finally {
+			w.close();
+		}
+	}
+
+	private int nextColumn(byte type) {
+		if (column >= schema.getNumberOfColumns())
+			throw new IllegalStateException("Row " + rows + " has more than " + schema.getNumberOfColumns()
+					+ " columns.");
+		if (schema.getType(column) != type)
+			throw new IllegalStateException("Column " + schema.getName(column) + " is of type "
+					+ ResultSchema.getTypeName(schema.getType(column)) + ", not " + ResultSchema.getTypeName(type) + ".");
+		return column++;
+	}
+
+	private ByteBuffer ensure(int c, int length) throws IOException {
+		if (buffers[c].remaining() < length)
+			drain(channels[c], buffers[c]);
+		return buffers[c];
+	}
+
+	private static void drain(FileChannel channel, ByteBuffer buffer) throws IOException {
+		buffer.flip();
+		while (buffer.hasRemaining())
+			channel.write(buffer);
+		buffer.clear();
+	}
+}
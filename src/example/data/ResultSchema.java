@@ -0,0 +1,79 @@
+/*
+ * ResultSchema.java
+ *
+ * Rafael Bastos
+ */
+package example.data;
+
+import java.util.ArrayList;
+
+/**
+ * Describes the columns of the rows written to a ResultSink.
+ * 
+ * @author Rafael Bastos
+ */
+public class ResultSchema {
+
+	public static final byte LONG = 0;
+	public static final byte DOUBLE = 1;
+	public static final byte BYTE = 2;
+	/** a byte code into a fixed list of names; written as name in text mode */
+	public static final byte CATEGORY = 3;
+	/** variable length UTF-8 text */
+	public static final byte TEXT = 4;
+
+	private static final String[] TYPE_NAMES = { "long", "double", "byte", "category", "text" };
+
+	private final ArrayList<String> names = new ArrayList<String>();
+	private final ArrayList<Byte> types = new ArrayList<Byte>();
+	private final ArrayList<String[]> categories = new ArrayList<String[]>();
+
+	public ResultSchema addColumn(String name, byte type) {
+		if (type < LONG || type > TEXT)
+			throw new IllegalArgumentException("Unknown column type " + type + ".");
+		if (type == CATEGORY)
+			throw new IllegalArgumentException("Category columns need their categories, use addCategoryColumn().");
+		names.add(name);
+		types.add(type);
+		categories.add(null);
+		return this;
+	}
+
+	public ResultSchema addCategoryColumn(String name, String[] categoryNames) {
+		names.add(name);
+		types.add(CATEGORY);
+		categories.add(categoryNames.clone());
+		return this;
+	}
+
+	public int getNumberOfColumns() {
+		return names.size();
+	}
+
+	public String getName(int column) {
+		return names.get(column);
+	}
+
+	public byte getType(int column) {
+		return types.get(column);
+	}
+
+	public String[] getCategories(int column) {
+		return categories.get(column);
+	}
+
+	public int getColumn(String name) {
+		return names.indexOf(name);
+	}
+
+	public static String getTypeName(byte type) {
+		return TYPE_NAMES[type];
+	}
+
+	public static byte getType(String typeName) {
+		for (byte i = 0; i < TYPE_NAMES.length; i++)
+			if (TYPE_NAMES[i].equals(typeName))
+				return i;
+		throw new IllegalArgumentException("Unknown column type " + typeName + ".");
+	}
+}
@@ -0,0 +1,48 @@
+/*
+ * ResultSink.java
+ *
+ * Rafael Bastos
+ */
+package example.data;
+
+import java.io.Closeable;
+import java.io.IOException;
+
+/**
+ * Receives result rows column by column, in the order of its ResultSchema,
+ * each row being completed by endRow(). Sinks buffer their output; they are
+ * not thread-safe.
+ * 
+ * @author Rafael Bastos
+ */
+public interface ResultSink extends Closeable {
+
+	public ResultSchema getSchema();
+
+	public void putLong(long value) throws IOException;
+
+	public void putDouble(double value) throws IOException;
+
+	public void putByte(byte value) throws IOException;
+
+	/**
+	 * @param category index into the categories of the column
+	 */
+	public void putCategory(byte category) throws IOException;
+
+	public void putText(String value) throws IOException;
+
+	/**
+	 * Puts UTF-8 encoded text.
+	 */
+	public void putText(byte[] value, int offset, int length) throws IOException;
+
+	public void endRow() throws IOException;
+
+	public long getRowCount();
+
+	/**
+	 * Writes all buffered rows to the underlying files.
+	 */
+	public void flush() throws IOException;
+}
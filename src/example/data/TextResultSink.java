@@ -0,0 +1,282 @@
+/*
+ * TextResultSink.java
+ *
+ * Rafael Bastos
+ */
+package example.data;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Writes result rows as separated text (by default "; ", as the original FLS
+ * output) with a header line holding the column names.
+ *
+ * Rows are assembled in one reused byte buffer which is only handed to the
+ * output stream when full, so no objects are created per row. Doubles are
+ * formatted through a reused StringBuilder, which produces exactly the text of
+ * Double.toString without allocating. Alternatively setDecimals() selects a
+ * cheaper fixed-point format with the given number of decimals.
+ *
+ * @author Rafael Bastos
+ */
+public class TextResultSink implements ResultSink {
+
+	private static final int BUFFER_SIZE = 1 << 16;
+	private static final long[] POWERS_OF_TEN = { 1L, 10L, 100L, 1000L, 10000L, 100000L, 1000000L, 10000000L,
+			100000000L, 1000000000L, 10000000000L, 100000000000L, 1000000000000L };
+
+	private final OutputStream out;
+	private final ResultSchema schema;
+	private final byte[] separator;
+	private final byte[][][] categoryNames;
+	private final byte[] buffer = new byte[BUFFER_SIZE];
+	private int position = 0;
+	private final StringBuilder scratch = new StringBuilder(32);
+	private int decimals = -1;
+	private int column = 0;
+	private long rows = 0;
+	private long bytesWritten = 0;
+
+	public TextResultSink(OutputStream out, ResultSchema schema) throws IOException {
+		this(out, schema, "; ", true);
+	}
+
+	/**
+	 * @param writeHeader false when appending to an existing output
+	 */
+	public TextResultSink(OutputStream out, ResultSchema schema, String separator, boolean writeHeader)
+			throws IOException {
+		this.out = out;
+		this.schema = schema;
+		this.separator = separator.getBytes(StandardCharsets.UTF_8);
+		categoryNames = new byte[schema.getNumberOfColumns()][][];
+		for (int c = 0; c < categoryNames.length; c++)
+			if (schema.getType(c) == ResultSchema.CATEGORY) {
+				String[] names = schema.getCategories(c);
+				categoryNames[c] = new byte[names.length][];
+				for (int i = 0; i < names.length; i++)
+					categoryNames[c][i] = names[i].getBytes(StandardCharsets.UTF_8);
+			}
+		if (writeHeader) {
+			for (int c = 0; c < schema.getNumberOfColumns(); c++) {
+				if (c > 0)
+					put(this.separator, 0, this.separator.length);
+				putChars(schema.getName(c));
+			}
+			putByteRaw((byte) '\n');
+		}
+	}
+
+	/**
+	 * Formats doubles with a fixed number of decimals (trailing zeros removed)
+	 * instead of the exact Double.toString representation. Negative values
+	 * restore the default.
+	 */
+	public void setDecimals(int decimals) {
+		if (decimals >= POWERS_OF_TEN.length)
+			throw new IllegalArgumentException("At most " + (POWERS_OF_TEN.length - 1) + " decimals are supported.");
+		this.decimals = decimals;
+	}
+
+	@Override
+	public ResultSchema getSchema() {
+		return schema;
+	}
+
+	@Override
+	public void putLong(long value) throws IOException {
+		nextColumn(ResultSchema.LONG);
+		putLongDigits(value);
+	}
+
+	@Override
+	public void putDouble(double value) throws IOException {
+		nextColumn(ResultSchema.DOUBLE);
+		if (decimals < 0 || !putFixed(value)) {
+			scratch.setLength(0);
+			scratch.append(value);
+			ensure(scratch.length());
+			for (int i = 0; i < scratch.length(); i++)
+				buffer[position++] = (byte) scratch.charAt(i);
+		}
+	}
+
+	@Override
+	public void putByte(byte value) throws IOException {
+		nextColumn(ResultSchema.BYTE);
+		putLongDigits(value);
+	}
+
+	@Override
+	public void putCategory(byte category) throws IOException {
+		nextColumn(ResultSchema.CATEGORY);
+		byte[] name = categoryNames[column - 1][category];
+		put(name, 0, name.length);
+	}
+
+	@Override
+	public void putText(String value) throws IOException {
+		nextColumn(ResultSchema.TEXT);
+		putChars(value);
+	}
+
+	@Override
+	public void putText(byte[] value, int offset, int length) throws IOException {
+		nextColumn(ResultSchema.TEXT);
+		put(value, offset, length);
+	}
+
+	@Override
+	public void endRow() throws IOException {
+		if (column != schema.getNumberOfColumns())
+			throw new IllegalStateException("Row " + rows + " ends after " + column + " of " + schema.getNumberOfColumns()
+					+ " columns.");
+		putByteRaw((byte) '\n');
+		column = 0;
+		rows++;
+	}
+
+	@Override
+	public long getRowCount() {
+		return rows;
+	}
+
+	/**
+	 * Returns the number of bytes written so far, including buffered ones.
+	 */
+	public long getBytesWritten() {
+		return bytesWritten + position;
+	}
+
+	@Override
+	public void flush() throws IOException {
+		if (position > 0) {
+			out.write(buffer, 0, position);
+			bytesWritten += position;
+			position = 0;
+		}
+		out.flush();
+	}
+
+	@Override
+	public void close() throws IOException {
+		flush();
+		out.close();
+	}
+
+	private void nextColumn(byte type) throws IOException {
+		if (column >= schema.getNumberOfColumns())
+			throw new IllegalStateException("Row " + rows + " has more than " + schema.getNumberOfColumns()
+					+ " columns.");
+		if (schema.getType(column) != type)
+			throw new IllegalStateException("Column " + schema.getName(column) + " is of type "
+					+ ResultSchema.getTypeName(schema.getType(column)) + ", not " + ResultSchema.getTypeName(type) + ".");
+		if (column > 0)
+			put(separator, 0, separator.length);
+		column++;
+	}
+
+	private void ensure(int length) throws IOException {
+		if (BUFFER_SIZE - position < length) {
+			out.write(buffer, 0, position);
+			bytesWritten += position;
+			position = 0;
+		}
+	}
+
+	private void put(byte[] bytes, int offset, int length) throws IOException {
+		if (length > BUFFER_SIZE) {
+			flush();
+			out.write(bytes, offset, length);
+			bytesWritten += length;
+			return;
+		}
+		ensure(length);
+		System.arraycopy(bytes, offset, buffer, position, length);
+		position += length;
+	}
+
+	private void putByteRaw(byte b) throws IOException {
+		ensure(1);
+		buffer[position++] = b;
+	}
+
+	private void putChars(String s) throws IOException {
+		for (int i = 0; i < s.length(); i++)
+			if (s.charAt(i) >= 0x80) {
+				byte[] bytes = s.getBytes(StandardCharsets.UTF_8);
+				put(bytes, 0, bytes.length);
+				return;
+			}
+		ensure(s.length());
+		for (int i = 0; i < s.length(); i++)
+			buffer[position++] = (byte) s.charAt(i);
+	}
+
+	private void putLongDigits(long value) throws IOException {
+		ensure(20);
+		if (value == Long.MIN_VALUE) {
+			putChars(Long.toString(value));
+			return;
+		}
+		if (value < 0) {
+			buffer[position++] = '-';
+			value = -value;
+		}
+		int start = position;
+		do {
+			buffer[position++] = (byte) ('0' + value % 10);
+			value /= 10;
+		} while (value > 0);
+		reverse(start, position - 1);
+	}
+
+	/**
+	 * Writes value with the configured number of decimals. Returns false for
+	 * values that cannot be represented exactly enough this way (NaN,
+	 * infinities, very large magnitudes); these use the default format.
+	 */
+	private boolean putFixed(double value) throws IOException {
+		double scaled = Math.abs(value) * POWERS_OF_TEN[decimals];
+		if (!(scaled < 1e15))
+			return false;
+		long digits = Math.round(scaled);
+		ensure(20 + decimals);
+		if (value < 0 && digits != 0)
+			buffer[position++] = '-';
+		long integer = digits / POWERS_OF_TEN[decimals];
+		long fraction = digits % POWERS_OF_TEN[decimals];
+		int start = position;
+		do {
+			buffer[position++] = (byte) ('0' + integer % 10);
+			integer /= 10;
+		} while (integer > 0);
+		reverse(start, position - 1);
+		buffer[position++] = '.';
+		if (fraction == 0) {
+			buffer[position++] = '0';
+			return true;
+		}
+		int length = decimals;
+		while (fraction % 10 == 0) {
+			fraction /= 10;
+			length--;
+		}
+		for (int i = length - 1; i >= 0; i--) {
+			buffer[position + i] = (byte) ('0' + fraction % 10);
+			fraction /= 10;
+		}
+		position += length;
+		return true;
+	}
+
+	private void reverse(int from, int to) {
+		while (from < to) {
+			byte b = buffer[from];
+			buffer[from++] = buffer[to];
+			buffer[to--] = b;
+		}
+	}
+}
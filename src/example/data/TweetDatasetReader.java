@@ -0,0 +1,457 @@
+/*
+ * TweetDatasetReader.java
+ *
+ * Rafael Bastos
+ */
+package example.data;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+
+/**
+ * Reader for the comma separated tweet dataset (tweetID, ..., classification,
+ * positivity, negativity, ...) with a header in the first line.
+ *
+ * The file is memory-mapped and line and field boundaries are found directly
+ * in the mapped bytes. The positivity and negativity columns are parsed into
+ * doubles without creating substrings, and the classification is matched
+ * against the three known labels byte by byte. As with String.split(","),
+ * fields are not unquoted.
+ *
+ * split() cuts the data into newline-aligned chunks that can be read by
+ * independent workers, each through its own RowCursor. Large chunks are
+ * mapped in windows, so files and chunks may exceed 2GB.
+ *
+ * @author Rafael Bastos
+ */
+public class TweetDatasetReader implements Closeable {
+
+	public static final byte UNKNOWN = -1;
+	public static final byte NEGATIVE = 0;
+	public static final byte NEUTRAL = 1;
+	public static final byte POSITIVE = 2;
+
+	private static final String[] LABELS = { "negative", "neutral", "positive" };
+	private static final byte[][] LABEL_BYTES = { LABELS[0].getBytes(StandardCharsets.US_ASCII),
+			LABELS[1].getBytes(StandardCharsets.US_ASCII), LABELS[2].getBytes(StandardCharsets.US_ASCII) };
+
+	// dataset columns
+	public static final int ID_FIELD = 0;
+	public static final int LABEL_FIELD = 2;
+	public static final int POSITIVITY_FIELD = 3;
+	public static final int NEGATIVITY_FIELD = 4;
+	private static final int MAX_FIELDS = 32;
+
+	/** largest window mapped at once */
+	private static final long WINDOW_SIZE = 1L << 28;
+
+	private final File file;
+	private final FileChannel channel;
+	private final long size;
+	private final long dataStart;
+
+	public TweetDatasetReader(File file) throws IOException {
+		this.file = file;
+		this.channel = FileChannel.open(file.toPath(), StandardOpenOption.READ);
+		this.size = channel.size();
+		this.dataStart = Math.min(size, nextLineStart(0));
+	}
+
+	public File getFile() {
+		return file;
+	}
+
+	public long getSize() {
+		return size;
+	}
+
+	/**
+	 * Returns the byte offset of the first data row, i.e. the row after the header.
+	 */
+	public long getDataStart() {
+		return dataStart;
+	}
+
+	/**
+	 * Returns the name of a label code, e.g. "negative" for NEGATIVE.
+	 */
+	public static String getLabelName(byte label) {
+		return label >= 0 && label < LABELS.length ? LABELS[label] : null;
+	}
+
+	/**
+	 * Returns the label code of a name, or UNKNOWN.
+	 */
+	public static byte getLabel(String name) {
+		for (byte i = 0; i < LABELS.length; i++)
+			if (LABELS[i].equals(name))
+				return i;
+		return UNKNOWN;
+	}
+
+	/**
+	 * Returns the chunk holding all data rows.
+	 */
+	public Chunk getAll() {
+		return new Chunk(dataStart, size);
+	}
+
+	/**
+	 * Returns the chunk of all rows starting at or after byte offset start and
+	 * before byte offset end. Both offsets are moved forward to the next line
+	 * start unless they already are one, so adjacent ranges never share a row.
+	 */
+	public Chunk getChunk(long start, long end) throws IOException {
+		return new Chunk(alignToLineStart(Math.max(start, dataStart)), alignToLineStart(Math.max(end, dataStart)));
+	}
+
+	/**
+	 * Splits the data rows into (at most) the given number of newline-aligned
+	 * chunks of roughly equal size.
+	 */
+	public Chunk[] split(int parts) throws IOException {
+		ArrayList<Chunk> chunks = new ArrayList<Chunk>();
+		long length = size - dataStart;
+		long start = dataStart;
+		for (int i = 1; i <= parts && start < size; i++) {
+			long end = i == parts ? size : alignToLineStart(dataStart + length * i / parts);
+			if (end > start)
+				chunks.add(new Chunk(start, end));
+			start = Math.max(start, end);
+		}
+		return chunks.toArray(new Chunk[chunks.size()]);
+	}
+
+	/**
+	 * Returns offset if it is the start of a line, otherwise the start of the next line.
+	 */
+	long alignToLineStart(long offset) throws IOException {
+		if (offset <= 0)
+			return 0;
+		if (offset >= size)
+			return size;
+		return nextLineStart(offset - 1);
+	}
+
+	/**
+	 * Returns the offset after the first newline at or after offset.
+	 */
+	private long nextLineStart(long offset) throws IOException {
+		while (offset < size) {
+			long length = Math.min(1 << 16, size - offset);
+			MappedByteBuffer window = channel.map(FileChannel.MapMode.READ_ONLY, offset, length);
+			for (int i = 0; i < length; i++)
+				if (window.get(i) == '\n')
+					return offset + i + 1;
+			offset += length;
+		}
+		return size;
+	}
+
+	@Override
+	public void close() throws IOException {
+		channel.close();
+	}
+
+	/**
+	 * A newline-aligned byte range [start, end) of the dataset.
+	 */
+	public class Chunk {
+		private final long start, end;
+
+		Chunk(long start, long end) {
+			this.start = start;
+			this.end = end;
+		}
+
+		public long getStart() {
+			return start;
+		}
+
+		public long getEnd() {
+			return end;
+		}
+
+		public RowCursor cursor() {
+			return new RowCursor(start, end);
+		}
+
+		/**
+		 * Counts the (non-empty) rows of this chunk without parsing them.
+		 */
+		public long countRows() throws IOException {
+			RowCursor cursor = new RowCursor(start, end);
+			long rows = 0;
+			while (cursor.nextLine())
+				rows++;
+			return rows;
+		}
+	}
+
+	/**
+	 * Iterates over the rows of a chunk. A cursor is not thread-safe; every
+	 * worker uses its own. The accessors refer to the current row.
+	 */
+	public class RowCursor {
+		private final long end;
+		private MappedByteBuffer window;
+		private long windowStart, windowEnd;	// file offsets of the mapped window
+		private long position;					// file offset of the next line
+
+		private long lineStart, lineEnd;		// current line, lineEnd after the newline
+		private final int[] fieldStart = new int[MAX_FIELDS], fieldEnd = new int[MAX_FIELDS];
+		private int fields;
+		private double positivity, negativity;
+		private byte label;
+
+		RowCursor(long start, long end) {
+			this.position = start;
+			this.end = end;
+		}
+
+		/**
+		 * Advances to the next row and parses it.
+		 *
+		 * @return false at the end of the chunk
+		 * @throws IOException if the row has too few fields or the scores are not numbers
+		 */
+		public boolean next() throws IOException {
+			if (!nextLine())
+				return false;
+			if (fields <= NEGATIVITY_FIELD)
+				throw new IOException("Malformed row at byte " + lineStart + " of " + file + ": " + fields + " fields.");
+			try {
+				positivity = parseDouble(fieldStart[POSITIVITY_FIELD], fieldEnd[POSITIVITY_FIELD]);
+				negativity = parseDouble(fieldStart[NEGATIVITY_FIELD], fieldEnd[NEGATIVITY_FIELD]);
+			} catch (NumberFormatException e) {
+				throw new IOException("Malformed row at byte " + lineStart + " of " + file + ": " + e.getMessage());
+			}
+			label = matchLabel(fieldStart[LABEL_FIELD], fieldEnd[LABEL_FIELD]);
+			return true;
+		}
+
+		/**
+		 * Advances to the next non-empty line and locates its fields.
+		 */
+		boolean nextLine() throws IOException {
+			while (position < end) {
+				// windows always end after a newline (or at the chunk end), so
+				// a line starting within the window is completely mapped
+				if (position >= windowEnd)
+					map(position);
+				int i = (int) (position - windowStart);
+				int limit = (int) (Math.min(end, windowEnd) - windowStart);
+				fields = 0;
+				fieldStart[0] = i;
+				while (i < limit) {
+					byte b = window.get(i);
+					if (b == '\n')
+						break;
+					if (b == ',' && fields < MAX_FIELDS - 1) {
+						fieldEnd[fields++] = i;
+						fieldStart[fields] = i + 1;
+					}
+					i++;
+				}
+				int contentEnd = i;
+				if (contentEnd > fieldStart[fields] && window.get(contentEnd - 1) == '\r')
+					contentEnd--;
+				fieldEnd[fields++] = contentEnd;
+				lineStart = position;
+				lineEnd = windowStart + Math.min(i + 1, limit);
+				position = lineEnd;
+				if (contentEnd > fieldStart[0] || fields > 1)
+					return true;
+			}
+			return false;
+		}
+
+		/**
+		 * Maps the next window starting at offset, ending at a line end.
+		 */
+		private void map(long offset) throws IOException {
+			long length = Math.min(WINDOW_SIZE, end - offset);
+			MappedByteBuffer mapped = channel.map(FileChannel.MapMode.READ_ONLY, offset, length);
+			if (offset + length < end) {
+				// cut the window after its last newline
+				int last = (int) length - 1;
+				while (last >= 0 && mapped.get(last) != '\n')
+					last--;
+				if (last < 0)
+					throw new IOException("Line at byte " + offset + " of " + file + " exceeds " + WINDOW_SIZE + " bytes.");
+				length = last + 1;
+			}
+			window = mapped;
+			windowStart = offset;
+			windowEnd = offset + length;
+		}
+
+		public double getPositivity() {
+			return positivity;
+		}
+
+		public double getNegativity() {
+			return negativity;
+		}
+
+		/**
+		 * @return NEGATIVE, NEUTRAL, POSITIVE or UNKNOWN
+		 */
+		public byte getLabel() {
+			return label;
+		}
+
+		/**
+		 * Byte offset of the start of the current row.
+		 */
+		public long getRowStart() {
+			return lineStart;
+		}
+
+		/**
+		 * Byte offset just after the current row (and its newline).
+		 */
+		public long getRowEnd() {
+			return lineEnd;
+		}
+
+		public int getNumberOfFields() {
+			return fields;
+		}
+
+		/**
+		 * Returns a field of the current row as String.
+		 */
+		public String getField(int field) {
+			byte[] bytes = new byte[fieldEnd[field] - fieldStart[field]];
+			for (int i = 0; i < bytes.length; i++)
+				bytes[i] = window.get(fieldStart[field] + i);
+			return new String(bytes, StandardCharsets.UTF_8);
+		}
+
+		public String getId() {
+			return getField(ID_FIELD);
+		}
+
+		/**
+		 * Copies the raw bytes of a field of the current row to out.
+		 */
+		public void writeField(int field, OutputStream out) throws IOException {
+			for (int i = fieldStart[field]; i < fieldEnd[field]; i++)
+				out.write(window.get(i));
+		}
+
+		/**
+		 * Copies the raw bytes of a field into dest (if large enough) and returns its length.
+		 */
+		public int copyField(int field, byte[] dest, int offset) {
+			int length = fieldEnd[field] - fieldStart[field];
+			if (dest.length - offset >= length)
+				for (int i = 0; i < length; i++)
+					dest[offset + i] = window.get(fieldStart[field] + i);
+			return length;
+		}
+
+		private byte matchLabel(int from, int to) {
+			for (byte l = 0; l < LABEL_BYTES.length; l++) {
+				byte[] expected = LABEL_BYTES[l];
+				if (to - from != expected.length)
+					continue;
+				int i = 0;
+				while (i < expected.length && window.get(from + i) == expected[i])
+					i++;
+				if (i == expected.length)
+					return l;
+			}
+			return UNKNOWN;
+		}
+
+		/**
+		 * Parses a decimal number in [from, to) of the window. Numbers with up to
+		 * 15 significant digits and a decimal exponent of at most 22 are computed
+		 * exactly from the digits (one correctly rounded multiplication or
+		 * division); everything else falls back to Double.parseDouble, so the
+		 * result always equals Double.valueOf of the field.
+		 */
+		private double parseDouble(int from, int to) {
+			while (from < to && window.get(from) <= ' ')
+				from++;
+			while (to > from && window.get(to - 1) <= ' ')
+				to--;
+			int i = from;
+			boolean negative = false;
+			if (i < to && (window.get(i) == '-' || window.get(i) == '+'))
+				negative = window.get(i++) == '-';
+			long mantissa = 0;
+			int digits = 0, exponent = 0;
+			boolean anyDigit = false, dot = false;
+			for (; i < to; i++) {
+				byte b = window.get(i);
+				if (b >= '0' && b <= '9') {
+					anyDigit = true;
+					if (digits > 0 || b != '0') {
+						if (digits >= 18)
+							return slowParse(from, to);
+						mantissa = mantissa * 10 + (b - '0');
+						digits++;
+					}
+					if (dot)
+						exponent--;
+				} else if (b == '.' && !dot)
+					dot = true;
+				else
+					break;
+			}
+			if (!anyDigit)
+				return slowParse(from, to);
+			if (i < to) {
+				byte b = window.get(i);
+				if (b != 'e' && b != 'E')
+					return slowParse(from, to);
+				i++;
+				boolean negativeExponent = false;
+				if (i < to && (window.get(i) == '-' || window.get(i) == '+'))
+					negativeExponent = window.get(i++) == '-';
+				if (i == to)
+					return slowParse(from, to);
+				int e = 0;
+				for (; i < to; i++) {
+					b = window.get(i);
+					if (b < '0' || b > '9' || e > 100000)
+						return slowParse(from, to);
+					e = e * 10 + (b - '0');
+				}
+				exponent += negativeExponent ? -e : e;
+			}
+			double value;
+			if (mantissa == 0)
+				value = 0.0;
+			else if (digits <= 15 && exponent >= -22 && exponent <= 22)
+				value = exponent < 0 ? mantissa / POWERS_OF_TEN[-exponent] : mantissa * POWERS_OF_TEN[exponent];
+			else
+				return slowParse(from, to);
+			return negative ? -value : value;
+		}
+
+		private double slowParse(int from, int to) {
+			byte[] bytes = new byte[to - from];
+			for (int i = 0; i < bytes.length; i++)
+				bytes[i] = window.get(from + i);
+			return Double.parseDouble(new String(bytes, StandardCharsets.US_ASCII));
+		}
+	}
+
+	private static final double[] POWERS_OF_TEN = new double[23];
+	static {
+		POWERS_OF_TEN[0] = 1.0;
+		for (int i = 1; i < POWERS_OF_TEN.length; i++)
+			POWERS_OF_TEN[i] = POWERS_OF_TEN[i - 1] * 10.0;
+	}
+}
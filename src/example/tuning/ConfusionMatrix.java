@@ -0,0 +1,131 @@
+/*
+ * ConfusionMatrix.java
+ *
+ * Rafael Bastos
+ */
+package example.tuning;
+
+import example.data.TweetDatasetReader;
+
+/**
+ * Counts of actual against predicted classifications for the negative,
+ * neutral and positive classes. Rows whose label is none of these and rows
+ * the FLS could not classify are counted as UNKNOWN; they are part of the
+ * accuracy (as in Sentiment, where they are never correct) but never a true
+ * positive of any class.
+ * 
+ * @author Rafael Bastos
+ */
+public class ConfusionMatrix {
+
+	public static final int NUMBER_OF_CLASSES = 3;
+
+	private final long[][] counts = new long[NUMBER_OF_CLASSES + 1][NUMBER_OF_CLASSES + 1]; // [actual][predicted]
+
+	private static int index(byte label) {
+		return label == TweetDatasetReader.UNKNOWN ? NUMBER_OF_CLASSES : label;
+	}
+
+	public void add(byte actual, byte predicted, long count) {
+		counts[index(actual)][index(predicted)] += count;
+	}
+
+	public void add(ConfusionMatrix other) {
+		for (int i = 0; i <= NUMBER_OF_CLASSES; i++)
+			for (int j = 0; j <= NUMBER_OF_CLASSES; j++)
+				counts[i][j] += other.counts[i][j];
+	}
+
+	/**
+	 * @param actual NEGATIVE, NEUTRAL, POSITIVE or UNKNOWN
+	 * @param predicted NEGATIVE, NEUTRAL, POSITIVE or UNKNOWN
+	 */
+	public long getCount(byte actual, byte predicted) {
+		return counts[index(actual)][index(predicted)];
+	}
+
+	public long getTotal() {
+		long total = 0;
+		for (long[] row : counts)
+			for (long count : row)
+				total += count;
+		return total;
+	}
+
+	public long getCorrect() {
+		long correct = 0;
+		for (int i = 0; i < NUMBER_OF_CLASSES; i++)
+			correct += counts[i][i];
+		return correct;
+	}
+
+	/**
+	 * Returns the accuracy in percent.
+	 */
+	public double getAccuracy() {
+		long total = getTotal();
+		return total == 0 ? 0.0 : 100.0 * getCorrect() / total;
+	}
+
+	public double getPrecision(byte label) {
+		long predicted = 0;
+		for (int i = 0; i <= NUMBER_OF_CLASSES; i++)
+			predicted += counts[i][label];
+		return predicted == 0 ? 0.0 : (double) counts[label][label] / predicted;
+	}
+
+	public double getRecall(byte label) {
+		long actual = 0;
+		for (int j = 0; j <= NUMBER_OF_CLASSES; j++)
+			actual += counts[label][j];
+		return actual == 0 ? 0.0 : (double) counts[label][label] / actual;
+	}
+
+	/**
+	 * Returns the F1 score of a class, 0 if the class neither occurs nor is
+	 * predicted.
+	 */
+	public double getF1(byte label) {
+		long truePositives = counts[label][label];
+		long falsePositives = 0, falseNegatives = 0;
+		for (int i = 0; i <= NUMBER_OF_CLASSES; i++)
+			if (i != label) {
+				falsePositives += counts[i][label];
+				falseNegatives += counts[label][i];
+			}
+		long denominator = 2 * truePositives + falsePositives + falseNegatives;
+		return denominator == 0 ? 0.0 : 2.0 * truePositives / denominator;
+	}
+
+	/**
+	 * Returns the unweighted mean of the F1 scores of the three classes.
+	 */
+	public double getMacroF1() {
+		double sum = 0;
+		for (byte label = 0; label < NUMBER_OF_CLASSES; label++)
+			sum += getF1(label);
+		return sum / NUMBER_OF_CLASSES;
+	}
+
+	/**
+	 * Returns the matrix as text, one row per actual class.
+	 */
+	@Override
+	public String toString() {
+		String[] names = new String[NUMBER_OF_CLASSES + 1];
+		for (byte label = 0; label < NUMBER_OF_CLASSES; label++)
+			names[label] = TweetDatasetReader.getLabelName(label);
+		names[NUMBER_OF_CLASSES] = "other";
+		StringBuilder s = new StringBuilder(String.format("%-18s", "actual\\predicted"));
+		for (String name : names)
+			s.append(String.format("%12s", name));
+		s.append('\n');
+		for (int i = 0; i <= NUMBER_OF_CLASSES; i++) {
+			s.append(String.format("%-18s", names[i]));
+			for (int j = 0; j <= NUMBER_OF_CLASSES; j++)
+				s.append(String.format("%12d", counts[i][j]));
+			s.append('\n');
+		}
+		return s.toString();
+	}
+}
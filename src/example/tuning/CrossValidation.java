@@ -0,0 +1,96 @@
+/*
+ * CrossValidation.java
+ *
+ * Rafael Bastos
+ */
+package example.tuning;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+
+/**
+ * Stratified k-fold cross-validation of SentimentFLS configurations.
+ * 
+ * The folds are drawn once, when the runner is created. A configuration is
+ * evaluated on the distinct points of the whole dataset once, through a
+ * PredictionCache shared by all folds (and kept across calls), and the
+ * confusion matrices of the folds are then counted in parallel. Several
+ * configurations are evaluated in parallel as well.
+ * 
+ * @author Rafael Bastos
+ */
+public class CrossValidation {
+
+	private final PredictionCache cache;
+	private final ForkJoinPool pool;
+	private final int[][] folds;
+
+	public CrossValidation(SentimentDataset dataset, int k, long seed, ForkJoinPool pool) {
+		this(new PredictionCache(dataset, pool, 64), k, seed, pool);
+	}
+
+	/**
+	 * @param cache the predictions, possibly shared with other experiments on
+	 *              the same dataset
+	 */
+	public CrossValidation(PredictionCache cache, int k, long seed, ForkJoinPool pool) {
+		this.cache = cache;
+		this.pool = pool;
+		this.folds = cache.getDataset().getStratifiedFolds(k, seed);
+	}
+
+	public int getNumberOfFolds() {
+		return folds.length;
+	}
+
+	/**
+	 * Returns the rows of a fold; the array must not be modified.
+	 */
+	public int[] getFold(int fold) {
+		return folds[fold];
+	}
+
+	/**
+	 * Evaluates a configuration on every fold.
+	 */
+	public CrossValidationResult evaluate(SentimentParameters parameters) {
+		final byte[] predictions = cache.getPredictions(parameters);
+		final SentimentDataset dataset = cache.getDataset();
+		ArrayList<ForkJoinTask<ConfusionMatrix>> tasks = new ArrayList<ForkJoinTask<ConfusionMatrix>>();
+		for (final int[] fold : folds)
+			tasks.add(pool.submit(new Callable<ConfusionMatrix>() {
+				public ConfusionMatrix call() {
+					ConfusionMatrix matrix = new ConfusionMatrix();
+					for (int row : fold)
+						matrix.add(dataset.getLabel(row), predictions[dataset.getPoint(row)], 1);
+					return matrix;
+				}
+			}));
+		ConfusionMatrix[] matrices = new ConfusionMatrix[folds.length];
+		for (int f = 0; f < folds.length; f++)
+			matrices[f] = tasks.get(f).join();
+		return new CrossValidationResult(parameters, matrices);
+	}
+
+	/**
+	 * Evaluates several configurations in parallel.
+	 * 
+	 * @return the results, in the order of the configurations
+	 */
+	public List<CrossValidationResult> evaluate(List<SentimentParameters> configurations) {
+		ArrayList<ForkJoinTask<CrossValidationResult>> tasks = new ArrayList<ForkJoinTask<CrossValidationResult>>();
+		for (final SentimentParameters parameters : configurations)
+			tasks.add(pool.submit(new Callable<CrossValidationResult>() {
+				public CrossValidationResult call() {
+					return evaluate(parameters);
+				}
+			}));
+		ArrayList<CrossValidationResult> results = new ArrayList<CrossValidationResult>();
+		for (ForkJoinTask<CrossValidationResult> task : tasks)
+			results.add(task.join());
+		return results;
+	}
+}
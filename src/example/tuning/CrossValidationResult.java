@@ -0,0 +1,96 @@
+/*
+ * CrossValidationResult.java
+ *
+ * Rafael Bastos
+ */
+package example.tuning;
+
+/**
+ * The confusion matrices of one configuration on every fold of a
+ * cross-validation, with the mean and standard deviation of accuracy and
+ * macro-F1 across folds and the matrix pooled over all folds.
+ * 
+ * @author Rafael Bastos
+ */
+public class CrossValidationResult {
+
+	private final SentimentParameters parameters;
+	private final ConfusionMatrix[] folds;
+	private final ConfusionMatrix pooled = new ConfusionMatrix();
+
+	CrossValidationResult(SentimentParameters parameters, ConfusionMatrix[] folds) {
+		this.parameters = parameters;
+		this.folds = folds;
+		for (ConfusionMatrix fold : folds)
+			pooled.add(fold);
+	}
+
+	public SentimentParameters getParameters() {
+		return parameters;
+	}
+
+	public int getNumberOfFolds() {
+		return folds.length;
+	}
+
+	public ConfusionMatrix getFold(int fold) {
+		return folds[fold];
+	}
+
+	/**
+	 * Returns the sum of the matrices of all folds.
+	 */
+	public ConfusionMatrix getPooled() {
+		return pooled;
+	}
+
+	public double getMeanAccuracy() {
+		double sum = 0;
+		for (ConfusionMatrix fold : folds)
+			sum += fold.getAccuracy();
+		return sum / folds.length;
+	}
+
+	/**
+	 * Returns the sample standard deviation of the accuracy across folds.
+	 */
+	public double getAccuracyDeviation() {
+		double mean = getMeanAccuracy(), sum = 0;
+		for (ConfusionMatrix fold : folds)
+			sum += (fold.getAccuracy() - mean) * (fold.getAccuracy() - mean);
+		return Math.sqrt(sum / (folds.length - 1));
+	}
+
+	public double getMeanMacroF1() {
+		double sum = 0;
+		for (ConfusionMatrix fold : folds)
+			sum += fold.getMacroF1();
+		return sum / folds.length;
+	}
+
+	/**
+	 * Returns the sample standard deviation of the macro-F1 across folds.
+	 */
+	public double getMacroF1Deviation() {
+		double mean = getMeanMacroF1(), sum = 0;
+		for (ConfusionMatrix fold : folds)
+			sum += (fold.getMacroF1() - mean) * (fold.getMacroF1() - mean);
+		return Math.sqrt(sum / (folds.length - 1));
+	}
+
+	/**
+	 * Returns a report of the per-fold scores, their mean and deviation and
+	 * the pooled confusion matrix.
+	 */
+	@Override
+	public String toString() {
+		StringBuilder s = new StringBuilder();
+		s.append(String.format("%-6s%12s%12s%n", "fold", "accuracy", "macro-F1"));
+		for (int f = 0; f < folds.length; f++)
+			s.append(String.format("%-6d%11.2f%%%12.4f%n", f, folds[f].getAccuracy(), folds[f].getMacroF1()));
+		s.append(String.format("%-6s%11.2f%%%12.4f%n", "mean", getMeanAccuracy(), getMeanMacroF1()));
+		s.append(String.format("%-6s%11.2f%%%12.4f%n", "sd", getAccuracyDeviation(), getMacroF1Deviation()));
+		s.append('\n').append(pooled);
+		return s.toString();
+	}
+}
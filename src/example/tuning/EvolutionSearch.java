@@ -0,0 +1,138 @@
+/*
+ * EvolutionSearch.java
+ *
+ * Rafael Bastos
+ */
+package example.tuning;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * An evolution strategy in the style of CMA-ES, starting from the base
+ * configuration. Every generation samples a population around the current
+ * mean, moves the mean towards the weighted best half and adapts the step
+ * size (cumulative step-size adaptation) and the variance of every parameter
+ * (rank-one and rank-mu updates). Only the diagonal of the covariance matrix
+ * is adapted (sep-CMA-ES): the FLS parameters are few but the evaluations
+ * are expensive, and the diagonal variant learns faster on few samples.
+ * The search works on the unit cube of the ParameterSpace; samples outside
+ * of it are clipped for evaluation.
+ * 
+ * @author Rafael Bastos
+ */
+public class EvolutionSearch implements ParameterSearch {
+
+	private final int generations;
+	private final int populationSize;
+	private final double initialStepSize;
+	private final long seed;
+
+	/**
+	 * @param generations the number of generations
+	 * @param populationSize the configurations per generation, 0 for the
+	 *                       default of 4 + 3 ln(d)
+	 * @param initialStepSize relative to the parameter ranges, e.g. 0.3
+	 */
+	public EvolutionSearch(int generations, int populationSize, double initialStepSize, long seed) {
+		this.generations = generations;
+		this.populationSize = populationSize;
+		this.initialStepSize = initialStepSize;
+		this.seed = seed;
+	}
+
+	public void run(ParameterSpace space, TuningRunner runner) {
+		int n = space.getDimension();
+		if (n == 0)
+			throw new IllegalArgumentException("No parameters to tune.");
+		Random random = new Random(seed);
+		int lambda = populationSize > 0 ? populationSize : 4 + (int) (3 * Math.log(n));
+		int mu = Math.max(1, lambda / 2);
+
+		// recombination weights
+		double[] weights = new double[mu];
+		double sum = 0, sumOfSquares = 0;
+		for (int i = 0; i < mu; i++) {
+			weights[i] = Math.log(mu + 0.5) - Math.log(i + 1);
+			sum += weights[i];
+		}
+		for (int i = 0; i < mu; i++) {
+			weights[i] /= sum;
+			sumOfSquares += weights[i] * weights[i];
+		}
+		double muEff = 1.0 / sumOfSquares;
+
+		// learning rates
+		double cSigma = (muEff + 2) / (n + muEff + 5);
+		double dSigma = 1 + 2 * Math.max(0, Math.sqrt((muEff - 1) / (n + 1)) - 1) + cSigma;
+		double cC = 4.0 / (n + 4);
+		double c1 = 2 / ((n + 1.3) * (n + 1.3) + muEff) * (n + 2) / 3;
+		double cMu = Math.min(1 - c1, 2 * (muEff - 2 + 1 / muEff) / ((n + 2) * (n + 2) + muEff) * (n + 2) / 3);
+		double chiN = Math.sqrt(n) * (1 - 1.0 / (4 * n) + 1.0 / (21.0 * n * n));
+
+		double[] mean = space.getBasePoint();
+		double sigma = initialStepSize;
+		double[] variance = new double[n];
+		Arrays.fill(variance, 1.0);
+		double[] pSigma = new double[n], pC = new double[n];
+
+		for (int g = 0; g < generations; g++) {
+			double[][] z = new double[lambda][n], y = new double[lambda][n];
+			ArrayList<SentimentParameters> population = new ArrayList<SentimentParameters>();
+			for (int k = 0; k < lambda; k++) {
+				double[] x = new double[n];
+				for (int i = 0; i < n; i++) {
+					z[k][i] = random.nextGaussian();
+					y[k][i] = Math.sqrt(variance[i]) * z[k][i];
+					x[i] = mean[i] + sigma * y[k][i];
+				}
+				population.add(space.toParameters(x));
+			}
+			List<TuningResult> results = runner.evaluate(population);
+
+			// rank the population, most accurate first
+			Integer[] order = new Integer[lambda];
+			for (int k = 0; k < lambda; k++)
+				order[k] = k;
+			final List<TuningResult> ranked = results;
+			Arrays.sort(order, new Comparator<Integer>() {
+				public int compare(Integer a, Integer b) {
+					return Long.compare(ranked.get(b).getCorrect(), ranked.get(a).getCorrect());
+				}
+			});
+
+			double[] yW = new double[n], zW = new double[n];
+			for (int j = 0; j < mu; j++)
+				for (int i = 0; i < n; i++) {
+					yW[i] += weights[j] * y[order[j]][i];
+					zW[i] += weights[j] * z[order[j]][i];
+				}
+			for (int i = 0; i < n; i++)
+				mean[i] += sigma * yW[i];
+
+			// evolution paths
+			double norm = 0;
+			for (int i = 0; i < n; i++) {
+				pSigma[i] = (1 - cSigma) * pSigma[i] + Math.sqrt(cSigma * (2 - cSigma) * muEff) * zW[i];
+				norm += pSigma[i] * pSigma[i];
+			}
+			norm = Math.sqrt(norm);
+			boolean hSigma = norm / Math.sqrt(1 - Math.pow(1 - cSigma, 2 * (g + 1))) < (1.4 + 2.0 / (n + 1)) * chiN;
+			for (int i = 0; i < n; i++)
+				pC[i] = (1 - cC) * pC[i] + (hSigma ? Math.sqrt(cC * (2 - cC) * muEff) * yW[i] : 0);
+
+			// variances and step size
+			for (int i = 0; i < n; i++) {
+				double rankMu = 0;
+				for (int j = 0; j < mu; j++)
+					rankMu += weights[j] * y[order[j]][i] * y[order[j]][i];
+				variance[i] = (1 - c1 - cMu) * variance[i]
+						+ c1 * (pC[i] * pC[i] + (hSigma ? 0 : cC * (2 - cC) * variance[i])) + cMu * rankMu;
+			}
+			sigma *= Math.exp((cSigma / dSigma) * (norm / chiN - 1));
+		}
+	}
+}
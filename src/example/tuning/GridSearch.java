@@ -0,0 +1,68 @@
+/*
+ * GridSearch.java
+ *
+ * Rafael Bastos
+ */
+package example.tuning;
+
+import java.util.ArrayList;
+
+/**
+ * Evaluates all combinations of a fixed number of equally spaced values per
+ * tuned parameter (including both ends of each range). Combinations are
+ * enumerated like the digits of a number, so the grid is never held in
+ * memory as a whole.
+ * 
+ * @author Rafael Bastos
+ */
+public class GridSearch implements ParameterSearch {
+
+	private final int stepsPerParameter;
+	private final long maximumEvaluations;
+
+	/**
+	 * @param stepsPerParameter the number of values per parameter, at least 2
+	 * @param maximumEvaluations the largest grid that may be evaluated
+	 */
+	public GridSearch(int stepsPerParameter, long maximumEvaluations) {
+		if (stepsPerParameter < 2)
+			throw new IllegalArgumentException("A grid needs at least two steps per parameter.");
+		this.stepsPerParameter = stepsPerParameter;
+		this.maximumEvaluations = maximumEvaluations;
+	}
+
+	public long getSize(ParameterSpace space) {
+		long size = 1;
+		for (int i = 0; i < space.getDimension(); i++) {
+			if (size > Long.MAX_VALUE / stepsPerParameter)
+				return Long.MAX_VALUE;
+			size *= stepsPerParameter;
+		}
+		return size;
+	}
+
+	public void run(ParameterSpace space, TuningRunner runner) {
+		long size = getSize(space);
+		if (size > maximumEvaluations)
+			throw new IllegalArgumentException("The grid has " + (size == Long.MAX_VALUE ? "too many" : Long.toString(size))
+					+ " points, more than " + maximumEvaluations + " evaluations; tune fewer parameters or use fewer steps.");
+		int batchSize = 4 * runner.getParallelism();
+		int[] digits = new int[space.getDimension()];
+		ArrayList<SentimentParameters> batch = new ArrayList<SentimentParameters>();
+		for (long n = 0; n < size; n++) {
+			double[] point = new double[digits.length];
+			for (int i = 0; i < digits.length; i++)
+				point[i] = (double) digits[i] / (stepsPerParameter - 1);
+			batch.add(space.toParameters(point));
+			if (batch.size() == batchSize) {
+				runner.evaluate(batch);
+				batch.clear();
+			}
+			// next combination
+			for (int i = 0; i < digits.length && ++digits[i] == stepsPerParameter; i++)
+				digits[i] = 0;
+		}
+		if (!batch.isEmpty())
+			runner.evaluate(batch);
+	}
+}
@@ -0,0 +1,21 @@
+/*
+ * ParameterSearch.java
+ *
+ * Rafael Bastos
+ */
+package example.tuning;
+
+/**
+ * A strategy proposing configurations of a ParameterSpace. Configurations
+ * should be submitted to the runner in batches so that they are evaluated
+ * in parallel.
+ * 
+ * @author Rafael Bastos
+ */
+public interface ParameterSearch {
+
+	/**
+	 * Runs the search; the results are collected by the runner.
+	 */
+	public void run(ParameterSpace space, TuningRunner runner);
+}
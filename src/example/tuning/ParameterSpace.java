@@ -0,0 +1,100 @@
+/*
+ * ParameterSpace.java
+ *
+ * Rafael Bastos
+ */
+package example.tuning;
+
+import java.util.ArrayList;
+
+/**
+ * The parameters a search varies, each within a range, around a base
+ * configuration which provides the values of all other parameters.
+ * Search strategies work on points of [0, 1]^d (one coordinate per tuned
+ * parameter) which toParameters() maps onto the ranges.
+ * 
+ * @author Rafael Bastos
+ */
+public class ParameterSpace {
+
+	private final SentimentParameters base;
+	private final ArrayList<Integer> parameters = new ArrayList<Integer>();
+	private final ArrayList<double[]> ranges = new ArrayList<double[]>();
+
+	public ParameterSpace(SentimentParameters base) {
+		this.base = base;
+	}
+
+	/**
+	 * Adds a parameter, see SentimentParameters.getName().
+	 */
+	public ParameterSpace add(String name, double min, double max) {
+		return add(SentimentParameters.getParameter(name), min, max);
+	}
+
+	public ParameterSpace add(int parameter, double min, double max) {
+		if (!(min <= max))
+			throw new IllegalArgumentException("Empty range [" + min + ", " + max + "] for " + SentimentParameters.getName(parameter) + ".");
+		if (parameters.contains(parameter))
+			throw new IllegalArgumentException(SentimentParameters.getName(parameter) + " is already part of the space.");
+		parameters.add(parameter);
+		ranges.add(new double[] { min, max });
+		return this;
+	}
+
+	/**
+	 * Adds a parameter which may move by up to delta from its base value.
+	 */
+	public ParameterSpace addAroundBase(int parameter, double delta) {
+		return add(parameter, base.get(parameter) - delta, base.get(parameter) + delta);
+	}
+
+	public SentimentParameters getBase() {
+		return base;
+	}
+
+	public int getDimension() {
+		return parameters.size();
+	}
+
+	/**
+	 * Returns the parameter index of a coordinate.
+	 */
+	public int getParameter(int coordinate) {
+		return parameters.get(coordinate);
+	}
+
+	public double getMin(int coordinate) {
+		return ranges.get(coordinate)[0];
+	}
+
+	public double getMax(int coordinate) {
+		return ranges.get(coordinate)[1];
+	}
+
+	/**
+	 * Returns the base configuration with the tuned parameters set to the
+	 * given point; coordinates outside [0, 1] are clipped. The result is
+	 * repaired, see SentimentParameters.repair().
+	 */
+	public SentimentParameters toParameters(double[] point) {
+		double[] values = base.toVector();
+		for (int i = 0; i < parameters.size(); i++) {
+			double t = Math.min(1.0, Math.max(0.0, point[i]));
+			values[parameters.get(i)] = getMin(i) + t * (getMax(i) - getMin(i));
+		}
+		return SentimentParameters.fromVector(values).repair();
+	}
+
+	/**
+	 * Returns the point of the base configuration, clipped to the ranges.
+	 */
+	public double[] getBasePoint() {
+		double[] point = new double[parameters.size()];
+		for (int i = 0; i < point.length; i++) {
+			double width = getMax(i) - getMin(i);
+			point[i] = width == 0 ? 0.5 : Math.min(1.0, Math.max(0.0, (base.get(parameters.get(i)) - getMin(i)) / width));
+		}
+		return point;
+	}
+}
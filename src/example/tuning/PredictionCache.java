@@ -0,0 +1,107 @@
+/*
+ * PredictionCache.java
+ *
+ * Rafael Bastos
+ */
+package example.tuning;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.FutureTask;
+
+import example.SentimentFLS;
+import example.data.TweetDatasetReader;
+
+/**
+ * The classifications of the distinct points of a dataset by configurations
+ * of the SentimentFLS. Each configuration is evaluated once; the predictions
+ * of the most recently used configurations are kept, so that evaluating a
+ * configuration on several folds, or again in a later experiment, only
+ * aggregates the cached predictions. A configuration requested by several
+ * threads at once is evaluated by one of them while the others wait.
+ * 
+ * @author Rafael Bastos
+ */
+public class PredictionCache {
+
+	private final SentimentDataset dataset;
+	private final ForkJoinPool pool;
+	private final LinkedHashMap<SentimentParameters, FutureTask<byte[]>> predictions;
+
+	/**
+	 * @param capacity the number of configurations kept
+	 */
+	public PredictionCache(SentimentDataset dataset, ForkJoinPool pool, final int capacity) {
+		this.dataset = dataset;
+		this.pool = pool;
+		this.predictions = new LinkedHashMap<SentimentParameters, FutureTask<byte[]>>(16, 0.75f, true) {
+			@Override
+			protected boolean removeEldestEntry(Map.Entry<SentimentParameters, FutureTask<byte[]>> eldest) {
+				return size() > capacity;
+			}
+		};
+	}
+
+	public SentimentDataset getDataset() {
+		return dataset;
+	}
+
+	/**
+	 * Returns the classification of every distinct point of the dataset (see
+	 * SentimentDataset.getPoint()) by the FLS with the given parameters. The
+	 * array must not be modified.
+	 */
+	public byte[] getPredictions(final SentimentParameters parameters) {
+		FutureTask<byte[]> task;
+		boolean owner = false;
+		synchronized (predictions) {
+			task = predictions.get(parameters);
+			if (task == null) {
+				task = new FutureTask<byte[]>(new Callable<byte[]>() {
+					public byte[] call() {
+						return predict(dataset, parameters, pool);
+					}
+				});
+				predictions.put(parameters, task);
+				owner = true;
+			}
+		}
+		if (owner)
+			task.run();
+		try {
+			return task.get();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new RuntimeException("Interrupted while waiting for predictions.", e);
+		} catch (ExecutionException e) {
+			synchronized (predictions) {
+				predictions.remove(parameters);
+			}
+			if (e.getCause() instanceof RuntimeException)
+				throw (RuntimeException) e.getCause();
+			throw new RuntimeException(e.getCause());
+		}
+	}
+
+	/**
+	 * Classifies every distinct point of a dataset, see
+	 * SentimentFLS.getLinguisticClassification(). Points for which no rule
+	 * fires are UNKNOWN.
+	 * 
+	 * @param pool evaluates the points in parallel, or null
+	 */
+	public static byte[] predict(SentimentDataset dataset, SentimentParameters parameters, ForkJoinPool pool) {
+		SentimentFLS fls = new SentimentFLS(parameters);
+		int n = dataset.getNumberOfPoints();
+		double[] punctual = new double[n];
+		double[] xInf = new double[n];
+		fls.evaluateBatch(dataset.getPointPositivity(), dataset.getPointNegativity(), punctual, xInf, null, pool);
+		byte[] labels = new byte[n];
+		for (int i = 0; i < n; i++)
+			labels[i] = Double.isNaN(xInf[i]) ? TweetDatasetReader.UNKNOWN : fls.getLinguisticClassification(punctual[i]);
+		return labels;
+	}
+}
@@ -0,0 +1,43 @@
+/*
+ * RandomSearch.java
+ *
+ * Rafael Bastos
+ */
+package example.tuning;
+
+import java.util.ArrayList;
+import java.util.Random;
+
+/**
+ * Evaluates configurations drawn uniformly from the ranges of the tuned
+ * parameters. Unlike a grid, the budget does not grow with the number of
+ * parameters.
+ * 
+ * @author Rafael Bastos
+ */
+public class RandomSearch implements ParameterSearch {
+
+	private final int evaluations;
+	private final long seed;
+
+	public RandomSearch(int evaluations, long seed) {
+		this.evaluations = evaluations;
+		this.seed = seed;
+	}
+
+	public void run(ParameterSpace space, TuningRunner runner) {
+		Random random = new Random(seed);
+		int batchSize = 4 * runner.getParallelism();
+		ArrayList<SentimentParameters> batch = new ArrayList<SentimentParameters>();
+		for (int n = 0; n < evaluations; n++) {
+			double[] point = new double[space.getDimension()];
+			for (int i = 0; i < point.length; i++)
+				point[i] = random.nextDouble();
+			batch.add(space.toParameters(point));
+			if (batch.size() == batchSize || n == evaluations - 1) {
+				runner.evaluate(batch);
+				batch.clear();
+			}
+		}
+	}
+}
@@ -0,0 +1,86 @@
+/*
+ * SentimentCrossValidation.java
+ *
+ * Rafael Bastos
+ */
+package example.tuning;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * Cross-validates configurations of the SentimentFLS on a tweet dataset and
+ * prints accuracy, macro-F1 and the confusion matrix of each.
+ * 
+ * Usage: SentimentCrossValidation [options] [configuration ...]
+ * 
+ * Options: --data=file (data/final_7.csv), --folds=k (10), --seed=n,
+ * --threads=n (all cores).
+ * 
+ * The default configuration is always evaluated. Every further argument is
+ * a configuration given as changes to the default, e.g.
+ * "lowerLevel=0.8,upperLowNegLimits[2]=0.35".
+ * 
+ * @author Rafael Bastos
+ */
+public class SentimentCrossValidation {
+
+	public static void main(String args[]) throws IOException {
+		String data = "data" + File.separator + "final_7.csv";
+		int k = 10, threads = Runtime.getRuntime().availableProcessors();
+		long seed = 1;
+		List<SentimentParameters> configurations = new ArrayList<SentimentParameters>();
+		List<String> names = new ArrayList<String>();
+		configurations.add(SentimentParameters.getDefault());
+		names.add("default");
+
+		for (String arg : args) {
+			if (arg.startsWith("--")) {
+				int eq = arg.indexOf('=');
+				if (eq < 0)
+					throw new IllegalArgumentException("Options are given as --name=value: " + arg);
+				String name = arg.substring(2, eq), value = arg.substring(eq + 1);
+				if (name.equals("data"))
+					data = value;
+				else if (name.equals("folds"))
+					k = Integer.parseInt(value);
+				else if (name.equals("seed"))
+					seed = Long.parseLong(value);
+				else if (name.equals("threads"))
+					threads = Integer.parseInt(value);
+				else
+					throw new IllegalArgumentException("Unknown option " + arg);
+			} else {
+				SentimentParameters parameters = SentimentParameters.getDefault();
+				for (String change : arg.split(",")) {
+					int eq = change.lastIndexOf('=');
+					if (eq < 0)
+						throw new IllegalArgumentException("Changes are given as name=value: " + change);
+					parameters = parameters.with(SentimentParameters.getParameter(change.substring(0, eq)),
+							Double.parseDouble(change.substring(eq + 1)));
+				}
+				configurations.add(parameters.repair());
+				names.add(arg);
+			}
+		}
+
+		System.err.println("Reading " + data + "...");
+		SentimentDataset dataset = SentimentDataset.load(new File(data));
+		System.err.println(dataset.getNumberOfRows() + " rows, " + dataset.getNumberOfPoints() + " distinct inputs.");
+
+		ForkJoinPool pool = new ForkJoinPool(threads);
+		try {
+			CrossValidation validation = new CrossValidation(dataset, k, seed, pool);
+			long start = System.nanoTime();
+			List<CrossValidationResult> results = validation.evaluate(configurations);
+			System.err.println(configurations.size() + " configurations, " + k + " folds in " + (System.nanoTime() - start) / 1e9 + "s.");
+			for (int i = 0; i < results.size(); i++)
+				System.out.println("Configuration " + names.get(i) + ":\n" + results.get(i));
+		} finally {
+			pool.shutdown();
+		}
+	}
+}
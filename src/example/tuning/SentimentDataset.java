@@ -0,0 +1,219 @@
+/*
+ * SentimentDataset.java
+ *
+ * Rafael Bastos
+ */
+package example.tuning;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Random;
+
+import example.data.TweetDatasetReader;
+
+/**
+ * A tweet dataset held in memory as primitive columns, read once for any
+ * number of evaluations.
+ * 
+ * Since the output of the FLS only depends on the positivity and negativity
+ * of a tweet, rows sharing both scores are also merged into a single point
+ * which keeps the number of rows per label. An FLS then only needs to be
+ * evaluated once per point; with lexicon based scores, which take few
+ * distinct values, this is far fewer evaluations than rows.
+ * 
+ * @author Rafael Bastos
+ */
+public class SentimentDataset {
+
+	private final double[] positivity, negativity;
+	private final byte[] labels;
+
+	// the distinct (positivity, negativity) points
+	private final double[] pointPositivity, pointNegativity;
+	private final int[][] pointLabelCounts; // [point][label]
+	private final int[] pointOfRow;
+
+	private SentimentDataset(double[] positivity, double[] negativity, byte[] labels) {
+		this.positivity = positivity;
+		this.negativity = negativity;
+		this.labels = labels;
+
+		HashMap<Point, Integer> points = new HashMap<Point, Integer>();
+		pointOfRow = new int[labels.length];
+		for (int i = 0; i < labels.length; i++) {
+			Point p = new Point(positivity[i], negativity[i]);
+			Integer index = points.get(p);
+			if (index == null) {
+				index = points.size();
+				points.put(p, index);
+			}
+			pointOfRow[i] = index;
+		}
+		pointPositivity = new double[points.size()];
+		pointNegativity = new double[points.size()];
+		pointLabelCounts = new int[points.size()][3];
+		for (int i = 0; i < labels.length; i++) {
+			int p = pointOfRow[i];
+			pointPositivity[p] = positivity[i];
+			pointNegativity[p] = negativity[i];
+			if (labels[i] != TweetDatasetReader.UNKNOWN)
+				pointLabelCounts[p][labels[i]]++;
+		}
+	}
+
+	/**
+	 * Reads all rows of a dataset.
+	 */
+	public static SentimentDataset load(File file) throws IOException {
+		TweetDatasetReader reader = new TweetDatasetReader(file);
+		try {
+			TweetDatasetReader.Chunk all = reader.getAll();
+			long rows = all.countRows();
+			if (rows > Integer.MAX_VALUE)
+				throw new IOException(file + " has too many rows to be held in memory: " + rows + ".");
+			double[] positivity = new double[(int) rows];
+			double[] negativity = new double[(int) rows];
+			byte[] labels = new byte[(int) rows];
+			TweetDatasetReader.RowCursor row = all.cursor();
+			int n = 0;
+			while (row.next()) {
+				positivity[n] = row.getPositivity();
+				negativity[n] = row.getNegativity();
+				labels[n++] = row.getLabel();
+			}
+			return new SentimentDataset(positivity, negativity, labels);
+		} finally {
+			reader.close();
+		}
+	}
+
+	/**
+	 * Creates a dataset from the given columns, e.g. a subset of another one.
+	 * The arrays are not copied.
+	 */
+	public static SentimentDataset fromColumns(double[] positivity, double[] negativity, byte[] labels) {
+		if (positivity.length != labels.length || negativity.length != labels.length)
+			throw new IllegalArgumentException("All columns need to have the same length.");
+		return new SentimentDataset(positivity, negativity, labels);
+	}
+
+	/**
+	 * Splits the rows into k folds of (almost) equal size in which every label
+	 * (including UNKNOWN) is represented in the same proportion as in the
+	 * whole dataset. The same seed always gives the same folds.
+	 * 
+	 * @return the rows of every fold, in ascending order
+	 */
+	public int[][] getStratifiedFolds(int k, long seed) {
+		if (k < 2 || k > labels.length)
+			throw new IllegalArgumentException("Cannot split " + labels.length + " rows into " + k + " folds.");
+		Random random = new Random(seed);
+		int[] foldOfRow = new int[labels.length];
+		int[] foldSizes = new int[k];
+		int next = 0; // continue dealing across labels so that the fold sizes stay balanced
+		for (byte label = TweetDatasetReader.UNKNOWN; label <= TweetDatasetReader.POSITIVE; label++) {
+			int count = 0;
+			for (int i = 0; i < labels.length; i++)
+				if (labels[i] == label)
+					count++;
+			int[] rows = new int[count];
+			count = 0;
+			for (int i = 0; i < labels.length; i++)
+				if (labels[i] == label)
+					rows[count++] = i;
+			for (int i = rows.length - 1; i > 0; i--) {
+				int j = random.nextInt(i + 1);
+				int t = rows[i];
+				rows[i] = rows[j];
+				rows[j] = t;
+			}
+			for (int row : rows) {
+				foldOfRow[row] = next;
+				foldSizes[next]++;
+				next = (next + 1) % k;
+			}
+		}
+		int[][] folds = new int[k][];
+		for (int f = 0; f < k; f++)
+			folds[f] = new int[foldSizes[f]];
+		int[] filled = new int[k];
+		for (int i = 0; i < labels.length; i++)
+			folds[foldOfRow[i]][filled[foldOfRow[i]]++] = i;
+		return folds;
+	}
+
+	public int getNumberOfRows() {
+		return labels.length;
+	}
+
+	public double getPositivity(int row) {
+		return positivity[row];
+	}
+
+	public double getNegativity(int row) {
+		return negativity[row];
+	}
+
+	/**
+	 * @return NEGATIVE, NEUTRAL, POSITIVE or UNKNOWN
+	 */
+	public byte getLabel(int row) {
+		return labels[row];
+	}
+
+	public int getNumberOfPoints() {
+		return pointLabelCounts.length;
+	}
+
+	/**
+	 * Returns the index of the distinct point of a row.
+	 */
+	public int getPoint(int row) {
+		return pointOfRow[row];
+	}
+
+	/**
+	 * The positivity of every distinct point. The array must not be modified.
+	 */
+	public double[] getPointPositivity() {
+		return pointPositivity;
+	}
+
+	/**
+	 * The negativity of every distinct point. The array must not be modified.
+	 */
+	public double[] getPointNegativity() {
+		return pointNegativity;
+	}
+
+	/**
+	 * Returns the number of rows of a point with the given label (NEGATIVE,
+	 * NEUTRAL or POSITIVE).
+	 */
+	public int getLabelCount(int point, byte label) {
+		return pointLabelCounts[point][label];
+	}
+
+	private static class Point {
+		private final double positivity, negativity;
+
+		Point(double positivity, double negativity) {
+			this.positivity = positivity;
+			this.negativity = negativity;
+		}
+
+		@Override
+		public boolean equals(Object o) {
+			if (!(o instanceof Point))
+				return false;
+			Point p = (Point) o;
+			return Double.compare(positivity, p.positivity) == 0 && Double.compare(negativity, p.negativity) == 0;
+		}
+
+		@Override
+		public int hashCode() {
+			return 31 * Double.hashCode(positivity) + Double.hashCode(negativity);
+		}
+	}
+}
@@ -0,0 +1,171 @@
+/*
+ * SentimentParameters.java
+ *
+ * Rafael Bastos
+ */
+package example.tuning;
+
+import java.util.Arrays;
+
+/**
+ * The tunable parameters of the SentimentFLS: the four limits of the lower
+ * and upper trapezoids of each of its nine interval type-2 sets, followed by
+ * the height of the lower and of the upper trapezoids. All parameters are
+ * kept in a single vector so that search strategies can treat them alike;
+ * getName() returns names matching the arrays originally hardcoded in the FLS
+ * (e.g. "lowerLowNegLimits[2]").
+ * 
+ * @author Rafael Bastos
+ */
+public class SentimentParameters {
+
+	// the sets, in the order of the parameter vector
+	public static final int LOW_NEGATIVITY = 0;
+	public static final int MODERATE_NEGATIVITY = 1;
+	public static final int HIGH_NEGATIVITY = 2;
+	public static final int LOW_POSITIVITY = 3;
+	public static final int MODERATE_POSITIVITY = 4;
+	public static final int HIGH_POSITIVITY = 5;
+	public static final int NEGATIVE = 6;
+	public static final int NEUTRAL = 7;
+	public static final int POSITIVE = 8;
+	public static final int NUMBER_OF_SETS = 9;
+
+	public static final int LOWER_LEVEL = NUMBER_OF_SETS * 8;
+	public static final int UPPER_LEVEL = LOWER_LEVEL + 1;
+	public static final int NUMBER_OF_PARAMETERS = UPPER_LEVEL + 1;
+
+	private static final String[] SET_NAMES = { "LowNeg", "ModerateNeg", "HighNeg", "LowPos", "ModeratePos", "HighPos",
+			"Negative", "Neutral", "Positive" };
+
+	// the values the FLS was designed with
+	private static final double[] LOW = { -0.133, -0.00188, 0.28, 0.45, -0.227, -0.09, 0.3, 0.55 };
+	private static final double[] MODERATE = { 0.33, 0.46, 0.54, 0.65, 0.25, 0.38, 0.63, 0.75 };
+	private static final double[] HIGH = { 0.55, 0.72, 1.019, 1.234, 0.45, 0.7, 1.119, 1.334 };
+
+	private final double[] values;
+
+	private SentimentParameters(double[] values) {
+		this.values = values;
+	}
+
+	/**
+	 * Returns the parameters the SentimentFLS was originally designed with.
+	 */
+	public static SentimentParameters getDefault() {
+		double[] values = new double[NUMBER_OF_PARAMETERS];
+		for (int set = 0; set < NUMBER_OF_SETS; set++) {
+			double[] limits = set % 3 == 0 ? LOW : set % 3 == 1 ? MODERATE : HIGH;
+			System.arraycopy(limits, 0, values, set * 8, 8);
+		}
+		values[LOWER_LEVEL] = 0.9;
+		values[UPPER_LEVEL] = 1.0;
+		return new SentimentParameters(values);
+	}
+
+	/**
+	 * Creates parameters from a vector laid out as described above.
+	 */
+	public static SentimentParameters fromVector(double[] values) {
+		if (values.length != NUMBER_OF_PARAMETERS)
+			throw new IllegalArgumentException("Expected " + NUMBER_OF_PARAMETERS + " parameters but got " + values.length + ".");
+		return new SentimentParameters(values.clone());
+	}
+
+	public double[] toVector() {
+		return values.clone();
+	}
+
+	public double get(int parameter) {
+		return values[parameter];
+	}
+
+	/**
+	 * Returns a copy of these parameters with a single value changed.
+	 */
+	public SentimentParameters with(int parameter, double value) {
+		double[] copy = values.clone();
+		copy[parameter] = value;
+		return new SentimentParameters(copy);
+	}
+
+	/**
+	 * Returns the index of the first of the four limits of the lower (or upper)
+	 * trapezoid of the given set.
+	 */
+	public static int getLimitsIndex(int set, boolean upper) {
+		return set * 8 + (upper ? 4 : 0);
+	}
+
+	public double[] getLowerLimits(int set) {
+		int i = getLimitsIndex(set, false);
+		return Arrays.copyOfRange(values, i, i + 4);
+	}
+
+	public double[] getUpperLimits(int set) {
+		int i = getLimitsIndex(set, true);
+		return Arrays.copyOfRange(values, i, i + 4);
+	}
+
+	/** the heights of the lower trapezoids, as passed to T1MF_Trapezoidal */
+	public double[] getLowerLevels() {
+		return new double[] { values[LOWER_LEVEL], values[LOWER_LEVEL] };
+	}
+
+	/** the heights of the upper trapezoids, as passed to T1MF_Trapezoidal */
+	public double[] getUpperLevels() {
+		return new double[] { values[UPPER_LEVEL], values[UPPER_LEVEL] };
+	}
+
+	public static String getName(int parameter) {
+		if (parameter == LOWER_LEVEL)
+			return "lowerLevel";
+		if (parameter == UPPER_LEVEL)
+			return "upperLevel";
+		if (parameter < 0 || parameter > UPPER_LEVEL)
+			throw new IllegalArgumentException("Unknown parameter " + parameter + ".");
+		return ((parameter % 8) < 4 ? "lower" : "upper") + SET_NAMES[parameter / 8] + "Limits[" + (parameter % 4) + "]";
+	}
+
+	/**
+	 * Returns the index of the parameter with the given name, see getName().
+	 */
+	public static int getParameter(String name) {
+		for (int i = 0; i < NUMBER_OF_PARAMETERS; i++)
+			if (getName(i).equals(name))
+				return i;
+		throw new IllegalArgumentException("Unknown parameter " + name + ".");
+	}
+
+	/**
+	 * Returns a copy in which the limits of every trapezoid are in ascending
+	 * order, every upper trapezoid encloses its lower one and the levels lie
+	 * in (0, 1] with the lower level not above the upper one, so that any
+	 * point proposed by a search is a valid FLS.
+	 */
+	public SentimentParameters repair() {
+		double[] copy = values.clone();
+		for (int i = 0; i < LOWER_LEVEL; i += 4)
+			Arrays.sort(copy, i, i + 4);
+		for (int set = 0; set < NUMBER_OF_SETS; set++) {
+			int lower = getLimitsIndex(set, false), upper = getLimitsIndex(set, true);
+			copy[upper] = Math.min(copy[upper], copy[lower]);
+			copy[upper + 1] = Math.min(copy[upper + 1], copy[lower + 1]);
+			copy[upper + 2] = Math.max(copy[upper + 2], copy[lower + 2]);
+			copy[upper + 3] = Math.max(copy[upper + 3], copy[lower + 3]);
+		}
+		copy[UPPER_LEVEL] = Math.min(1.0, Math.max(Double.MIN_NORMAL, copy[UPPER_LEVEL]));
+		copy[LOWER_LEVEL] = Math.min(copy[UPPER_LEVEL], Math.max(Double.MIN_NORMAL, copy[LOWER_LEVEL]));
+		return new SentimentParameters(copy);
+	}
+
+	@Override
+	public boolean equals(Object o) {
+		return o instanceof SentimentParameters && Arrays.equals(values, ((SentimentParameters) o).values);
+	}
+
+	@Override
+	public int hashCode() {
+		return Arrays.hashCode(values);
+	}
+}
@@ -0,0 +1,121 @@
+/*
+ * SentimentTuning.java
+ *
+ * Rafael Bastos
+ */
+package example.tuning;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * Tunes the membership functions of the SentimentFLS on a tweet dataset.
+ * 
+ * Usage: SentimentTuning [options] [parameter=min:max ...]
+ * 
+ * Options: --data=file (data/final_7.csv), --search=grid|random|evolution
+ * (random), --budget=n (evaluations for random, generations for evolution,
+ * the largest grid for grid; 100), --steps=n (grid steps per parameter; 5),
+ * --threads=n (all cores), --seed=n, --report=file (CSV with the accuracy of
+ * every configuration, default: standard output).
+ * 
+ * Parameters are named as in SentimentParameters, e.g.
+ * "lowerLevel=0.5:1" or "upperModeratePosLimits[1]=0.3:0.45". Without
+ * parameters, the levels and the inner limits of all input sets are tuned
+ * within 0.1 of their current values.
+ * 
+ * @author Rafael Bastos
+ */
+public class SentimentTuning {
+
+	public static void main(String args[]) throws IOException {
+		String data = "data" + File.separator + "final_7.csv";
+		String search = "random";
+		int budget = 100, steps = 5, threads = Runtime.getRuntime().availableProcessors();
+		long seed = 1;
+		String reportFile = null;
+
+		SentimentParameters base = SentimentParameters.getDefault();
+		ParameterSpace space = new ParameterSpace(base);
+		for (String arg : args) {
+			if (arg.startsWith("--")) {
+				int eq = arg.indexOf('=');
+				if (eq < 0)
+					throw new IllegalArgumentException("Options are given as --name=value: " + arg);
+				String name = arg.substring(2, eq), value = arg.substring(eq + 1);
+				if (name.equals("data"))
+					data = value;
+				else if (name.equals("search"))
+					search = value;
+				else if (name.equals("budget"))
+					budget = Integer.parseInt(value);
+				else if (name.equals("steps"))
+					steps = Integer.parseInt(value);
+				else if (name.equals("threads"))
+					threads = Integer.parseInt(value);
+				else if (name.equals("seed"))
+					seed = Long.parseLong(value);
+				else if (name.equals("report"))
+					reportFile = value;
+				else
+					throw new IllegalArgumentException("Unknown option " + arg);
+			} else {
+				int eq = arg.lastIndexOf('=');
+				String[] range = eq < 0 ? new String[0] : arg.substring(eq + 1).split(":");
+				if (range.length != 2)
+					throw new IllegalArgumentException("Parameters are given as name=min:max: " + arg);
+				space.add(arg.substring(0, eq), Double.parseDouble(range[0]), Double.parseDouble(range[1]));
+			}
+		}
+		if (space.getDimension() == 0) {
+			space.add(SentimentParameters.LOWER_LEVEL, 0.5, 1.0);
+			for (int set = SentimentParameters.LOW_NEGATIVITY; set <= SentimentParameters.HIGH_POSITIVITY; set++)
+				for (int upper = 0; upper < 2; upper++) {
+					int limits = SentimentParameters.getLimitsIndex(set, upper == 1);
+					space.addAroundBase(limits + 1, 0.1);
+					space.addAroundBase(limits + 2, 0.1);
+				}
+		}
+
+		ParameterSearch strategy;
+		if (search.equals("grid"))
+			strategy = new GridSearch(steps, budget);
+		else if (search.equals("random"))
+			strategy = new RandomSearch(budget, seed);
+		else if (search.equals("evolution"))
+			strategy = new EvolutionSearch(budget, 0, 0.3, seed);
+		else
+			throw new IllegalArgumentException("Unknown search " + search + ", use grid, random or evolution.");
+
+		System.err.println("Reading " + data + "...");
+		SentimentDataset dataset = SentimentDataset.load(new File(data));
+		System.err.println(dataset.getNumberOfRows() + " rows, " + dataset.getNumberOfPoints() + " distinct inputs.");
+
+		ForkJoinPool pool = new ForkJoinPool(threads);
+		PrintStream report = reportFile == null ? System.out : new PrintStream(new FileOutputStream(reportFile), false, "UTF-8");
+		try {
+			TuningRunner runner = new TuningRunner(dataset, pool);
+			runner.setReport(report, space);
+			long start = System.nanoTime();
+			TuningResult initial = runner.evaluate(base);
+			strategy.run(space, runner);
+			double seconds = (System.nanoTime() - start) / 1e9;
+
+			TuningResult best = runner.getBest();
+			System.err.println(runner.getNumberOfEvaluations() + " configurations in " + seconds + "s.");
+			System.err.println("Initial accuracy: " + initial.getAccuracy() + "%");
+			System.err.println("Best accuracy: " + best.getAccuracy() + "% (configuration " + best.getEvaluation() + ")");
+			for (int i = 0; i < space.getDimension(); i++) {
+				int p = space.getParameter(i);
+				System.err.println("  " + SentimentParameters.getName(p) + " = " + best.getParameters().get(p));
+			}
+		} finally {
+			if (report != System.out)
+				report.close();
+			pool.shutdown();
+		}
+	}
+}
@@ -0,0 +1,53 @@
+/*
+ * TuningResult.java
+ *
+ * Rafael Bastos
+ */
+package example.tuning;
+
+/**
+ * The accuracy achieved by one configuration of the FLS on a dataset.
+ * 
+ * @author Rafael Bastos
+ */
+public class TuningResult {
+
+	private final int evaluation;
+	private final SentimentParameters parameters;
+	private final long correct, rows;
+
+	TuningResult(int evaluation, SentimentParameters parameters, long correct, long rows) {
+		this.evaluation = evaluation;
+		this.parameters = parameters;
+		this.correct = correct;
+		this.rows = rows;
+	}
+
+	/**
+	 * Returns the number of the configuration, counting from 0 in the order
+	 * in which configurations were submitted to the TuningRunner.
+	 */
+	public int getEvaluation() {
+		return evaluation;
+	}
+
+	public SentimentParameters getParameters() {
+		return parameters;
+	}
+
+	/** the number of correctly classified rows */
+	public long getCorrect() {
+		return correct;
+	}
+
+	public long getRows() {
+		return rows;
+	}
+
+	/**
+	 * Returns the accuracy in percent, as reported by Sentiment.
+	 */
+	public double getAccuracy() {
+		return rows == 0 ? 0.0 : 100.0 * correct / rows;
+	}
+}
@@ -0,0 +1,162 @@
+/*
+ * TuningRunner.java
+ *
+ * Rafael Bastos
+ */
+package example.tuning;
+
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+
+import example.data.TweetDatasetReader;
+
+/**
+ * Evaluates configurations of the SentimentFLS on a dataset and collects the
+ * accuracy of each.
+ * 
+ * The configurations of a batch are evaluated in parallel, each by its own
+ * FLS, and every FLS evaluates the distinct points of the dataset with
+ * IT2_Rulebase.evaluateBatch() in the same pool, so that small batches still
+ * use all workers. Results are cached per configuration: a configuration
+ * proposed again (grid points, converged searches) is not re-evaluated.
+ * 
+ * @author Rafael Bastos
+ */
+public class TuningRunner {
+
+	private final SentimentDataset dataset;
+	private final ForkJoinPool pool;
+	private final HashMap<SentimentParameters, Long> correctByParameters = new HashMap<SentimentParameters, Long>();
+	private final ArrayList<TuningResult> results = new ArrayList<TuningResult>();
+	private TuningResult best;
+	private PrintStream report;
+	private ParameterSpace reportSpace;
+
+	public TuningRunner(SentimentDataset dataset) {
+		this(dataset, ForkJoinPool.commonPool());
+	}
+
+	public TuningRunner(SentimentDataset dataset, ForkJoinPool pool) {
+		this.dataset = dataset;
+		this.pool = pool;
+	}
+
+	public SentimentDataset getDataset() {
+		return dataset;
+	}
+
+	/**
+	 * Reports every evaluated configuration as a CSV line (evaluation number,
+	 * accuracy, correct rows, rows and the values of the tuned parameters of
+	 * the given space) to the given stream, starting with a header.
+	 */
+	public synchronized void setReport(PrintStream report, ParameterSpace space) {
+		this.report = report;
+		this.reportSpace = space;
+		StringBuilder header = new StringBuilder("evaluation,accuracy,correct,rows");
+		for (int i = 0; i < space.getDimension(); i++)
+			header.append(',').append(SentimentParameters.getName(space.getParameter(i)));
+		report.println(header);
+	}
+
+	/**
+	 * Evaluates a single configuration.
+	 */
+	public TuningResult evaluate(SentimentParameters parameters) {
+		ArrayList<SentimentParameters> candidates = new ArrayList<SentimentParameters>();
+		candidates.add(parameters);
+		return evaluate(candidates).get(0);
+	}
+
+	/**
+	 * Evaluates the given configurations in parallel.
+	 * 
+	 * @return the results, in the order of the configurations
+	 */
+	public synchronized List<TuningResult> evaluate(List<SentimentParameters> candidates) {
+		LinkedHashSet<SentimentParameters> pending = new LinkedHashSet<SentimentParameters>();
+		for (SentimentParameters p : candidates)
+			if (!correctByParameters.containsKey(p))
+				pending.add(p);
+
+		ArrayList<SentimentParameters> evaluated = new ArrayList<SentimentParameters>(pending);
+		ArrayList<ForkJoinTask<Long>> tasks = new ArrayList<ForkJoinTask<Long>>();
+		for (final SentimentParameters p : evaluated)
+			tasks.add(pool.submit(new Callable<Long>() {
+				public Long call() {
+					return countCorrect(p);
+				}
+			}));
+		for (int i = 0; i < tasks.size(); i++)
+			correctByParameters.put(evaluated.get(i), tasks.get(i).join());
+
+		ArrayList<TuningResult> batch = new ArrayList<TuningResult>();
+		for (SentimentParameters p : candidates) {
+			TuningResult result = new TuningResult(results.size(), p, correctByParameters.get(p), dataset.getNumberOfRows());
+			results.add(result);
+			batch.add(result);
+			if (best == null || result.getCorrect() > best.getCorrect())
+				best = result;
+			if (report != null)
+				report(result);
+		}
+		if (report != null)
+			report.flush();
+		return batch;
+	}
+
+	/**
+	 * Returns the number of rows the FLS with the given parameters classifies
+	 * correctly. Rows for which no rule fires or whose classification is
+	 * ambiguous count as misclassified.
+	 */
+	private long countCorrect(SentimentParameters parameters) {
+		byte[] predictions = PredictionCache.predict(dataset, parameters, pool);
+		long correct = 0;
+		for (int i = 0; i < predictions.length; i++)
+			if (predictions[i] != TweetDatasetReader.UNKNOWN)
+				correct += dataset.getLabelCount(i, predictions[i]);
+		return correct;
+	}
+
+	private void report(TuningResult result) {
+		StringBuilder line = new StringBuilder();
+		line.append(result.getEvaluation()).append(',').append(result.getAccuracy()).append(',').append(result.getCorrect())
+				.append(',').append(result.getRows());
+		for (int i = 0; i < reportSpace.getDimension(); i++)
+			line.append(',').append(result.getParameters().get(reportSpace.getParameter(i)));
+		report.println(line);
+	}
+
+	/**
+	 * Returns all results so far, in the order of evaluation.
+	 */
+	public synchronized List<TuningResult> getResults() {
+		return new ArrayList<TuningResult>(results);
+	}
+
+	/**
+	 * Returns the first of the most accurate configurations so far, or null.
+	 */
+	public synchronized TuningResult getBest() {
+		return best;
+	}
+
+	public synchronized int getNumberOfEvaluations() {
+		return results.size();
+	}
+
+	/**
+	 * Returns the number of workers; batches of at least this many
+	 * configurations keep all of them busy.
+	 */
+	public int getParallelism() {
+		return pool.getParallelism();
+	}
+}
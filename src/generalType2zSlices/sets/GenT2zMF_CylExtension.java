@@ -46,6 +46,13 @@ public class GenT2zMF_CylExtension extends GenT2zMF_Prototype
         this.numberOfzLevels = zDiscretizationlevel;
     }
     
+    @Override
+    public void freeze()
+    {
+        baseSet.freeze();
+        super.freeze();
+    }
+
     public Object clone()
     {
         return new GenT2zMF_CylExtension(baseSet, zDiscretizationlevel);
@@ -69,29 +69,107 @@ public class GenT2zMF_Discretized extends GenT2zMF_Prototype
         double primStepsize = (this.getSupport().getRight()-this.getSupport().getLeft())/(primaryDiscretizationLevel-1);
         double secStepsize = 1.0/(secondaryDiscretizationLevel-1);
         double xStep=getSupport().getLeft(),yStep=0; //the discretization values
-        T1MF_Interface t1set_temp;
-        
-
+        int levels = gt2set.getNumberOfSlices();
+        double[] z = new double[levels], lower = new double[levels], upper = new double[levels];
+        double[] pointY = new double[2*levels], pointZ = new double[2*levels];
+        int n, points;
         
         for(int i=0;i<primaryDiscretizationLevel;i++)
         {
             yStep = 0;
             xDiscretizationValues[i] = xStep;
             if(DEBUG)System.out.println("In iteration "+i+" xStep = "+xStep);
-            t1set_temp = gt2set.getFS(xStep);
-            //System.out.println(t1set_temp);
-            if(t1set_temp!=null)
-            for(int j=0; j<secondaryDiscretizationLevel; j++)
+            n = gt2set.getVerticalSlice(xStep, z, lower, upper);
+            if(n>0)
             {
-                yDiscretizationValues[j] = yStep;
-                set[i][j] = t1set_temp.getFS(yStep);
-                yStep += secStepsize;
+                points = getVerticalSlicePoints(n, z, lower, upper, pointY, pointZ);
+                for(int j=0; j<secondaryDiscretizationLevel; j++)
+                {
+                    yDiscretizationValues[j] = yStep;
+                    set[i][j] = getVerticalSliceFS(yStep, pointY, pointZ, points);
+                    yStep += secStepsize;
+                }
             }
             xStep += primStepsize;
         }
          
     }    
 
+    /**
+     * Turns a vertical slice into the points of the T1MF_Discretized getFS()
+     * would build for it, i.e. sorted by primary membership, keeping the
+     * largest zLevel for equal memberships.
+     * @return The number of points.
+     */
+    private static int getVerticalSlicePoints(int n, double[] z, double[] lower, double[] upper,
+            double[] pointY, double[] pointZ)
+    {
+        int points = 0;
+        double y, zValue;
+        for(int i=0;i<2*n;i++)
+        {
+            y = (i&1)==0 ? lower[i>>1] : upper[i>>1];
+            zValue = z[i>>1];
+            //insertion sort by y, then z
+            int k = points;
+            while(k>0 && (pointY[k-1]>y || (pointY[k-1]==y && pointZ[k-1]>zValue)))
+            {
+                pointY[k] = pointY[k-1];
+                pointZ[k] = pointZ[k-1];
+                k--;
+            }
+            pointY[k] = y;
+            pointZ[k] = zValue;
+            points++;
+        }
+        //prune equal memberships
+        int last = 0;
+        for(int i=1;i<points;i++)
+        {
+            if(pointY[i]==pointY[last])
+                pointZ[last] = Math.max(pointZ[last], pointZ[i]);
+            else
+            {
+                last++;
+                pointY[last] = pointY[i];
+                pointZ[last] = pointZ[i];
+            }
+        }
+        return last+1;
+    }
+
+    /**
+     * The secondary membership at y, interpolated like T1MF_Discretized.getFS().
+     */
+    private static double getVerticalSliceFS(double y, double[] pointY, double[] pointZ, int points)
+    {
+        if(y<pointY[0] || y>pointY[points-1])
+            return 0.0;
+        for(int i=0;i<points;i++)
+        {
+            if(pointY[i]>y)
+            {
+                double a = (pointY[i]-pointY[i-1])/(y-pointY[i-1]);
+                return pointZ[i-1]-((pointZ[i-1]-pointZ[i])/a);
+            }
+            else if(pointY[i]==y)
+                return pointZ[i];
+        }
+        return Double.NaN;
+    }
+
+    /**
+     * Freezes the set together with its vertical slices.
+     */
+    @Override
+    public void freeze()
+    {
+        if(vSlices!=null)
+            for(int i=0;i<vSlices.length;i++)
+                if(vSlices[i]!=null)
+                    vSlices[i].freeze();
+        super.freeze();
+    }
     
     public int getPrimaryDiscretizationLevel()
     {
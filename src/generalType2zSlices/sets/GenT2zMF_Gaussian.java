@@ -136,6 +136,7 @@ public class GenT2zMF_Gaussian extends GenT2zMF_Prototype
      */
     public void setSupport(Tuple support)
     {
+        checkNotFrozen();
         this.support = support;
         for(int i=1; i<numberOfzLevels;i++)
             zSlices[i].setSupport(this.getSupport());
@@ -26,6 +26,16 @@ public interface GenT2zMF_Interface extends Serializable, MF_Interface
     public void setName(String name);
     public int getNumberOfSlices();
     public T1MF_Discretized getFS(double x);
+
+    /**
+     * Writes the vertical slice at x into the given arrays instead of building
+     * a set: for zSlice i, z[i] is its zLevel and [lower[i], upper[i]] its
+     * interval of primary memberships at x. The arrays need to hold at least
+     * getNumberOfSlices() values.
+     * @return The number of zSlices written, 0 if x is not part of the set
+     * (where getFS() returns null).
+     */
+    public int getVerticalSlice(double x, double[] z, double[] lower, double[] upper);
     public IntervalT2MF_Interface getZSlice(int slice_number);
     public void setZSlice(IntervalT2MF_Interface zSlice, int zLevel);
     public double getZValue(int slice_number);
@@ -31,6 +31,7 @@ abstract public class GenT2zMF_Prototype implements GenT2zMF_Interface
     protected boolean isLeftShoulder = false, isRightShoulder = false;
 
     private final boolean DEBUG = false;
+    private volatile boolean frozen = false;
 
 
     /** Creates a new instance of GenT2zMF_Trapezoidal */
@@ -40,13 +41,44 @@ abstract public class GenT2zMF_Prototype implements GenT2zMF_Interface
     }
 
     public void setSupport(Tuple support) {
+        checkNotFrozen();
         this.support = support;
     }
 
     public void setName(String name) {
+        checkNotFrozen();
         this.name = name;
     }
 
+    /**
+     * Freezes the set together with its zSlices.
+     */
+    @Override
+    public void freeze()
+    {
+        getZValues();
+        if(zSlices!=null)
+            for(int i=0;i<zSlices.length;i++)
+                if(zSlices[i]!=null)
+                    zSlices[i].freeze();
+        frozen = true;
+    }
+
+    @Override
+    public boolean isFrozen()
+    {
+        return frozen;
+    }
+
+    /**
+     * To be called by all methods which modify the set.
+     */
+    protected void checkNotFrozen()
+    {
+        if(frozen)
+            throw new UnsupportedOperationException("The set "+name+" is frozen.");
+    }
+
     /**
      * The number of zLevels. Note that this doe not include a zSlice at zLevel
      * 0. No slice is modelled at this level.
@@ -92,6 +124,7 @@ abstract public class GenT2zMF_Prototype implements GenT2zMF_Interface
 //        }
         
         //simple replacement for now:
+        checkNotFrozen();
         this.zSlices[zLevel] = zSlice;
     }    
     public double getZValue(int slice_number)
@@ -112,11 +145,13 @@ abstract public class GenT2zMF_Prototype implements GenT2zMF_Interface
     {
         double stepSize = 1.0 / this.getNumberOfSlices();
         double firstStep = stepSize;
-        slices_zValues = new double[this.getNumberOfSlices()];
-        for(int i=0;i<slices_zValues.length;i++)
+        //only publish the array once it is filled, concurrent readers may compute it twice
+        double[] zValues = new double[this.getNumberOfSlices()];
+        for(int i=0;i<zValues.length;i++)
         {
-            slices_zValues[i] = firstStep+i*stepSize;
+            zValues[i] = firstStep+i*stepSize;
         }
+        slices_zValues = zValues;
     }
 
     /**
@@ -138,34 +173,48 @@ abstract public class GenT2zMF_Prototype implements GenT2zMF_Interface
 
     public T1MF_Discretized getFS(double x) 
     {
-        T1MF_Discretized slice = new T1MF_Discretized("VerticalSlice_at"+x+"_of_"+this.getName(), numberOfzLevels);
-        Tuple temp;
+        int levels = this.getNumberOfSlices();
+        double[] z = new double[levels], lower = new double[levels], upper = new double[levels];
+        int n = getVerticalSlice(x, z, lower, upper);
+        if(n==0)
+            return null;
 
-        //build up vertical slice
-        buildup:
+        T1MF_Discretized slice = new T1MF_Discretized("VerticalSlice_at"+x+"_of_"+this.getName(), n);
+        for(int i=0;i<n;i++)
+        {
+            slice.addPoint(new Tuple(z[i],lower[i]));
+            slice.addPoint(new Tuple(z[i],upper[i]));
+        }
+        return slice;
+    }
+
+    public int getVerticalSlice(double x, double[] z, double[] lower, double[] upper)
+    {
+        double[] fs = new double[2];
         for(int i=0;i<numberOfzLevels;i++)
         {
-            temp = this.getZSlice(i).getFS(x);
-            if(DEBUG)System.out.println("On slice "+i+" with x = "+x+", getFS() returns: "+temp);           
-            if(DEBUG)System.out.println("Adding Tuple: "+new Tuple(this.getZValue(i),temp.getLeft()));
-            if(DEBUG)System.out.println("Adding Tuple: "+new Tuple(this.getZValue(i),temp.getRight()));
-            slice.addPoint(new Tuple(this.getZValue(i),temp.getLeft()));
-            slice.addPoint(new Tuple(this.getZValue(i),temp.getRight()));
+            this.getZSlice(i).fill(x, fs);
+            if(DEBUG)System.out.println("On slice "+i+" with x = "+x+", fill() returns: ["+fs[0]+","+fs[1]+"]");
+            z[i] = this.getZValue(i);
+            lower[i] = fs[0];
+            upper[i] = fs[1];
         }
-        if(slice.getNumberOfPoints()>0)
-            return slice;
-        else return null;     
-    }      
+        return numberOfzLevels;
+    }
 
     public double[] getZValues()
     {
         if(slices_zValues==null)
             setZValues();
+        if(frozen)
+            return slices_zValues.clone();
         return slices_zValues;
     }
 
     public Tuple getSupport()
     {
+        if(frozen && support!=null)
+            return support.clone();
         return support;
     }
 
@@ -180,11 +229,13 @@ abstract public class GenT2zMF_Prototype implements GenT2zMF_Interface
     }
     public void setLeftShoulder(boolean isLeftShoulder) 
     {
+        checkNotFrozen();
         this.isLeftShoulder = isLeftShoulder;
     }
 
     public void setRightShoulder(boolean isRightShoulder) 
     {
+        checkNotFrozen();
         this.isRightShoulder = isRightShoulder;
     }    
 
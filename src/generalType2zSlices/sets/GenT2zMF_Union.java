@@ -11,7 +11,6 @@ package generalType2zSlices.sets;
 
 import generic.Tuple;
 import intervalType2.sets.IntervalT2MF_Interface;
-import type1.sets.T1MF_Discretized;
 
 
 /**
@@ -38,31 +37,23 @@ public class GenT2zMF_Union extends GenT2zMF_Prototype
         return new GenT2zMF_Union(name,numberOfzLevels,slices_zValues,zSlices);
     }
 
-    public T1MF_Discretized getFS(double x) 
+    public int getVerticalSlice(double x, double[] z, double[] lower, double[] upper)
     {
-        T1MF_Discretized slice = new T1MF_Discretized("VSlice", zSlices.length);
-        Tuple temp;
+        double[] fs = new double[2];
+        int i;
         
         //build up vertical slice
         buildup:
-        for(int i=0;i<zSlices.length;i++)
+        for(i=0;i<zSlices.length;i++)
         {
-            temp = this.getZSlice(i).getFS(x);
-            if(temp.getRight()==0) //if outer on interval is 0 - its not part of the set...
-            {
-                if( i == 0) slice =null;
-                
+            this.getZSlice(i).fill(x, fs);
+            if(fs[1]==0) //if outer on interval is 0 - its not part of the set...
                 break buildup;
-            }
-            else
-            {
-//                slice.addPoint(new Tuple(temp.getLeft(),this.getZValue(i)));
-//                slice.addPoint(new Tuple(temp.getRight(),this.getZValue(i)));                
-                slice.addPoint(new Tuple(this.getZValue(i),temp.getLeft()));
-                slice.addPoint(new Tuple(this.getZValue(i),temp.getRight()));
-            }
+            z[i] = this.getZValue(i);
+            lower[i] = fs[0];
+            upper[i] = fs[1];
         }
-        return slice;
+        return i;
     }
 
     public boolean isLeftShoulder() {
@@ -0,0 +1,486 @@
+/*
+ * GenT2zEngine_WavySlices.java
+ *
+ * Rafael Bastos
+ */
+package generalType2zSlices.system;
+
+import generalType2zSlices.sets.GenT2zMF_Discretized;
+import generalType2zSlices.sets.GenT2zMF_Interface;
+import generic.BadParameterException;
+import generic.Tuple;
+import java.util.SplittableRandom;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import type1.sets.T1MF_Discretized;
+
+/**
+ * Wavy slice (embedded set) type reduction of general type-2 sets which
+ * streams through the wavy slices instead of materialising them.
+ * As in GenT2zEngine_Defuzzification.typeReduce_standard() the set is
+ * discretised into xResolution vertical slices of yResolution points; every
+ * wavy slice picks one point with a non-zero secondary grade from each
+ * non-empty vertical slice, its centroid is computed from the primary
+ * memberships and its membership is the t-norm of the secondary grades.
+ * The crisp output is the membership weighted average of all centroids.
+ * <p>
+ * The number of wavy slices is the product of the vertical slice sizes. They
+ * are enumerated as a mixed-radix counter, split into blocks over a
+ * ForkJoinPool; partial sums are kept per digit so that advancing the counter
+ * only recomputes the digits which changed. The type-reduced set is built on
+ * the fly on outputResolution points spread over the support, each holding
+ * the largest membership of the wavy slices whose centroid falls onto it.
+ * <p>
+ * If there are more than getExhaustiveLimit() wavy slices (or their number
+ * does not fit into a long), typeReduce() draws uniformly distributed random
+ * wavy slices instead and returns the ratio estimate of the crisp output
+ * together with its 95% confidence interval. Sampling is reproducible for a
+ * given seed, independently of the number of threads.
+ * @author Rafael Bastos
+ */
+public class GenT2zEngine_WavySlices
+{
+    public static final byte MINIMUM = 0;
+    public static final byte PRODUCT = 1;
+
+    /** Wavy slices enumerated or sampled by one task. */
+    private static final long BLOCK_SIZE = 1<<16;
+    private static final double Z_95 = 1.959963984540054;
+
+    private final int xResolution, yResolution;
+    private final ForkJoinPool pool;
+    private byte tnorm = MINIMUM;
+    private int outputResolution = 1000;
+    private long exhaustiveLimit = 1L<<24;
+    private long sampleSize = 1L<<20;
+    private long seed = 0;
+
+    /**
+     * @param xResolution The number of vertical slices the set is discretised into.
+     * @param yResolution The number of points per vertical slice.
+     */
+    public GenT2zEngine_WavySlices(int xResolution, int yResolution)
+    {
+        this(xResolution, yResolution, ForkJoinPool.commonPool());
+    }
+
+    public GenT2zEngine_WavySlices(int xResolution, int yResolution, ForkJoinPool pool)
+    {
+        if(xResolution<2 || yResolution<2)
+            throw new BadParameterException("The discretisation levels need to be at least 2.");
+        this.xResolution = xResolution;
+        this.yResolution = yResolution;
+        this.pool = pool;
+    }
+
+    public byte getTnorm()
+    {
+        return tnorm;
+    }
+
+    /**
+     * @param tnorm MINIMUM (default) or PRODUCT.
+     */
+    public void setTnorm(byte tnorm)
+    {
+        if(tnorm!=MINIMUM && tnorm!=PRODUCT)
+            throw new BadParameterException("Unknown t-norm: "+tnorm);
+        this.tnorm = tnorm;
+    }
+
+    public int getOutputResolution()
+    {
+        return outputResolution;
+    }
+
+    /**
+     * @param outputResolution The number of points the type-reduced set is discretised into.
+     */
+    public void setOutputResolution(int outputResolution)
+    {
+        if(outputResolution<2)
+            throw new BadParameterException("The output resolution needs to be at least 2.");
+        this.outputResolution = outputResolution;
+    }
+
+    public long getExhaustiveLimit()
+    {
+        return exhaustiveLimit;
+    }
+
+    /**
+     * @param exhaustiveLimit The largest number of wavy slices typeReduce() enumerates; above it samples.
+     */
+    public void setExhaustiveLimit(long exhaustiveLimit)
+    {
+        this.exhaustiveLimit = exhaustiveLimit;
+    }
+
+    public long getSampleSize()
+    {
+        return sampleSize;
+    }
+
+    /**
+     * @param sampleSize The number of wavy slices drawn by typeReduce() when sampling.
+     */
+    public void setSampleSize(long sampleSize)
+    {
+        if(sampleSize<2)
+            throw new BadParameterException("At least 2 samples are needed for a confidence interval.");
+        this.sampleSize = sampleSize;
+    }
+
+    public long getSeed()
+    {
+        return seed;
+    }
+
+    public void setSeed(long seed)
+    {
+        this.seed = seed;
+    }
+
+    /**
+     * @return The number of wavy slices of the set at the resolution of this
+     * engine, or -1 if the number does not fit into a long.
+     */
+    public long getNumberOfWavySlices(GenT2zMF_Interface set)
+    {
+        return new VerticalSlices(set).count;
+    }
+
+    /**
+     * Enumerates all wavy slices if there are at most getExhaustiveLimit(),
+     * otherwise samples getSampleSize() of them.
+     */
+    public Result typeReduce(GenT2zMF_Interface set)
+    {
+        VerticalSlices slices = new VerticalSlices(set);
+        if(slices.count<0 || slices.count>exhaustiveLimit)
+            return sample(slices, sampleSize);
+        return enumerate(slices);
+    }
+
+    /**
+     * Enumerates all wavy slices, however many there are.
+     */
+    public Result typeReduceExhaustive(GenT2zMF_Interface set)
+    {
+        VerticalSlices slices = new VerticalSlices(set);
+        if(slices.count<0)
+            throw new BadParameterException("The number of wavy slices exceeds "+Long.MAX_VALUE
+                    +" - use typeReduceSampled() or lower the resolution.");
+        return enumerate(slices);
+    }
+
+    /**
+     * Estimates the type reduction from randomly drawn wavy slices.
+     * @param samples The number of wavy slices to draw.
+     */
+    public Result typeReduceSampled(GenT2zMF_Interface set, long samples)
+    {
+        if(samples<2)
+            throw new BadParameterException("At least 2 samples are needed for a confidence interval.");
+        return sample(new VerticalSlices(set), samples);
+    }
+
+    private Result enumerate(VerticalSlices slices)
+    {
+        Accumulator a = pool.invoke(new WavySliceTask(this, slices, 0, slices.count, false));
+        double crisp = a.sumWC/a.sumW;
+        return new Result(crisp, new Tuple(crisp, crisp), a.toSet(slices), a.wavySlices, a.undefined, true);
+    }
+
+    private Result sample(VerticalSlices slices, long samples)
+    {
+        Accumulator a = pool.invoke(new WavySliceTask(this, slices, 0, samples, true));
+        double crisp = a.sumWC/a.sumW;
+        long n = a.wavySlices;
+        //delta method variance of the ratio estimator sum(w*c)/sum(w)
+        double deviations = a.sumW2C2-2*crisp*a.sumW2C+crisp*crisp*a.sumW2;
+        double error = n>1 ? Math.sqrt(Math.max(0.0, deviations)*n/(n-1))/a.sumW : Double.NaN;
+        return new Result(crisp, new Tuple(crisp-Z_95*error, crisp+Z_95*error), a.toSet(slices),
+                n, a.undefined, false);
+    }
+
+    private Accumulator enumerateBlock(VerticalSlices slices, long from, long to)
+    {
+        Accumulator a = new Accumulator(outputResolution);
+        int n = slices.x.length;
+        if(n==0)
+            return a;
+        int[] digits = new int[n];
+        long rest = from;
+        for(int d=n-1;d>=0;d--)
+        {
+            digits[d] = (int)(rest%slices.u[d].length);
+            rest /= slices.u[d].length;
+        }
+        //partial sums over the digits 0..d-1
+        double[] dividend = new double[n+1], divisor = new double[n+1], membership = new double[n+1];
+        membership[0] = 1.0;
+        int changed = 0;
+        for(long k=from;k<to;k++)
+        {
+            for(int d=changed;d<n;d++)
+            {
+                dividend[d+1] = dividend[d]+slices.x[d]*slices.u[d][digits[d]];
+                divisor[d+1] = divisor[d]+slices.u[d][digits[d]];
+                membership[d+1] = tnorm==MINIMUM ? Math.min(membership[d], slices.f[d][digits[d]])
+                        : membership[d]*slices.f[d][digits[d]];
+            }
+            a.add(dividend[n], divisor[n], membership[n], slices);
+            changed = n-1;
+            while(changed>0 && ++digits[changed]==slices.u[changed].length)
+                digits[changed--] = 0;
+            if(changed==0)
+                digits[0]++;
+        }
+        return a;
+    }
+
+    private Accumulator sampleBlock(VerticalSlices slices, long from, long to)
+    {
+        Accumulator a = new Accumulator(outputResolution);
+        int n = slices.x.length;
+        if(n==0)
+            return a;
+        SplittableRandom random = new SplittableRandom(seed+from*0x9E3779B97F4A7C15L);
+        for(long k=from;k<to;k++)
+        {
+            double dividend = 0.0, divisor = 0.0, membership = 1.0;
+            for(int d=0;d<n;d++)
+            {
+                int j = random.nextInt(slices.u[d].length);
+                dividend += slices.x[d]*slices.u[d][j];
+                divisor += slices.u[d][j];
+                membership = tnorm==MINIMUM ? Math.min(membership, slices.f[d][j]) : membership*slices.f[d][j];
+            }
+            a.add(dividend, divisor, membership, slices);
+        }
+        return a;
+    }
+
+    /**
+     * The result of a type reduction. For exhaustive enumeration the
+     * confidence interval collapses onto the crisp output.
+     */
+    public static class Result
+    {
+        private final double crisp;
+        private final Tuple confidenceInterval;
+        private final T1MF_Discretized typeReducedSet;
+        private final long wavySlices, undefined;
+        private final boolean exhaustive;
+
+        Result(double crisp, Tuple confidenceInterval, T1MF_Discretized typeReducedSet,
+                long wavySlices, long undefined, boolean exhaustive)
+        {
+            this.crisp = crisp;
+            this.confidenceInterval = confidenceInterval;
+            this.typeReducedSet = typeReducedSet;
+            this.wavySlices = wavySlices;
+            this.undefined = undefined;
+            this.exhaustive = exhaustive;
+        }
+
+        /**
+         * @return The defuzzified output, NaN if no wavy slice has a centroid.
+         */
+        public double getCrisp()
+        {
+            return crisp;
+        }
+
+        /**
+         * @return The 95% confidence interval of the crisp output.
+         */
+        public Tuple getConfidenceInterval()
+        {
+            return confidenceInterval;
+        }
+
+        public T1MF_Discretized getTypeReducedSet()
+        {
+            return typeReducedSet;
+        }
+
+        /**
+         * @return The number of wavy slices enumerated or sampled.
+         */
+        public long getNumberOfWavySlices()
+        {
+            return wavySlices;
+        }
+
+        /**
+         * @return The number of wavy slices with all primary memberships 0,
+         * i.e. without a centroid; these are left out of the result.
+         */
+        public long getNumberOfUndefinedWavySlices()
+        {
+            return undefined;
+        }
+
+        public boolean isExhaustive()
+        {
+            return exhaustive;
+        }
+
+        @Override
+        public String toString()
+        {
+            return "crisp = "+crisp+(exhaustive ? "" : " (95% confidence interval "+confidenceInterval+")")
+                    +", wavy slices = "+wavySlices;
+        }
+    }
+
+    /**
+     * The non-empty vertical slices of the discretised set: position, primary
+     * memberships and secondary grades of their points.
+     */
+    private class VerticalSlices
+    {
+        final double[] x;
+        final double[][] u, f;
+        final double left, right;
+        final long count;
+
+        VerticalSlices(GenT2zMF_Interface set)
+        {
+            GenT2zMF_Discretized dset = new GenT2zMF_Discretized(set, xResolution, yResolution);
+            int slices = 0;
+            int[] sizes = new int[xResolution];
+            for(int i=0;i<xResolution;i++)
+            {
+                for(int j=0;j<yResolution;j++)
+                    if(dset.getSetDataAt(i, j)>0)
+                        sizes[i]++;
+                if(sizes[i]>0)
+                    slices++;
+            }
+            x = new double[slices];
+            u = new double[slices][];
+            f = new double[slices][];
+            long product = slices==0 ? 0 : 1;
+            int s = 0;
+            for(int i=0;i<xResolution;i++)
+                if(sizes[i]>0)
+                {
+                    x[s] = dset.getDiscX(i);
+                    u[s] = new double[sizes[i]];
+                    f[s] = new double[sizes[i]];
+                    int k = 0;
+                    for(int j=0;j<yResolution;j++)
+                        if(dset.getSetDataAt(i, j)>0)
+                        {
+                            u[s][k] = dset.getDiscY(j);
+                            f[s][k] = dset.getSetDataAt(i, j);
+                            k++;
+                        }
+                    if(product>=0)
+                        product = product>Long.MAX_VALUE/sizes[i] ? -1 : product*sizes[i];
+                    s++;
+                }
+            count = product;
+            left = set.getSupport().getLeft();
+            right = set.getSupport().getRight();
+        }
+    }
+
+    /**
+     * Sums of one block of wavy slices; blocks are merged in index order so
+     * that results do not depend on scheduling.
+     */
+    private static class Accumulator
+    {
+        final double[] maxMembership;
+        long wavySlices, undefined;
+        double sumW, sumWC, sumW2, sumW2C, sumW2C2;
+
+        Accumulator(int outputResolution)
+        {
+            maxMembership = new double[outputResolution];
+        }
+
+        void add(double dividend, double divisor, double membership, VerticalSlices slices)
+        {
+            wavySlices++;
+            if(divisor==0.0)
+            {
+                undefined++;
+                return;
+            }
+            double centroid = dividend/divisor;
+            double w2 = membership*membership;
+            sumW += membership;
+            sumWC += membership*centroid;
+            sumW2 += w2;
+            sumW2C += w2*centroid;
+            sumW2C2 += w2*centroid*centroid;
+            int b = slices.right>slices.left
+                    ? (int)Math.round((centroid-slices.left)/(slices.right-slices.left)*(maxMembership.length-1)) : 0;
+            b = Math.max(0, Math.min(maxMembership.length-1, b));
+            if(membership>maxMembership[b])
+                maxMembership[b] = membership;
+        }
+
+        void merge(Accumulator a)
+        {
+            wavySlices += a.wavySlices;
+            undefined += a.undefined;
+            sumW += a.sumW;
+            sumWC += a.sumWC;
+            sumW2 += a.sumW2;
+            sumW2C += a.sumW2C;
+            sumW2C2 += a.sumW2C2;
+            for(int b=0;b<maxMembership.length;b++)
+                maxMembership[b] = Math.max(maxMembership[b], a.maxMembership[b]);
+        }
+
+        T1MF_Discretized toSet(VerticalSlices slices)
+        {
+            T1MF_Discretized set = new T1MF_Discretized("output", maxMembership.length);
+            double step = (slices.right-slices.left)/(maxMembership.length-1);
+            for(int b=0;b<maxMembership.length;b++)
+                if(maxMembership[b]>0)
+                    set.addPoint(new Tuple(maxMembership[b], slices.left+b*step));
+            return set;
+        }
+    }
+
+    private static class WavySliceTask extends RecursiveTask<Accumulator>
+    {
+        private static final long serialVersionUID = 1L;
+        private final GenT2zEngine_WavySlices engine;
+        private final VerticalSlices slices;
+        private final long from, to;
+        private final boolean sampled;
+
+        WavySliceTask(GenT2zEngine_WavySlices engine, VerticalSlices slices, long from, long to, boolean sampled)
+        {
+            this.engine = engine;
+            this.slices = slices;
+            this.from = from;
+            this.to = to;
+            this.sampled = sampled;
+        }
+
+        @Override
+        protected Accumulator compute()
+        {
+            if(to-from>BLOCK_SIZE)
+            {
+                long middle = from+(to-from)/2;
+                WavySliceTask left = new WavySliceTask(engine, slices, from, middle, sampled);
+                left.fork();
+                Accumulator a = new WavySliceTask(engine, slices, middle, to, sampled).compute();
+                Accumulator l = left.join();
+                l.merge(a);
+                return l;
+            }
+            return sampled ? engine.sampleBlock(slices, from, to) : engine.enumerateBlock(slices, from, to);
+        }
+    }
+}
@@ -16,7 +16,10 @@ import intervalType2.system.IT2_Rulebase;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Iterator;
+import java.util.Map;
 import java.util.TreeMap;
+import tools.metrics.InferenceMetrics;
+import type1.sets.T1MF_Singleton;
 
 /**
  *
@@ -39,6 +42,16 @@ public class GenT2z_Rulebase
     
     private final boolean DEBUG = false;
     private final boolean showContext = false;
+
+    //one pass evaluation of all zLevels, see compile()
+    private boolean compiled = false;
+    private IT2_Rulebase[] zLevelRulebases;
+    private GenT2z_Antecedent[] distinctAntecedents;
+    private int[][] ruleAntecedents;
+    private double[][] antecedentLower, antecedentUpper;   //[antecedent][zLevel]
+    private double[] zScratch;
+    private double[] firingLower, firingUpper;  //[rule], for one zLevel
+    private double[][] switchPoints;    //[output][left/right]
     
     /** Creates a new instance of GenT2_Rulebase */
     public GenT2z_Rulebase(int initialNumberOfRules)
@@ -53,6 +66,7 @@ public class GenT2z_Rulebase
     public void addRule(GenT2z_Rule rule)
     {
         rules.add(rule);
+        compiled = false;
         //check if any new outputs occur
         Iterator<GenT2z_Consequent> it = rule.getConsequentsIterator(); 
         Output o;
@@ -66,6 +80,7 @@ public class GenT2z_Rulebase
     
     public void addRules(GenT2z_Rule[] r)
     {
+        compiled = false;
         for(int i=0;i<r.length;i++)
         {
             rules.add(r[i]);
@@ -142,10 +157,25 @@ public class GenT2z_Rulebase
      */
     public TreeMap<Output, Object[]> evaluateGetCentroid(int typeReductionType)
     {
+        long start = InferenceMetrics.start();
+        long allocation = InferenceMetrics.startAllocation();
         TreeMap<Output, Object[]> returnValue = new TreeMap();
-        IT2_Rulebase[] rbsIT2 = getIT2Rulebases();
-        TreeMap<Output, Tuple> typeReductionOutput = null;
         double[] zValues = rules.get(0).getAntecedents()[0].getSet().getZValues();
+        TreeMap<Output, Tuple[]> centroids = evaluateZLevels(typeReductionType);
+        if(centroids!=null)
+        {
+            Iterator<Map.Entry<Output, Tuple[]>> it = centroids.entrySet().iterator();
+            while(it.hasNext())
+            {
+                Map.Entry<Output, Tuple[]> e = it.next();
+                returnValue.put(e.getKey(), new Object[]{e.getValue(), Arrays.copyOf(zValues, e.getValue().length)});
+            }
+            InferenceMetrics.stopAllocation(InferenceMetrics.ZSLICES, allocation);
+            InferenceMetrics.stop(InferenceMetrics.ZSLICES, start);
+            return returnValue;
+        }
+
+        IT2_Rulebase[] rbsIT2 = getIT2Rulebases();
         
         //compute the outputs of each zLevel - later the zLevel weigh will be applied to these outputs.
         ArrayList<TreeMap<Output, Object[]>> rawOutputValues = new ArrayList(rbsIT2.length);
@@ -171,6 +201,8 @@ public class GenT2z_Rulebase
                 }
             }
         }
+        InferenceMetrics.stopAllocation(InferenceMetrics.ZSLICES, allocation);
+        InferenceMetrics.stop(InferenceMetrics.ZSLICES, start);
         return returnValue;  
     }    
     
@@ -183,7 +215,35 @@ public class GenT2z_Rulebase
      */
     public TreeMap<Output, Double> evaluate(int typeReductionType)
     {
+        long start = InferenceMetrics.start();
+        long allocation = InferenceMetrics.startAllocation();
         TreeMap<Output, Double> returnValue = new TreeMap();
+        double numerator;
+        double denominator;
+        double[] zValues = rules.get(0).getAntecedents()[0].getSet().getZValues();
+        TreeMap<Output, Tuple[]> centroids = evaluateZLevels(typeReductionType);
+        if(centroids!=null)
+        {
+            Iterator<Map.Entry<Output, Tuple[]>> it = centroids.entrySet().iterator();
+            while(it.hasNext())
+            {
+                Map.Entry<Output, Tuple[]> e = it.next();
+                numerator = 0.0;
+                denominator = 0.0;
+                for(int i=0;i<e.getValue().length;i++)
+                {
+                    //as IT2_Rulebase.evaluate(), a zLevel without fired rules contributes 0
+                    if(e.getValue()[i]!=null)
+                        numerator += e.getValue()[i].getAverage() * zValues[i];
+                    denominator += zValues[i];
+                }
+                returnValue.put(e.getKey(), numerator/denominator);
+            }
+            InferenceMetrics.stopAllocation(InferenceMetrics.ZSLICES, allocation);
+            InferenceMetrics.stop(InferenceMetrics.ZSLICES, start);
+            return returnValue;
+        }
+
         IT2_Rulebase[] rbsIT2 = getIT2Rulebases();
 
         //compute the outputs of each zLevel - later the zLevel weigh will be applied to these outputs.
@@ -195,9 +255,6 @@ public class GenT2z_Rulebase
         }
 
         //apply zLevel
-        double numerator;
-        double denominator;
-        double[] zValues = rules.get(0).getAntecedents()[0].getSet().getZValues();
         Iterator<TreeMap<Output, Double>> it;
         TreeMap <Output, Double> outputValue;
         Output o;
@@ -220,9 +277,326 @@ public class GenT2z_Rulebase
             }
             returnValue.put(o, numerator/denominator);
         }
+        InferenceMetrics.stopAllocation(InferenceMetrics.ZSLICES, allocation);
+        InferenceMetrics.stop(InferenceMetrics.ZSLICES, start);
         return returnValue;
     }
     
+    /**
+     * Approximate version of evaluate() which type reduces only some of the
+     * zLevels, see evaluateGetCentroid(int, double).
+     * @param typeReductionType 0: Center Of Sets, 1: Centroid
+     * @param tolerance The largest deviation of an end point of an interpolated
+     * centroid from the type reduced one accepted.
+     * @return The approximated output values.
+     */
+    public TreeMap<Output, Double> evaluate(int typeReductionType, double tolerance)
+    {
+        TreeMap<Output, Object[]> centroids = evaluateGetCentroid(typeReductionType, tolerance);
+        TreeMap<Output, Double> returnValue = new TreeMap<>();
+        Iterator<Map.Entry<Output, Object[]>> it = centroids.entrySet().iterator();
+        while(it.hasNext())
+        {
+            Map.Entry<Output, Object[]> e = it.next();
+            returnValue.put(e.getKey(), (Double)e.getValue()[2]);
+        }
+        return returnValue;
+    }
+
+    /**
+     * Approximate version of evaluateGetCentroid() for rulebases with many
+     * zLevels. The bottom and top zLevels are type reduced, as is the zLevel
+     * halfway between them; its centroid is compared with the linear
+     * interpolation of the two outer ones. Where an end point deviates by more
+     * than the tolerance, both halves are bisected again in the same way,
+     * otherwise the centroids of the remaining zLevels in between are
+     * interpolated. The deviation found at the midpoint serves as a-posteriori
+     * estimate of the error of the interpolated zLevels. With a tolerance of 0
+     * all zLevels will in general be type reduced; if an input is not a
+     * singleton, they always are.
+     * @param typeReductionType 0: Center Of Sets, 1: Centroid
+     * @param tolerance The largest deviation of an end point of an interpolated
+     * centroid from the type reduced one accepted.
+     * @return A TreeMap where Output is used as key and the value is an Object[]
+     * where Object[0] is a Tuple[] (the centroids, one per zLevel, null where
+     * no rule fired), Object[1] is a double[] holding their zValues, Object[2]
+     * is a Double holding the output value as returned by evaluate(),
+     * Object[3] is a Double holding the estimated error of this value (the
+     * zValue weighted average of the errors of the zLevels) and Object[4] is
+     * an Integer holding the number of zLevels that were type reduced.
+     */
+    public TreeMap<Output, Object[]> evaluateGetCentroid(int typeReductionType, double tolerance)
+    {
+        if(!(tolerance>=0.0))
+            throw new BadParameterException("The tolerance must be zero or greater, the tolerance supplied was: "+tolerance);
+        long start = InferenceMetrics.start();
+        long allocation = InferenceMetrics.startAllocation();
+        TreeMap<Output, Object[]> returnValue = evaluateZLevelsApproximate(typeReductionType, tolerance);
+        if(returnValue!=null)
+        {
+            InferenceMetrics.stopAllocation(InferenceMetrics.ZSLICES, allocation);
+            InferenceMetrics.stop(InferenceMetrics.ZSLICES, start);
+            return returnValue;
+        }
+
+        //inputs which are not singletons: every zLevel is type reduced
+        returnValue = evaluateGetCentroid(typeReductionType);
+        Iterator<Map.Entry<Output, Object[]>> it = returnValue.entrySet().iterator();
+        while(it.hasNext())
+        {
+            Map.Entry<Output, Object[]> e = it.next();
+            Tuple[] centroids = (Tuple[])e.getValue()[0];
+            double[] zValues = (double[])e.getValue()[1];
+            double numerator = 0.0, denominator = 0.0;
+            for(int i=0;i<centroids.length;i++)
+            {
+                if(centroids[i]!=null)
+                    numerator += centroids[i].getAverage() * zValues[i];
+                denominator += zValues[i];
+            }
+            e.setValue(new Object[]{centroids, zValues, numerator/denominator, 0.0, centroids.length});
+        }
+        return returnValue;
+    }
+
+    /**
+     * Computes the type-reduced interval of every zLevel for every output in a
+     * single pass over the antecedents: each distinct antecedent is evaluated
+     * once per input through GenT2zMF_Interface.getVerticalSlice(), which yields
+     * its lower and upper membership at all zLevels, and the firing intervals
+     * of all zLevels are combined from these vectors. Only the type reduction
+     * is done per zLevel, by IT2 rulebases which are built once per rule set.
+     * The result equals evaluating the rulebases of getIT2Rulebases() one by
+     * one; with centroid type reduction the Karnik-Mendel iterations of each
+     * zLevel merely start from the switch points of the zLevel below.
+     * @return The centroids per output, indexed by zLevel (null where no rule
+     * fired), or null if an input is not a singleton - the caller then needs to
+     * fall back to the separate IT2 rulebases.
+     */
+    private synchronized TreeMap<Output, Tuple[]> evaluateZLevels(int typeReductionType)
+    {
+        if(!fuzzifyZLevels())
+            return null;
+
+        int levels = zLevelRulebases.length;
+        TreeMap<Output, Tuple[]> returnValue = new TreeMap<>();
+        for(int i=0;i<outputs.size();i++)
+        {
+            returnValue.put(outputs.get(i), new Tuple[levels]);
+            //centroid type reduction of each zLevel starts from the switch points of the one below
+            switchPoints[i][0] = Double.NaN;
+            switchPoints[i][1] = Double.NaN;
+        }
+        for(int z=0;z<levels;z++)
+        {
+            fireZLevel(z);
+            for(int i=0;i<outputs.size();i++)
+                returnValue.get(outputs.get(i))[z] = zLevelRulebases[z].typeReduce(outputs.get(i), typeReductionType,
+                        firingLower, firingUpper, switchPoints[i]);
+        }
+        return returnValue;
+    }
+
+    /**
+     * Approximate counterpart of evaluateZLevels(): per output, the bottom and
+     * top zLevels are type reduced, then refineZLevels() type reduces interior
+     * zLevels by bisection until the remaining ones can be interpolated.
+     * @return The Object[] of evaluateGetCentroid(int, double) per output, or
+     * null if an input is not a singleton.
+     */
+    private synchronized TreeMap<Output, Object[]> evaluateZLevelsApproximate(int typeReductionType, double tolerance)
+    {
+        if(!fuzzifyZLevels())
+            return null;
+
+        int levels = zLevelRulebases.length;
+        double[] zValues = Arrays.copyOf(rules.get(0).getAntecedents()[0].getSet().getZValues(), levels);
+        TreeMap<Output, Object[]> returnValue = new TreeMap<>();
+        for(int i=0;i<outputs.size();i++)
+        {
+            Tuple[] centroids = new Tuple[levels];
+            double[] errors = new double[levels];
+            switchPoints[i][0] = Double.NaN;
+            switchPoints[i][1] = Double.NaN;
+            int reduced = 1;
+            centroids[0] = typeReduceZLevel(0, i, typeReductionType);
+            if(levels>1)
+            {
+                centroids[levels-1] = typeReduceZLevel(levels-1, i, typeReductionType);
+                reduced += 1+refineZLevels(i, typeReductionType, tolerance, zValues, centroids, errors, 0, levels-1);
+            }
+
+            //as evaluate(), weighted by the zValues
+            double numerator = 0.0, error = 0.0, denominator = 0.0;
+            for(int z=0;z<levels;z++)
+            {
+                if(centroids[z]!=null)
+                    numerator += centroids[z].getAverage() * zValues[z];
+                error += errors[z] * zValues[z];
+                denominator += zValues[z];
+            }
+            returnValue.put(outputs.get(i), new Object[]{centroids, zValues.clone(), numerator/denominator,
+                error/denominator, reduced});
+        }
+        return returnValue;
+    }
+
+    /**
+     * Type reduces the zLevel halfway between lo and hi, whose centroids are
+     * known, and compares it with the linear interpolation (over the zValues)
+     * of the centroids at lo and hi. If neither end point is further off than
+     * the tolerance, all other zLevels between lo and hi are interpolated and
+     * this difference is recorded as their error; otherwise both halves are
+     * refined in turn. Where rules fire at one of the three zLevels only, the
+     * interval is always refined, as there is nothing to interpolate.
+     * @return The number of zLevels type reduced.
+     */
+    private int refineZLevels(int output, int typeReductionType, double tolerance, double[] zValues,
+            Tuple[] centroids, double[] errors, int lo, int hi)
+    {
+        if(hi-lo<2)
+            return 0;
+        int mid = (lo+hi)>>>1;
+        centroids[mid] = typeReduceZLevel(mid, output, typeReductionType);
+
+        double error;
+        if(centroids[lo]==null && centroids[mid]==null && centroids[hi]==null)
+            error = 0.0;
+        else if(centroids[lo]==null || centroids[mid]==null || centroids[hi]==null)
+            error = Double.NaN;
+        else
+        {
+            Tuple interpolated = interpolate(centroids, zValues, lo, hi, mid);
+            error = Math.max(Math.abs(centroids[mid].getLeft()-interpolated.getLeft()),
+                    Math.abs(centroids[mid].getRight()-interpolated.getRight()));
+        }
+
+        if(!(error<=tolerance))
+            return 1+refineZLevels(output, typeReductionType, tolerance, zValues, centroids, errors, lo, mid)
+                    +refineZLevels(output, typeReductionType, tolerance, zValues, centroids, errors, mid, hi);
+        for(int z=lo+1;z<hi;z++)
+        {
+            if(z==mid)
+                continue;
+            centroids[z] = centroids[lo]==null ? null : interpolate(centroids, zValues, lo, hi, z);
+            errors[z] = error;
+        }
+        return 1;
+    }
+
+    private static Tuple interpolate(Tuple[] centroids, double[] zValues, int lo, int hi, int z)
+    {
+        double w = (zValues[z]-zValues[lo])/(zValues[hi]-zValues[lo]);
+        return new Tuple(centroids[lo].getLeft()+w*(centroids[hi].getLeft()-centroids[lo].getLeft()),
+                centroids[lo].getRight()+w*(centroids[hi].getRight()-centroids[lo].getRight()));
+    }
+
+    private Tuple typeReduceZLevel(int z, int output, int typeReductionType)
+    {
+        fireZLevel(z);
+        return zLevelRulebases[z].typeReduce(outputs.get(output), typeReductionType,
+                firingLower, firingUpper, switchPoints[output]);
+    }
+
+    /**
+     * Computes the lower and upper membership of every distinct antecedent at
+     * all zLevels for the current inputs.
+     * @return false if an input is not a singleton.
+     */
+    private boolean fuzzifyZLevels()
+    {
+        compile();
+        for(int a=0;a<distinctAntecedents.length;a++)
+            if(!(distinctAntecedents[a].getInput().getInputMF() instanceof T1MF_Singleton))
+                return false;
+
+        int levels = zLevelRulebases.length;
+        long start = InferenceMetrics.start();
+        for(int a=0;a<distinctAntecedents.length;a++)
+        {
+            int n = distinctAntecedents[a].getSet().getVerticalSlice(distinctAntecedents[a].getInput().getInput(),
+                    zScratch, antecedentLower[a], antecedentUpper[a]);
+            //getVerticalSlice() stops at the first zSlice x is not part of
+            Arrays.fill(antecedentLower[a], Math.min(n, levels), levels, 0.0);
+            Arrays.fill(antecedentUpper[a], Math.min(n, levels), levels, 0.0);
+        }
+        InferenceMetrics.stop(InferenceMetrics.FUZZIFICATION, start);
+        return true;
+    }
+
+    /**
+     * Computes the firing intervals of all rules at zLevel z into firingLower
+     * and firingUpper.
+     */
+    private void fireZLevel(int z)
+    {
+        long start = InferenceMetrics.start();
+        for(int r=0;r<ruleAntecedents.length;r++)
+        {
+            double lower = 1.0, upper = 1.0;
+            int[] a = ruleAntecedents[r];
+            for(int j=0;j<a.length;j++)
+            {
+                if(implicationMethod==PRODUCT)
+                {
+                    lower = lower*antecedentLower[a[j]][z];
+                    upper = upper*antecedentUpper[a[j]][z];
+                }
+                else
+                {
+                    lower = Math.min(lower, antecedentLower[a[j]][z]);
+                    upper = Math.min(upper, antecedentUpper[a[j]][z]);
+                }
+            }
+            firingLower[r] = lower;
+            firingUpper[r] = upper;
+        }
+        InferenceMetrics.stop(InferenceMetrics.FIRING, start);
+    }
+
+    /**
+     * Builds the IT2 rulebases of all zLevels and indexes the distinct
+     * antecedents (by identity) of all rules for evaluateZLevels().
+     * Invalidated whenever rules are added, changed or removed.
+     */
+    private synchronized void compile()
+    {
+        if(compiled)
+            return;
+        zLevelRulebases = getIT2Rulebases();
+        int levels = zLevelRulebases.length;
+        ArrayList<GenT2z_Antecedent> antecedents = new ArrayList<>();
+        ruleAntecedents = new int[rules.size()][];
+        int slices = levels;
+        for(int r=0;r<rules.size();r++)
+        {
+            GenT2z_Antecedent[] a = rules.get(r).getAntecedents();
+            ruleAntecedents[r] = new int[a.length];
+            for(int j=0;j<a.length;j++)
+            {
+                int index = -1;
+                for(int k=0;k<antecedents.size() && index<0;k++)
+                    if(antecedents.get(k)==a[j])
+                        index = k;
+                if(index<0)
+                {
+                    index = antecedents.size();
+                    antecedents.add(a[j]);
+                    slices = Math.max(slices, a[j].getSet().getNumberOfSlices());
+                }
+                ruleAntecedents[r][j] = index;
+            }
+        }
+        distinctAntecedents = antecedents.toArray(new GenT2z_Antecedent[antecedents.size()]);
+        antecedentLower = new double[distinctAntecedents.length][slices];
+        antecedentUpper = new double[distinctAntecedents.length][slices];
+        zScratch = new double[slices];
+        firingLower = new double[rules.size()];
+        firingUpper = new double[rules.size()];
+        switchPoints = new double[outputs.size()][2];
+        compiled = true;
+    }
+
     /**
      * Returns the whole zSlices based rulebase as a series of interval type-2
      * rule bases (one per zLevel) which can then be computed in parallel.
@@ -255,10 +629,12 @@ public class GenT2z_Rulebase
     public void changeRule(int ruleToBeChanged, GenT2z_Rule newRule) 
     {
         rules.set(ruleToBeChanged, newRule);
+        compiled = false;
     }
 
     public void removeRule(int ruleNumber) {
         rules.remove(ruleNumber);
+        compiled = false;
     }
     
     public int getNumberOfRules()
@@ -313,6 +689,7 @@ public class GenT2z_Rulebase
             this.implicationMethod = MINIMUM;
         else
             throw new BadParameterException("Only product (0) and minimum (1) implication is currentlyt supported.");
+        compiled = false;
     }       
     public String toString()
     {
@@ -3,4 +3,14 @@ package generic;
 public interface MF_Interface {
 
 	public String getName();
+
+	/**
+	 * Freezes the set (and the sets it is built from). A frozen set rejects
+	 * all modifications with an UnsupportedOperationException and returns
+	 * copies of its mutable parts, e.g. its support, so that it can be shared
+	 * by concurrent evaluations. Freezing cannot be undone.
+	 */
+	public void freeze();
+
+	public boolean isFrozen();
 }
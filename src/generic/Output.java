@@ -19,6 +19,7 @@ public class Output implements Comparable
     private Tuple domain;
     private int discretisationLevel = 100;  //the number of discretisations this output will be evaluated over
     private double[] discretisedDomain = null;
+    private double adaptiveTolerance = 0.0; //0: centroid type reduction uses the fixed discretisation
     
     public Output(String name, Tuple domain)
     {
@@ -49,6 +50,25 @@ public class Output implements Comparable
         this.discretisationLevel = discretisationLevel;
     }
 
+    public double getAdaptiveTolerance() {
+        return adaptiveTolerance;
+    }
+
+    /**
+     * Lets interval type-2 centroid type reduction sample this output
+     * adaptively instead of at discretisationLevel equidistant points: a coarse
+     * grid is refined where the output set changes slope and around the switch
+     * points until the end points of the centroid move by less than the
+     * tolerance (see IntervalT2Engine_Centroid.setAdaptiveTolerance).
+     * @param adaptiveTolerance The tolerance on the end points of the
+     * type-reduced set; 0 restores the fixed discretisation.
+     */
+    public void setAdaptiveTolerance(double adaptiveTolerance) {
+        if(adaptiveTolerance<0)
+            throw new BadParameterException("The tolerance of the adaptive discretisation must not be negative.");
+        this.adaptiveTolerance = adaptiveTolerance;
+    }
+
     public Tuple getDomain() {
         return domain;
     }
@@ -9,7 +9,9 @@
 
 package intervalType2.sets;
 
+import generic.BadParameterException;
 import generic.Tuple;
+import tools.metrics.InferenceMetrics;
 
 /**
  * Implements Centroid calculation using the Karnik Mendel and Enhanced Karnik Mendel Iterative Procedures.
@@ -28,6 +30,12 @@ public class IntervalT2Engine_Centroid
     private final short centroid_algorithm_selector = KARNIKMENDEL;
     private final boolean log = false; //log for comparison
     private final boolean DEBUG = false;
+
+    //adaptive discretisation, see setAdaptiveTolerance()
+    private double adaptiveTolerance = 0.0;
+    private int initialDiscretizationLevel = 33;
+    private int maximumDiscretizationLevel = 1<<14;
+    private int numberOfEvaluations = 0;
     
     /** Creates a new instance of GenT2Engine_Centroid */
     public IntervalT2Engine_Centroid()
@@ -49,16 +57,109 @@ public class IntervalT2Engine_Centroid
     {
         this.primaryDiscretizationLevel = primaryDiscretizationLevel;
     }     
+
+    public double getAdaptiveTolerance()
+    {
+        return adaptiveTolerance;
+    }
+
+    /**
+     * Enables adaptive discretisation: instead of sampling the set at
+     * primaryDiscretizationLevel equidistant points, a coarse grid of
+     * initialDiscretizationLevel points is refined by bisection only in those
+     * intervals where the lower or upper membership function changes slope and
+     * where the switch points of the left and right end points lie. Refinement
+     * stops once neither end point of the centroid moves by more than the
+     * tolerance between two passes (or the maximum number of points is
+     * reached). The centroid is computed with trapezoidal quadrature weights,
+     * i.e. it approximates the centroid of the continuous set.
+     * @param tolerance The tolerance on the end points; 0 disables adaptive
+     * discretisation.
+     */
+    public void setAdaptiveTolerance(double tolerance)
+    {
+        if(tolerance<0)
+            throw new BadParameterException("The tolerance of the adaptive discretisation must not be negative.");
+        this.adaptiveTolerance = tolerance;
+    }
+
+    public int getInitialDiscretizationLevel()
+    {
+        return initialDiscretizationLevel;
+    }
+
+    /**
+     * @param level The number of points of the coarse grid used by adaptive
+     * discretisation; features narrower than the grid spacing may be missed.
+     */
+    public void setInitialDiscretizationLevel(int level)
+    {
+        if(level<2)
+            throw new BadParameterException("The initial discretisation level needs to be at least 2.");
+        this.initialDiscretizationLevel = level;
+    }
+
+    public int getMaximumDiscretizationLevel()
+    {
+        return maximumDiscretizationLevel;
+    }
+
+    public void setMaximumDiscretizationLevel(int level)
+    {
+        this.maximumDiscretizationLevel = level;
+    }
+
+    /**
+     * @return The number of membership evaluations (fill() calls) made by the
+     * last adaptive centroid computation.
+     */
+    public int getNumberOfEvaluations()
+    {
+        return numberOfEvaluations;
+    }
     
     public Tuple getCentroid(IntervalT2MF_Interface mf)
+    {
+        return getCentroid(mf, null);
+    }
+
+    /**
+     * Computes the centroid, starting the Karnik-Mendel iterations from the
+     * given switch points instead of the centroid of the average memberships.
+     * The switch point of an end point lies at the end point itself, so the
+     * centroid of a similar set - a neighbouring zSlice of the same general
+     * type-2 set, or the same output for a similar input - is a good hint: if
+     * the switch points have not moved, each end point converges in a single
+     * iteration. The iterations always run until the switch point no longer
+     * changes, and that fixed point does not depend on where they start, so
+     * the end points are identical to those of a cold start.
+     * @param switchPoints The switch points of the left (index 0) and right
+     * (index 1) end point to start from; NaN or values outside the support
+     * start cold. On return, holds the switch points found, which can be
+     * passed to the next call. May be null.
+     */
+    public Tuple getCentroid(IntervalT2MF_Interface mf, double[] switchPoints)
     {
         //System.out.println("Change back to KM!!!!!!");
+        long start = InferenceMetrics.start();
         
+        if(adaptiveTolerance>0)
+        {
+            centroid = getCentroidAdaptive(mf);
+            if(switchPoints!=null && centroid!=null)
+            {
+                switchPoints[0] = centroid.getLeft();
+                switchPoints[1] = centroid.getRight();
+            }
+            InferenceMetrics.stop(InferenceMetrics.KARNIK_MENDEL, start);
+            return centroid;
+        }
+
         switch(centroid_algorithm_selector)
         {
             case KARNIKMENDEL:
             {
-                centroid = getCentroidKM(mf);
+                centroid = getCentroidKM(mf, switchPoints);
                 break;
             }
             
@@ -69,15 +170,16 @@ public class IntervalT2Engine_Centroid
             }            
         }
         
+        InferenceMetrics.stop(InferenceMetrics.KARNIK_MENDEL, start);
         return centroid;
     }
     
-    private Tuple getCentroidKM(IntervalT2MF_Interface mf)
+    private Tuple getCentroidKM(IntervalT2MF_Interface mf, double[] switchPoints)
     {
         if(mf==null) return new Tuple(Double.NaN, Double.NaN);
 
         if(mf instanceof IntervalT2MF_Intersection && !((IntervalT2MF_Intersection)mf).intersectionExists())  return new Tuple(Double.NaN, Double.NaN);
-        Tuple[] w;
+        double[] wLower, wUpper;   //lower and upper membership values
         double[] x;
         double[] weights;
         //double[] weightsLeft;       //used to keep weights array intact for calculation of y_r
@@ -102,9 +204,12 @@ public class IntervalT2Engine_Centroid
         domainSize = mf.getSupport().getRight()-mf.getSupport().getLeft();
 //System.out.println("domain: "+mf.getSupport());
         //setup arrays for primaryDiscretizationLevel
-        w = new Tuple[primaryDiscretizationLevel];
+        wLower = new double[primaryDiscretizationLevel];
+        wUpper = new double[primaryDiscretizationLevel];
+        double[] fs = new double[2];
         x = new double[primaryDiscretizationLevel];
         weights = new double[primaryDiscretizationLevel];
+        double[] averageWeights = new double[primaryDiscretizationLevel];
         //weightsLeft = new double[primaryDiscretizationLevel+1];
 //System.out.println("prim disc in KM= "+primaryDiscretizationLevel);
         //compute lower and upper membership value w at x over primaryDiscretizationLevel (discretize domain primaryDiscretizationLevel times)
@@ -113,35 +218,31 @@ public class IntervalT2Engine_Centroid
         for (int i=0; i<primaryDiscretizationLevel;i++)
         {
             x[i] = i*temp+mf.getSupport().getLeft(); //discretize and shift - starting from domain starting point
-            w[i] = mf.getFS(x[i]);
+            mf.fill(x[i], fs);
+            wLower[i] = fs[0];
+            wUpper[i] = fs[1];
             //if(i==primaryDiscretizationLevel)System.out.println("x = "+x[i]+" and y = "+w[i]);
-            weights[i] = (w[i].getLeft()+w[i].getRight()) / 2;      //(8)
+            averageWeights[i] = (wLower[i]+wUpper[i]) / 2;      //(8)
             
-            if(DEBUG)System.out.println("KM x disc. number: "+i+"  = "+x[i]+ "  y(w[i]) = "+w[i]+"   weights[i] = "+weights[i]);
+            if(DEBUG)System.out.println("KM x disc. number: "+i+"  = "+x[i]+ "  y(w[i]) = ["+wLower[i]+","+wUpper[i]+"]"+"   weights[i] = "+averageWeights[i]);
         }        
 
+        double coldStart = getWeightedSum(x,averageWeights);                   //(9)
         for(byte runs=0;runs<2;runs++) //run once for left, once for right
         {//System.out.println("runs = "+runs);
             stopFlag = false;
 
-        for (int i=0; i<primaryDiscretizationLevel;i++)
-        {
-            //x[i] = i*temp+mf.getSupport().getLeft(); //discretize and shift - starting from domain starting point
-            w[i] = mf.getFS(x[i]); 
-            weights[i] = (w[i].getLeft()+w[i].getRight()) / 2;      //(8)
-        
-        }            
-            
-            y = getWeightedSum(x,weights);                                  //(9)
+            //warm start from the given switch point if it lies within the discretised domain
+            boolean warm = switchPoints!=null && switchPoints[runs]>=x[0] && switchPoints[runs]<=x[primaryDiscretizationLevel-1];
+            y = warm ? switchPoints[runs] : coldStart;
             if(DEBUG)System.out.println("y = "+y);
+            int iterations = 0;
 
             while(!stopFlag)
             {
-                if(log)
-                {
-                    if(runs==0)iterationCounterLeft++;
-                    else iterationCounterRight++;
-                }
+                iterations++;
+                if(runs==0)iterationCounterLeft++;
+                else iterationCounterRight++;
                 for(k=0;k<primaryDiscretizationLevel-1;k++)
                 //for(k=1;k<primaryDiscretizationLevel;k++)
                 {if(DEBUG)System.out.println("k = "+k+"  y = "+y+"  x[k] = "+x[k]+"  x[k+1] = " +x[k+1]);
@@ -156,24 +257,31 @@ public class IntervalT2Engine_Centroid
                 {
                     if(DEBUG)System.out.println("Doing left   k = "+k+"   and primaryDiscretizationLevel = "+primaryDiscretizationLevel);
                     for(int i=0;i<=k;i++)
-                        //weightsLeft[i] = w[i].getRight();
-                        weights[i] = w[i].getRight();
+                        //weightsLeft[i] = wUpper[i];
+                        weights[i] = wUpper[i];
                     for(int i=k+1;i<primaryDiscretizationLevel;i++)
-                        //weightsLeft[i] = w[i].getLeft();
-                        weights[i] = w[i].getLeft();
+                        //weightsLeft[i] = wLower[i];
+                        weights[i] = wLower[i];
                 }
                 else
                 {
                     if(DEBUG)System.out.println("Doing right   k = "+k+"   and primaryDiscretizationLevel = "+primaryDiscretizationLevel);
                     for(int i=0;i<=k;i++)
-                        weights[i] = w[i].getLeft();
+                        weights[i] = wLower[i];
                     for(int i=k+1;i<primaryDiscretizationLevel;i++)
-                        weights[i] = w[i].getRight();                    
+                        weights[i] = wUpper[i];                    
                 }
 
                 yDash = getWeightedSum(x, weights);
                 if(DEBUG)System.out.println("yDash = "+yDash+"   and y = "+y+ "   y_l="+y_l+"  y_r="+y_r);
                 //if(yDash == y)
+                if(Double.isNaN(yDash) && warm)
+                {
+                    //no weights at this switch point - start over as a cold start would
+                    warm = false;
+                    y = coldStart;
+                    continue;
+                }
                 if(Double.isNaN(yDash))
                 {
                     if(DEBUG)System.out.println("Is using NAN in KM the right thing to avoid divide by zero? "+mf);
@@ -187,7 +295,14 @@ public class IntervalT2Engine_Centroid
                     yDash = y;
                 }
 
-                if(Math.abs(yDash-y)<0.001)
+                //if the switch point of yDash is still k, the next iteration would
+                //reproduce yDash exactly - stop now instead. There is no tolerance:
+                //stopping anywhere but at the fixed point would make the result
+                //depend on the starting point. Each iteration moves the switch
+                //point in one direction only, so the limit is merely a safeguard.
+                boolean switchPointFound = k<primaryDiscretizationLevel-1 && yDash<=x[k+1]
+                        && (k==0 ? x[0]<=yDash : x[k]<yDash);
+                if(switchPointFound || yDash==y || iterations>primaryDiscretizationLevel)
                 {if(DEBUG)System.out.println("SUCCESS! - y = "+y);
                     stopFlag = true;
                     if(runs==0)
@@ -208,6 +323,12 @@ public class IntervalT2Engine_Centroid
             }       
         }
         //if(log)System.out.println("Iterations for y_l: "+iterationCounterLeft+"   iterations for y_r: "+iterationCounterRight);
+        InferenceMetrics.recordKMIterations(iterationCounterLeft, iterationCounterRight);
+        if(switchPoints!=null)
+        {
+            switchPoints[0] = y_l;
+            switchPoints[1] = y_r;
+        }
         //return new Range(y_l,y_r);	
                     //test
 
@@ -219,7 +340,7 @@ public class IntervalT2Engine_Centroid
 
     private Tuple getCentroid_enhanced(IntervalT2MF_Interface mf, double divisor_left, double divisor_right)    //parameter to divide primaryDiscretizationLevel, usually 2.4
     {
-        Tuple[] w;
+        double[] wLower, wUpper;   //lower and upper membership values
         double[] x;
         double[] weights;
         //double[] weightsLeft;       //used to keep weights array intact for calculation of y_r
@@ -238,7 +359,9 @@ public class IntervalT2Engine_Centroid
         domainSize = mf.getSupport().getRight()-mf.getSupport().getLeft();
 
         //setup arrays for primaryDiscretizationLevel
-        w = new Tuple[primaryDiscretizationLevel+1];
+        wLower = new double[primaryDiscretizationLevel+1];
+        wUpper = new double[primaryDiscretizationLevel+1];
+        double[] fs = new double[2];
         x = new double[primaryDiscretizationLevel+1];
         weights = new double[primaryDiscretizationLevel+1];
         //weightsLeft = new double[primaryDiscretizationLevel+1];
@@ -254,7 +377,9 @@ public class IntervalT2Engine_Centroid
                 //x[i] = i/100.0;    //use very silly discretization
                 //System.out.println(x[i]);
 
-                w[i] = mf.getFS(x[i]);                
+                mf.fill(x[i], fs);
+                wLower[i] = fs[0];
+                wUpper[i] = fs[1];
         }
 
 
@@ -272,13 +397,13 @@ public class IntervalT2Engine_Centroid
             {
 
 
-                a += x[i]*w[i].getRight();
-                b += w[i].getRight();
+                a += x[i]*wUpper[i];
+                b += wUpper[i];
             }
             for (int i=k+1; i<=primaryDiscretizationLevel;i++)
             {
-                a += x[i]*w[i].getLeft();
-                b += w[i].getLeft();
+                a += x[i]*wLower[i];
+                b += wLower[i];
             }            
 
                 y = a/b;                                  //(23)
@@ -316,8 +441,8 @@ public class IntervalT2Engine_Centroid
 
                     for(int i=(Math.min(k,kDash)+1);i<=Math.max(k,kDash);i++)
                     {
-                        aDash += x[i]*(w[i].getRight()-w[i].getLeft());
-                        bDash += (w[i].getRight()-w[i].getLeft());
+                        aDash += x[i]*(wUpper[i]-wLower[i]);
+                        bDash += (wUpper[i]-wLower[i]);
                     }
                     aDash = a + s * aDash;
                     bDash = b + s * bDash;
@@ -347,13 +472,13 @@ public class IntervalT2Engine_Centroid
             //System.out.println("Domainsize = "+domainSize+"   domain left = "+domain.getLeft()+"    domain right = "+domain.getRight());
             for (int i=0; i<=k;i++)
             {
-                a += x[i]*w[i].getLeft();
-                b += w[i].getLeft();
+                a += x[i]*wLower[i];
+                b += wLower[i];
             }
             for (int i=k+1; i<=primaryDiscretizationLevel;i++)
             {
-                a += x[i]*w[i].getRight();
-                b += w[i].getRight();
+                a += x[i]*wUpper[i];
+                b += wUpper[i];
             }            
 
                 y = a/b;                                  //(23)
@@ -392,8 +517,8 @@ public class IntervalT2Engine_Centroid
 
                     for(int i=(Math.min(k,kDash)+1);i<=Math.max(k,kDash);i++)
                     {
-                        aDash += x[i]*(w[i].getRight()-w[i].getLeft());
-                        bDash += (w[i].getRight()-w[i].getLeft());
+                        aDash += x[i]*(wUpper[i]-wLower[i]);
+                        bDash += (wUpper[i]-wLower[i]);
                     }
                     aDash = a - s * aDash;
                     bDash = b - s * bDash;
@@ -411,11 +536,195 @@ public class IntervalT2Engine_Centroid
             }                       
         }
         //if(log)System.out.println("Iterations for y_l: "+iterationCounterLeft+"   iterations for y_r: "+iterationCounterRight);
+        InferenceMetrics.recordKMIterations(iterationCounterLeft, iterationCounterRight);
         
 //        return new Tuple[]{new Tuple(y_l,y_r),new Tuple(iterationCounterLeft,iterationCounterRight)};
         return new Tuple(y_l,y_r);
     }      
     
+    private Tuple getCentroidAdaptive(IntervalT2MF_Interface mf)
+    {
+        numberOfEvaluations = 0;
+        if(mf==null) return new Tuple(Double.NaN, Double.NaN);
+        if(mf instanceof IntervalT2MF_Intersection && !((IntervalT2MF_Intersection)mf).intersectionExists())  return new Tuple(Double.NaN, Double.NaN);
+        if(mf instanceof IntervalT2MF_Union &&((IntervalT2MF_Union)mf).isNull())
+            return null;
+        if(mf.getSupport().getRight()==mf.getSupport().getLeft()) 
+            return mf.getSupport().clone();  //domain is one point - return this point
+
+        double left = mf.getSupport().getLeft();
+        double domainSize = mf.getSupport().getRight()-left;
+        double minimumWidth = domainSize/(maximumDiscretizationLevel-1);
+        int n = initialDiscretizationLevel;
+        double[] x = new double[n], lower = new double[n], upper = new double[n];
+        double[] fs = new double[2];
+        for(int i=0;i<n;i++)
+        {
+            x[i] = i==n-1 ? mf.getSupport().getRight() : left+i*domainSize/(n-1);
+            sample(mf, x, lower, upper, i, fs);
+        }
+
+        int[] switchPoints = new int[2];
+        Tuple centroid = reduceTrapezoidal(x, lower, upper, n, switchPoints);
+        boolean[] refine = new boolean[n];
+        while(!Double.isNaN(centroid.getLeft()))
+        {
+            if(refine.length<n)
+                refine = new boolean[x.length];
+            int marked = markIntervals(x, lower, upper, n, switchPoints, minimumWidth, refine);
+            if(marked==0 || n+marked>maximumDiscretizationLevel)
+                break;
+
+            //insert the midpoints of all marked intervals
+            double[] newX = new double[n+marked], newLower = new double[n+marked], newUpper = new double[n+marked];
+            int j = 0;
+            for(int i=0;i<n;i++)
+            {
+                newX[j] = x[i];
+                newLower[j] = lower[i];
+                newUpper[j++] = upper[i];
+                if(i<n-1 && refine[i])
+                {
+                    newX[j] = (x[i]+x[i+1])/2.0;
+                    sample(mf, newX, newLower, newUpper, j++, fs);
+                }
+            }
+            x = newX;
+            lower = newLower;
+            upper = newUpper;
+            n = n+marked;
+
+            Tuple refined = reduceTrapezoidal(x, lower, upper, n, switchPoints);
+            boolean converged = Math.abs(refined.getLeft()-centroid.getLeft())<=adaptiveTolerance
+                    && Math.abs(refined.getRight()-centroid.getRight())<=adaptiveTolerance;
+            centroid = refined;
+            if(converged)
+                break;
+        }
+        if(DEBUG)System.out.println("Adaptive centroid "+centroid+" from "+numberOfEvaluations+" evaluations.");
+        return centroid;
+    }
+
+    private void sample(IntervalT2MF_Interface mf, double[] x, double[] lower, double[] upper, int i, double[] fs)
+    {
+        mf.fill(x[i], fs);
+        lower[i] = fs[0];
+        upper[i] = fs[1];
+        numberOfEvaluations++;
+    }
+
+    /**
+     * Computes the end points of the centroid of the set sampled at the (sorted)
+     * points x, integrating the linear interpolation of the memberships between
+     * the points exactly: over [a,b], the area is (b-a)(w_a+w_b)/2 and the
+     * moment (b-a)(w_a(2a+b)+w_b(a+2b))/6, which gives every point an area
+     * weight q and a moment weight m.
+     * Instead of iterating, all switch points are scanned using running sums,
+     * which finds the exact optimum of the discretised problem in linear time.
+     * @param switchPoints Receives the index k of the interval [x_k, x_k+1]
+     * holding the switch point of the left (0) and right (1) end point.
+     */
+    private Tuple reduceTrapezoidal(double[] x, double[] lower, double[] upper, int n, int[] switchPoints)
+    {
+        //sums over all points using the lower (L) or upper (U) membership
+        double numL = 0, denL = 0, numU = 0, denU = 0;
+        for(int i=0;i<n;i++)
+        {
+            double q = getAreaWeight(x, n, i), m = getMomentWeight(x, n, i);
+            numL += m*lower[i];
+            denL += q*lower[i];
+            numU += m*upper[i];
+            denU += q*upper[i];
+        }
+        if(denU<=0)
+            return new Tuple(Double.NaN, Double.NaN);
+
+        //k = -1: no point left of the switch point
+        double yl = denL>0 ? numL/denL : Double.POSITIVE_INFINITY, yr = denU>0 ? numU/denU : Double.NEGATIVE_INFINITY;
+        int kl = 0, kr = 0;
+        double leftNum = numL, leftDen = denL, rightNum = numU, rightDen = denU;
+        for(int k=0;k<n;k++)
+        {
+            double q = getAreaWeight(x, n, k), m = getMomentWeight(x, n, k);
+            //left end point: upper memberships up to k, lower ones after k
+            leftNum += m*(upper[k]-lower[k]);
+            leftDen += q*(upper[k]-lower[k]);
+            //right end point: lower memberships up to k, upper ones after k
+            rightNum -= m*(upper[k]-lower[k]);
+            rightDen -= q*(upper[k]-lower[k]);
+            if(leftDen>0 && leftNum/leftDen<yl)
+            {
+                yl = leftNum/leftDen;
+                kl = k;
+            }
+            if(rightDen>0 && rightNum/rightDen>yr)
+            {
+                yr = rightNum/rightDen;
+                kr = k;
+            }
+        }
+        switchPoints[0] = Math.min(kl, n-2);
+        switchPoints[1] = Math.min(kr, n-2);
+        return new Tuple(yl, yr);
+    }
+
+    private static double getAreaWeight(double[] x, int n, int i)
+    {
+        return ((i<n-1 ? x[i+1] : x[i])-(i>0 ? x[i-1] : x[i]))/2.0;
+    }
+
+    private static double getMomentWeight(double[] x, int n, int i)
+    {
+        double m = 0.0;
+        if(i>0)
+            m += (x[i]-x[i-1])*(x[i-1]+2*x[i])/6.0;
+        if(i<n-1)
+            m += (x[i+1]-x[i])*(2*x[i]+x[i+1])/6.0;
+        return m;
+    }
+
+    /**
+     * Marks the intervals to be bisected: those next to a point where the
+     * slope of the lower or upper membership function changes and those
+     * holding a switch point, unless they are narrower than minimumWidth.
+     * @return The number of marked intervals.
+     */
+    private int markIntervals(double[] x, double[] lower, double[] upper, int n, int[] switchPoints,
+            double minimumWidth, boolean[] refine)
+    {
+        java.util.Arrays.fill(refine, 0, n, false);
+        for(int i=1;i<n-1;i++)
+        {
+            if(slopeChanges(x, lower, i) || slopeChanges(x, upper, i))
+            {
+                refine[i-1] = true;
+                refine[i] = true;
+            }
+        }
+        for(int s=0;s<2;s++)
+        {
+            int k = switchPoints[s];
+            for(int i=Math.max(0, k-1);i<=Math.min(n-2, k+1);i++)
+                refine[i] = true;
+        }
+        int marked = 0;
+        for(int i=0;i<n-1;i++)
+        {
+            if(refine[i] && x[i+1]-x[i]<2*minimumWidth)
+                refine[i] = false;
+            if(refine[i])
+                marked++;
+        }
+        return marked;
+    }
+
+    private boolean slopeChanges(double[] x, double[] y, int i)
+    {
+        double before = (y[i]-y[i-1])/(x[i]-x[i-1]);
+        double after = (y[i+1]-y[i])/(x[i+1]-x[i]);
+        return Math.abs(after-before)>1e-9*(1.0+Math.abs(before)+Math.abs(after));
+    }
+
     private double getWeightedSum(double x[], double w[])
     {
         double temp=0.0, temp2=0.0;
@@ -0,0 +1,283 @@
+/*
+ * IntervalT2Engine_ExactCentroid.java
+ *
+ * Rafael Bastos
+ */
+
+package intervalType2.sets;
+
+import generic.BadParameterException;
+import generic.Tuple;
+import java.util.Arrays;
+import type1.sets.T1MF_Interface;
+import type1.sets.T1MF_Trapezoidal;
+import type1.sets.T1MF_Triangular;
+
+/**
+ * Computes the exact (continuous) centroid of Interval Type-2 sets whose upper
+ * and lower membership functions are piecewise linear, i.e. trapezoidal and
+ * triangular sets.
+ * Between two consecutive breakpoints both membership functions are linear, so
+ * all integrals needed by the Karnik Mendel procedure are available in closed
+ * form. For the left end point the function g(s) = s*D(s)-N(s), where N(s)/D(s)
+ * is the centroid of the embedded set switching from the UMF to the LMF at s,
+ * is non-decreasing (g'(s) = D(s)); its root is the switch point and equals the
+ * left end point of the centroid. The same holds for the right end point with
+ * the roles of the UMF and LMF swapped. The root is bracketed by evaluating g at
+ * the breakpoints and located within its segment by a safeguarded Newton
+ * iteration on the exact cubic, hence there is no discretisation error.
+ * @author Rafael Bastos
+ */
+public class IntervalT2Engine_ExactCentroid
+{
+    private final boolean DEBUG = false;
+
+    public IntervalT2Engine_ExactCentroid()
+    {
+
+    }
+
+    /**
+     * Returns true if the centroid of the given set can be computed by this engine.
+     */
+    public static boolean isSupported(IntervalT2MF_Interface mf)
+    {
+        return (mf instanceof IntervalT2MF_Trapezoidal || mf instanceof IntervalT2MF_Triangular)
+                && isPiecewiseLinear(mf.getUMF()) && isPiecewiseLinear(mf.getLMF());
+    }
+
+    private static boolean isPiecewiseLinear(T1MF_Interface mf)
+    {
+        return mf instanceof T1MF_Trapezoidal || mf instanceof T1MF_Triangular;
+    }
+
+    /**
+     * Returns the centroid of the set over its current support.
+     * Like IntervalT2Engine_Centroid a Tuple of NaNs is returned if the set has
+     * no membership anywhere on its support.
+     */
+    public Tuple getCentroid(IntervalT2MF_Interface mf)
+    {
+        if(!isSupported(mf))
+            throw new BadParameterException("The exact centroid is only available for trapezoidal and triangular sets, "
+                    +mf.getName()+" is a "+mf.getClass().getSimpleName()+".");
+
+        Segments s = new Segments(mf);
+        if(s.count==0)
+            return new Tuple(Double.NaN, Double.NaN);
+        double left = s.getSwitchPoint(true);
+        double right = s.getSwitchPoint(false);
+        if(DEBUG)System.out.println("Exact centroid of "+mf.getName()+" over "+s.count+" segments: ["+left+", "+right+"]");
+        return new Tuple(left, right);
+    }
+
+    /**
+     * Collects all points at which the slope of the LMF or UMF of a set can
+     * change within the given support.
+     */
+    private static double[] getBreakpoints(IntervalT2MF_Interface mf, double left, double right)
+    {
+        double[] points = new double[12];
+        int n = 0;
+        points[n++] = left;
+        points[n++] = right;
+        n = addBreakpoints(mf.getUMF(), points, n);
+        n = addBreakpoints(mf.getLMF(), points, n);
+        int count = 0;
+        for(int i=0;i<n;i++)
+            if(points[i]>=left && points[i]<=right)
+                points[count++] = points[i];
+        points = Arrays.copyOf(points, count);
+        Arrays.sort(points);
+        count = 0;
+        for(int i=0;i<points.length;i++)
+            if(count==0 || points[i]>points[count-1])
+                points[count++] = points[i];
+        return Arrays.copyOf(points, count);
+    }
+
+    private static int addBreakpoints(T1MF_Interface mf, double[] points, int n)
+    {
+        if(mf instanceof T1MF_Trapezoidal)
+        {
+            T1MF_Trapezoidal t = (T1MF_Trapezoidal)mf;
+            points[n++] = t.getA(); points[n++] = t.getB();
+            points[n++] = t.getC(); points[n++] = t.getD();
+        }
+        else
+        {
+            T1MF_Triangular t = (T1MF_Triangular)mf;
+            points[n++] = t.getStart(); points[n++] = t.getPeak(); points[n++] = t.getEnd();
+        }
+        return n;
+    }
+
+    /**
+     * The set as a sequence of segments on which both the lower and upper
+     * membership are linear, together with the prefix integrals of mu(x) and
+     * x*mu(x) of both membership functions at the segment starts.
+     */
+    private static class Segments
+    {
+        private static final int MAX_ITERATIONS = 200;
+        int count;
+        double[] x0, width;                      //segment start and width
+        double[] l0, lSlope, u0, uSlope;         //membership at the segment start and slope
+        double[] pL, pXL, pU, pXU;               //integrals from the support's left end up to the segment start
+        double totalL, totalXL, totalU, totalXU;
+
+        Segments(IntervalT2MF_Interface mf)
+        {
+            double[] breakpoints = getBreakpoints(mf, mf.getSupport().getLeft(), mf.getSupport().getRight());
+            //each segment may be split once more where the raw LMF and UMF cross
+            int capacity = 2*Math.max(0, breakpoints.length-1);
+            x0 = new double[capacity]; width = new double[capacity];
+            l0 = new double[capacity]; lSlope = new double[capacity];
+            u0 = new double[capacity]; uSlope = new double[capacity];
+            pL = new double[capacity+1]; pXL = new double[capacity+1];
+            pU = new double[capacity+1]; pXU = new double[capacity+1];
+
+            for(int i=0;i<breakpoints.length-1;i++)
+            {
+                double a = breakpoints[i], b = breakpoints[i+1];
+                //IT2 sets may report min/max of the raw MFs (e.g. triangular
+                //sets with different peaks), so split where the raw lines cross
+                double h = (b-a)/3.0;
+                double lA = mf.getLMF().getFS(a+h), lB = mf.getLMF().getFS(b-h);
+                double uA = mf.getUMF().getFS(a+h), uB = mf.getUMF().getFS(b-h);
+                //difference of the raw lines, extrapolated to the segment ends
+                double dA = 2*(lA-uA)-(lB-uB), dB = 2*(lB-uB)-(lA-uA);
+                if(dA*dB<0)
+                {
+                    double t = a+(b-a)*dA/(dA-dB);
+                    if(t>a && t<b)
+                    {
+                        addSegment(mf, a, t);
+                        addSegment(mf, t, b);
+                        continue;
+                    }
+                }
+                addSegment(mf, a, b);
+            }
+
+            for(int i=0;i<count;i++)
+            {
+                pL[i+1] = pL[i]+integral(i, width[i], false, false);
+                pXL[i+1] = pXL[i]+integral(i, width[i], false, true);
+                pU[i+1] = pU[i]+integral(i, width[i], true, false);
+                pXU[i+1] = pXU[i]+integral(i, width[i], true, true);
+            }
+            totalL = pL[count]; totalXL = pXL[count];
+            totalU = pU[count]; totalXU = pXU[count];
+            if(totalU<=0.0)
+                count = 0;
+        }
+
+        /**
+         * Adds the segment [a,b]. The membership is sampled in the interior
+         * only, so that discontinuities at the breakpoints (e.g. shoulders) are
+         * represented correctly.
+         */
+        private void addSegment(IntervalT2MF_Interface mf, double a, double b)
+        {
+            double h = (b-a)/3.0;
+            double lA = mf.getLowerFS(a+h), lB = mf.getLowerFS(b-h);
+            double uA = mf.getUpperFS(a+h), uB = mf.getUpperFS(b-h);
+            x0[count] = a;
+            width[count] = b-a;
+            lSlope[count] = (lB-lA)/h;
+            uSlope[count] = (uB-uA)/h;
+            l0[count] = lA-lSlope[count]*h;
+            u0[count] = uA-uSlope[count]*h;
+            count++;
+        }
+
+        /**
+         * Integral of mu(x) (or x*mu(x) if weighted) over [x0, x0+t] of segment i.
+         */
+        double integral(int i, double t, boolean upper, boolean weighted)
+        {
+            double f0 = upper ? u0[i] : l0[i];
+            double s = upper ? uSlope[i] : lSlope[i];
+            double plain = f0*t+s*t*t/2.0;
+            if(!weighted)
+                return plain;
+            return x0[i]*plain+f0*t*t/2.0+s*t*t*t/3.0;
+        }
+
+        /**
+         * g(s) = s*D(s)-N(s) for the switch point x0[i]+t, where the embedded set
+         * follows the UMF left of s (left end point) or the LMF left of s (right
+         * end point). Also returns D(s) in dOut[0], which is the derivative of g.
+         */
+        double g(int i, double t, boolean leftEndPoint, double[] dOut)
+        {
+            double iL = pL[i]+integral(i, t, false, false);
+            double iXL = pXL[i]+integral(i, t, false, true);
+            double iU = pU[i]+integral(i, t, true, false);
+            double iXU = pXU[i]+integral(i, t, true, true);
+            double d, n;
+            if(leftEndPoint)
+            {
+                d = iU+(totalL-iL);
+                n = iXU+(totalXL-iXL);
+            }
+            else
+            {
+                d = iL+(totalU-iU);
+                n = iXL+(totalXU-iXU);
+            }
+            dOut[0] = d;
+            return (x0[i]+t)*d-n;
+        }
+
+        /**
+         * For the left end point the boundary of {g<=0} is returned, for the
+         * right end point the boundary of {g<0}. Where g is strictly increasing
+         * both are its unique root; where it is flat (LMF of zero) they pick the
+         * limit the KM procedure converges to.
+         */
+        private boolean positive(double g, boolean leftEndPoint)
+        {
+            return leftEndPoint ? g>0.0 : g>=0.0;
+        }
+
+        double getSwitchPoint(boolean leftEndPoint)
+        {
+            double[] d = new double[1];
+            //bracket the root by the segment starts
+            int segment = count-1;
+            for(int i=1;i<count;i++)
+                if(positive(g(i, 0.0, leftEndPoint, d), leftEndPoint))
+                {
+                    segment = i-1;
+                    break;
+                }
+            if(!positive(g(segment, width[segment], leftEndPoint, d), leftEndPoint))
+                return x0[segment]+width[segment];
+
+            double lo = 0.0, hi = width[segment];
+            double t = hi/2.0;
+            double tolerance = 1e-15*(1.0+Math.abs(x0[segment])+width[segment]);
+            for(int i=0;i<MAX_ITERATIONS && hi-lo>tolerance;i++)
+            {
+                double value = g(segment, t, leftEndPoint, d);
+                if(positive(value, leftEndPoint))
+                    hi = t;
+                else
+                    lo = t;
+                //Newton step if it stays within the bracket, bisection otherwise
+                double next = d[0]>0.0 ? t-value/d[0] : Double.NaN;
+                if(!(next>lo && next<hi))
+                    next = (lo+hi)/2.0;
+                if(Math.abs(next-t)<=tolerance)
+                {
+                    t = next;
+                    break;
+                }
+                t = next;
+            }
+            return x0[segment]+t;
+        }
+    }
+}
@@ -60,6 +60,39 @@ public class IntervalT2MF_Gauangle extends IntervalT2MF_Prototype
         }
     }    
 
+    @Override
+    public double getLowerFS(double x)
+    {
+        return Math.min(lMF.getFS(x), uMF.getFS(x));
+    }
+
+    @Override
+    public double getUpperFS(double x)
+    {
+        return getUpperFS(x, lMF.getFS(x), uMF.getFS(x));
+    }
+
+    @Override
+    public void fill(double x, double[] out)
+    {
+        double l = lMF.getFS(x);
+        double u = uMF.getFS(x);
+        out[0] = Math.min(l, u);
+        out[1] = getUpperFS(x, l, u);
+    }
+
+    /**
+     * The upper membership degree as in getFS(), from the memberships l and u 
+     * of the lower and upper MF.
+     */
+    private double getUpperFS(double x, double l, double u)
+    {
+        if(lMF.getPeak()!=uMF.getPeak() 
+                && x<=Math.max(lMF.getPeak(),uMF.getPeak()) && x>=Math.min(lMF.getPeak(),uMF.getPeak()))
+            return 1.0;
+        return Math.max(l, u);
+    }
+
     public int compareTo(Object o)
     {
         if (!(o instanceof IntervalT2MF_Gauangle))
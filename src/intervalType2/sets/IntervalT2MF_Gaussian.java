@@ -99,6 +99,78 @@ public class IntervalT2MF_Gaussian extends IntervalT2MF_Prototype
             return new Tuple(Math.min(temp, temp2), Math.max(temp, temp2));
         }
     }    
+
+    @Override
+    public double getLowerFS(double x)
+    {
+        if(x<support.getLeft() || x>support.getRight())
+            return 0.0;
+        if (((T1MF_Gaussian)lMF).getMean() == ((T1MF_Gaussian)uMF).getMean())
+            return getFS((T1MF_Gaussian)lMF, x);
+        return Math.min(getUncertainMeanUpper(x), getUncertainMeanLower(x));
+    }
+
+    @Override
+    public double getUpperFS(double x)
+    {
+        if(x<support.getLeft() || x>support.getRight())
+            return 0.0;
+        if (((T1MF_Gaussian)lMF).getMean() == ((T1MF_Gaussian)uMF).getMean())
+            return getFS((T1MF_Gaussian)uMF, x);
+        return Math.max(getUncertainMeanUpper(x), getUncertainMeanLower(x));
+    }
+
+    @Override
+    public void fill(double x, double[] out)
+    {
+        if(x<support.getLeft() || x>support.getRight())
+        {
+            out[0] = 0.0;
+            out[1] = 0.0;
+        }
+        else if (((T1MF_Gaussian)lMF).getMean() == ((T1MF_Gaussian)uMF).getMean())
+        {
+            out[0] = getFS((T1MF_Gaussian)lMF, x);
+            out[1] = getFS((T1MF_Gaussian)uMF, x);
+        }
+        else
+        {
+            double temp = getUncertainMeanUpper(x);
+            double temp2 = getUncertainMeanLower(x);
+            out[0] = Math.min(temp, temp2);
+            out[1] = Math.max(temp, temp2);
+        }
+    }
+
+    /**
+     * The Gaussian membership at x, as computed by getFS(x).
+     */
+    private static double getFS(T1MF_Gaussian mf, double x)
+    {
+        return Math.exp(-0.5*Math.pow(((x-mf.getMean())/mf.getSpread()),2));
+    }
+
+    /**
+     * The upper membership for uncertain means (before ordering), see getFS(x).
+     */
+    private double getUncertainMeanUpper(double x)
+    {
+        if(x<((T1MF_Gaussian)lMF).getMean())
+            return getFS((T1MF_Gaussian)lMF, x);
+        else if(x>((T1MF_Gaussian)uMF).getMean())
+            return getFS((T1MF_Gaussian)uMF, x);
+        return 1.0;
+    }
+
+    /**
+     * The lower membership for uncertain means (before ordering), see getFS(x).
+     */
+    private double getUncertainMeanLower(double x)
+    {
+        if(x<(((T1MF_Gaussian)lMF).getMean()+((T1MF_Gaussian)uMF).getMean())/2)
+            return getFS((T1MF_Gaussian)uMF, x);
+        return getFS((T1MF_Gaussian)lMF, x);
+    }
     
     @Override
     public String toString()
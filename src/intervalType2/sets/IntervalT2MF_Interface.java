@@ -14,6 +14,21 @@ import type1.sets.T1MF_Interface;
 public interface IntervalT2MF_Interface extends Serializable, MF_Interface
 {
     public Tuple getFS(double x);
+    /**
+     * The lower membership degree at x, i.e. getFS(x).getLeft() without 
+     * creating a Tuple.
+     */
+    public double getLowerFS(double x);
+    /**
+     * The upper membership degree at x, i.e. getFS(x).getRight() without 
+     * creating a Tuple.
+     */
+    public double getUpperFS(double x);
+    /**
+     * Writes the lower and upper membership degree at x to out[0] and out[1],
+     * computing what both have in common only once.
+     */
+    public void fill(double x, double[] out);
     public double getFSAverage(double x);
     public void setSupport(Tuple d);
     public Tuple getSupport();
@@ -9,104 +9,94 @@
 
 package intervalType2.sets;
 
+import generic.BadParameterException;
 import generic.Tuple;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashSet;
-import java.util.Iterator;
+import type1.sets.T1MF_Interface;
 import type1.sets.T1MF_Intersection;
 
 /**
- * Class that manages the intersection of two interval type-2 MFs.
- * The class supports the intersection of other intersections.
+ * Class that manages the intersection of interval type-2 MFs.
+ * The class supports the intersection of any number of sets, including other
+ * intersections which are flattened into the new set. The name is only built
+ * when it is asked for.
  * @author Christian Wagner
  */
 public class IntervalT2MF_Intersection extends IntervalT2MF_Prototype
 {
-    private HashSet<IntervalT2MF_Interface> sets; //an intersection can be based on an arbitrary number of sets
+    private IntervalT2MF_Interface[] sets; //an intersection can be based on an arbitrary number of sets
     private boolean intersectionExists = false;  //if set to false there is no actual intersection between the given sets
     
     /**
-     * Creates a new instance of IntervalT2MF_Intersection by intersecting a and b.
-     * @param a
-     * @param b 
+     * Creates a new instance of IntervalT2MF_Intersection by intersecting the
+     * given sets.
+     * @param sets 
      */
-    public IntervalT2MF_Intersection(IntervalT2MF_Interface a, IntervalT2MF_Interface b)
+    public IntervalT2MF_Intersection(IntervalT2MF_Interface... sets)
     {
-        super("dummy-intersection"); //will be updated at the end of constructor
+        super(null);
+        if(sets.length==0)
+            throw new BadParameterException("The intersection needs at least one set.");
 
-        //check if there is actually an intersection
-        checkForIntersection:
+        //check if there is actually an intersection: cylindrical extensions
+        //intersect with everything unless they are "empty", all other sets 
+        //need to have overlapping supports
+        intersectionExists = true;
+        double maxLeft = Double.NEGATIVE_INFINITY, minRight = Double.POSITIVE_INFINITY;
+        for(IntervalT2MF_Interface set : sets)
         {
-            //first - check if we are dealing with a cylinder in which case there will always be an intersection:
-            if(a instanceof IntervalT2MF_Cylinder || b instanceof IntervalT2MF_Cylinder)
+            if(set instanceof IntervalT2MF_Cylinder)
             {
-                //verify that the cylindrical extensions are not "empty"
-                if(a instanceof IntervalT2MF_Cylinder && ((IntervalT2MF_Cylinder)a).getUpperBound(0)==0.0)
-                {
-                    break checkForIntersection;
-                }
-                else if(b instanceof IntervalT2MF_Cylinder && ((IntervalT2MF_Cylinder)b).getUpperBound(0)==0.0)
-                {
-                    break checkForIntersection;
-                }
-                else                
-                intersectionExists = true; break checkForIntersection;
+                if(((IntervalT2MF_Cylinder)set).getUpperBound(0)==0.0)
+                    intersectionExists = false;
             }
+            else if(set instanceof IntervalT2MF_Intersection && !((IntervalT2MF_Intersection)set).intersectionExists())
+                intersectionExists = false;
             else
-            if(a.getSupport().getLeft()==b.getSupport().getLeft())
-                {intersectionExists = true; break checkForIntersection;}
-            else
-            if(a.getSupport().getLeft()<b.getSupport().getLeft())
             {
-                if(a.getSupport().getRight()>=b.getSupport().getLeft())
-                    {intersectionExists = true; break checkForIntersection;}
-            } 
-            else
-            if(a.getSupport().getLeft()<=b.getSupport().getRight())
-                {intersectionExists = true; break checkForIntersection;}
+                maxLeft = Math.max(maxLeft, set.getSupport().getLeft());
+                minRight = Math.min(minRight, set.getSupport().getRight());
+            }
         }
+        if(maxLeft>minRight)
+            intersectionExists = false;
 
         if(intersectionExists)
         {
-            sets = new HashSet();
-            
             //deal with special case when the sets are themselves intersections
-            if(a instanceof IntervalT2MF_Intersection)
-            {
-                sets.addAll(((IntervalT2MF_Intersection)a).getSets());
-            } else sets.add(a);
-            if(b instanceof IntervalT2MF_Intersection)
+            ArrayList<IntervalT2MF_Interface> operands = new ArrayList<>(sets.length);
+            for(IntervalT2MF_Interface set : sets)
             {
-                sets.addAll(((IntervalT2MF_Intersection)b).getSets());
-            } else sets.add(b);
-
-            //DOING THE WORK DOUBLE, REMOVE THE TOP (DIRECT) APPROACH!
-            this.uMF = new T1MF_Intersection("uMF of Intersection of ("+a.getName()+","+b.getName()+")", a.getUMF(),b.getUMF());
-            this.lMF = new T1MF_Intersection("lMF of Intersection of ("+a.getName()+","+b.getName()+")", a.getLMF(),b.getLMF());            
-  
-            //find domain and set up set name at the same time
-            IntervalT2MF_Interface set;
-            Iterator<IntervalT2MF_Interface> it = sets.iterator();
-            set = it.next();
-        
-            if(set.getSupport()!=null && !(set instanceof IntervalT2MF_Cylinder))
-            support = new Tuple(set.getSupport().getLeft(), set.getSupport().getRight());
-            name = "Intersection of ("+set.getName();
-            while(it.hasNext())
+                if(set instanceof IntervalT2MF_Intersection)
+                    operands.addAll(Arrays.asList(((IntervalT2MF_Intersection)set).sets));
+                else
+                    operands.add(set);
+            }
+            this.sets = operands.toArray(new IntervalT2MF_Interface[operands.size()]);
+
+            //find domain, avoiding cylinderical extensions
+            T1MF_Interface[] uMFs = new T1MF_Interface[this.sets.length];
+            T1MF_Interface[] lMFs = new T1MF_Interface[this.sets.length];
+            for(int i=0;i<this.sets.length;i++)
             {
-                set = it.next();
-                //avoid cylinderical extensions:
-                if(!(set instanceof IntervalT2MF_Cylinder))
+                uMFs[i] = this.sets[i].getUMF();
+                lMFs[i] = this.sets[i].getLMF();
+                if(!(this.sets[i] instanceof IntervalT2MF_Cylinder))
                 {
-                    if (support==null) support = set.getSupport();
+                    Tuple s = this.sets[i].getSupport();
+                    if(support==null)
+                        support = new Tuple(s.getLeft(), s.getRight());
                     else
                     {
-                        support.setLeft(Math.min(support.getLeft(), set.getSupport().getLeft()));
-                        support.setRight(Math.max(support.getRight(), set.getSupport().getRight()));
+                        support.setLeft(Math.min(support.getLeft(), s.getLeft()));
+                        support.setRight(Math.max(support.getRight(), s.getRight()));
                     }
                 }
-                    name+=" and "+set.getName();
-            } name+=")";
-            this.setName(name);
+            }
+            this.uMF = new T1MF_Intersection(null, uMFs);
+            this.lMF = new T1MF_Intersection(null, lMFs);
         }
         else    
             this.support = null;
@@ -117,9 +107,9 @@ public class IntervalT2MF_Intersection extends IntervalT2MF_Prototype
      * intersected to give rise to this set.
      * @return
      */
-    public HashSet getSets()
+    public HashSet<IntervalT2MF_Interface> getSets()
     {
-        return sets;
+        return sets==null ? null : new HashSet<>(Arrays.asList(sets));
     }
 
     /**
@@ -129,7 +119,29 @@ public class IntervalT2MF_Intersection extends IntervalT2MF_Prototype
      */
     public boolean containsSet(IntervalT2MF_Interface set)
     {
-        return sets.contains(set);
+        for(int i=0;sets!=null && i<sets.length;i++)
+            if(sets[i].equals(set))
+                return true;
+        return false;
+    }
+
+    @Override
+    public String getName()
+    {
+        if(name==null)
+        {
+            if(sets==null)
+                return "dummy-intersection";
+            StringBuilder b = new StringBuilder("Intersection of (");
+            for(int i=0;i<sets.length;i++)
+            {
+                if(i>0)
+                    b.append(" and ");
+                b.append(sets[i].getName());
+            }
+            name = b.append(')').toString();
+        }
+        return name;
     }
 
     @Override
@@ -141,9 +153,9 @@ public class IntervalT2MF_Intersection extends IntervalT2MF_Prototype
         {
             Tuple returnValue = new Tuple(1.0,1.0);
             Tuple setFS;    //for temp storarge to avoid double computation
-            for(IntervalT2MF_Interface set : sets)
+            for(int i=0;i<sets.length;i++)
             {
-                setFS = set.getFS(x);
+                setFS = sets[i].getFS(x);
                 returnValue.setLeft(Math.min(returnValue.getLeft(),setFS.getLeft()));
                 returnValue.setRight(Math.min(returnValue.getRight(),setFS.getRight()));
             }
@@ -152,6 +164,46 @@ public class IntervalT2MF_Intersection extends IntervalT2MF_Prototype
     }
 
 
+    /**
+     * @return The lower membership at x, or 0 if there is no intersection.
+     */
+    @Override
+    public double getLowerFS(double x)
+    {
+        double fs = intersectionExists ? 1.0 : 0.0;
+        for(int i=0;intersectionExists && i<sets.length;i++)
+            fs = Math.min(fs, sets[i].getLowerFS(x));
+        return fs;
+    }
+
+    /**
+     * @return The upper membership at x, or 0 if there is no intersection.
+     */
+    @Override
+    public double getUpperFS(double x)
+    {
+        double fs = intersectionExists ? 1.0 : 0.0;
+        for(int i=0;intersectionExists && i<sets.length;i++)
+            fs = Math.min(fs, sets[i].getUpperFS(x));
+        return fs;
+    }
+
+    @Override
+    public void fill(double x, double[] out)
+    {
+        out[0] = getLowerFS(x);
+        out[1] = getUpperFS(x);
+    }
+
+    @Override
+    public void freeze()
+    {
+        if(sets!=null)
+            for(IntervalT2MF_Interface set : sets)
+                set.freeze();
+        super.freeze();
+    }
+
     public boolean intersectionExists()
     {
         return intersectionExists;
@@ -25,6 +25,7 @@ public abstract class IntervalT2MF_Prototype implements IntervalT2MF_Interface,
     protected Tuple support;
     
     private final boolean DEBUG = false;
+    private volatile boolean frozen = false;
 
     public IntervalT2MF_Prototype(String name)
     {
@@ -55,6 +56,26 @@ public abstract class IntervalT2MF_Prototype implements IntervalT2MF_Interface,
         return(new Tuple(lMF.getFS(x), uMF.getFS(x)));
     }
 
+    /**
+     * Sets overriding getFS(double x) need to override this method (and 
+     * getUpperFS() and fill()) to match.
+     */
+    public double getLowerFS(double x)
+    {
+        return lMF.getFS(x);
+    }
+
+    public double getUpperFS(double x)
+    {
+        return uMF.getFS(x);
+    }
+
+    public void fill(double x, double[] out)
+    {
+        out[0] = getLowerFS(x);
+        out[1] = getUpperFS(x);
+    }
+
     /**
      * Returns the average of the lower and upper membership values as a single value.
      * @param x
@@ -62,23 +83,55 @@ public abstract class IntervalT2MF_Prototype implements IntervalT2MF_Interface,
      */
     public double getFSAverage(double x)
     {
-        return this.getFS(x).getAverage();
+        return (getLowerFS(x)+getUpperFS(x))/2.0;
     }
 
     public void setSupport(Tuple d)
     {
+        checkNotFrozen();
         this.support = d;
     }
 
     public Tuple getSupport()
     {
+        if(frozen && support!=null)
+            return support.clone();
         return support;
     }
 
     public void setName(String name)
     {
+        checkNotFrozen();
         this.name = name;
     }
+
+    /**
+     * Freezes the set together with its upper and lower membership functions.
+     */
+    @Override
+    public void freeze()
+    {
+        if(uMF!=null)
+            uMF.freeze();
+        if(lMF!=null)
+            lMF.freeze();
+        frozen = true;
+    }
+
+    @Override
+    public boolean isFrozen()
+    {
+        return frozen;
+    }
+
+    /**
+     * To be called by all methods which modify the set.
+     */
+    protected void checkNotFrozen()
+    {
+        if(frozen)
+            throw new UnsupportedOperationException("The set "+name+" is frozen.");
+    }
     
     public String getName()
     {
@@ -100,12 +153,14 @@ public abstract class IntervalT2MF_Prototype implements IntervalT2MF_Interface,
     @Override
     public void setLeftShoulder(boolean value) 
     {
+        checkNotFrozen();
         isLeftShoulder=value;
     }
 
     @Override
     public void setRightShoulder(boolean value) 
     {
+        checkNotFrozen();
         isRightShoulder = value;
     }	    
     
@@ -163,6 +218,6 @@ public abstract class IntervalT2MF_Prototype implements IntervalT2MF_Interface,
      */
     public String toString()
     {
-        return new String("Interval Type-2 MF with:\nName: "+name+"\nlMF: "+lMF+"\nuMF: "+uMF+"\nSupport: "+support);
+        return new String("Interval Type-2 MF with:\nName: "+getName()+"\nlMF: "+lMF+"\nuMF: "+uMF+"\nSupport: "+support);
     }
 }
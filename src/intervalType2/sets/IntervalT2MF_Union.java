@@ -9,43 +9,92 @@
 
 package intervalType2.sets;
 
+import generic.BadParameterException;
 import generic.Tuple;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashSet;
-import java.util.Iterator;
+import type1.sets.T1MF_Interface;
 import type1.sets.T1MF_Union;
 
 /**
- * Union operation for interval type 2
+ * Union operation for interval type 2. Any number of sets can be combined in
+ * one union; unions given as operands are flattened into the new set. The
+ * upper and lower membership functions are single (flat) type-1 unions, so 
+ * the membership of a union of R sets is found in one pass over the R sets.
+ * The name is only built when it is asked for.
  * @author Christian Wagner
  */
 public class IntervalT2MF_Union extends IntervalT2MF_Prototype
 {
-    //private IntervalT2MF_Interface left, right;
-    private HashSet<IntervalT2MF_Interface> sets;
+    private final IntervalT2MF_Interface[] sets;
 
     private final boolean DEBUG = false;
     private boolean isNull = false;
     
     /**
-     * THIS SHOULD BE REMOVED AND ALL UNION AMD INTERSECTION SHOULD BE DONE THROUGH TYPE-1 CASES
      * Creates a new instance of IntervalT2MF_Union 
      */
-    public IntervalT2MF_Union(IntervalT2MF_Interface a, IntervalT2MF_Interface b)
+    public IntervalT2MF_Union(IntervalT2MF_Interface... sets)
     {   
-        super("Union of ("+a.getName()+" and "+b.getName()+")");
-        this.uMF = new T1MF_Union(a.getUMF(), b.getUMF());
-        this.lMF = new T1MF_Union(a.getLMF(), b.getLMF());
-              
-                support = new Tuple(Math.min(a.getSupport().getLeft(),b.getSupport().getLeft()),
-                    Math.max(a.getSupport().getRight(),b.getSupport().getRight()));                
+        super(null);
+        if(sets.length==0)
+            throw new BadParameterException("The union needs at least one set.");
+        ArrayList<IntervalT2MF_Interface> operands = new ArrayList<>(sets.length);
+        for(IntervalT2MF_Interface set : sets)
+        {
+            if(set instanceof IntervalT2MF_Union)
+                operands.addAll(Arrays.asList(((IntervalT2MF_Union)set).sets));
+            else
+                operands.add(set);
+        }
+        this.sets = operands.toArray(new IntervalT2MF_Interface[operands.size()]);
+
+        T1MF_Interface[] uMFs = new T1MF_Interface[this.sets.length];
+        T1MF_Interface[] lMFs = new T1MF_Interface[this.sets.length];
+        double left = Double.POSITIVE_INFINITY, right = Double.NEGATIVE_INFINITY;
+        for(int i=0;i<this.sets.length;i++)
+        {
+            uMFs[i] = this.sets[i].getUMF();
+            lMFs[i] = this.sets[i].getLMF();
+            left = Math.min(left, this.sets[i].getSupport().getLeft());
+            right = Math.max(right, this.sets[i].getSupport().getRight());
+        }
+        this.uMF = new T1MF_Union(uMFs);
+        this.lMF = new T1MF_Union(lMFs);
+        support = new Tuple(left, right);
     }
 
 
-    public HashSet getSets()
+    public HashSet<IntervalT2MF_Interface> getSets()
+    {
+        return new HashSet<>(Arrays.asList(sets));
+    }
+
+    @Override
+    public String getName()
     {
-        return sets;
+        if(name==null)
+        {
+            StringBuilder b = new StringBuilder("Union of (");
+            for(int i=0;i<sets.length;i++)
+            {
+                if(i>0)
+                    b.append(" and ");
+                b.append(sets[i].getName());
+            }
+            name = b.append(')').toString();
+        }
+        return name;
     }
 
+    @Override
+    public void freeze()
+    {
+        for(IntervalT2MF_Interface set : sets)
+            set.freeze();
+        super.freeze();
+    }
     
     public boolean isNull()
     {
@@ -43,6 +43,15 @@ public class IT2_Antecedent
         return mF;
     }
 
+    /**
+     * Replaces the membership function, e.g. while tuning a system. An
+     * IT2_EvaluationCache notices the change on its next update().
+     */
+    public void setMF(IntervalT2MF_Interface mF)
+    {
+        this.mF = mF;
+    }
+
     public Tuple getFS()
     {
         if(debug) System.out.println("Input = "+input.getInput());
@@ -51,6 +60,15 @@ public class IT2_Antecedent
         return mF.getFS(input.getInput());
     }
 
+    /**
+     * Writes the lower and upper membership of the current input to out[0] 
+     * and out[1], see getFS().
+     */
+    public void fill(double[] out)
+    {
+        mF.fill(input.getInput(), out);
+    }
+
     public void setInput(Input input)
     {
         this.input = input;
@@ -113,11 +131,11 @@ public class IT2_Antecedent
     	} else if (this.input.getInputMF() instanceof IntervalT2MF_Interface){//IT2 input
     			for (int i=0;i<=domain*50;i++) {
         			if (tNorm ==0) {//PRODUCT
-        				templ = ((IntervalT2MF_Interface) this.input.getInputMF()).getFS(x).getLeft()*this.getMF().getFS(x).getLeft();
-        				tempu = ((IntervalT2MF_Interface) this.input.getInputMF()).getFS(x).getRight()*this.getMF().getFS(x).getRight();
+        				templ = ((IntervalT2MF_Interface) this.input.getInputMF()).getLowerFS(x)*this.getMF().getLowerFS(x);
+        				tempu = ((IntervalT2MF_Interface) this.input.getInputMF()).getUpperFS(x)*this.getMF().getUpperFS(x);
         			} else { //MINIMUM
-        				templ = Math.min(((IntervalT2MF_Interface) this.input.getInputMF()).getFS(x).getLeft(),this.getMF().getFS(x).getLeft());
-        				tempu = Math.min(((IntervalT2MF_Interface) this.input.getInputMF()).getFS(x).getRight(),this.getMF().getFS(x).getRight());      			
+        				templ = Math.min(((IntervalT2MF_Interface) this.input.getInputMF()).getLowerFS(x),this.getMF().getLowerFS(x));
+        				tempu = Math.min(((IntervalT2MF_Interface) this.input.getInputMF()).getUpperFS(x),this.getMF().getUpperFS(x));      			
         			}
         			if (templ >= valxmaxl){
         				valxmaxl = templ;
@@ -3,6 +3,7 @@ package intervalType2.system;
 import generic.Output;
 import generic.Tuple;
 import intervalType2.sets.IntervalT2Engine_Centroid;
+import intervalType2.sets.IntervalT2Engine_ExactCentroid;
 import intervalType2.sets.IntervalT2MF_Interface;
 
 public class IT2_Consequent
@@ -26,8 +27,7 @@ public class IT2_Consequent
                     Math.max(mF.getSupport().getLeft(), this.output.getDomain().getLeft()), 
                     Math.min(mF.getSupport().getRight(), this.output.getDomain().getRight())));
             
-            IEC = new IntervalT2Engine_Centroid();
-            centroid = IEC.getCentroid(m);
+            centroid = computeCentroid(m);
             if(DEBUG) System.out.println("Centroid values of interval consequent "+mF.getName()+" are: "+centroid.toString());
     }
 
@@ -41,11 +41,22 @@ public class IT2_Consequent
             mF.setSupport(new Tuple(
                     Math.max(mF.getSupport().getLeft(), this.output.getDomain().getLeft()), 
                     Math.min(mF.getSupport().getRight(), this.output.getDomain().getRight())));            
-            IEC = new IntervalT2Engine_Centroid();
-            centroid = IEC.getCentroid(m);
+            centroid = computeCentroid(m);
             if(DEBUG) System.out.println("Centroid values of interval consequent "+mF.getName()+" are: "+centroid.toString());
     }    
 
+    /**
+     * Piecewise linear sets (trapezoidal and triangular) have their centroid
+     * computed exactly, all others by the discretised KM procedure.
+     */
+    private Tuple computeCentroid(IntervalT2MF_Interface m)
+    {
+        if(IntervalT2Engine_ExactCentroid.isSupported(m))
+            return new IntervalT2Engine_ExactCentroid().getCentroid(m);
+        IEC = new IntervalT2Engine_Centroid();
+        return IEC.getCentroid(m);
+    }
+
     /**
         * Sets a consequent directly as a centroid, without using a membership function.
         * @param centroid
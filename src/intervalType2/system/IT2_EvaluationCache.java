@@ -0,0 +1,259 @@
+/*
+ * IT2_EvaluationCache.java
+ *
+ * Rafael Bastos
+ */
+package intervalType2.system;
+
+import generic.BadParameterException;
+import generic.Output;
+import generic.Tuple;
+import intervalType2.sets.IntervalT2MF_Interface;
+
+/**
+ * Keeps the evaluation of an IT2_Rulebase on a fixed set of crisp inputs up
+ * to date while antecedent sets change, e.g. during a parameter sweep or
+ * while a set is edited interactively.
+ * The cache stores the antecedent memberships and the rule firing
+ * intervals of every row together with the type-reduced output. On update()
+ * only the memberships of antecedents whose set changed are recomputed, then
+ * only the rules using one of those antecedents are fired again, and only
+ * the rows for which a firing interval actually changed are type-reduced
+ * again - usually far fewer than all rows, as a set only covers part of the
+ * input domain.
+ * A change is detected when an antecedent has been given a different set
+ * (see IT2_Antecedent.setMF()); sets that are modified in place need to be
+ * reported with invalidate(). Changing the rules or the implication method
+ * of the rulebase causes a full re-evaluation. The result of every row equals
+ * that of IT2_Rulebase.evaluate() for the same inputs.
+ * @author Rafael Bastos
+ */
+public class IT2_EvaluationCache
+{
+    private final IT2_Rulebase rulebase;
+    private final Output output;
+    private final int typeReductionType;
+    private final double[][] inputs;
+    private final int numberOfRows;
+
+    private int layout = -1;    //the rulebase layout the cache was built for
+    private IntervalT2MF_Interface[] sets;  //the set of each antecedent when its memberships were computed
+    private boolean[] invalid;
+    private double[][] lower, upper;    //[antecedent][row]
+    private double[][] firingLower, firingUpper;    //[rule][row]
+    private double[] left, right;
+
+    private int recomputedAntecedents, recomputedRules, reducedRows;
+
+    /**
+     * @param rulebase The rulebase to be evaluated.
+     * @param output The output to be computed.
+     * @param typeReductionType 0-Center-Of-Sets, 1-Centroid
+     * @param inputsByColumn One array of input values per input, in the order
+     * of rulebase.getInputs(), all of the same length. The arrays are not
+     * copied and must not change.
+     */
+    public IT2_EvaluationCache(IT2_Rulebase rulebase, Output output, int typeReductionType, double[][] inputsByColumn)
+    {
+        rulebase.prepareBatch(output, typeReductionType, inputsByColumn);
+        this.rulebase = rulebase;
+        this.output = output;
+        this.typeReductionType = typeReductionType;
+        this.inputs = inputsByColumn;
+        this.numberOfRows = inputsByColumn.length==0 ? 0 : inputsByColumn[0].length;
+        this.left = new double[numberOfRows];
+        this.right = new double[numberOfRows];
+    }
+
+    /**
+     * Marks the memberships of all antecedents using the given set as out of
+     * date, for sets that have been modified in place.
+     */
+    public synchronized void invalidate(IntervalT2MF_Interface set)
+    {
+        if(sets==null)
+            return;
+        for(int a=0;a<sets.length;a++)
+            if(rulebase.getDistinctAntecedent(a).getMF()==set || sets[a]==set)
+                invalid[a] = true;
+    }
+
+    /**
+     * Discards everything, so that the next update() re-evaluates all rows.
+     */
+    public synchronized void invalidateAll()
+    {
+        layout = -1;
+    }
+
+    /**
+     * Brings the cached outputs up to date with the current sets of the
+     * antecedents.
+     * @return The number of rows which were type-reduced again.
+     */
+    public synchronized int update()
+    {
+        int o = rulebase.prepareBatch(output, typeReductionType, inputs);
+        int numberOfAntecedents = rulebase.getNumberOfDistinctAntecedents();
+        boolean full = layout!=rulebase.getLayout();
+        if(full)
+        {
+            layout = rulebase.getLayout();
+            int numberOfRules = rulebase.getRules().size();
+            sets = new IntervalT2MF_Interface[numberOfAntecedents];
+            invalid = new boolean[numberOfAntecedents];
+            lower = new double[numberOfAntecedents][numberOfRows];
+            upper = new double[numberOfAntecedents][numberOfRows];
+            firingLower = new double[numberOfRules][numberOfRows];
+            firingUpper = new double[numberOfRules][numberOfRows];
+        }
+
+        //memberships of the changed antecedents
+        boolean[] changed = new boolean[numberOfAntecedents];
+        recomputedAntecedents = 0;
+        for(int a=0;a<numberOfAntecedents;a++)
+        {
+            IntervalT2MF_Interface set = rulebase.getDistinctAntecedent(a).getMF();
+            if(full || invalid[a] || set!=sets[a])
+            {
+                rulebase.fuzzify(a, inputs, 0, numberOfRows, lower[a], upper[a]);
+                sets[a] = set;
+                invalid[a] = false;
+                changed[a] = true;
+                recomputedAntecedents++;
+            }
+        }
+
+        //firing intervals of the rules using them; remember the rows that changed
+        boolean[] dirty = new boolean[numberOfRows];
+        double[] fl = new double[numberOfRows], fu = new double[numberOfRows];
+        recomputedRules = 0;
+        for(int r=0;r<firingLower.length;r++)
+        {
+            int[] a = rulebase.getRuleAntecedents(r);
+            boolean affected = full;
+            for(int j=0;j<a.length && !affected;j++)
+                affected = changed[a[j]];
+            if(!affected)
+                continue;
+            rulebase.fire(r, lower, upper, numberOfRows, fl, fu);
+            for(int s=0;s<numberOfRows;s++)
+                if(full || fl[s]!=firingLower[r][s] || fu[s]!=firingUpper[r][s])
+                    dirty[s] = true;
+            //swap the arrays rather than copying
+            double[] t = firingLower[r];
+            firingLower[r] = fl;
+            fl = t;
+            t = firingUpper[r];
+            firingUpper[r] = fu;
+            fu = t;
+            recomputedRules++;
+        }
+
+        //type reduction of the rows that changed
+        int numberOfRules = firingLower.length;
+        double[] ruleLower = new double[numberOfRules], ruleUpper = new double[numberOfRules];
+        Tuple[] scratch = new Tuple[numberOfRules];
+        double[] endpoints = new double[2];
+        reducedRows = 0;
+        for(int s=0;s<numberOfRows;s++)
+        {
+            if(!dirty[s])
+                continue;
+            for(int r=0;r<numberOfRules;r++)
+            {
+                ruleLower[r] = firingLower[r][s];
+                ruleUpper[r] = firingUpper[r][s];
+            }
+            rulebase.reduce(o, typeReductionType, ruleLower, ruleUpper, scratch, endpoints);
+            left[s] = endpoints[0];
+            right[s] = endpoints[1];
+            reducedRows++;
+        }
+        return reducedRows;
+    }
+
+    public int getNumberOfRows()
+    {
+        return numberOfRows;
+    }
+
+    /**
+     * Returns the average of the type-reduced set of a row, or 0 if no rule
+     * fired (as IT2_Rulebase.evaluate()).
+     */
+    public synchronized double getCrisp(int row)
+    {
+        checkUpdated();
+        return Double.isNaN(left[row]) ? 0.0 : (left[row]+right[row])/2.0;
+    }
+
+    /**
+     * Returns the type-reduced set of a row; both end points are NaN if no
+     * rule fired.
+     */
+    public synchronized Tuple getTypeReducedSet(int row)
+    {
+        checkUpdated();
+        return new Tuple(left[row], right[row]);
+    }
+
+    /**
+     * Returns the firing interval of a rule (in the order of
+     * rulebase.getRules()) for a row.
+     */
+    public synchronized Tuple getFiringStrength(int rule, int row)
+    {
+        checkUpdated();
+        return new Tuple(firingLower[rule][row], firingUpper[rule][row]);
+    }
+
+    /**
+     * Copies the outputs of all rows into the given arrays (which may be
+     * null), as IT2_Rulebase.evaluateBatch().
+     */
+    public synchronized void getOutputs(double[] outCrisp, double[] outLeft, double[] outRight)
+    {
+        checkUpdated();
+        for(int s=0;s<numberOfRows;s++)
+        {
+            if(outCrisp!=null)
+                outCrisp[s] = Double.isNaN(left[s]) ? 0.0 : (left[s]+right[s])/2.0;
+            if(outLeft!=null)
+                outLeft[s] = left[s];
+            if(outRight!=null)
+                outRight[s] = right[s];
+        }
+    }
+
+    /**
+     * @return The number of antecedents whose memberships were recomputed by
+     * the last update().
+     */
+    public synchronized int getRecomputedAntecedents()
+    {
+        return recomputedAntecedents;
+    }
+
+    /**
+     * @return The number of rules fired again by the last update().
+     */
+    public synchronized int getRecomputedRules()
+    {
+        return recomputedRules;
+    }
+
+    /**
+     * @return The number of rows type-reduced again by the last update().
+     */
+    public synchronized int getReducedRows()
+    {
+        return reducedRows;
+    }
+
+    private void checkUpdated()
+    {
+        if(layout<0)
+            throw new BadParameterException("The cache has not been updated yet - please call update() first.");
+    }
+}
@@ -0,0 +1,216 @@
+/*
+ * IT2_Explanation.java
+ *
+ * Rafael Bastos
+ */
+package intervalType2.system;
+
+import generic.Output;
+import intervalType2.sets.IntervalT2MF_Interface;
+
+/**
+ * Records the intermediate results of one evaluation of an IT2_Rulebase:
+ * the lower and upper membership of every distinct antecedent at the current
+ * input, the firing interval of every rule, the type-reduced interval of
+ * every output and the lower and upper membership of every distinct
+ * consequent at the crisp (averaged) value of its output.
+ * The record is filled by IT2_Rulebase.evaluateGetCentroid(int, IT2_Explanation)
+ * in the same pass as the inference itself and is meant to be reused for
+ * every evaluation, so all values are held in primitive arrays which are only
+ * reallocated when the rulebase changes.
+ * Antecedents and consequents are numbered in the order of their first
+ * appearance in the rules, rules in the order of the rulebase.
+ * @author Rafael Bastos
+ */
+public class IT2_Explanation
+{
+    IT2_Rulebase rulebase;
+    int layout = -1;    //layout of the rulebase the arrays were sized for
+
+    IT2_Antecedent[] antecedents = new IT2_Antecedent[0];
+    IT2_Consequent[] consequents = new IT2_Consequent[0];
+    Output[] outputs = new Output[0];
+    int[] consequentOutput = new int[0];
+
+    double[] antecedentLower = new double[0], antecedentUpper = new double[0];
+    double[] firingLower = new double[0], firingUpper = new double[0];
+    double[] outputLeft = new double[0], outputRight = new double[0];
+    double[] consequentLower = new double[0], consequentUpper = new double[0];
+
+    public IT2_Explanation()
+    {
+    }
+
+    /**
+     * Sizes the record for the current layout of the given rulebase.
+     */
+    void bind(IT2_Rulebase rulebase, int layout, IT2_Antecedent[] antecedents,
+            IT2_Consequent[] consequents, Output[] outputs, int[] consequentOutput, int numberOfRules)
+    {
+        if(this.rulebase==rulebase && this.layout==layout)
+            return;
+        this.rulebase = rulebase;
+        this.layout = layout;
+        this.antecedents = antecedents;
+        this.consequents = consequents;
+        this.outputs = outputs;
+        this.consequentOutput = consequentOutput;
+        antecedentLower = new double[antecedents.length];
+        antecedentUpper = new double[antecedents.length];
+        firingLower = new double[numberOfRules];
+        firingUpper = new double[numberOfRules];
+        outputLeft = new double[outputs.length];
+        outputRight = new double[outputs.length];
+        consequentLower = new double[consequents.length];
+        consequentUpper = new double[consequents.length];
+    }
+
+    public int getNumberOfAntecedents()
+    {
+        return antecedents.length;
+    }
+
+    public IT2_Antecedent getAntecedent(int i)
+    {
+        return antecedents[i];
+    }
+
+    /**
+     * Returns the index of the first antecedent using the given membership
+     * function, or -1 if there is none.
+     */
+    public int getAntecedentIndex(IntervalT2MF_Interface mf)
+    {
+        for(int i=0;i<antecedents.length;i++)
+            if(antecedents[i].getMF()==mf)
+                return i;
+        return -1;
+    }
+
+    public double getAntecedentLower(int i)
+    {
+        return antecedentLower[i];
+    }
+
+    public double getAntecedentUpper(int i)
+    {
+        return antecedentUpper[i];
+    }
+
+    public int getNumberOfRules()
+    {
+        return firingLower.length;
+    }
+
+    public double getFiringLower(int rule)
+    {
+        return firingLower[rule];
+    }
+
+    public double getFiringUpper(int rule)
+    {
+        return firingUpper[rule];
+    }
+
+    public int getNumberOfOutputs()
+    {
+        return outputs.length;
+    }
+
+    public Output getOutput(int i)
+    {
+        return outputs[i];
+    }
+
+    public int getOutputIndex(Output o)
+    {
+        for(int i=0;i<outputs.length;i++)
+            if(outputs[i]==o)
+                return i;
+        return -1;
+    }
+
+    /**
+     * @return The left end point of the type-reduced set of the output, NaN
+     * if no rule fired for it.
+     */
+    public double getOutputLeft(int i)
+    {
+        return outputLeft[i];
+    }
+
+    /**
+     * @return The right end point of the type-reduced set of the output, NaN
+     * if no rule fired for it.
+     */
+    public double getOutputRight(int i)
+    {
+        return outputRight[i];
+    }
+
+    /**
+     * @return The average of the type-reduced set of the output, NaN if no
+     * rule fired for it.
+     */
+    public double getCrispOutput(int i)
+    {
+        return (outputLeft[i]+outputRight[i])/2.0;
+    }
+
+    public int getNumberOfConsequents()
+    {
+        return consequents.length;
+    }
+
+    public IT2_Consequent getConsequent(int i)
+    {
+        return consequents[i];
+    }
+
+    /**
+     * Returns the index of the first consequent using the given membership
+     * function, or -1 if there is none.
+     */
+    public int getConsequentIndex(IntervalT2MF_Interface mf)
+    {
+        for(int i=0;i<consequents.length;i++)
+            if(consequents[i].getMembershipFunction()==mf)
+                return i;
+        return -1;
+    }
+
+    /**
+     * @return The lower membership of the consequent at the crisp value of
+     * its output (NaN if no rule fired for the output or the consequent has
+     * no membership function).
+     */
+    public double getConsequentLower(int i)
+    {
+        return consequentLower[i];
+    }
+
+    /**
+     * @return The upper membership of the consequent at the crisp value of
+     * its output (NaN if no rule fired for the output or the consequent has
+     * no membership function).
+     */
+    public double getConsequentUpper(int i)
+    {
+        return consequentUpper[i];
+    }
+
+    @Override
+    public String toString()
+    {
+        String s = "Explanation of "+firingLower.length+" rules:\n";
+        for(int i=0;i<antecedents.length;i++)
+            s+=antecedents[i].getName()+": ["+antecedentLower[i]+", "+antecedentUpper[i]+"]\n";
+        for(int r=0;r<firingLower.length;r++)
+            s+="Rule "+r+" fires with ["+firingLower[r]+", "+firingUpper[r]+"]\n";
+        for(int i=0;i<outputs.length;i++)
+            s+=outputs[i].getName()+": ["+outputLeft[i]+", "+outputRight[i]+"]\n";
+        for(int i=0;i<consequents.length;i++)
+            s+=consequents[i].getName()+": ["+consequentLower[i]+", "+consequentUpper[i]+"]\n";
+        return s;
+    }
+}
@@ -94,6 +94,7 @@ public class IT2_Rule
     public Tuple getFStrength(byte tNorm)
     {
         Tuple fStrength = new Tuple(1.0,1.0);	//initialize for multiplication
+        double[] fs = new double[2];
         
         if(tNorm==PRODUCT)
         {
@@ -101,8 +102,9 @@ public class IT2_Rule
             for(int i = 0;i<antecedents.length;i++)
             {
             	if (antecedents[i].getInput().getInputMF() instanceof T1MF_Singleton) {
-                    fStrength.setLeft(fStrength.getLeft()*antecedents[i].getFS().getLeft());
-                    fStrength.setRight(fStrength.getRight()*antecedents[i].getFS().getRight());
+                    antecedents[i].fill(fs);
+                    fStrength.setLeft(fStrength.getLeft()*fs[0]);
+                    fStrength.setRight(fStrength.getRight()*fs[1]);
             	} else if (antecedents[i].getInput().getInputMF() instanceof T1MF_Interface) {
             		Tuple xmax = antecedents[i].getMax(PRODUCT);
             		fStrength.setLeft(fStrength.getLeft()*antecedents[i].getMF().getLMF().getFS(xmax.getLeft())*((T1MF_Interface) antecedents[i].getInput().getInputMF()).getFS(xmax.getLeft()));
@@ -119,8 +121,9 @@ public class IT2_Rule
         	for(int i = 0;i<antecedents.length;i++)
             {
             	if (antecedents[i].getInput().getInputMF() instanceof T1MF_Singleton) {
-                    fStrength.setLeft(Math.min(fStrength.getLeft(),antecedents[i].getFS().getLeft()));
-                    fStrength.setRight(Math.min(fStrength.getRight(),antecedents[i].getFS().getRight()));
+                    antecedents[i].fill(fs);
+                    fStrength.setLeft(Math.min(fStrength.getLeft(),fs[0]));
+                    fStrength.setRight(Math.min(fStrength.getRight(),fs[1]));
             	} else if (antecedents[i].getInput().getInputMF() instanceof T1MF_Interface) {
             		Tuple xmax = antecedents[i].getMax(MINIMUM);
             		fStrength.setLeft(Math.min(fStrength.getLeft(),Math.min(antecedents[i].getMF().getLMF().getFS(xmax.getLeft()),((T1MF_Interface) antecedents[i].getInput().getInputMF()).getFS(xmax.getLeft()))));
@@ -150,6 +153,14 @@ public class IT2_Rule
     }
 
     
+    /**
+     * @return True if the rule has a consequent for the given output.
+     */
+    public boolean hasConsequent(Output o)
+    {
+        return consequents.containsKey(o);
+    }
+
     public Tuple getConsequentCentroid(Output o)
     {
         return consequents.get(o).getCentroid();
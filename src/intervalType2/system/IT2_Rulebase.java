@@ -11,6 +11,10 @@ import generic.Output;
 import generic.Tuple;
 import intervalType2.sets.*;
 import java.util.*;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import tools.metrics.InferenceMetrics;
+import type1.sets.T1MF_Singleton;
 
 public class IT2_Rulebase
 {
@@ -18,7 +22,6 @@ public class IT2_Rulebase
     private ArrayList<Output> outputs;  //keeps track of all outputs - in any rules
     private final boolean DEBUG = false;
     private final boolean showContext =  false;
-    private IT2_Rule temp;
 
     private final double nan = Double.NaN;
     private final byte CENTEROFSETS = 0;
@@ -29,6 +32,30 @@ public class IT2_Rulebase
     private final byte PRODUCT = 0;
     private final byte MINIMUM = 1;        
 
+    //distinct antecedents/consequents of all rules, see compile()
+    private boolean compiled = false;
+    private int layout = 0;
+    private IT2_Antecedent[] distinctAntecedents;
+    private int[][] ruleAntecedents;
+    private IT2_Consequent[] distinctConsequents;
+    private int[] consequentOutputs;
+    private Output[] outputArray;
+    //per output: the rules with a consequent for it, sorted by the left/right centroid end point
+    private int[][] cosLeftRules, cosRightRules;
+    private double[][] cosLeftCentroids, cosRightCentroids;
+    private double[] cosLower, cosUpper;    //firing intervals of a single evaluation
+    private int[] antecedentColumns;    //the index of each antecedent's input within getInputs()
+
+    //generated evaluator and the state it was generated for, see specialise()
+    private IT2_SpecialisedEvaluator specialisedEvaluator;
+    private int specialisedLayout;
+    private byte specialisedImplicationMethod;
+    private IntervalT2MF_Interface[] specialisedSets;
+    private Input[] specialisedInputs;
+    private double[] specialisedX, specialisedEndpoints;
+
+    private static final int BATCH_BLOCK_SIZE = 256;    //samples evaluated together, see evaluateBatch()
+
     public IT2_Rulebase()
     {
             rules = new Vector();
@@ -61,6 +88,7 @@ public class IT2_Rulebase
     public void addRule(IT2_Rule r)
     {
         rules.addElement(r);
+        compiled = false;
         
         //check if any new outputs occur
         Iterator<IT2_Consequent> it = r.getConsequentsIterator();
@@ -77,6 +105,7 @@ public class IT2_Rulebase
         for(int i=0;i<r.length;i++)
         {
             rules.add(r[i]);
+            compiled = false;
             //check if any new outputs occur
             Iterator<IT2_Consequent> it = r[i].getConsequentsIterator();
             Output o;
@@ -113,15 +142,76 @@ public class IT2_Rulebase
      * then null is returned as an Object[].
      */
     public synchronized TreeMap<Output, Object[]> evaluateGetCentroid(int typeReductionType)
+    {
+        long start = InferenceMetrics.start();
+        long allocation = InferenceMetrics.startAllocation();
+        TreeMap<Output, Object[]> returnValue = toCentroidMap(typeReduce(typeReductionType, getFiringStrengths()));
+        InferenceMetrics.stopAllocation(InferenceMetrics.EVALUATION, allocation);
+        InferenceMetrics.stop(InferenceMetrics.EVALUATION, start);
+        return returnValue;
+    }
+
+    /**
+     * As evaluateGetCentroid(int), but additionally fills the given record with
+     * the antecedent memberships, rule firing intervals, type-reduced outputs
+     * and consequent memberships at the crisp outputs of this evaluation.
+     * Antecedent memberships are computed once per distinct antecedent and, for
+     * singleton inputs, reused for the firing strengths of all rules.
+     * @param typeReductionType 0-Center-Of-Sets, 1-Centroid
+     * @param explanation A record which is reused across evaluations.
+     * @return See evaluateGetCentroid(int).
+     */
+    public synchronized TreeMap<Output, Object[]> evaluateGetCentroid(int typeReductionType, IT2_Explanation explanation)
+    {
+        long start = InferenceMetrics.start();
+        long allocation = InferenceMetrics.startAllocation();
+        compile();
+        explanation.bind(this, layout, distinctAntecedents, distinctConsequents, outputArray, consequentOutputs, rules.size());
+        TreeMap<Output, Tuple> typeReductionOutput = typeReduce(typeReductionType, getFiringStrengths(explanation));
+
+        for(int i=0;i<outputArray.length;i++)
+        {
+            Tuple centroid = typeReductionOutput.get(outputArray[i]);
+            explanation.outputLeft[i] = centroid==null ? nan : centroid.getLeft();
+            explanation.outputRight[i] = centroid==null ? nan : centroid.getRight();
+        }
+        for(int i=0;i<distinctConsequents.length;i++)
+        {
+            double crisp = explanation.getCrispOutput(consequentOutputs[i]);
+            IntervalT2MF_Interface mf = distinctConsequents[i].getMembershipFunction();
+            if(mf==null || Double.isNaN(crisp))
+            {
+                explanation.consequentLower[i] = nan;
+                explanation.consequentUpper[i] = nan;
+            }
+            else
+            {
+                explanation.consequentLower[i] = mf.getLowerFS(crisp);
+                explanation.consequentUpper[i] = mf.getUpperFS(crisp);
+            }
+        }
+        TreeMap<Output, Object[]> returnValue = toCentroidMap(typeReductionOutput);
+        InferenceMetrics.stopAllocation(InferenceMetrics.EVALUATION, allocation);
+        InferenceMetrics.stop(InferenceMetrics.EVALUATION, start);
+        return returnValue;
+    }
+
+    /**
+     * Returns a record for evaluateGetCentroid(int, IT2_Explanation) which is
+     * already laid out for the current rules, so that the indices of
+     * antecedents and consequents can be looked up before the first evaluation.
+     */
+    public synchronized IT2_Explanation newExplanation()
+    {
+        compile();
+        IT2_Explanation explanation = new IT2_Explanation();
+        explanation.bind(this, layout, distinctAntecedents, distinctConsequents, outputArray, consequentOutputs, rules.size());
+        return explanation;
+    }
+
+    private TreeMap<Output, Object[]> toCentroidMap(TreeMap<Output, Tuple> typeReductionOutput)
     {
         TreeMap<Output, Object[]> returnValue = new TreeMap();
-        TreeMap<Output, Tuple> typeReductionOutput = null;
-        
-        if(typeReductionType == CENTEROFSETS)
-            typeReductionOutput = doCOSTypeReduction();
-        else if (typeReductionType == CENTROID)
-            typeReductionOutput = doReductionCentroid();  
-        
         Iterator<Output> it = outputs.iterator();
         Output o = null;
         while(it.hasNext())
@@ -144,15 +234,26 @@ public class IT2_Rulebase
     * applies to centroid type reducer)
     * @return The type-reduced and defuzzified output.
     */
-    public TreeMap<Output, Double> evaluate(int typeReductionType)
+    public synchronized TreeMap<Output, Double> evaluate(int typeReductionType)
     {
+        long start = InferenceMetrics.start();
+        long allocation = InferenceMetrics.startAllocation();
         TreeMap<Output, Double> returnValue = new TreeMap();
-        TreeMap<Output, Tuple> typeReductionOutput = null;
-        
-        if(typeReductionType == CENTEROFSETS)
-            typeReductionOutput = doCOSTypeReduction();
-        else if (typeReductionType == CENTROID)
-            typeReductionOutput = doReductionCentroid();  
+        if(typeReductionType == CENTEROFSETS && isSpecialised())
+        {
+            fillSpecialisedInputs();
+            specialisedEvaluator.evaluateCOS(specialisedX, cosLower, cosUpper, specialisedEndpoints);
+            recordRulesFired(cosUpper);
+            for(int o=0;o<outputArray.length;o++)
+            {
+                double yl = specialisedEndpoints[2*o], yr = specialisedEndpoints[2*o+1];
+                returnValue.put(outputArray[o], Double.isNaN(yl) ? 0.0 : (yl+yr)/2.0);
+            }
+            InferenceMetrics.stopAllocation(InferenceMetrics.EVALUATION, allocation);
+            InferenceMetrics.stop(InferenceMetrics.EVALUATION, start);
+            return returnValue;
+        }
+        TreeMap<Output, Tuple> typeReductionOutput = typeReduce(typeReductionType, getFiringStrengths());
         
         Iterator<Output> it = outputs.iterator();
         Output o;
@@ -164,225 +265,788 @@ public class IT2_Rulebase
             else
                 returnValue.put(o, typeReductionOutput.get(o).getAverage());
         }  
+        InferenceMetrics.stopAllocation(InferenceMetrics.EVALUATION, allocation);
+        InferenceMetrics.stop(InferenceMetrics.EVALUATION, start);
         return returnValue;      
     }
-        
-    
-    public TreeMap<Output, Tuple> doCOSTypeReduction()
-    {
-        //get rule firing strengths
-        TreeMap<Output, Tuple> returnValue = new TreeMap();
-        Iterator<IT2_Rule> ruleIterator;
-        
-        TreeMap<Output, Object[]> data = getFiringIntervalsForCOS_TR();
-        
-        //for each output
-        Iterator<Output> oIt = data.keySet().iterator();
-        Object[] currentOutputData;
-        Output o;
 
-        if(data.firstEntry()==null || ((Vector<IT2_COSInferenceData>)data.firstEntry().getValue()[0]).size()==0)
-        {    //no rules fired
-            while(oIt.hasNext())
-                returnValue.put(oIt.next(), null);
+    private TreeMap<Output, Tuple> typeReduce(int typeReductionType, Tuple[] firingStrengths)
+    {
+        if(typeReductionType == CENTEROFSETS)
+        {
+            long start = InferenceMetrics.start();
+            TreeMap<Output, Tuple> returnValue = doCOSTypeReduction(firingStrengths);
+            InferenceMetrics.stop(InferenceMetrics.TYPE_REDUCTION, start);
             return returnValue;
         }
-        else
-        while(oIt.hasNext())
-        {            
-            o = oIt.next();
-            currentOutputData = data.get(o);
+        else if (typeReductionType == CENTROID)
+            return doReductionCentroid(firingStrengths);
+        return null;
+    }
 
-            IT2_COSInferenceData[] leftData = new IT2_COSInferenceData[((Vector)currentOutputData[0]).size()];
-            ((Vector<IT2_COSInferenceData>)currentOutputData[0]).toArray(leftData);
-            IT2_COSInferenceData[] rightData = new IT2_COSInferenceData[((Vector)currentOutputData[1]).size()];
-            ((Vector<IT2_COSInferenceData>)currentOutputData[1]).toArray(rightData);
-            ruleIterator = rules.iterator();
+    /**
+     * Returns the firing strength of every rule for the current inputs.
+     */
+    private Tuple[] getFiringStrengths()
+    {
+        long start = InferenceMetrics.start();
+        Tuple[] firingStrengths = new Tuple[rules.size()];
+        if(isSpecialised())
+        {
+            fillSpecialisedInputs();
+            specialisedEvaluator.fire(specialisedX, cosLower, cosUpper);
+            for(int r=0;r<firingStrengths.length;r++)
+                firingStrengths[r] = new Tuple(cosLower[r], cosUpper[r]);
+        }
+        else
+            for(int r=0;r<firingStrengths.length;r++)
+                firingStrengths[r] = rules.elementAt(r).getFStrength(implicationMethod);
+        InferenceMetrics.stop(InferenceMetrics.FIRING, start);
+        recordRulesFired(firingStrengths);
+        return firingStrengths;
+    }
 
-            
-            {
-                Arrays.sort(leftData);
-                Arrays.sort(rightData);
-
-                double[] fir = new double[leftData.length];
-                double yr = 0.0, yl = 0.0;
-                double yDash = 0.0;
-                double yDashDash = 0.0;
-                boolean stopFlag = false;
-                int R = 0;
-                int L = 0;            
-
-                //DO RIGHT
-                for(int i = 0; i<fir.length;i++) 
-                {
-                    fir[i] = rightData[i].getFStrength().getAverage();
-                }
+    private void recordRulesFired(Tuple[] firingStrengths)
+    {
+        if(!InferenceMetrics.isEnabled())
+            return;
+        int fired = 0;
+        for(int r=0;r<firingStrengths.length;r++)
+            if(firingStrengths[r].getRight()>0.0)
+                fired++;
+        InferenceMetrics.recordRulesFired(fired);
+    }
 
-                yr = weightedSigma(fir, rightData);
-                yDash = yr;
+    private void recordRulesFired(double[] upper)
+    {
+        if(!InferenceMetrics.isEnabled())
+            return;
+        int fired = 0;
+        for(int r=0;r<upper.length;r++)
+            if(upper[r]>0.0)
+                fired++;
+        InferenceMetrics.recordRulesFired(fired);
+    }
 
-                compute_yr:
-                while(!stopFlag)
-                {
-                    //Step2
-                    for(int i=0; i<fir.length-1;i++)     //set to rulesFired-2
-                    {
-                        //System.out.println("yDash = "+yDash+" and rCCRight[i] = "+ rCCRight[i]);
-                        if(rightData[i].getSelectedCentroidEndpoint()<=yDash && yDash<=rightData[i+1].getSelectedCentroidEndpoint())
-                        {
-                            R = i;
-                            break;
-                        }
-                    }
+    /**
+     * Generates and loads an evaluator dedicated to the current rules: the
+     * parameters of the antecedent sets, the implication method and the
+     * sorted consequent centroids become constants of a class compiled at
+     * runtime, so firing and center of sets type reduction run without any
+     * virtual calls, loops or intermediate objects. evaluate() and the
+     * computation of the firing strengths for the other type reducers use the
+     * evaluator from then on, with results identical to the generic
+     * evaluation. To keep it valid, the antecedent sets are frozen; should
+     * the rules, the implication method or the antecedents' sets or inputs
+     * change, the generic evaluation is used again until specialise() is
+     * called anew.
+     * Only rulebases with singleton inputs and antecedents using
+     * IntervalT2MF_Trapezoidal, IntervalT2MF_Triangular or
+     * IntervalT2MF_Gaussian sets are supported, and a Java compiler needs to
+     * be available at runtime (i.e. a JDK rather than a JRE).
+     * @return True if the rulebase has been specialised, false if it keeps
+     * using the generic evaluation.
+     */
+    public synchronized boolean specialise()
+    {
+        compile();
+        specialisedEvaluator = null;
+        for(int a=0;a<distinctAntecedents.length;a++)
+            distinctAntecedents[a].getMF().freeze();
+        IT2_SpecialisedEvaluator evaluator = IT2_RulebaseSpecialiser.specialise(this);
+        if(evaluator==null)
+            return false;
+        specialisedLayout = layout;
+        specialisedImplicationMethod = implicationMethod;
+        specialisedSets = new IntervalT2MF_Interface[distinctAntecedents.length];
+        specialisedInputs = new Input[distinctAntecedents.length];
+        int columns = 0;
+        for(int a=0;a<distinctAntecedents.length;a++)
+        {
+            specialisedSets[a] = distinctAntecedents[a].getMF();
+            specialisedInputs[a] = distinctAntecedents[a].getInput();
+            columns = Math.max(columns, antecedentColumns[a]+1);
+        }
+        specialisedX = new double[columns];
+        specialisedEndpoints = new double[2*outputArray.length];
+        specialisedEvaluator = evaluator;
+        return true;
+    }
 
-                    //Step3
-                    for(int i=0;i<=R;i++)
-                    {
-                        fir[i] = rightData[i].getFStrength().getLeft();
-                    }
-                    for(int i=R+1;i<fir.length;i++)
-                    {
-                        fir[i] = rightData[i].getFStrength().getRight();
-                    }
+    /**
+     * @return True if the rulebase is evaluated by an evaluator generated by
+     * specialise() which is still valid for the current rules.
+     */
+    public synchronized boolean isSpecialised()
+    {
+        if(specialisedEvaluator==null)
+            return false;
+        compile();
+        if(layout!=specialisedLayout || implicationMethod!=specialisedImplicationMethod)
+            return false;
+        for(int a=0;a<distinctAntecedents.length;a++)
+            if(distinctAntecedents[a].getMF()!=specialisedSets[a] || distinctAntecedents[a].getInput()!=specialisedInputs[a]
+                    || !(specialisedInputs[a].getInputMF() instanceof T1MF_Singleton))
+                return false;
+        return true;
+    }
 
-                    //fix problem when only one rule fires and f_lower =0
-                    if(fir.length == 1 & fir[0]==0) fir[0] = 0.00001; 
+    private void fillSpecialisedInputs()
+    {
+        for(int a=0;a<specialisedInputs.length;a++)
+            specialisedX[antecedentColumns[a]] = specialisedInputs[a].getInput();
+    }
 
-                    yr = weightedSigma(fir, rightData);
+    /**
+     * Returns the firing strength of every rule for the current inputs and
+     * records them together with the antecedent memberships. Rules with only
+     * singleton inputs are combined from the recorded memberships, exactly as
+     * IT2_Rule.getFStrength would, all others are delegated to the rule.
+     */
+    private Tuple[] getFiringStrengths(IT2_Explanation explanation)
+    {
+        long start = InferenceMetrics.start();
+        double[] fs = new double[2];
+        for(int i=0;i<distinctAntecedents.length;i++)
+        {
+            distinctAntecedents[i].fill(fs);
+            explanation.antecedentLower[i] = fs[0];
+            explanation.antecedentUpper[i] = fs[1];
+        }
+        InferenceMetrics.stop(InferenceMetrics.FUZZIFICATION, start);
 
-                    yDashDash = yr;
+        start = InferenceMetrics.start();
+        Tuple[] firingStrengths = new Tuple[rules.size()];
+        for(int r=0;r<firingStrengths.length;r++)
+        {
+            int[] a = ruleAntecedents[r];
+            boolean singletons = true;
+            for(int j=0;j<a.length && singletons;j++)
+                singletons = distinctAntecedents[a[j]].getInput().getInputMF() instanceof T1MF_Singleton;
 
-                    //Step4 if smaller than 1 billionth
-                    if(Math.abs(yDash-yDashDash)<0.000000001)//watch out for problem with doubles  use difference of absolute value < 0.003...
+            if(singletons)
+            {
+                double lower = 1.0, upper = 1.0;
+                for(int j=0;j<a.length;j++)
+                {
+                    if(implicationMethod==PRODUCT)
                     {
-                        stopFlag = true;
-                        yDashDash = yr;
+                        lower = lower*explanation.antecedentLower[a[j]];
+                        upper = upper*explanation.antecedentUpper[a[j]];
                     }
                     else
                     {
-                        yDash = yDashDash;
+                        lower = Math.min(lower, explanation.antecedentLower[a[j]]);
+                        upper = Math.min(upper, explanation.antecedentUpper[a[j]]);
                     }
                 }
+                firingStrengths[r] = new Tuple(lower, upper);
+            }
+            else
+                firingStrengths[r] = rules.elementAt(r).getFStrength(implicationMethod);
+            explanation.firingLower[r] = firingStrengths[r].getLeft();
+            explanation.firingUpper[r] = firingStrengths[r].getRight();
+        }
+        InferenceMetrics.stop(InferenceMetrics.FIRING, start);
+        recordRulesFired(firingStrengths);
+        return firingStrengths;
+    }
+
+    /**
+     * Stable insertion sort of the rules by their centroid end points.
+     */
+    private static void sortByCentroid(int[] ruleIndices, double[] centroids)
+    {
+        for(int i=1;i<centroids.length;i++)
+        {
+            double c = centroids[i];
+            int r = ruleIndices[i];
+            int j = i-1;
+            while(j>=0 && centroids[j]>c)
+            {
+                centroids[j+1] = centroids[j];
+                ruleIndices[j+1] = ruleIndices[j];
+                j--;
+            }
+            centroids[j+1] = c;
+            ruleIndices[j+1] = r;
+        }
+    }
 
-                //DO LEFT
-                //reset stopFlag!
-                stopFlag = false;
-                for(int i = 0; i<fir.length;i++) 
+    /**
+     * Indexes the distinct antecedents and consequents of all rules (by
+     * identity) and sorts the consequent centroids for center of sets type
+     * reduction. Invalidated whenever rules are added or removed.
+     */
+    private synchronized void compile()
+    {
+        if(compiled)
+            return;
+        ArrayList<IT2_Antecedent> antecedents = new ArrayList<>();
+        ArrayList<IT2_Consequent> consequents = new ArrayList<>();
+        ruleAntecedents = new int[rules.size()][];
+        for(int r=0;r<rules.size();r++)
+        {
+            IT2_Rule rule = rules.elementAt(r);
+            IT2_Antecedent[] a = rule.getAntecedents();
+            ruleAntecedents[r] = new int[a.length];
+            for(int j=0;j<a.length;j++)
+            {
+                int index = antecedents.indexOf(a[j]);
+                if(index<0)
                 {
-                    fir[i] = leftData[i].getFStrength().getAverage();
+                    index = antecedents.size();
+                    antecedents.add(a[j]);
                 }
+                ruleAntecedents[r][j] = index;
+            }
+            Iterator<IT2_Consequent> it = rule.getConsequentsIterator();
+            while(it.hasNext())
+            {
+                IT2_Consequent c = it.next();
+                if(!consequents.contains(c))
+                    consequents.add(c);
+            }
+        }
+        distinctAntecedents = antecedents.toArray(new IT2_Antecedent[antecedents.size()]);
+        distinctConsequents = consequents.toArray(new IT2_Consequent[consequents.size()]);
+        outputArray = outputs.toArray(new Output[outputs.size()]);
+        consequentOutputs = new int[distinctConsequents.length];
+        for(int i=0;i<distinctConsequents.length;i++)
+            consequentOutputs[i] = outputs.indexOf(distinctConsequents[i].getOutput());
 
-                yl = weightedSigma(fir, leftData);
-                yDash = yl;
-                if(DEBUG)System.out.println("Intitial yDash for left = "+yDash);
-
-                compute_yl:
-                while(!stopFlag)
+        long start = InferenceMetrics.start();
+        cosLeftRules = new int[outputArray.length][];
+        cosRightRules = new int[outputArray.length][];
+        cosLeftCentroids = new double[outputArray.length][];
+        cosRightCentroids = new double[outputArray.length][];
+        for(int o=0;o<outputArray.length;o++)
+        {
+            int n = 0;
+            for(int r=0;r<rules.size();r++)
+                if(rules.elementAt(r).hasConsequent(outputArray[o]))
+                    n++;
+            cosLeftRules[o] = new int[n];
+            cosRightRules[o] = new int[n];
+            cosLeftCentroids[o] = new double[n];
+            cosRightCentroids[o] = new double[n];
+            n = 0;
+            for(int r=0;r<rules.size();r++)
+                if(rules.elementAt(r).hasConsequent(outputArray[o]))
                 {
-                    //Step2
-                    for(int i=0; i<=fir.length-2;i++)  //set to rulesFired-2
-                    {
-                        if(leftData[i].getSelectedCentroidEndpoint()<=yDash && yDash<=leftData[i+1].getSelectedCentroidEndpoint())
-                        {
-                            L = i;
-                            break;
-                        }
-                    }
+                    Tuple centroid = rules.elementAt(r).getConsequentCentroid(outputArray[o]);
+                    cosLeftRules[o][n] = r;
+                    cosRightRules[o][n] = r;
+                    cosLeftCentroids[o][n] = centroid.getLeft();
+                    cosRightCentroids[o][n] = centroid.getRight();
+                    n++;
+                }
+            sortByCentroid(cosLeftRules[o], cosLeftCentroids[o]);
+            sortByCentroid(cosRightRules[o], cosRightCentroids[o]);
+        }
+        InferenceMetrics.stop(InferenceMetrics.COS_SORT, start);
+        cosLower = new double[rules.size()];
+        cosUpper = new double[rules.size()];
 
-                    //Step3
-                    for(int i=0;i<=L;i++)
-                    {
-                        fir[i] = leftData[i].getFStrength().getRight();
-                    }
-                    for(int i=L+1;i<fir.length;i++)
-                    {
-                        fir[i] = leftData[i].getFStrength().getLeft();
-                    }
+        Input[] inputs = rules.isEmpty() ? new Input[0] : getInputs();
+        antecedentColumns = new int[distinctAntecedents.length];
+        for(int i=0;i<distinctAntecedents.length;i++)
+        {
+            antecedentColumns[i] = -1;
+            for(int j=0;j<inputs.length;j++)
+                if(inputs[j]==distinctAntecedents[i].getInput())
+                    antecedentColumns[i] = j;
+        }
+        layout++;
+        compiled = true;
+    }
+    
+    /**
+     * Evaluates the rulebase for many crisp inputs at once using center of sets
+     * type reduction; the rulebase needs to have exactly one output.
+     * See evaluateBatch(Output, int, double[][], double[], double[], double[], ForkJoinPool).
+     */
+    public void evaluateBatch(double[][] inputsByColumn, double[] outCrisp, double[] outLeft, double[] outRight)
+    {
+        if(outputs.size()!=1)
+            throw new BadParameterException("The rulebase has "+outputs.size()+" outputs - please specify the output to be evaluated.");
+        evaluateBatch(outputs.get(0), CENTEROFSETS, inputsByColumn, outCrisp, outLeft, outRight, null);
+    }
 
-                    yl = weightedSigma(fir, leftData);
-                    if(new Double(yl).equals(nan))
-                    {
-                        yl = 0;
-                        break compute_yl;
-                    }           
+    /**
+     * Evaluates the rulebase for many crisp (singleton) inputs at once, without
+     * touching the Input objects of the rulebase. The samples are processed in
+     * blocks: first the membership of every distinct antecedent is computed for
+     * the whole block, then the firing strength of every rule, and only then
+     * every sample is type-reduced. Looping over the antecedents and rules in
+     * the outer loops and over the samples in the inner ones keeps the
+     * parameters of each set in cache. With a pool, the blocks are evaluated
+     * in parallel.
+     * For a sample for which no rule fired, the crisp output is 0 (as in
+     * evaluate()) and the end points are NaN.
+     * With centroid type reduction, the Karnik-Mendel iterations of a sample
+     * start from the switch points of the previous sample of the same block
+     * (see IntervalT2Engine_Centroid.getCentroid(IntervalT2MF_Interface, double[])).
+     * This only saves iterations: the results are identical to those of
+     * evaluate() and do not depend on the pool.
+     * @param output The output to be computed.
+     * @param typeReductionType 0-Center-Of-Sets, 1-Centroid
+     * @param inputsByColumn One array of input values per input, in the order
+     * of getInputs(), all of the same length.
+     * @param outCrisp Receives the average of the type-reduced set per sample (may be null).
+     * @param outLeft Receives the left end point per sample (may be null).
+     * @param outRight Receives the right end point per sample (may be null).
+     * @param pool The pool to evaluate in parallel, or null to evaluate in the
+     * calling thread.
+     */
+    public void evaluateBatch(Output output, int typeReductionType, double[][] inputsByColumn,
+            double[] outCrisp, double[] outLeft, double[] outRight, ForkJoinPool pool)
+    {
+        int o = prepareBatch(output, typeReductionType, inputsByColumn);
+        int n = inputsByColumn.length==0 ? 0 : inputsByColumn[0].length;
+        if((outCrisp!=null && outCrisp.length<n) || (outLeft!=null && outLeft.length<n) || (outRight!=null && outRight.length<n))
+            throw new BadParameterException("The output arrays need to hold at least "+n+" values.");
+
+        BatchTask task = new BatchTask(this, o, typeReductionType, inputsByColumn, outCrisp, outLeft, outRight, 0, n);
+        if(pool==null)
+            task.compute();
+        else
+            pool.invoke(task);
+    }
 
-                    yDashDash = yl;
+    /**
+     * Evaluates the samples [from, to) of a batch; ranges larger than a block
+     * are split in half.
+     */
+    private static class BatchTask extends RecursiveAction
+    {
+        private static final long serialVersionUID = 1L;
+        private final IT2_Rulebase rulebase;
+        private final int output, typeReductionType, from, to;
+        private final double[][] inputs;
+        private final double[] outCrisp, outLeft, outRight;
 
-                    //Step4
-                    if(DEBUG)System.out.println("yDash = "+yDash+" and yDashDash = "+yDashDash);
+        BatchTask(IT2_Rulebase rulebase, int output, int typeReductionType, double[][] inputs,
+                double[] outCrisp, double[] outLeft, double[] outRight, int from, int to)
+        {
+            this.rulebase = rulebase;
+            this.output = output;
+            this.typeReductionType = typeReductionType;
+            this.inputs = inputs;
+            this.outCrisp = outCrisp;
+            this.outLeft = outLeft;
+            this.outRight = outRight;
+            this.from = from;
+            this.to = to;
+        }
 
-                    //difference smaller than 1 in a billion
-                    if(Math.abs(yDash)-Math.abs(yDashDash)<0.000000001)//watch out for problem with doubles  use difference of absolute value < 0.003...
-                    {
-                        stopFlag = true;
-                        yDashDash = yl;
-                    }
-                    else
-                    {
-                        yDash = yDashDash;
-                    }
+        @Override
+        protected void compute()
+        {
+            if(to-from>BATCH_BLOCK_SIZE && getPool()!=null)
+            {
+                //split at a block boundary so that blocks do not depend on the splitting
+                int blocks = (to-from+BATCH_BLOCK_SIZE-1)/BATCH_BLOCK_SIZE;
+                int middle = from+(blocks/2)*BATCH_BLOCK_SIZE;
+                invokeAll(new BatchTask(rulebase, output, typeReductionType, inputs, outCrisp, outLeft, outRight, from, middle),
+                        new BatchTask(rulebase, output, typeReductionType, inputs, outCrisp, outLeft, outRight, middle, to));
+                return;
+            }
+            for(int start=from;start<to;start+=BATCH_BLOCK_SIZE)
+                rulebase.evaluateBlock(output, typeReductionType, inputs, outCrisp, outLeft, outRight,
+                        start, Math.min(to, start+BATCH_BLOCK_SIZE));
+        }
+    }
+
+    private void evaluateBlock(int o, int typeReductionType, double[][] inputs,
+            double[] outCrisp, double[] outLeft, double[] outRight, int from, int to)
+    {
+        int n = to-from;
+        int numberOfRules = ruleAntecedents.length;
+
+        //fuzzification: antecedents outer, samples inner
+        long start = InferenceMetrics.start();
+        double[][] lower = new double[distinctAntecedents.length][n];
+        double[][] upper = new double[distinctAntecedents.length][n];
+        for(int a=0;a<distinctAntecedents.length;a++)
+            fuzzify(a, inputs, from, to, lower[a], upper[a]);
+        InferenceMetrics.stop(InferenceMetrics.FUZZIFICATION, start);
+
+        //firing strengths: rules outer, samples inner
+        start = InferenceMetrics.start();
+        double[][] firingLower = new double[numberOfRules][n];
+        double[][] firingUpper = new double[numberOfRules][n];
+        for(int r=0;r<numberOfRules;r++)
+            fire(r, lower, upper, n, firingLower[r], firingUpper[r]);
+        InferenceMetrics.stop(InferenceMetrics.FIRING, start);
+
+        //type reduction: one sample at a time
+        start = InferenceMetrics.start();
+        double[] fl = new double[numberOfRules], fu = new double[numberOfRules];
+        Tuple[] scratch = new Tuple[numberOfRules];
+        double[] endpoints = new double[2];
+        double[] switchPoints = typeReductionType==CENTROID ? new double[]{nan, nan} : null;
+        for(int s=0;s<n;s++)
+        {
+            for(int r=0;r<numberOfRules;r++)
+            {
+                fl[r] = firingLower[r][s];
+                fu[r] = firingUpper[r][s];
+            }
+            reduce(o, typeReductionType, fl, fu, scratch, endpoints, switchPoints);
+            if(outCrisp!=null)
+                outCrisp[from+s] = Double.isNaN(endpoints[0]) ? 0.0 : (endpoints[0]+endpoints[1])/2.0;
+            if(outLeft!=null)
+                outLeft[from+s] = endpoints[0];
+            if(outRight!=null)
+                outRight[from+s] = endpoints[1];
+        }
+        InferenceMetrics.stop(InferenceMetrics.TYPE_REDUCTION, start);
+    }
+
+    /**
+     * Checks the arguments of a batch evaluation and compiles the rulebase.
+     * @return The index of the output.
+     */
+    int prepareBatch(Output output, int typeReductionType, double[][] inputsByColumn)
+    {
+        compile();
+        int o = outputs.indexOf(output);
+        if(o<0)
+            throw new BadParameterException("The output "+output.getName()+" is not used by this rulebase.");
+        if(typeReductionType!=CENTEROFSETS && typeReductionType!=CENTROID)
+            throw new BadParameterException("Only center of sets (0) and centroid (1) type reduction are supported.");
+        for(int i=0;i<antecedentColumns.length;i++)
+            if(antecedentColumns[i]<0 || antecedentColumns[i]>=inputsByColumn.length)
+                throw new BadParameterException("No input column for antecedent "+distinctAntecedents[i].getName()+".");
+        int n = inputsByColumn.length==0 ? 0 : inputsByColumn[0].length;
+        for(int i=0;i<inputsByColumn.length;i++)
+            if(inputsByColumn[i].length!=n)
+                throw new BadParameterException("All input columns need to have the same length.");
+        return o;
+    }
+
+    /**
+     * Returns a number which changes whenever the rules or the implication
+     * method change; the indices of antecedents and rules used by the batch
+     * helpers and the firing strengths computed with them are only valid for
+     * the layout they were obtained with.
+     */
+    int getLayout()
+    {
+        compile();
+        return layout;
+    }
+
+    int getNumberOfDistinctAntecedents()
+    {
+        compile();
+        return distinctAntecedents.length;
+    }
+
+    IT2_Antecedent getDistinctAntecedent(int a)
+    {
+        return distinctAntecedents[a];
+    }
+
+    /**
+     * Returns the index of the input of antecedent a within getInputs(), -1
+     * if the antecedent's input is not used by the first rule.
+     */
+    int getAntecedentColumn(int a)
+    {
+        return antecedentColumns[a];
+    }
+
+    boolean hasSingletonInput(int a)
+    {
+        return distinctAntecedents[a].getInput().getInputMF() instanceof T1MF_Singleton;
+    }
+
+    boolean isProductImplication()
+    {
+        return implicationMethod==PRODUCT;
+    }
+
+    int getNumberOfOutputs()
+    {
+        compile();
+        return outputArray.length;
+    }
+
+    /**
+     * Returns the rules with a consequent for output o, sorted by the left or
+     * right end point of their consequent centroid, see getCOSCentroids().
+     */
+    int[] getCOSRules(int o, boolean left)
+    {
+        return left ? cosLeftRules[o] : cosRightRules[o];
+    }
+
+    double[] getCOSCentroids(int o, boolean left)
+    {
+        return left ? cosLeftCentroids[o] : cosRightCentroids[o];
+    }
+
+    /**
+     * Returns the indices of the distinct antecedents of a rule.
+     */
+    int[] getRuleAntecedents(int r)
+    {
+        return ruleAntecedents[r];
+    }
+
+    /**
+     * Computes the memberships of antecedent a for the samples [from, to) of
+     * the given input columns into lower[0..to-from) and upper[0..to-from).
+     */
+    void fuzzify(int a, double[][] inputs, int from, int to, double[] lower, double[] upper)
+    {
+        IntervalT2MF_Interface mf = distinctAntecedents[a].getMF();
+        double[] x = inputs[antecedentColumns[a]];
+        double[] fs = new double[2];
+        for(int s=from;s<to;s++)
+        {
+            mf.fill(x[s], fs);
+            lower[s-from] = fs[0];
+            upper[s-from] = fs[1];
+        }
+    }
+
+    /**
+     * Computes the firing strengths of rule r for n samples from the
+     * memberships of the distinct antecedents, [antecedent][sample].
+     */
+    void fire(int r, double[][] lower, double[][] upper, int n, double[] fl, double[] fu)
+    {
+        Arrays.fill(fl, 0, n, 1.0);
+        Arrays.fill(fu, 0, n, 1.0);
+        int[] a = ruleAntecedents[r];
+        for(int j=0;j<a.length;j++)
+        {
+            double[] l = lower[a[j]], u = upper[a[j]];
+            if(implicationMethod==PRODUCT)
+                for(int s=0;s<n;s++)
+                {
+                    fl[s] = fl[s]*l[s];
+                    fu[s] = fu[s]*u[s];
+                }
+            else
+                for(int s=0;s<n;s++)
+                {
+                    fl[s] = Math.min(fl[s], l[s]);
+                    fu[s] = Math.min(fu[s], u[s]);
                 }
-                if(DEBUG)System.out.println("returning yl = "+yl+" and yr= "+yr);
-                returnValue.put(o, new Tuple(yl, yr));             
+        }
+    }
+
+    /**
+     * Type-reduces output o of a single sample given the firing strengths of
+     * all rules. The end points are stored in endpoints[0] and endpoints[1],
+     * both are NaN if no rule fired.
+     * @param scratch An array of one Tuple per rule, used for centroid type reduction.
+     */
+    void reduce(int o, int typeReductionType, double[] fl, double[] fu, Tuple[] scratch, double[] endpoints)
+    {
+        reduce(o, typeReductionType, fl, fu, scratch, endpoints, null);
+    }
+
+    /**
+     * As reduce(int, int, double[], double[], Tuple[], double[]), starting the
+     * Karnik-Mendel iterations of centroid type reduction from the given switch
+     * points (which receive the switch points found).
+     */
+    void reduce(int o, int typeReductionType, double[] fl, double[] fu, Tuple[] scratch, double[] endpoints,
+            double[] switchPoints)
+    {
+        if(typeReductionType==CENTEROFSETS)
+        {
+            endpoints[0] = getCOSEndpoint(fl, fu, cosLeftRules[o], cosLeftCentroids[o], true);
+            endpoints[1] = Double.isNaN(endpoints[0]) ? Double.NaN : getCOSEndpoint(fl, fu, cosRightRules[o], cosRightCentroids[o], false);
+        }
+        else
+        {
+            for(int r=0;r<fl.length;r++)
+                scratch[r] = new Tuple(fl[r], fu[r]);
+            double[][] hints = null;
+            if(switchPoints!=null)
+            {
+                hints = new double[outputArray.length][];
+                hints[o] = switchPoints;
             }
-        }//output loop end
+            Tuple centroid = doReductionCentroid(scratch, hints).get(outputArray[o]);
+            endpoints[0] = centroid==null ? Double.NaN : centroid.getLeft();
+            endpoints[1] = centroid==null ? Double.NaN : centroid.getRight();
+        }
+    }
+
+    /**
+     * Type-reduces one output given firing strengths which were computed
+     * elsewhere, e.g. for all zLevels of a zSlices based rulebase in one pass.
+     * The result is the same as that of evaluateGetCentroid() for inputs
+     * producing these firing strengths.
+     * @param firingLower The lower firing strength of every rule, in the order of getRules().
+     * @param firingUpper The upper firing strength of every rule.
+     * @return The type-reduced interval, null if no rule fired.
+     */
+    public Tuple typeReduce(Output output, int typeReductionType, double[] firingLower, double[] firingUpper)
+    {
+        return typeReduce(output, typeReductionType, firingLower, firingUpper, null);
+    }
+
+    /**
+     * As typeReduce(Output, int, double[], double[]), starting the Karnik-Mendel
+     * iterations of centroid type reduction from the given switch points, see
+     * IntervalT2Engine_Centroid.getCentroid(IntervalT2MF_Interface, double[]).
+     * @param switchPoints The left and right switch points to start from
+     * (NaN for none); receive the switch points found. May be null.
+     */
+    public Tuple typeReduce(Output output, int typeReductionType, double[] firingLower, double[] firingUpper,
+            double[] switchPoints)
+    {
+        compile();
+        int o = outputs.indexOf(output);
+        if(o<0)
+            throw new BadParameterException("The output "+output.getName()+" is not used by this rulebase.");
+        if(typeReductionType!=CENTEROFSETS && typeReductionType!=CENTROID)
+            throw new BadParameterException("Only center of sets (0) and centroid (1) type reduction are supported.");
+        if(firingLower.length!=rules.size() || firingUpper.length!=rules.size())
+            throw new BadParameterException("One firing strength per rule is required.");
+        long start = InferenceMetrics.start();
+        double[] endpoints = new double[2];
+        reduce(o, typeReductionType, firingLower, firingUpper,
+                typeReductionType==CENTROID ? new Tuple[rules.size()] : null, endpoints, switchPoints);
+        if(typeReductionType==CENTEROFSETS)
+            InferenceMetrics.stop(InferenceMetrics.TYPE_REDUCTION, start);
+        return Double.isNaN(endpoints[0]) ? null : new Tuple(endpoints[0], endpoints[1]);
+    }
+
+    public synchronized TreeMap<Output, Tuple> doCOSTypeReduction()
+    {
+        return typeReduce(CENTEROFSETS, getFiringStrengths());
+    }
+
+    /**
+     * Center of sets type reduction. The centroids of the consequents are
+     * sorted once per rulebase layout (see compile()), so every call only
+     * scans the fired rules in that order: for each possible switch point the
+     * weighted averages are updated with running sums, which yields the exact
+     * optimum the Karnik-Mendel procedure iterates towards, without creating
+     * any objects besides the result.
+     */
+    private TreeMap<Output, Tuple> doCOSTypeReduction(Tuple[] firingStrengths)
+    {
+        compile();
+        for(int r=0;r<firingStrengths.length;r++)
+        {
+            cosLower[r] = firingStrengths[r].getLeft();
+            cosUpper[r] = firingStrengths[r].getRight();
+        }
+        TreeMap<Output, Tuple> returnValue = new TreeMap();
+        for(int o=0;o<outputArray.length;o++)
+        {
+            double yl = getCOSEndpoint(cosLower, cosUpper, cosLeftRules[o], cosLeftCentroids[o], true);
+            if(Double.isNaN(yl))
+                continue;   //no rule fired for this output
+            double yr = getCOSEndpoint(cosLower, cosUpper, cosRightRules[o], cosRightCentroids[o], false);
+            if(DEBUG)System.out.println("returning yl = "+yl+" and yr= "+yr);
+            returnValue.put(outputArray[o], new Tuple(yl, yr));
+        }
         return returnValue;
     }
-    
+
     /**
-     * 
-     * @return 
+     * Returns the left (smallest) or right (largest) weighted average of the
+     * given centroid end points over all firing strengths within the firing
+     * intervals of the fired rules. For the left end point the upper firing
+     * strength is used up to the switch point and the lower one after it, for
+     * the right end point vice versa.
+     * @param lower The lower firing strength of every rule.
+     * @param upper The upper firing strength of every rule.
+     * @param ruleIndices The rules, sorted by their centroid end point.
+     * @param centroids The centroid end points, in the same order.
+     * @return The end point, or NaN if none of the rules fired.
      */
-    private synchronized TreeMap<Output, Object[]> getFiringIntervalsForCOS_TR()
+    private static double getCOSEndpoint(double[] lower, double[] upper, int[] ruleIndices, double[] centroids, boolean left)
     {
-        TreeMap<Output, Object[]> returnValue = new TreeMap();
-        if(DEBUG)System.out.println("Number of rules in rulebase: "+rules.size());
-        //create temp variables - optimize
-        Tuple firingIntervals[] = new Tuple[rules.size()];
-        Tuple ruleCentroids[] = new Tuple[rules.size()];
-        int rulesFired=0;
-        int i=0;
-        //Tuple firingStrength;
-        Object[] fIntervals = new Object[2];
-
-        int ruleCounter=0;
-        Iterator it = rules.iterator();
-        IT2_Consequent cons;
-        while(it.hasNext())
-        {            
-            temp = (IT2_Rule)it.next();
-            Iterator<IT2_Consequent> ruleCons = temp.getConsequentsIterator();
-            Tuple firingStrength = temp.getFStrength(implicationMethod);
-            if(firingStrength.getRight()>0.0)    //check if rule fired
+        //start with the switch point before the first rule
+        double restNumerator = 0.0, restDenominator = 0.0;
+        int rest = 0;
+        for(int i=0;i<ruleIndices.length;i++)
+        {
+            int r = ruleIndices[i];
+            if(upper[r]>0.0)
             {
-                while(ruleCons.hasNext())
+                double w = left ? lower[r] : upper[r];
+                restNumerator += centroids[i]*w;
+                restDenominator += w;
+                rest++;
+            }
+        }
+        if(rest==0)
+            return Double.NaN;
+
+        double best = restDenominator>0.0 ? restNumerator/restDenominator : (left ? Double.POSITIVE_INFINITY : Double.NEGATIVE_INFINITY);
+        //the rules moved to the other side of the switch point are summed up separately,
+        //so that no cancellation occurs once all rules have been moved
+        double movedNumerator = 0.0, movedDenominator = 0.0;
+        for(int i=0;i<ruleIndices.length;i++)
+        {
+            int r = ruleIndices[i];
+            if(upper[r]>0.0)
+            {
+                double moved = left ? upper[r] : lower[r];
+                double stayed = left ? lower[r] : upper[r];
+                movedNumerator += centroids[i]*moved;
+                movedDenominator += moved;
+                if(--rest==0)
                 {
-                    cons = ruleCons.next();
-                    if(!returnValue.containsKey(cons.getOutput()))
-                    {
-                        returnValue.put(cons.getOutput(), new Object[]{new Vector<IT2_COSInferenceData>(), new Vector<IT2_COSInferenceData>()});    //for left and right consequentData object - needed for separate sorting
-                    }
-                    ((Vector)returnValue.get(cons.getOutput())[0]).add(new IT2_COSInferenceData(firingStrength, temp.getConsequentCentroid(cons.getOutput()).getLeft()));
-                    ((Vector)returnValue.get(cons.getOutput())[1]).add(new IT2_COSInferenceData(firingStrength, temp.getConsequentCentroid(cons.getOutput()).getRight()));
+                    restNumerator = 0.0;
+                    restDenominator = 0.0;
+                }
+                else
+                {
+                    restNumerator -= centroids[i]*stayed;
+                    restDenominator -= stayed;
+                }
+                double denominator = movedDenominator+restDenominator;
+                if(denominator>0.0)
+                {
+                    double y = (movedNumerator+restNumerator)/denominator;
+                    if(left ? y<best : y>best)
+                        best = y;
                 }
             }
-            ruleCounter++;
-        }       
-        return returnValue;
+        }
+        return best;
+    }
 
+    public TreeMap<Output, Tuple> doReductionCentroid()
+    {
+        return doReductionCentroid(getFiringStrengths());
+    }
 
+    private TreeMap<Output, Tuple> doReductionCentroid(Tuple[] firingStrengths)
+    {
+        return doReductionCentroid(firingStrengths, null);
     }
 
-    public TreeMap<Output, Tuple> doReductionCentroid()
+    /**
+     * @param switchPoints Switch point hints per output (in the order of the
+     * outputs, entries may be null), see IntervalT2Engine_Centroid.getCentroid(IntervalT2MF_Interface, double[]).
+     */
+    private TreeMap<Output, Tuple> doReductionCentroid(Tuple[] firingStrengths, double[][] switchPoints)
     {
+        long start = InferenceMetrics.start();
         Tuple fStrength;
-        boolean firstFiredSet = true;
-        TreeMap<Output, IntervalT2MF_Interface> overallOutputSet = new TreeMap();
-        TreeMap<Output, Boolean> firstFiredForOutput = new TreeMap();
+        int ruleCounter = 0;
+        //the fired sets of each output are collected first and then combined 
+        //in a single (flat) union rather than a chain of binary unions
+        TreeMap<Output, ArrayList<IntervalT2MF_Interface>> firedSets = new TreeMap<>();
         Iterator<Output> iO = outputs.iterator();
         while(iO.hasNext())
         {
-            firstFiredForOutput.put(iO.next(), true);
+            firedSets.put(iO.next(), new ArrayList<IntervalT2MF_Interface>());
         }
 
         Iterator<IT2_Rule> itR = rules.iterator();
@@ -391,8 +1055,8 @@ public class IT2_Rulebase
         Output o;
         while(itR.hasNext())
         {
-            temp = (IT2_Rule)itR.next();
-            fStrength = temp.getFStrength(implicationMethod);
+            IT2_Rule temp = itR.next();
+            fStrength = firingStrengths[ruleCounter++];
             
             if(fStrength.getRight()>0.0)
             {
@@ -401,57 +1065,45 @@ public class IT2_Rulebase
                 while(itC.hasNext())
                 {
                     c = itC.next();
-                    o = c.getOutput();
-
-                    if(firstFiredForOutput.get(o))
-                    {
-                        overallOutputSet.put(o, new IntervalT2MF_Intersection(
-                                new IntervalT2MF_Cylinder("FiringInterval",fStrength),
-                                c.getMembershipFunction()));
-                        if(!((IntervalT2MF_Intersection)overallOutputSet.get(o)).intersectionExists()) 
-                        {
-                            System.out.println("PUTTING NULL");
-                            overallOutputSet.put(o,null);
-                        }
-                        firstFiredForOutput.put(o, false);                   
-                    }
-                    else
-                    {
-                        if(overallOutputSet.get(o)==null)
-                        {
-                            overallOutputSet.put(o, new IntervalT2MF_Intersection(
-                                new IntervalT2MF_Cylinder("FiringInterval",fStrength),
-                                c.getMembershipFunction()));
-                            if(!((IntervalT2MF_Intersection)overallOutputSet.get(o)).intersectionExists()) 
-                            {
-                                System.out.println("PUTTING NULL");
-                                overallOutputSet.put(o,null);
-                            }
-                        }
-                        else
-                        {
-                            overallOutputSet.put(o, new IntervalT2MF_Union(
-                            new IntervalT2MF_Intersection(
+                    IntervalT2MF_Intersection firedSet = new IntervalT2MF_Intersection(
                             new IntervalT2MF_Cylinder("FiringInterval",fStrength),
-                            c.getMembershipFunction()),
-                            overallOutputSet.get(o)));                            
-                        }
-                    }
+                            c.getMembershipFunction());
+                    if(firedSet.intersectionExists()) 
+                        firedSets.get(c.getOutput()).add(firedSet);
                 }
             }
         }
         
-        
+        TreeMap<Output, IntervalT2MF_Interface> overallOutputSet = new TreeMap();
+        for(Map.Entry<Output, ArrayList<IntervalT2MF_Interface>> e : firedSets.entrySet())
+        {
+            ArrayList<IntervalT2MF_Interface> sets = e.getValue();
+            if(sets.isEmpty())
+                overallOutputSet.put(e.getKey(), null);
+            else if(sets.size()==1)
+                overallOutputSet.put(e.getKey(), sets.get(0));
+            else
+                overallOutputSet.put(e.getKey(), new IntervalT2MF_Union(
+                        sets.toArray(new IntervalT2MF_Interface[sets.size()])));
+        }
+        InferenceMetrics.stop(InferenceMetrics.AGGREGATION, start);
+
         //Create Centroid Engine and get centroid of overall set for each output:
+        start = InferenceMetrics.start();
         IntervalT2Engine_Centroid iT2EC = new IntervalT2Engine_Centroid();
         TreeMap<Output, Tuple> returnValue = new TreeMap();
         iO = outputs.iterator();
+        int outputIndex = 0;
         while(iO.hasNext())
         {
             o = iO.next();
             iT2EC.setPrimaryDiscretizationLevel(o.getDiscretisationLevel());
-            returnValue.put(o, iT2EC.getCentroid(overallOutputSet.get(o)));
+            iT2EC.setAdaptiveTolerance(o.getAdaptiveTolerance());
+            returnValue.put(o, iT2EC.getCentroid(overallOutputSet.get(o),
+                    switchPoints==null ? null : switchPoints[outputIndex]));
+            outputIndex++;
         }
+        InferenceMetrics.stop(InferenceMetrics.TYPE_REDUCTION, start);
         return returnValue;
     }    
     
@@ -522,28 +1174,10 @@ public class IT2_Rulebase
             return (numerator / denominator);
     }
     
-    /**
-     * Facilitates weighted average calculation in COS type reduction
-     * @param w
-     * @param y
-     * @return 
-     */
-    private double weightedSigma(double[]w, IT2_COSInferenceData[] y)
-    {
-        double numerator = 0.0, denominator = 0.0;
-        for (int i=0;i<w.length;i++) numerator+=(w[i]*y[i].getSelectedCentroidEndpoint());
-        for (int i=0;i<w.length;i++) denominator+=w[i];
-
-        if(denominator==0.0) 
-            return 0.0;
-        else
-            return (numerator / denominator);
-    }
-
-
     public void removeRule(int ruleNumber) 
     {
         rules.remove(ruleNumber);
+        compiled = false;
     }
 
 
@@ -595,12 +1229,13 @@ public class IT2_Rulebase
      */
     public void setImplicationMethod(byte implicationMethod) 
     {
-        if(implicationMethod == PRODUCT)
-            this.implicationMethod = PRODUCT;
-        else if(implicationMethod == MINIMUM)
-            this.implicationMethod = MINIMUM;
-        else
+        if(implicationMethod != PRODUCT && implicationMethod != MINIMUM)
             throw new BadParameterException("Only product (0) and minimum (1) implication is currentlyt supported.");
+        if(implicationMethod != this.implicationMethod)
+        {
+            this.implicationMethod = implicationMethod;
+            layout++;   //firing strengths computed for the old t-norm are out of date
+        }
     }    
     
     @Override
@@ -0,0 +1,437 @@
+/*
+ * IT2_RulebaseSpecialiser.java
+ *
+ * Rafael Bastos
+ */
+package intervalType2.system;
+
+import intervalType2.sets.IntervalT2MF_Gaussian;
+import intervalType2.sets.IntervalT2MF_Interface;
+import intervalType2.sets.IntervalT2MF_Trapezoidal;
+import intervalType2.sets.IntervalT2MF_Triangular;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.net.URI;
+import java.security.CodeSource;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import javax.tools.DiagnosticCollector;
+import javax.tools.FileObject;
+import javax.tools.ForwardingJavaFileManager;
+import javax.tools.JavaCompiler;
+import javax.tools.JavaFileManager;
+import javax.tools.JavaFileObject;
+import javax.tools.SimpleJavaFileObject;
+import javax.tools.StandardJavaFileManager;
+import javax.tools.ToolProvider;
+import type1.sets.T1MF_Gaussian;
+import type1.sets.T1MF_Interface;
+import type1.sets.T1MF_Trapezoidal;
+import type1.sets.T1MF_Triangular;
+
+/**
+ * Generates an evaluator class for one layout of an IT2_Rulebase: the
+ * parameters of all antecedent sets, the t-norm, the rule topology and the
+ * sorted consequent centroids used for center of sets type reduction are
+ * written into the code as constants, and the loops over antecedents and
+ * rules are unrolled. The source is compiled in memory (javax.tools) and
+ * defined as a hidden class, so that the JIT compiler sees nothing but
+ * arithmetic on constants.
+ * The generated code repeats the computations of the generic evaluation
+ * operation by operation, so the results are identical.
+ * Only singleton inputs and antecedents using IntervalT2MF_Trapezoidal,
+ * IntervalT2MF_Triangular or IntervalT2MF_Gaussian sets (with the matching
+ * type-1 sets) are supported; for anything else, and where no Java compiler
+ * is available (a JRE rather than a JDK), no evaluator is generated.
+ * @author Rafael Bastos
+ */
+final class IT2_RulebaseSpecialiser
+{
+    private static final boolean DEBUG = false;
+    private static final String CLASS_NAME = "IT2_SpecialisedRulebase";
+    /** Keeps the unrolled methods well below the size limit of the class file format. */
+    private static final int MAXIMUM_NUMBER_OF_RULES = 500;
+
+    private IT2_RulebaseSpecialiser()
+    {
+    }
+
+    /**
+     * @return An evaluator for the current layout of the (compiled) rulebase,
+     * or null if the rulebase cannot be specialised.
+     */
+    static IT2_SpecialisedEvaluator specialise(IT2_Rulebase rulebase)
+    {
+        String source = generateSource(rulebase);
+        if(source==null)
+            return null;
+        byte[] bytes = compile(source);
+        if(bytes==null)
+            return null;
+        try
+        {
+            MethodHandles.Lookup lookup = MethodHandles.lookup().defineHiddenClass(bytes, true);
+            return (IT2_SpecialisedEvaluator)lookup.findConstructor(lookup.lookupClass(),
+                    MethodType.methodType(void.class)).invoke();
+        }
+        catch(Throwable e)
+        {
+            //the rulebase falls back to the generic evaluation
+            if(DEBUG)e.printStackTrace();
+            return null;
+        }
+    }
+
+    /**
+     * @return The source of the evaluator, or null if the rulebase uses sets
+     * or inputs which are not supported.
+     */
+    static String generateSource(IT2_Rulebase rulebase)
+    {
+        int numberOfRules = rulebase.getRules().size();
+        int numberOfAntecedents = rulebase.getNumberOfDistinctAntecedents();
+        if(numberOfRules>MAXIMUM_NUMBER_OF_RULES)
+            return null;
+
+        StringBuilder s = new StringBuilder();
+        s.append("package ").append(IT2_RulebaseSpecialiser.class.getPackage().getName()).append(";\n\n");
+        s.append("final class ").append(CLASS_NAME).append(" implements IT2_SpecialisedEvaluator\n{\n");
+
+        //fuzzification and firing
+        s.append("    public void fire(double[] x, double[] fl, double[] fu)\n    {\n");
+        s.append("        double output, l, u;\n");
+        for(int a=0;a<numberOfAntecedents;a++)
+        {
+            IT2_Antecedent antecedent = rulebase.getDistinctAntecedent(a);
+            if(!rulebase.hasSingletonInput(a) || rulebase.getAntecedentColumn(a)<0)
+                return null;
+            s.append("        double l").append(a).append(", u").append(a).append(";\n");
+            s.append("        {\n");
+            s.append("            double xa = x[").append(rulebase.getAntecedentColumn(a)).append("];\n");
+            if(!appendIT2Set(s, "            ", antecedent.getMF(), "xa", "l"+a, "u"+a))
+                return null;
+            s.append("        }\n");
+        }
+        for(int r=0;r<numberOfRules;r++)
+        {
+            int[] antecedents = rulebase.getRuleAntecedents(r);
+            s.append("        fl[").append(r).append("] = ").append(tNorm(rulebase.isProductImplication(), antecedents, "l")).append(";\n");
+            s.append("        fu[").append(r).append("] = ").append(tNorm(rulebase.isProductImplication(), antecedents, "u")).append(";\n");
+        }
+        s.append("    }\n\n");
+
+        //center of sets type reduction
+        int numberOfOutputs = rulebase.getNumberOfOutputs();
+        s.append("    public void evaluateCOS(double[] x, double[] fl, double[] fu, double[] endpoints)\n    {\n");
+        s.append("        fire(x, fl, fu);\n");
+        for(int o=0;o<numberOfOutputs;o++)
+        {
+            s.append("        endpoints[").append(2*o).append("] = left").append(o).append("(fl, fu);\n");
+            s.append("        endpoints[").append(2*o+1).append("] = Double.isNaN(endpoints[").append(2*o)
+                    .append("]) ? Double.NaN : right").append(o).append("(fl, fu);\n");
+        }
+        s.append("    }\n");
+        for(int o=0;o<numberOfOutputs;o++)
+        {
+            appendCOSEndpoint(s, "left"+o, rulebase.getCOSRules(o, true), rulebase.getCOSCentroids(o, true), true);
+            appendCOSEndpoint(s, "right"+o, rulebase.getCOSRules(o, false), rulebase.getCOSCentroids(o, false), false);
+        }
+        s.append("}\n");
+        return s.toString();
+    }
+
+    /**
+     * Appends the code computing the lower and upper membership of x, as
+     * IntervalT2MF_Interface.fill() of the given set does.
+     */
+    private static boolean appendIT2Set(StringBuilder s, String indent, IntervalT2MF_Interface set, String x,
+            String lower, String upper)
+    {
+        if(set.getClass()==IntervalT2MF_Trapezoidal.class)
+        {
+            return appendT1Set(s, indent, set.getLMF(), x, lower)
+                    && appendT1Set(s, indent, set.getUMF(), x, upper);
+        }
+        if(set.getClass()==IntervalT2MF_Triangular.class)
+        {
+            if(!appendT1Set(s, indent, set.getLMF(), x, "l") || !appendT1Set(s, indent, set.getUMF(), x, "u"))
+                return false;
+            double lPeak = set.getLMF().getPeak(), uPeak = set.getUMF().getPeak();
+            s.append(indent).append(lower).append(" = Math.min(l, u);\n");
+            if(lPeak==uPeak)
+                s.append(indent).append(upper).append(" = Math.max(l, u);\n");
+            else
+                s.append(indent).append(upper).append(" = ").append(x).append("<=").append(literal(Math.max(lPeak, uPeak)))
+                        .append(" && ").append(x).append(">=").append(literal(Math.min(lPeak, uPeak)))
+                        .append(" ? 1.0 : Math.max(l, u);\n");
+            return true;
+        }
+        if(set.getClass()==IntervalT2MF_Gaussian.class && set.getLMF().getClass()==T1MF_Gaussian.class
+                && set.getUMF().getClass()==T1MF_Gaussian.class)
+        {
+            T1MF_Gaussian lMF = (T1MF_Gaussian)set.getLMF(), uMF = (T1MF_Gaussian)set.getUMF();
+            s.append(indent).append("if(").append(x).append("<").append(literal(set.getSupport().getLeft()))
+                    .append(" || ").append(x).append(">").append(literal(set.getSupport().getRight())).append(")\n");
+            s.append(indent).append("{\n");
+            s.append(indent).append("    ").append(lower).append(" = 0.0;\n");
+            s.append(indent).append("    ").append(upper).append(" = 0.0;\n");
+            s.append(indent).append("}\n");
+            s.append(indent).append("else\n").append(indent).append("{\n");
+            if(lMF.getMean()==uMF.getMean())
+            {
+                s.append(indent).append("    ").append(lower).append(" = ").append(gaussian(lMF, x)).append(";\n");
+                s.append(indent).append("    ").append(upper).append(" = ").append(gaussian(uMF, x)).append(";\n");
+            }
+            else
+            {
+                s.append(indent).append("    l = ").append(x).append("<").append(literal(lMF.getMean())).append(" ? ")
+                        .append(gaussian(lMF, x)).append(" : (").append(x).append(">").append(literal(uMF.getMean()))
+                        .append(" ? ").append(gaussian(uMF, x)).append(" : 1.0);\n");
+                s.append(indent).append("    u = ").append(x).append("<(").append(literal(lMF.getMean())).append("+")
+                        .append(literal(uMF.getMean())).append(")/2 ? ").append(gaussian(uMF, x)).append(" : ")
+                        .append(gaussian(lMF, x)).append(";\n");
+                s.append(indent).append("    ").append(lower).append(" = Math.min(l, u);\n");
+                s.append(indent).append("    ").append(upper).append(" = Math.max(l, u);\n");
+            }
+            s.append(indent).append("}\n");
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * Appends the code computing the membership of x, as getFS() of the given
+     * set does.
+     */
+    private static boolean appendT1Set(StringBuilder s, String indent, T1MF_Interface set, String x, String result)
+    {
+        if(set.getClass()==T1MF_Trapezoidal.class)
+        {
+            T1MF_Trapezoidal t = (T1MF_Trapezoidal)set;
+            String a = literal(t.getA()), b = literal(t.getB()), c = literal(t.getC()), d = literal(t.getD());
+            double[] yLevels = t.getyLevels();
+            String y0 = literal(yLevels[0]), y1 = literal(yLevels[1]);
+            s.append(indent);
+            if(t.isLeftShoulder())
+                s.append("if(").append(x).append("<=").append(c).append(") output = 1.0;\n").append(indent).append("else ");
+            if(t.isRightShoulder())
+                s.append("if(").append(x).append(">=").append(b).append(") output = 1.0;\n").append(indent).append("else ");
+            s.append("if(").append(x).append("<").append(b).append(" && ").append(x).append(">").append(a).append(")\n");
+            s.append(indent).append("    output = ").append(y0).append("*(").append(x).append("-").append(a)
+                    .append(")/(").append(b).append("-").append(a).append(");\n");
+            s.append(indent).append("else if(").append(x).append(">=").append(b).append(" && ").append(x).append("<=").append(c).append(")\n");
+            s.append(indent).append("{\n");
+            if(yLevels[0]==yLevels[1])
+                s.append(indent).append("    output = ").append(y0).append(";\n");
+            else
+                s.append(indent).append("    output = (").append(y1).append("*").append(x).append("-").append(y0).append("*").append(x)
+                        .append("-").append(y1).append("*").append(b).append("+").append(y0).append("*").append(b)
+                        .append(")/(").append(c).append("-").append(b).append(")+").append(y0).append(";\n");
+            s.append(indent).append("    if(output<0) output = 0;\n");
+            s.append(indent).append("}\n");
+            s.append(indent).append("else if(").append(x).append(">").append(c).append(" && ").append(x).append("<").append(d).append(")\n");
+            s.append(indent).append("    output = ").append(y1).append("*(").append(d).append("-").append(x)
+                    .append(")/(").append(d).append("-").append(c).append(");\n");
+            s.append(indent).append("else\n");
+            s.append(indent).append("    output = 0.0;\n");
+            s.append(indent).append("if(Math.abs(1-output)<0.000001) output = 1.0;\n");
+            s.append(indent).append("if(Math.abs(output)<0.000001) output = 0.0;\n");
+            s.append(indent).append(result).append(" = output;\n");
+            return true;
+        }
+        if(set.getClass()==T1MF_Triangular.class)
+        {
+            T1MF_Triangular t = (T1MF_Triangular)set;
+            String start = literal(t.getStart()), peak = literal(t.getPeak()), end = literal(t.getEnd());
+            s.append(indent);
+            if(t.isLeftShoulder())
+                s.append("if(").append(x).append("<=").append(peak).append(") output = 1.0;\n").append(indent).append("else ");
+            if(t.isRightShoulder())
+                s.append("if(").append(x).append(">=").append(peak).append(") output = 1.0;\n").append(indent).append("else ");
+            s.append("if(").append(x).append("<").append(peak).append(" && ").append(x).append(">").append(start).append(")\n");
+            s.append(indent).append("    output = (").append(x).append("-").append(start).append(")/(")
+                    .append(peak).append("-").append(start).append(");\n");
+            s.append(indent).append("else if(").append(x).append("==").append(peak).append(")\n");
+            s.append(indent).append("    output = 1.0;\n");
+            s.append(indent).append("else if(").append(x).append(">").append(peak).append(" && ").append(x).append("<").append(end).append(")\n");
+            s.append(indent).append("    output = (").append(end).append("-").append(x).append(")/(")
+                    .append(end).append("-").append(peak).append(");\n");
+            s.append(indent).append("else\n");
+            s.append(indent).append("    output = 0.0;\n");
+            s.append(indent).append(result).append(" = output;\n");
+            return true;
+        }
+        return false;
+    }
+
+    private static String gaussian(T1MF_Gaussian set, String x)
+    {
+        return "Math.exp(-0.5*Math.pow(((" + x + "-" + literal(set.getMean()) + ")/" + literal(set.getSpread()) + "),2))";
+    }
+
+    /**
+     * The t-norm of the memberships of the given antecedents, in the order in
+     * which IT2_Rule.getFStrength() combines them.
+     */
+    private static String tNorm(boolean product, int[] antecedents, String prefix)
+    {
+        String result = "1.0";
+        for(int j=0;j<antecedents.length;j++)
+        {
+            if(product)
+                result = result+"*"+prefix+antecedents[j];
+            else
+                result = "Math.min("+result+", "+prefix+antecedents[j]+")";
+        }
+        return result;
+    }
+
+    /**
+     * Appends a method computing an end point of center of sets type reduction
+     * exactly as IT2_Rulebase.getCOSEndpoint() does, unrolled over the sorted
+     * rules.
+     */
+    private static void appendCOSEndpoint(StringBuilder s, String method, int[] ruleIndices, double[] centroids, boolean left)
+    {
+        String w = left ? "fl" : "fu", moved = left ? "fu" : "fl", stayed = w;
+        s.append("\n    private static double ").append(method).append("(double[] fl, double[] fu)\n    {\n");
+        s.append("        double restNumerator = 0.0, restDenominator = 0.0;\n");
+        s.append("        int rest = 0;\n");
+        for(int i=0;i<ruleIndices.length;i++)
+        {
+            int r = ruleIndices[i];
+            s.append("        if(fu[").append(r).append("]>0.0)\n        {\n");
+            s.append("            restNumerator += ").append(literal(centroids[i])).append("*").append(w).append("[").append(r).append("];\n");
+            s.append("            restDenominator += ").append(w).append("[").append(r).append("];\n");
+            s.append("            rest++;\n        }\n");
+        }
+        s.append("        if(rest==0)\n            return Double.NaN;\n");
+        s.append("        double best = restDenominator>0.0 ? restNumerator/restDenominator : ")
+                .append(left ? "Double.POSITIVE_INFINITY" : "Double.NEGATIVE_INFINITY").append(";\n");
+        s.append("        double movedNumerator = 0.0, movedDenominator = 0.0, denominator, y;\n");
+        for(int i=0;i<ruleIndices.length;i++)
+        {
+            int r = ruleIndices[i];
+            String c = literal(centroids[i]);
+            s.append("        if(fu[").append(r).append("]>0.0)\n        {\n");
+            s.append("            movedNumerator += ").append(c).append("*").append(moved).append("[").append(r).append("];\n");
+            s.append("            movedDenominator += ").append(moved).append("[").append(r).append("];\n");
+            s.append("            if(--rest==0)\n            {\n");
+            s.append("                restNumerator = 0.0;\n                restDenominator = 0.0;\n            }\n");
+            s.append("            else\n            {\n");
+            s.append("                restNumerator -= ").append(c).append("*").append(stayed).append("[").append(r).append("];\n");
+            s.append("                restDenominator -= ").append(stayed).append("[").append(r).append("];\n            }\n");
+            s.append("            denominator = movedDenominator+restDenominator;\n");
+            s.append("            if(denominator>0.0)\n            {\n");
+            s.append("                y = (movedNumerator+restNumerator)/denominator;\n");
+            s.append("                if(y").append(left ? "<" : ">").append("best)\n                    best = y;\n");
+            s.append("            }\n        }\n");
+        }
+        s.append("        return best;\n    }\n");
+    }
+
+    /**
+     * @return A Java expression of exactly the given value.
+     */
+    private static String literal(double value)
+    {
+        if(Double.isNaN(value))
+            return "Double.NaN";
+        if(Double.isInfinite(value))
+            return value>0 ? "Double.POSITIVE_INFINITY" : "Double.NEGATIVE_INFINITY";
+        String s = Double.toString(value);
+        return s.startsWith("-") ? "("+s+")" : s;
+    }
+
+    /**
+     * Compiles the source of the evaluator in memory.
+     * @return The class file, or null if no compiler is available or the
+     * source could not be compiled.
+     */
+    private static byte[] compile(final String source)
+    {
+        JavaCompiler compiler = ToolProvider.getSystemJavaCompiler();
+        if(compiler==null)
+            return null;
+        final ByteArrayOutputStream classFile = new ByteArrayOutputStream();
+        DiagnosticCollector<JavaFileObject> diagnostics = new DiagnosticCollector<>();
+        StandardJavaFileManager standardManager = compiler.getStandardFileManager(diagnostics, null, null);
+        JavaFileManager manager = new ForwardingJavaFileManager<StandardJavaFileManager>(standardManager)
+        {
+            @Override
+            public JavaFileObject getJavaFileForOutput(Location location, String className, JavaFileObject.Kind kind,
+                    FileObject sibling)
+            {
+                return new SimpleJavaFileObject(URI.create("mem:///"+className.replace('.', '/')+kind.extension), kind)
+                {
+                    @Override
+                    public OutputStream openOutputStream()
+                    {
+                        return classFile;
+                    }
+                };
+            }
+        };
+        String packageName = IT2_RulebaseSpecialiser.class.getPackage().getName();
+        JavaFileObject file = new SimpleJavaFileObject(URI.create("string:///"+packageName.replace('.', '/')+"/"
+                +CLASS_NAME+JavaFileObject.Kind.SOURCE.extension), JavaFileObject.Kind.SOURCE)
+        {
+            @Override
+            public CharSequence getCharContent(boolean ignoreEncodingErrors)
+            {
+                return source;
+            }
+        };
+        List<String> options = Arrays.asList("-classpath", getClassPath(), "-g:none", "-proc:none", "-nowarn");
+        try
+        {
+            boolean compiled = compiler.getTask(null, manager, diagnostics, options, null,
+                    Collections.singletonList(file)).call();
+            if(DEBUG)System.out.println(diagnostics.getDiagnostics());
+            return compiled ? classFile.toByteArray() : null;
+        }
+        catch(RuntimeException e)
+        {
+            if(DEBUG)e.printStackTrace();
+            return null;
+        }
+        finally
+        {
+            try
+            {
+                manager.close();
+            }
+            catch(IOException e)
+            {
+                //nothing to release for in-memory files
+            }
+        }
+    }
+
+    /**
+     * The class path for compiling the evaluator: the location this package
+     * was loaded from, followed by the class path of the application.
+     */
+    private static String getClassPath()
+    {
+        String classPath = System.getProperty("java.class.path", "");
+        CodeSource code = IT2_SpecialisedEvaluator.class.getProtectionDomain().getCodeSource();
+        if(code!=null && code.getLocation()!=null)
+        {
+            try
+            {
+                classPath = new File(code.getLocation().toURI()).getPath()+File.pathSeparator+classPath;
+            }
+            catch(Exception e)
+            {
+                //not a file location, rely on the class path alone
+            }
+        }
+        return classPath;
+    }
+}
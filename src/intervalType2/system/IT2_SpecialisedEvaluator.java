@@ -0,0 +1,31 @@
+/*
+ * IT2_SpecialisedEvaluator.java
+ *
+ * Rafael Bastos
+ */
+package intervalType2.system;
+
+/**
+ * An evaluator generated for one layout of an IT2_Rulebase with singleton
+ * inputs, see IT2_RulebaseSpecialiser. The results equal those of the generic
+ * evaluation for the sets the evaluator was generated for.
+ * @author Rafael Bastos
+ */
+interface IT2_SpecialisedEvaluator
+{
+    /**
+     * Computes the firing interval of every rule.
+     * @param x The crisp inputs, in the order of IT2_Rulebase.getInputs().
+     * @param fl Receives the lower firing strength of every rule.
+     * @param fu Receives the upper firing strength of every rule.
+     */
+    public void fire(double[] x, double[] fl, double[] fu);
+
+    /**
+     * Fires the rules and type-reduces every output using center of sets
+     * type reduction.
+     * @param endpoints Receives the left and right end point of output o at
+     * 2*o and 2*o+1, both NaN if no rule of the output fired.
+     */
+    public void evaluateCOS(double[] x, double[] fl, double[] fu, double[] endpoints);
+}
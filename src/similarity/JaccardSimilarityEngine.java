@@ -11,16 +11,16 @@ import type1.sets.T1MF_Interface;
 
 /**
  * Implementation of Jaccard Similarity for Type-1, Type-2 and zGT2 Sets
+ * The engine holds no state between calls and can be shared across threads. 
+ * For comparing whole libraries of sets see JaccardSimilarityMatrix.
  * @author Christian Wagner
  */
 public class JaccardSimilarityEngine 
 {
-    private double numerator, denominator;
-    
     public double getSimilarity(T1MF_Interface setA, T1MF_Interface setB, int numberOfDiscretisations)
     {
         double[] discValues = getDiscretisationValues(setA.getSupport(), setB.getSupport(), numberOfDiscretisations);
-        numerator = 0.0; denominator = 0.0;
+        double numerator = 0.0, denominator = 0.0;
         for(int i=0;i<discValues.length;i++)
         {
             numerator += Math.min(setA.getFS(discValues[i]), setB.getFS(discValues[i]));
@@ -32,7 +32,7 @@ public class JaccardSimilarityEngine
     public double getSimilarity(IntervalT2MF_Interface setA, IntervalT2MF_Interface setB,int numberOfDiscretisations)
     {
         double[] discValues = getDiscretisationValues(setA.getSupport(), setB.getSupport(), numberOfDiscretisations);
-        numerator = 0.0; denominator = 0.0;
+        double numerator = 0.0, denominator = 0.0;
         for(int i=0;i<discValues.length;i++)
         {
             numerator += Math.min(setA.getUMF().getFS(discValues[i]), setB.getUMF().getFS(discValues[i])) + 
@@ -46,7 +46,7 @@ public class JaccardSimilarityEngine
     public double getSimilarity(GenT2zMF_Interface setA, GenT2zMF_Interface setB, int numberOfDiscretisations)
     {
         double[] discValues = getDiscretisationValues(setA.getSupport(), setB.getSupport(), numberOfDiscretisations);
-        numerator = 0.0; denominator = 0.0;
+        double numerator = 0.0, denominator = 0.0;
         double numeratorArray[] = new double[setA.getNumberOfSlices()];
         double denominatorArray[] = new double[setA.getNumberOfSlices()];
         
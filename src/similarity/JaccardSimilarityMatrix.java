@@ -0,0 +1,414 @@
+/*
+ * JaccardSimilarityMatrix.java
+ *
+ * Computes the Jaccard similarity between all pairs of a library of sets.
+ */
+package similarity;
+
+import generalType2zSlices.sets.GenT2zMF_Interface;
+import generic.BadParameterException;
+import intervalType2.sets.IntervalT2MF_Interface;
+import java.util.Comparator;
+import java.util.PriorityQueue;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import type1.sets.T1MF_Interface;
+
+/**
+ * All-pairs Jaccard similarity for Type-1, Interval Type-2 and zSlices based
+ * General Type-2 sets.
+ * In contrast to JaccardSimilarityEngine, which re-discretises both supports
+ * for every pair, all sets are sampled exactly once on a common grid spanning
+ * the union of all supports. The samples are held in primitive arrays and the
+ * symmetric upper triangle of the matrix is computed in parallel in square
+ * tiles on a ForkJoinPool. Because min(a,b)+max(a,b)=a+b only the sum of
+ * minima has to be accumulated per pair; the sum of maxima follows from the
+ * per-set totals.
+ * For large libraries getNearestSets() streams the k most similar sets of
+ * every set to a listener without materialising the n x n matrix.
+ * Note that as the grid is shared, results can differ marginally from
+ * JaccardSimilarityEngine at low discretisation levels.
+ * @author Rafael Bastos
+ */
+public class JaccardSimilarityMatrix
+{
+    private final int numberOfDiscretisations;
+    private final ForkJoinPool pool;
+    private int tileSize = 64;
+
+    /**
+     * Receives the k nearest sets of one set. Calls are made from the worker
+     * threads of the pool, i.e. implementations have to be thread-safe.
+     */
+    public interface NearestSetsListener
+    {
+        /**
+         * @param set Index of the set in the input array.
+         * @param neighbours Indices of the most similar sets, most similar first.
+         * @param similarities The corresponding similarities.
+         */
+        public void nearestSets(int set, int[] neighbours, double[] similarities);
+    }
+
+    public JaccardSimilarityMatrix(int numberOfDiscretisations)
+    {
+        this(numberOfDiscretisations, ForkJoinPool.commonPool());
+    }
+
+    public JaccardSimilarityMatrix(int numberOfDiscretisations, ForkJoinPool pool)
+    {
+        if(numberOfDiscretisations<2)
+            throw new BadParameterException("At least two discretisations are required, "+numberOfDiscretisations+" were specified.");
+        this.numberOfDiscretisations = numberOfDiscretisations;
+        this.pool = pool;
+    }
+
+    /**
+     * Sets the number of sets per side of the square tiles processed by one task.
+     */
+    public void setTileSize(int tileSize)
+    {
+        if(tileSize<1)
+            throw new BadParameterException("The tile size must be at least 1.");
+        this.tileSize = tileSize;
+    }
+
+    public double[][] getSimilarityMatrix(T1MF_Interface[] sets)
+    {
+        return getSimilarityMatrix(sample(sets));
+    }
+
+    public double[][] getSimilarityMatrix(IntervalT2MF_Interface[] sets)
+    {
+        return getSimilarityMatrix(sample(sets));
+    }
+
+    public double[][] getSimilarityMatrix(GenT2zMF_Interface[] sets)
+    {
+        return getSimilarityMatrix(sample(sets));
+    }
+
+    public void getNearestSets(T1MF_Interface[] sets, int k, NearestSetsListener listener)
+    {
+        getNearestSets(sample(sets), k, listener);
+    }
+
+    public void getNearestSets(IntervalT2MF_Interface[] sets, int k, NearestSetsListener listener)
+    {
+        getNearestSets(sample(sets), k, listener);
+    }
+
+    public void getNearestSets(GenT2zMF_Interface[] sets, int k, NearestSetsListener listener)
+    {
+        getNearestSets(sample(sets), k, listener);
+    }
+
+    /**
+     * Convenience version of getNearestSets which collects the results.
+     * @param similarities If not null, filled with the similarities matching the returned indices.
+     * @return For every set the indices of its k nearest sets, most similar first.
+     */
+    public int[][] getNearestSets(T1MF_Interface[] sets, int k, double[][] similarities)
+    {
+        return collectNearestSets(sample(sets), k, similarities);
+    }
+
+    public int[][] getNearestSets(IntervalT2MF_Interface[] sets, int k, double[][] similarities)
+    {
+        return collectNearestSets(sample(sets), k, similarities);
+    }
+
+    public int[][] getNearestSets(GenT2zMF_Interface[] sets, int k, double[][] similarities)
+    {
+        return collectNearestSets(sample(sets), k, similarities);
+    }
+
+    private int[][] collectNearestSets(Samples samples, int k, final double[][] similarities)
+    {
+        final int[][] neighbours = new int[samples.values.length][];
+        getNearestSets(samples, k, new NearestSetsListener()
+        {
+            public void nearestSets(int set, int[] n, double[] s)
+            {
+                neighbours[set] = n;
+                if(similarities!=null)
+                    similarities[set] = s;
+            }
+        });
+        return neighbours;
+    }
+
+    /**
+     * The sampled library: for every set the samples of all its layers
+     * (the set itself, UMF and LMF, or UMF and LMF of every zSlice) stored
+     * consecutively, the weight of every layer and the per-layer totals.
+     */
+    private static class Samples
+    {
+        final int points, layers;
+        final double[][] values;    //[set][layer*points+i]
+        final double[][] totals;    //[set][layer]
+        final double[] weights;     //[layer]
+
+        Samples(int sets, int points, int layers)
+        {
+            this.points = points;
+            this.layers = layers;
+            values = new double[sets][layers*points];
+            totals = new double[sets][layers];
+            weights = new double[layers];
+        }
+
+        void computeTotals()
+        {
+            for(int s=0;s<values.length;s++)
+                for(int l=0;l<layers;l++)
+                {
+                    double sum = 0.0;
+                    for(int i=l*points;i<(l+1)*points;i++)
+                        sum += values[s][i];
+                    totals[s][l] = sum;
+                }
+        }
+
+        double getSimilarity(int a, int b)
+        {
+            double[] va = values[a], vb = values[b];
+            double numerator = 0.0, denominator = 0.0;
+            for(int l=0;l<layers;l++)
+            {
+                double min = 0.0;
+                for(int i=l*points;i<(l+1)*points;i++)
+                    min += Math.min(va[i], vb[i]);
+                numerator += weights[l]*min;
+                denominator += weights[l]*(totals[a][l]+totals[b][l]-min);
+            }
+            return numerator/denominator;
+        }
+    }
+
+    private double[] getDiscretisationValues(double left, double right)
+    {
+        double discStep = (right-left)/(numberOfDiscretisations-1);
+        double[] discValues = new double[numberOfDiscretisations];
+        for(int i=0;i<numberOfDiscretisations;i++)
+            discValues[i] = left + i * discStep;
+        return discValues;
+    }
+
+    private Samples sample(T1MF_Interface[] sets)
+    {
+        double left = Double.POSITIVE_INFINITY, right = Double.NEGATIVE_INFINITY;
+        for(int s=0;s<sets.length;s++)
+        {
+            left = Math.min(left, sets[s].getSupport().getLeft());
+            right = Math.max(right, sets[s].getSupport().getRight());
+        }
+        double[] discValues = getDiscretisationValues(left, right);
+        Samples samples = new Samples(sets.length, discValues.length, 1);
+        samples.weights[0] = 1.0;
+        for(int s=0;s<sets.length;s++)
+            for(int i=0;i<discValues.length;i++)
+                samples.values[s][i] = sets[s].getFS(discValues[i]);
+        samples.computeTotals();
+        return samples;
+    }
+
+    private Samples sample(IntervalT2MF_Interface[] sets)
+    {
+        double left = Double.POSITIVE_INFINITY, right = Double.NEGATIVE_INFINITY;
+        for(int s=0;s<sets.length;s++)
+        {
+            left = Math.min(left, sets[s].getSupport().getLeft());
+            right = Math.max(right, sets[s].getSupport().getRight());
+        }
+        double[] discValues = getDiscretisationValues(left, right);
+        int m = discValues.length;
+        //UMF and LMF contribute with equal weight, so they can share one layer
+        Samples samples = new Samples(sets.length, 2*m, 1);
+        samples.weights[0] = 1.0;
+        for(int s=0;s<sets.length;s++)
+            for(int i=0;i<m;i++)
+            {
+                samples.values[s][i] = sets[s].getUMF().getFS(discValues[i]);
+                samples.values[s][m+i] = sets[s].getLMF().getFS(discValues[i]);
+            }
+        samples.computeTotals();
+        return samples;
+    }
+
+    private Samples sample(GenT2zMF_Interface[] sets)
+    {
+        if(sets.length==0)
+            return new Samples(0, 0, 0);
+        int slices = sets[0].getNumberOfSlices();
+        double left = Double.POSITIVE_INFINITY, right = Double.NEGATIVE_INFINITY;
+        for(int s=0;s<sets.length;s++)
+        {
+            if(sets[s].getNumberOfSlices()!=slices)
+                throw new BadParameterException("All sets need to have the same number of zSlices, set "+sets[s].getName()
+                        +" has "+sets[s].getNumberOfSlices()+" instead of "+slices+".");
+            left = Math.min(left, sets[s].getSupport().getLeft());
+            right = Math.max(right, sets[s].getSupport().getRight());
+        }
+        double[] discValues = getDiscretisationValues(left, right);
+        int m = discValues.length;
+        Samples samples = new Samples(sets.length, 2*m, slices);
+        for(int z=0;z<slices;z++)
+            samples.weights[z] = sets[0].getZValue(z);
+        for(int s=0;s<sets.length;s++)
+            for(int z=0;z<slices;z++)
+            {
+                IntervalT2MF_Interface slice = sets[s].getZSlice(z);
+                int offset = z*2*m;
+                for(int i=0;i<m;i++)
+                {
+                    samples.values[s][offset+i] = slice.getUMF().getFS(discValues[i]);
+                    samples.values[s][offset+m+i] = slice.getLMF().getFS(discValues[i]);
+                }
+            }
+        samples.computeTotals();
+        return samples;
+    }
+
+    private double[][] getSimilarityMatrix(final Samples samples)
+    {
+        final int n = samples.values.length;
+        final double[][] matrix = new double[n][n];
+        if(n==0)
+            return matrix;
+        final int tiles = (n+tileSize-1)/tileSize;
+        //enumerate the tiles of the upper triangle (including the diagonal)
+        final int[] tileRows = new int[tiles*(tiles+1)/2];
+        final int[] tileCols = new int[tileRows.length];
+        int t = 0;
+        for(int r=0;r<tiles;r++)
+            for(int c=r;c<tiles;c++)
+            {
+                tileRows[t] = r;
+                tileCols[t] = c;
+                t++;
+            }
+        pool.invoke(new TileTask(samples, matrix, tileRows, tileCols, 0, tileRows.length));
+        return matrix;
+    }
+
+    private class TileTask extends RecursiveAction
+    {
+        private static final long serialVersionUID = 1L;
+        private final Samples samples;
+        private final double[][] matrix;
+        private final int[] tileRows, tileCols;
+        private final int from, to;
+
+        TileTask(Samples samples, double[][] matrix, int[] tileRows, int[] tileCols, int from, int to)
+        {
+            this.samples = samples;
+            this.matrix = matrix;
+            this.tileRows = tileRows;
+            this.tileCols = tileCols;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute()
+        {
+            if(to-from>1)
+            {
+                int middle = (from+to)>>>1;
+                invokeAll(new TileTask(samples, matrix, tileRows, tileCols, from, middle),
+                        new TileTask(samples, matrix, tileRows, tileCols, middle, to));
+                return;
+            }
+            int n = matrix.length;
+            int rowStart = tileRows[from]*tileSize, colStart = tileCols[from]*tileSize;
+            int rowEnd = Math.min(n, rowStart+tileSize), colEnd = Math.min(n, colStart+tileSize);
+            for(int a=rowStart;a<rowEnd;a++)
+                for(int b=Math.max(a, colStart);b<colEnd;b++)
+                {
+                    double s = (a==b) ? 1.0 : samples.getSimilarity(a, b);
+                    matrix[a][b] = s;
+                    matrix[b][a] = s;
+                }
+        }
+    }
+
+    private void getNearestSets(Samples samples, int k, NearestSetsListener listener)
+    {
+        if(k<1)
+            throw new BadParameterException("k must be at least 1.");
+        pool.invoke(new NearestSetsTask(samples, Math.min(k, samples.values.length-1), listener, 0, samples.values.length));
+    }
+
+    /**
+     * Every row is scanned completely so that no state is shared between
+     * tasks and only k entries per set are held at any time.
+     */
+    private class NearestSetsTask extends RecursiveAction
+    {
+        private static final long serialVersionUID = 1L;
+        private final Samples samples;
+        private final int k;
+        private final NearestSetsListener listener;
+        private final int from, to;
+
+        NearestSetsTask(Samples samples, int k, NearestSetsListener listener, int from, int to)
+        {
+            this.samples = samples;
+            this.k = k;
+            this.listener = listener;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute()
+        {
+            if(to-from>tileSize)
+            {
+                int middle = (from+to)>>>1;
+                invokeAll(new NearestSetsTask(samples, k, listener, from, middle),
+                        new NearestSetsTask(samples, k, listener, middle, to));
+                return;
+            }
+            int n = samples.values.length;
+            //min-heap on similarity (ties: larger index first out) holding the current k best
+            PriorityQueue<double[]> heap = new PriorityQueue<double[]>(Math.max(1, k), new Comparator<double[]>()
+            {
+                public int compare(double[] x, double[] y)
+                {
+                    return x[0]!=y[0] ? Double.compare(x[0], y[0]) : Double.compare(y[1], x[1]);
+                }
+            });
+            for(int a=from;a<to;a++)
+            {
+                heap.clear();
+                for(int b=0;b<n;b++)
+                {
+                    if(a==b)
+                        continue;
+                    double s = samples.getSimilarity(a, b);
+                    if(heap.size()<k)
+                        heap.add(new double[]{s, b});
+                    else if(s>heap.peek()[0])
+                    {
+                        double[] entry = heap.poll();
+                        entry[0] = s;
+                        entry[1] = b;
+                        heap.add(entry);
+                    }
+                }
+                int[] neighbours = new int[heap.size()];
+                double[] similarities = new double[heap.size()];
+                for(int i=neighbours.length-1;i>=0;i--)
+                {
+                    double[] entry = heap.poll();
+                    similarities[i] = entry[0];
+                    neighbours[i] = (int)entry[1];
+                }
+                listener.nearestSets(a, neighbours, similarities);
+            }
+        }
+    }
+}
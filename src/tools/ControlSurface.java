@@ -0,0 +1,232 @@
+/*
+ * ControlSurface.java
+ *
+ * The output of a two-input FLS sampled on a grid.
+ */
+package tools;
+
+import generic.BadParameterException;
+import generic.Tuple;
+import java.awt.Color;
+import java.awt.image.BufferedImage;
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.BufferedWriter;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import javax.imageio.ImageIO;
+
+/**
+ * A control surface: the outputs z[y][x] of a two-input system for all
+ * combinations of the input values x and y, as produced by
+ * ControlSurfaceGenerator.
+ * Surfaces can be exported as CSV (first row holds the x values, every
+ * further row a y value followed by its outputs), as compact binary matrix
+ * (see writeBinary) or as PNG. PNG export works without a display.
+ * @author Rafael Bastos
+ */
+public class ControlSurface
+{
+    /** "CSRF" */
+    private static final int BINARY_MAGIC = 0x43535246;
+    private static final int BINARY_VERSION = 1;
+
+    private final double[] x, y;
+    private final double[][] z;
+    private String[] labels = new String[]{"x", "y", "z"};
+
+    public ControlSurface(double[] x, double[] y, double[][] z)
+    {
+        if(z.length!=y.length || (z.length>0 && z[0].length!=x.length))
+            throw new BadParameterException("The output matrix needs to have "+y.length+" rows of "+x.length+" values.");
+        this.x = x;
+        this.y = y;
+        this.z = z;
+    }
+
+    public double[] getX()
+    {
+        return x;
+    }
+
+    public double[] getY()
+    {
+        return y;
+    }
+
+    /**
+     * @return The outputs, indexed as [y][x].
+     */
+    public double[][] getZ()
+    {
+        return z;
+    }
+
+    public String[] getLabels()
+    {
+        return labels;
+    }
+
+    /**
+     * Sets the names of the x, y and z axes.
+     */
+    public void setLabels(String[] labels)
+    {
+        if(labels.length!=3)
+            throw new BadParameterException("Exactly three labels (x, y and z axis) are required.");
+        this.labels = labels;
+    }
+
+    /**
+     * Returns the smallest and largest finite output of the surface.
+     */
+    public Tuple getRange()
+    {
+        double min = Double.POSITIVE_INFINITY, max = Double.NEGATIVE_INFINITY;
+        for(int j=0;j<y.length;j++)
+            for(int i=0;i<x.length;i++)
+                if(!Double.isNaN(z[j][i]) && !Double.isInfinite(z[j][i]))
+                {
+                    min = Math.min(min, z[j][i]);
+                    max = Math.max(max, z[j][i]);
+                }
+        return new Tuple(min, max);
+    }
+
+    public void writeCSV(File f) throws IOException
+    {
+        Writer w = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(f), StandardCharsets.UTF_8), 1<<16);
+        try
+        {
+            w.write(labels[1]+"\\"+labels[0]);
+            for(int i=0;i<x.length;i++)
+                w.write(","+x[i]);
+            w.write("\n");
+            for(int j=0;j<y.length;j++)
+            {
+                w.write(Double.toString(y[j]));
+                for(int i=0;i<x.length;i++)
+                    w.write(","+z[j][i]);
+                w.write("\n");
+            }
+        }
+        finally
+        {
+            w.close();
+        }
+    }
+
+    /**
+     * Writes the surface as big-endian binary matrix: magic number, version,
+     * number of x values, number of y values, the x values, the y values and
+     * finally the outputs row by row (one row per y value), all as doubles.
+     */
+    public void writeBinary(File f) throws IOException
+    {
+        DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(f), 1<<16));
+        try
+        {
+            out.writeInt(BINARY_MAGIC);
+            out.writeInt(BINARY_VERSION);
+            out.writeInt(x.length);
+            out.writeInt(y.length);
+            for(int i=0;i<x.length;i++)
+                out.writeDouble(x[i]);
+            for(int j=0;j<y.length;j++)
+                out.writeDouble(y[j]);
+            for(int j=0;j<y.length;j++)
+                for(int i=0;i<x.length;i++)
+                    out.writeDouble(z[j][i]);
+        }
+        finally
+        {
+            out.close();
+        }
+    }
+
+    /**
+     * Reads a surface written by writeBinary.
+     */
+    public static ControlSurface readBinary(File f) throws IOException
+    {
+        DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(f), 1<<16));
+        try
+        {
+            if(in.readInt()!=BINARY_MAGIC)
+                throw new IOException(f+" is not a control surface file.");
+            int version = in.readInt();
+            if(version!=BINARY_VERSION)
+                throw new IOException("Unsupported control surface file version "+version+".");
+            double[] x = new double[in.readInt()];
+            double[] y = new double[in.readInt()];
+            double[][] z = new double[y.length][x.length];
+            for(int i=0;i<x.length;i++)
+                x[i] = in.readDouble();
+            for(int j=0;j<y.length;j++)
+                y[j] = in.readDouble();
+            for(int j=0;j<y.length;j++)
+                for(int i=0;i<x.length;i++)
+                    z[j][i] = in.readDouble();
+            return new ControlSurface(x, y, z);
+        }
+        finally
+        {
+            in.close();
+        }
+    }
+
+    /**
+     * Renders the surface as 3D plot via JMathPlotter and writes it as PNG.
+     * The plot is painted off-screen, so no display is needed.
+     * @param zAxisRange Fixed range of the output axis.
+     */
+    public void writePNG(File f, int width, int height, Tuple zAxisRange) throws IOException
+    {
+        JMathPlotter plotter = new JMathPlotter(17, 17, 14);
+        //the plotter replaces NaNs in place, so hand it a copy
+        double[][] zCopy = new double[y.length][];
+        for(int j=0;j<y.length;j++)
+            zCopy[j] = z[j].clone();
+        plotter.plotControlSurface("Control Surface", labels, x, y, zCopy, zAxisRange, true);
+        plotter.toGraphicFile(f, width, height);
+    }
+
+    /**
+     * Writes the surface as top-down heat map PNG with one pixel block per
+     * grid point: blue for the lowest and red for the highest output of the
+     * given range, NaN outputs in grey. Unlike writePNG this does not depend
+     * on Swing at all and is the cheaper choice for large grids.
+     */
+    public void writeHeatMapPNG(File f, int pixelsPerPoint, Tuple zAxisRange) throws IOException
+    {
+        int width = x.length*pixelsPerPoint, height = y.length*pixelsPerPoint;
+        BufferedImage image = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+        double range = zAxisRange.getSize()>0 ? zAxisRange.getSize() : 1.0;
+        int nan = Color.GRAY.getRGB();
+        for(int j=0;j<y.length;j++)
+            for(int i=0;i<x.length;i++)
+            {
+                int rgb;
+                if(Double.isNaN(z[j][i]))
+                    rgb = nan;
+                else
+                {
+                    double v = Math.max(0.0, Math.min(1.0, (z[j][i]-zAxisRange.getLeft())/range));
+                    rgb = Color.HSBtoRGB((float)(2.0/3.0*(1.0-v)), 1.0f, 1.0f);
+                }
+                //y grows upwards
+                int top = (y.length-1-j)*pixelsPerPoint, left = i*pixelsPerPoint;
+                for(int py=top;py<top+pixelsPerPoint;py++)
+                    for(int px=left;px<left+pixelsPerPoint;px++)
+                        image.setRGB(px, py, rgb);
+            }
+        ImageIO.write(image, "PNG", f);
+    }
+}
@@ -0,0 +1,130 @@
+/*
+ * ControlSurfaceGenerator.java
+ *
+ * Evaluates a two-input FLS on a grid in parallel.
+ */
+package tools;
+
+import generic.BadParameterException;
+import generic.Tuple;
+import java.util.ArrayList;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Generates control surfaces of two-input fuzzy logic systems in parallel.
+ * Rulebases keep their state in their Input objects, so a single system
+ * cannot be evaluated from several threads. Instead every worker obtains its
+ * own evaluation context from an EvaluatorFactory (typically by constructing
+ * its own copy of the system) and then processes whole rows of the grid which
+ * it takes from a shared counter.
+ * The result is a ControlSurface which can be plotted with JMathPlotter or
+ * exported as CSV, binary matrix or PNG without requiring a display.
+ * @author Rafael Bastos
+ */
+public class ControlSurfaceGenerator
+{
+    private final EvaluatorFactory factory;
+    private final int numberOfThreads;
+
+    /**
+     * An independent evaluation context of a fuzzy logic system.
+     */
+    public interface Evaluator
+    {
+        /**
+         * Returns the defuzzified output of the system for input values x and y.
+         */
+        public double evaluate(double x, double y);
+    }
+
+    /**
+     * Creates a new Evaluator for every worker thread. Evaluators returned by
+     * different calls must not share any mutable state (inputs, rulebases).
+     */
+    public interface EvaluatorFactory
+    {
+        public Evaluator newEvaluator();
+    }
+
+    public ControlSurfaceGenerator(EvaluatorFactory factory)
+    {
+        this(factory, Runtime.getRuntime().availableProcessors());
+    }
+
+    public ControlSurfaceGenerator(EvaluatorFactory factory, int numberOfThreads)
+    {
+        if(numberOfThreads<1)
+            throw new BadParameterException("At least one thread is required.");
+        this.factory = factory;
+        this.numberOfThreads = numberOfThreads;
+    }
+
+    /**
+     * Evaluates the system on an xDiscs by yDiscs grid spanning the given domains.
+     */
+    public ControlSurface generate(Tuple xDomain, int xDiscs, Tuple yDomain, int yDiscs)
+    {
+        return generate(getDiscretisations(xDomain, xDiscs), getDiscretisations(yDomain, yDiscs));
+    }
+
+    /**
+     * Evaluates the system for all combinations of the given x and y values.
+     */
+    public ControlSurface generate(final double[] x, final double[] y)
+    {
+        final double[][] z = new double[y.length][x.length];
+        final AtomicInteger nextRow = new AtomicInteger();
+        int threads = Math.min(numberOfThreads, Math.max(1, y.length));
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try
+        {
+            ArrayList<Future<?>> workers = new ArrayList<Future<?>>();
+            for(int i=0;i<threads;i++)
+                workers.add(executor.submit(new Runnable()
+                {
+                    public void run()
+                    {
+                        Evaluator evaluator = factory.newEvaluator();
+                        int row;
+                        while((row = nextRow.getAndIncrement())<y.length)
+                            for(int col=0;col<x.length;col++)
+                                z[row][col] = evaluator.evaluate(x[col], y[row]);
+                    }
+                }));
+            for(Future<?> worker : workers)
+                worker.get();
+        }
+        catch(InterruptedException e)
+        {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Control surface generation was interrupted.", e);
+        }
+        catch(ExecutionException e)
+        {
+            if(e.getCause() instanceof RuntimeException)
+                throw (RuntimeException)e.getCause();
+            throw new RuntimeException(e.getCause());
+        }
+        finally
+        {
+            executor.shutdownNow();
+        }
+        return new ControlSurface(x, y, z);
+    }
+
+    private double[] getDiscretisations(Tuple domain, int discs)
+    {
+        if(discs<2)
+            throw new BadParameterException("At least two discretisations per input are required.");
+        double[] values = new double[discs];
+        double incr = domain.getSize()/(discs-1.0);
+        for(int i=0;i<discs;i++)
+            values[i] = domain.getLeft()+i*incr;
+        values[discs-1] = domain.getRight();
+        return values;
+    }
+}
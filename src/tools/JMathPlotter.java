@@ -24,6 +24,7 @@ import javax.swing.ImageIcon;
 import javax.swing.JFrame;
 import org.math.plot.Plot2DPanel;
 import org.math.plot.Plot3DPanel;
+import org.math.plot.PlotPanel;
 import type1.sets.T1MF_Interface;
 import type1.sets.T1MF_Trapezoidal;
 
@@ -148,6 +149,11 @@ public class JMathPlotter {
              
     }
     public void toGraphicFile( File f) throws IOException {
+        if(plot.getWidth()<=0 || plot.getHeight()<=0)
+        {
+            toGraphicFile(f, 600, 600);
+            return;
+        }
         Plot2DPanel p = ((Plot2DPanel)plot);
         //p.toGraphicFile(f);
         // otherwise toolbar appears
@@ -174,18 +180,47 @@ public class JMathPlotter {
         }
     }
     
+    /**
+     * Writes the current plot (2D or 3D) as PNG of the given size without
+     * showing it. The plot is laid out and painted straight into an
+     * off-screen image, so this also works on headless machines
+     * (java.awt.headless=true) where no frame can be opened.
+     * @param f
+     * @param width
+     * @param height
+     * @throws IOException 
+     */
+    public void toGraphicFile(File f, int width, int height) throws IOException {
+        PlotPanel p = (PlotPanel)plot;
+        p.plotToolBar.setVisible(false);
+        p.setSize(width, height);
+        p.doLayout();
+        for(Component c : p.getComponents())
+            c.doLayout();
+
+        BufferedImage bufferedImage = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+        Graphics g = bufferedImage.createGraphics();
+        g.setColor(Color.WHITE);
+        g.fillRect(0, 0, width, height);
+        p.paint(g);
+        g.dispose();
+
+        p.plotToolBar.setVisible(true);
+        ImageIO.write((RenderedImage) bufferedImage, "PNG", f);
+    }
+    
     public void plotMF(String plotName, IntervalT2MF_Interface set, int xDisc, JFrame frame, boolean addExtraEndpoints)
     {
         double[] x = discretize(set.getSupport(),xDisc);
         double[] y1 = new double[xDisc];
         double[] y2 = new double[xDisc];
-        Tuple temp;
+        double[] fs = new double[2];
         
         for(int i=0;i<xDisc;i++)
         {
-            temp = set.getFS(x[i]);
-            y1[i] = temp.getRight(); //upper
-            y2[i] = temp.getLeft(); //lower
+            set.fill(x[i], fs);
+            y1[i] = fs[1]; //upper
+            y2[i] = fs[0]; //lower
         }
 
         if(addExtraEndpoints)
@@ -242,15 +277,15 @@ public class JMathPlotter {
         double[][] z1 = new double[set.getNumberOfSlices()][xDisc];
         double[][] z2 = new double[set.getNumberOfSlices()][xDisc];
         
-        Tuple temp;
+        double[] fs = new double[2];
         
         for(int zLevel = 0 ; zLevel<set.getNumberOfSlices();zLevel++)
         {
             for(int i=0;i<xDisc;i++)
             {
-                temp = set.getZSlice(zLevel).getFS(x[i]);
-                y1[zLevel][i] = temp.getRight(); //upper
-                y2[zLevel][i] = temp.getLeft(); //lower
+                set.getZSlice(zLevel).fill(x[i], fs);
+                y1[zLevel][i] = fs[1]; //upper
+                y2[zLevel][i] = fs[0]; //lower
                 if(zLevel==0)
                     z1[zLevel][i] = 0.0;
                 else
@@ -327,7 +362,7 @@ public class JMathPlotter {
                 
                 for(int xD = 0 ; xD<3;xD++)
                 {              
-                    y_upper[0][xD] = set.getZSlice(zLevel).getFS(x_upper[xD]).getRight();
+                    y_upper[0][xD] = set.getZSlice(zLevel).getUpperFS(x_upper[xD]);
                     y_upper[1][xD] = y_upper[0][xD];
                 } 
 
@@ -344,7 +379,7 @@ public class JMathPlotter {
 
                 for(int xD = 0 ; xD<3;xD++)
                 {               
-                    y_Lower[0][xD] = set.getZSlice(zLevel).getFS(x_Lower[xD]).getLeft();
+                    y_Lower[0][xD] = set.getZSlice(zLevel).getLowerFS(x_Lower[xD]);
                     y_Lower[1][xD] = y_Lower[0][xD];
                 }             
                 ((Plot3DPanel)plot).addGridPlot("zSlice",((Plot3DPanel)plot).COLORLIST[zLevel%8], x_upper, z_upper, y_upper);
@@ -373,7 +408,7 @@ public class JMathPlotter {
                 
                 for(int xD = 0 ; xD<4;xD++)
                 {              
-                    y_upper[0][xD] = set.getZSlice(zLevel).getFS(x_upper[xD]).getRight();
+                    y_upper[0][xD] = set.getZSlice(zLevel).getUpperFS(x_upper[xD]);
                     y_upper[1][xD] = y_upper[0][xD];
                 } 
 
@@ -391,7 +426,7 @@ public class JMathPlotter {
 
                 for(int xD = 0 ; xD<4;xD++)
                 {               
-                    y_Lower[0][xD] = set.getZSlice(zLevel).getFS(x_Lower[xD]).getLeft();
+                    y_Lower[0][xD] = set.getZSlice(zLevel).getLowerFS(x_Lower[xD]);
                     y_Lower[1][xD] = y_Lower[0][xD];
                 }             
                 ((Plot3DPanel)plot).addGridPlot("zSlice",((Plot3DPanel)plot).COLORLIST[zLevel%8], x_upper, z_upper, y_upper);
@@ -424,7 +459,7 @@ public class JMathPlotter {
                     for(int xD = 0 ; xD<xDisc;xD++)
                     {
                         //x_upper[xD] = xStep * xD;                
-                        y_upper[0][xD] = set.getZSlice(zLevel).getFS(x_upper[xD]).getRight();
+                        y_upper[0][xD] = set.getZSlice(zLevel).getUpperFS(x_upper[xD]);
                         y_upper[1][xD] = y_upper[0][xD];
                     } 
 
@@ -441,7 +476,7 @@ public class JMathPlotter {
                     for(int xD = 0 ; xD<xDisc;xD++)
                     {
                         //x_Lower[xD] = xStep * xD;                
-                        y_Lower[0][xD] = set.getZSlice(zLevel).getFS(x_Lower[xD]).getLeft();
+                        y_Lower[0][xD] = set.getZSlice(zLevel).getLowerFS(x_Lower[xD]);
                         y_Lower[1][xD] = y_Lower[0][xD];
                     }  
                     
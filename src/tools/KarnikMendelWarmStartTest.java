@@ -0,0 +1,232 @@
+/*
+ * KarnikMendelWarmStartTest.java
+ *
+ * Checks that warm-started Karnik-Mendel iterations give the cold results.
+ */
+package tools;
+
+import generalType2zSlices.sets.GenT2zMF_Trapezoidal;
+import generalType2zSlices.system.GenT2zEngine_Defuzzification;
+import generic.Input;
+import generic.Output;
+import generic.Tuple;
+import intervalType2.sets.IntervalT2Engine_Centroid;
+import intervalType2.sets.IntervalT2MF_Gaussian;
+import intervalType2.sets.IntervalT2MF_Interface;
+import intervalType2.sets.IntervalT2MF_Trapezoidal;
+import intervalType2.sets.IntervalT2MF_Triangular;
+import intervalType2.sets.IntervalT2MF_Union;
+import intervalType2.system.IT2_Antecedent;
+import intervalType2.system.IT2_Consequent;
+import intervalType2.system.IT2_Rule;
+import intervalType2.system.IT2_Rulebase;
+import java.util.Random;
+import java.util.TreeMap;
+import type1.sets.T1MF_Gaussian;
+import type1.sets.T1MF_Trapezoidal;
+import type1.sets.T1MF_Triangular;
+
+/**
+ * Test for the switch point hints of the Karnik-Mendel procedure (see
+ * IntervalT2Engine_Centroid.getCentroid(IntervalT2MF_Interface, double[])).
+ * Warm starts must only save iterations, so every result is compared bit for
+ * bit with the corresponding cold start:
+ * <ul>
+ * <li>centroids of random interval type-2 sets, hinted with the centroid of
+ * the previous set, with random points of the support and with NaN;</li>
+ * <li>IT2_Rulebase.evaluateBatch() with centroid type reduction, which warm
+ * starts every sample from the previous one, against evaluateGetCentroid()
+ * for each sample;</li>
+ * <li>GenT2zEngine_Defuzzification.typeReduce() of a drifting zSlices set,
+ * which warm starts every zSlice, against a fresh engine for each set.</li>
+ * </ul>
+ * Run with
+ * <pre>
+ *     java tools.KarnikMendelWarmStartTest [seed]
+ * </pre>
+ * which exits with status 1 if any result differed.
+ * @author Rafael Bastos
+ */
+public class KarnikMendelWarmStartTest
+{
+    private static final double DOMAIN = 10.0;
+    private static final int SETS = 2000;
+    private static final int SAMPLES = 5000;
+    private static final int Z_LEVELS = 8;
+
+    private final Random random;
+    private long comparisons = 0;
+    private long failures = 0;
+    private String firstFailure = null;
+
+    public KarnikMendelWarmStartTest(long seed)
+    {
+        this.random = new Random(seed);
+    }
+
+    public static void main(String[] args)
+    {
+        long seed = args.length>0 ? Long.parseLong(args[0]) : 42;
+        KarnikMendelWarmStartTest test = new KarnikMendelWarmStartTest(seed);
+        long failed = test.run();
+        System.out.println(test.getNumberOfComparisons()+" comparisons, "+failed+" failures");
+        if(failed>0)
+        {
+            System.out.println("First failure: "+test.getFirstFailure());
+            System.exit(1);
+        }
+    }
+
+    /**
+     * Runs all checks.
+     * @return The number of results which differed from the cold start.
+     */
+    public long run()
+    {
+        checkSets();
+        checkBatch();
+        checkZSlices();
+        return failures;
+    }
+
+    public long getNumberOfComparisons()
+    {
+        return comparisons;
+    }
+
+    public String getFirstFailure()
+    {
+        return firstFailure;
+    }
+
+    private void checkSets()
+    {
+        IntervalT2Engine_Centroid engine = new IntervalT2Engine_Centroid(100);
+        double[] previous = new double[]{Double.NaN, Double.NaN};
+        for(int i=0;i<SETS;i++)
+        {
+            IntervalT2MF_Interface set = randomSet("set "+i);
+            Tuple cold = engine.getCentroid(set);
+            double[][] hints = new double[][]{
+                previous.clone(),
+                new double[]{randomPoint(set), randomPoint(set)},
+                new double[]{Double.NaN, Double.NaN}};
+            for(int h=0;h<hints.length;h++)
+            {
+                String hint = "["+hints[h][0]+", "+hints[h][1]+"]";
+                compare(set.getName()+" hinted with "+hint, cold, engine.getCentroid(set, hints[h]));
+            }
+            previous = new double[]{cold.getLeft(), cold.getRight()};
+        }
+    }
+
+    private void checkBatch()
+    {
+        Input a = new Input("a", new Tuple(0, DOMAIN));
+        Input b = new Input("b", new Tuple(0, DOMAIN));
+        Output output = new Output("output", new Tuple(0, DOMAIN));
+        IT2_Antecedent[] antecedentsA = new IT2_Antecedent[3], antecedentsB = new IT2_Antecedent[3];
+        IT2_Consequent[] consequents = new IT2_Consequent[3];
+        for(int i=0;i<3;i++)
+        {
+            antecedentsA[i] = new IT2_Antecedent(randomSet("a"+i), a);
+            antecedentsB[i] = new IT2_Antecedent(randomSet("b"+i), b);
+            consequents[i] = new IT2_Consequent("c"+i, randomTrapezoidal("c"+i), output);
+        }
+        IT2_Rulebase rulebase = new IT2_Rulebase();
+        for(int i=0;i<3;i++)
+            for(int j=0;j<3;j++)
+                rulebase.addRule(new IT2_Rule(new IT2_Antecedent[]{antecedentsA[i], antecedentsB[j]},
+                        consequents[random.nextInt(3)]));
+
+        //a random walk, so that neighbouring samples are similar as in a sweep
+        double[][] columns = new double[2][SAMPLES];
+        for(int s=0;s<SAMPLES;s++)
+            for(int c=0;c<2;c++)
+                columns[c][s] = s==0 ? random.nextDouble()*DOMAIN
+                        : Math.min(DOMAIN, Math.max(0.0, columns[c][s-1]+random.nextGaussian()*0.2));
+        double[] left = new double[SAMPLES], right = new double[SAMPLES];
+        rulebase.evaluateBatch(output, 1, columns, null, left, right, null);
+
+        Input[] inputs = rulebase.getInputs();
+        for(int s=0;s<SAMPLES;s++)
+        {
+            for(int c=0;c<inputs.length;c++)
+                inputs[c].setInput(columns[inputs[c]==a ? 0 : 1][s]);
+            TreeMap<Output, Object[]> result = rulebase.evaluateGetCentroid(1);
+            Object[] centroid = result.get(output);
+            Tuple cold = centroid==null || centroid[0]==null ? new Tuple(Double.NaN, Double.NaN) : (Tuple)centroid[0];
+            compare("batch sample "+s+" at ("+columns[0][s]+", "+columns[1][s]+")", cold, new Tuple(left[s], right[s]));
+        }
+    }
+
+    private void checkZSlices()
+    {
+        GenT2zEngine_Defuzzification warm = new GenT2zEngine_Defuzzification(100);
+        double shift = 0.0;
+        for(int i=0;i<SETS/10;i++)
+        {
+            shift += random.nextGaussian()*0.05;
+            double[] upper = new double[]{2+shift, 4+shift, 5+shift, 8+shift};
+            double[] lower = new double[]{3+shift, 4.5+shift, 4.5+shift, 6+shift};
+            IntervalT2MF_Trapezoidal primer = new IntervalT2MF_Trapezoidal("primer "+i,
+                    new T1MF_Trapezoidal("upper", upper), new T1MF_Trapezoidal("lower", lower));
+            GenT2zMF_Trapezoidal set = new GenT2zMF_Trapezoidal("zSlices set "+i, primer, Z_LEVELS);
+            Tuple cold = new GenT2zEngine_Defuzzification(100).typeReduce(set);
+            compare(set.getName(), cold, warm.typeReduce(set));
+        }
+    }
+
+    private void compare(String subject, Tuple cold, Tuple warm)
+    {
+        comparisons++;
+        if(Double.doubleToLongBits(cold.getLeft())!=Double.doubleToLongBits(warm.getLeft())
+                || Double.doubleToLongBits(cold.getRight())!=Double.doubleToLongBits(warm.getRight()))
+        {
+            failures++;
+            if(firstFailure==null)
+                firstFailure = subject+": cold "+cold+", warm "+warm;
+        }
+    }
+
+    private double randomPoint(IntervalT2MF_Interface set)
+    {
+        Tuple support = set.getSupport();
+        return support.getLeft()+random.nextDouble()*(support.getRight()-support.getLeft());
+    }
+
+    private IntervalT2MF_Interface randomSet(String name)
+    {
+        switch(random.nextInt(4))
+        {
+            case 0:
+                return randomTrapezoidal(name);
+            case 1:
+            {
+                double start = random.nextDouble()*DOMAIN*0.6, width = 1+random.nextDouble()*3;
+                double peak = start+width*(0.2+0.6*random.nextDouble());
+                double shrink = width*0.2*random.nextDouble();
+                return new IntervalT2MF_Triangular(name, new T1MF_Triangular("upper", start, peak, start+width),
+                        new T1MF_Triangular("lower", start+shrink, peak, start+width-shrink));
+            }
+            case 2:
+            {
+                double mean = 1+random.nextDouble()*(DOMAIN-2), spread = 0.3+random.nextDouble();
+                return new IntervalT2MF_Gaussian(name, new T1MF_Gaussian("upper", mean, spread),
+                        new T1MF_Gaussian("lower", mean, spread*(0.5+0.5*random.nextDouble())));
+            }
+            default:
+                return new IntervalT2MF_Union(randomTrapezoidal(name+" left"), randomTrapezoidal(name+" right"));
+        }
+    }
+
+    private IntervalT2MF_Trapezoidal randomTrapezoidal(String name)
+    {
+        double a = random.nextDouble()*DOMAIN*0.6, width = 1+random.nextDouble()*3;
+        double b = a+width*0.4*random.nextDouble(), d = a+width, c = d-width*0.4*random.nextDouble();
+        double shrink = (b-a)*random.nextDouble();
+        double height = 0.3+0.7*random.nextDouble();
+        return new IntervalT2MF_Trapezoidal(name, new T1MF_Trapezoidal("upper", new double[]{a, b, c, d}),
+                new T1MF_Trapezoidal("lower", new double[]{a+shrink, b, c, d-shrink}, new double[]{height, height}));
+    }
+}
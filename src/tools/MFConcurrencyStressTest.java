@@ -0,0 +1,378 @@
+/*
+ * MFConcurrencyStressTest.java
+ *
+ * Queries shared membership functions from many threads at once.
+ */
+package tools;
+
+import generalType2zSlices.sets.GenT2zMF_CylExtension;
+import generalType2zSlices.sets.GenT2zMF_Gaussian;
+import generalType2zSlices.sets.GenT2zMF_Interface;
+import generalType2zSlices.sets.GenT2zMF_Trapezoidal;
+import generalType2zSlices.sets.GenT2zMF_Triangular;
+import generic.MF_Interface;
+import generic.Tuple;
+import intervalType2.sets.IntervalT2MF_Cylinder;
+import intervalType2.sets.IntervalT2MF_Gauangle;
+import intervalType2.sets.IntervalT2MF_Gaussian;
+import intervalType2.sets.IntervalT2MF_Interface;
+import intervalType2.sets.IntervalT2MF_Intersection;
+import intervalType2.sets.IntervalT2MF_Trapezoidal;
+import intervalType2.sets.IntervalT2MF_Triangular;
+import intervalType2.sets.IntervalT2MF_Union;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Random;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicLong;
+import type1.sets.T1MF_Cylinder;
+import type1.sets.T1MF_Discretized;
+import type1.sets.T1MF_Gauangle;
+import type1.sets.T1MF_Gaussian;
+import type1.sets.T1MF_Interface;
+import type1.sets.T1MF_Intersection;
+import type1.sets.T1MF_Meet;
+import type1.sets.T1MF_PiecewiseLinear;
+import type1.sets.T1MF_Singleton;
+import type1.sets.T1MF_Trapezoidal;
+import type1.sets.T1MF_Triangular;
+import type1.sets.T1MF_Union;
+
+/**
+ * Stress test for sharing membership functions between threads. It checks
+ * that concurrent queries of one instance give exactly the results of the
+ * same queries made single threaded, in two phases:
+ * <ul>
+ * <li>frozen: one set of each type-1, interval and zSlices type-2 class is
+ * built, its results on a grid over [0,10] are recorded, the sets are frozen
+ * and all threads then query them in random order;</li>
+ * <li>first use: in every round fresh sets which compute parts of their state
+ * lazily (e.g. T1MF_Discretized sorts its points on first read) are released
+ * to all threads at once without being frozen.</li>
+ * </ul>
+ * The queries cover getFS(), the support and, where supported, the alpha-cuts
+ * of type-1 sets, the lower and upper memberships of interval type-2 sets and
+ * the vertical slices of zSlices sets. Run with
+ * <pre>
+ *     java tools.MFConcurrencyStressTest [threads] [rounds]
+ * </pre>
+ * which exits with status 1 if any result differed or a query failed.
+ * @author Rafael Bastos
+ */
+public class MFConcurrencyStressTest
+{
+    private static final double DOMAIN = 10.0;
+    private static final int GRID = 101;
+    private static final int Z_LEVELS = 8;
+
+    private final int numberOfThreads;
+    private final int rounds;
+    private final AtomicLong queries = new AtomicLong();
+    private final AtomicLong failures = new AtomicLong();
+    private volatile String firstFailure = null;
+
+    public MFConcurrencyStressTest(int numberOfThreads, int rounds)
+    {
+        this.numberOfThreads = numberOfThreads;
+        this.rounds = rounds;
+    }
+
+    public static void main(String[] args) throws InterruptedException
+    {
+        int threads = args.length>0 ? Integer.parseInt(args[0]) : Math.max(4, Runtime.getRuntime().availableProcessors());
+        int rounds = args.length>1 ? Integer.parseInt(args[1]) : 200;
+        MFConcurrencyStressTest test = new MFConcurrencyStressTest(threads, rounds);
+        long failed = test.run();
+        System.out.println(test.getNumberOfQueries()+" queries from "+threads+" threads, "+failed+" failures");
+        if(failed>0)
+        {
+            System.out.println("First failure: "+test.getFirstFailure());
+            System.exit(1);
+        }
+    }
+
+    /**
+     * Runs both phases.
+     * @return The number of queries which failed.
+     */
+    public long run() throws InterruptedException
+    {
+        ExecutorService executor = Executors.newFixedThreadPool(numberOfThreads);
+        try
+        {
+            runFrozen(executor);
+            runFirstUse(executor);
+        }
+        finally
+        {
+            executor.shutdown();
+        }
+        return failures.get();
+    }
+
+    public long getNumberOfQueries()
+    {
+        return queries.get();
+    }
+
+    public String getFirstFailure()
+    {
+        return firstFailure;
+    }
+
+    private void runFrozen(ExecutorService executor) throws InterruptedException
+    {
+        final ArrayList<Subject> subjects = buildSubjects();
+        for(Subject s : subjects)
+            s.set.freeze();
+        //freezing must not change any result
+        for(Subject s : subjects)
+            for(int i=0;i<GRID;i++)
+                check(s, i);
+
+        ArrayList<Future<?>> futures = new ArrayList<>();
+        for(int t=0;t<numberOfThreads;t++)
+        {
+            final long seed = t;
+            futures.add(executor.submit(new Runnable()
+            {
+                public void run()
+                {
+                    Random random = new Random(seed);
+                    for(int r=0;r<rounds*GRID;r++)
+                        check(subjects.get(random.nextInt(subjects.size())), random.nextInt(GRID));
+                }
+            }));
+        }
+        await(futures);
+    }
+
+    private void runFirstUse(ExecutorService executor) throws InterruptedException
+    {
+        ArrayList<T1MF_Interface> sets = buildLazySets(new Random(0));
+        final ArrayList<Subject> reference = new ArrayList<>();
+        for(T1MF_Interface set : sets)
+            reference.add(new Subject(set, true));
+        final CyclicBarrier barrier = new CyclicBarrier(numberOfThreads);
+        for(int r=0;r<rounds;r++)
+        {
+            //fresh, unfrozen and unused sets which take the results of the reference sets
+            sets = buildLazySets(new Random(r+1));
+            final ArrayList<Subject> fresh = new ArrayList<>();
+            for(int s=0;s<sets.size();s++)
+                fresh.add(new Subject(sets.get(s), true, reference.get(s).expected));
+            barrier.reset();
+            ArrayList<Future<?>> futures = new ArrayList<>();
+            for(int t=0;t<numberOfThreads;t++)
+            {
+                final long seed = r*numberOfThreads+t;
+                futures.add(executor.submit(new Runnable()
+                {
+                    public void run()
+                    {
+                        try
+                        {
+                            barrier.await();
+                        }
+                        catch(Exception e)
+                        {
+                            fail("barrier: "+e);
+                            return;
+                        }
+                        Random random = new Random(seed);
+                        for(int i=0;i<GRID;i++)
+                            check(fresh.get(random.nextInt(fresh.size())), random.nextInt(GRID));
+                    }
+                }));
+            }
+            await(futures);
+        }
+    }
+
+    private void await(ArrayList<Future<?>> futures) throws InterruptedException
+    {
+        for(Future<?> f : futures)
+        {
+            try
+            {
+                f.get();
+            }
+            catch(ExecutionException e)
+            {
+                fail("worker: "+e.getCause());
+            }
+        }
+    }
+
+    private void check(Subject s, int point)
+    {
+        queries.incrementAndGet();
+        try
+        {
+            double[] result = s.query(point*DOMAIN/(GRID-1));
+            if(!Arrays.equals(result, s.expected[point]))
+                fail(s.name+" at x="+point*DOMAIN/(GRID-1)+": "+Arrays.toString(result)
+                        +" instead of "+Arrays.toString(s.expected[point]));
+        }
+        catch(RuntimeException e)
+        {
+            fail(s.name+" at x="+point*DOMAIN/(GRID-1)+": "+e);
+        }
+    }
+
+    private void fail(String message)
+    {
+        if(failures.incrementAndGet()==1)
+            firstFailure = message;
+    }
+
+    private static ArrayList<Subject> buildSubjects()
+    {
+        ArrayList<Subject> subjects = new ArrayList<>();
+        T1MF_Triangular triangular = new T1MF_Triangular("triangular", 1.0, 4.0, 7.0);
+        T1MF_Trapezoidal trapezoidal = new T1MF_Trapezoidal("trapezoidal", new double[]{2.0, 4.0, 6.0, 9.0});
+        T1MF_Gaussian gaussian = new T1MF_Gaussian("gaussian", 5.0, 1.5);
+        subjects.add(new Subject(triangular, true));
+        subjects.add(new Subject(trapezoidal, true));
+        subjects.add(new Subject(gaussian, false));
+        subjects.add(new Subject(new T1MF_Gauangle("gauangle", 1.0, 5.0, 9.0), false));
+        subjects.add(new Subject(new T1MF_Singleton("singleton", 4.0), true));
+        subjects.add(new Subject(new T1MF_Cylinder("cylinder", 0.7), true));
+        subjects.add(new Subject(buildDiscretized(new Random(0)), true));
+        subjects.add(new Subject(new T1MF_PiecewiseLinear("piecewise", new double[]{0.5, 2.0, 2.0, 6.0, 9.5},
+                new double[]{0.0, 0.4, 0.8, 1.0, 0.0}), true));
+        subjects.add(new Subject(new T1MF_Meet(triangular, trapezoidal), true));
+        //sampled meet: its alpha-cuts take 10^4 evaluations each
+        subjects.add(new Subject(new T1MF_Meet(gaussian, triangular), false));
+        subjects.add(new Subject(new T1MF_Intersection("intersection", triangular, gaussian), false));
+        subjects.add(new Subject(new T1MF_Union(trapezoidal, gaussian), false));
+
+        IntervalT2MF_Triangular it2Triangular = new IntervalT2MF_Triangular("it2Triangular",
+                new T1MF_Triangular("upper", 1.0, 4.0, 8.0), new T1MF_Triangular("lower", 2.0, 4.0, 7.0));
+        IntervalT2MF_Gaussian it2Gaussian = new IntervalT2MF_Gaussian("it2Gaussian",
+                new T1MF_Gaussian("upper", 5.5, 1.5), new T1MF_Gaussian("lower", 5.0, 1.0));
+        IntervalT2MF_Trapezoidal it2Trapezoidal = new IntervalT2MF_Trapezoidal("it2Trapezoidal",
+                new T1MF_Trapezoidal("upper", new double[]{1.0, 3.0, 6.0, 9.0}),
+                new T1MF_Trapezoidal("lower", new double[]{2.0, 4.0, 5.0, 8.0}, new double[]{0.7, 0.7}));
+        subjects.add(new Subject(it2Triangular));
+        subjects.add(new Subject(it2Gaussian));
+        subjects.add(new Subject(it2Trapezoidal));
+        subjects.add(new Subject(new IntervalT2MF_Gauangle("it2Gauangle",
+                new T1MF_Gauangle("upper", 1.0, 5.0, 9.0), new T1MF_Gauangle("lower", 2.0, 5.0, 8.0))));
+        subjects.add(new Subject(new IntervalT2MF_Cylinder("it2Cylinder", new Tuple(0.2, 0.6))));
+        subjects.add(new Subject(new IntervalT2MF_Intersection(it2Triangular, it2Gaussian)));
+        subjects.add(new Subject(new IntervalT2MF_Union(it2Trapezoidal, it2Gaussian)));
+
+        subjects.add(new Subject(new GenT2zMF_Triangular("zTriangular", new IntervalT2MF_Triangular("primer",
+                new T1MF_Triangular("upper", 1.0, 4.0, 8.0), new T1MF_Triangular("lower", 2.0, 4.0, 7.0)), Z_LEVELS)));
+        subjects.add(new Subject(new GenT2zMF_Gaussian("zGaussian", new IntervalT2MF_Gaussian("primer",
+                new T1MF_Gaussian("upper", 5.0, 2.0), new T1MF_Gaussian("lower", 5.0, 1.0)), Z_LEVELS)));
+        subjects.add(new Subject(new GenT2zMF_Trapezoidal("zTrapezoidal", new IntervalT2MF_Trapezoidal("primer",
+                new T1MF_Trapezoidal("upper", new double[]{1.0, 3.0, 6.0, 9.0}),
+                new T1MF_Trapezoidal("lower", new double[]{2.0, 4.0, 5.0, 8.0})), Z_LEVELS)));
+        subjects.add(new Subject(new GenT2zMF_CylExtension(new T1MF_Triangular("base", 0.0, 0.5, 1.0), Z_LEVELS)));
+        return subjects;
+    }
+
+    /**
+     * Sets which compute part of their state on first use; equal for every
+     * seed apart from the order their points are added in.
+     */
+    private static ArrayList<T1MF_Interface> buildLazySets(Random random)
+    {
+        ArrayList<T1MF_Interface> sets = new ArrayList<>();
+        sets.add(buildDiscretized(random));
+        sets.add(new T1MF_Triangular("triangular", 1.0, 4.0, 7.0));
+        sets.add(new T1MF_Trapezoidal("trapezoidal", new double[]{2.0, 4.0, 6.0, 9.0}));
+        return sets;
+    }
+
+    private static T1MF_Discretized buildDiscretized(Random random)
+    {
+        ArrayList<Tuple> points = new ArrayList<>();
+        for(int i=0;i<=40;i++)
+        {
+            double x = 1.0+i*0.2;
+            points.add(new Tuple(Math.max(0.0, 1.0-Math.abs(x-5.0)/4.0), x));
+        }
+        Collections.shuffle(points, random);
+        T1MF_Discretized set = new T1MF_Discretized("discretized", points.size());
+        for(Tuple p : points)
+            set.addPoint(p);
+        return set;
+    }
+
+    /**
+     * A set together with its results on the grid.
+     */
+    private static class Subject
+    {
+        private final MF_Interface set;
+        private final String name;
+        private final boolean alphaCuts;
+        private final double[][] expected;
+
+        Subject(MF_Interface set)
+        {
+            this(set, false);
+        }
+
+        /**
+         * Records the results of the set, which are computed single threaded.
+         */
+        Subject(MF_Interface set, boolean alphaCuts)
+        {
+            this(set, alphaCuts, new double[GRID][]);
+            for(int i=0;i<GRID;i++)
+                expected[i] = query(i*DOMAIN/(GRID-1));
+        }
+
+        /**
+         * Uses the results recorded for an equal set, leaving the set unused.
+         */
+        Subject(MF_Interface set, boolean alphaCuts, double[][] expected)
+        {
+            this.set = set;
+            this.name = set.getClass().getSimpleName()+" "+set.getName();
+            this.alphaCuts = alphaCuts;
+            this.expected = expected;
+        }
+
+        double[] query(double x)
+        {
+            if(set instanceof T1MF_Interface)
+            {
+                T1MF_Interface t1 = (T1MF_Interface)set;
+                Tuple support = t1.getSupport();
+                Tuple cut = alphaCuts ? t1.getAlphaCut(Math.max(0.05, x/DOMAIN)) : null;
+                if(cut==null)
+                    cut = new Tuple(Double.NaN, Double.NaN);
+                return new double[]{t1.getFS(x), support.getLeft(), support.getRight(), cut.getLeft(), cut.getRight()};
+            }
+            if(set instanceof IntervalT2MF_Interface)
+            {
+                IntervalT2MF_Interface it2 = (IntervalT2MF_Interface)set;
+                Tuple fs = it2.getFS(x);
+                Tuple support = it2.getSupport();
+                return new double[]{fs.getLeft(), fs.getRight(), it2.getLowerBound(x), it2.getUpperBound(x),
+                    support==null ? Double.NaN : support.getLeft(), support==null ? Double.NaN : support.getRight()};
+            }
+            GenT2zMF_Interface gt2 = (GenT2zMF_Interface)set;
+            int levels = gt2.getNumberOfSlices();
+            double[] z = new double[levels], lower = new double[levels], upper = new double[levels];
+            int n = gt2.getVerticalSlice(x, z, lower, upper);
+            double[] result = new double[3*levels+2];
+            System.arraycopy(z, 0, result, 0, n);
+            System.arraycopy(lower, 0, result, levels, n);
+            System.arraycopy(upper, 0, result, 2*levels, n);
+            result[3*levels] = n;
+            result[3*levels+1] = gt2.getFSWeightedAverage(x);
+            return result;
+        }
+    }
+}
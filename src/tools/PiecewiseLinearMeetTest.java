@@ -0,0 +1,190 @@
+/*
+ * PiecewiseLinearMeetTest.java
+ *
+ * Rafael Bastos
+ */
+package tools;
+
+import generic.Tuple;
+import type1.sets.T1MF_Interface;
+import type1.sets.T1MF_Meet;
+import type1.sets.T1MF_PiecewiseLinear;
+import type1.sets.T1MF_Prototype;
+import type1.sets.T1MF_Trapezoidal;
+import type1.sets.T1MF_Triangular;
+import java.util.Random;
+
+/**
+ * Test for the exact meet of piecewise linear type-1 sets (see
+ * T1MF_PiecewiseLinear.getMeet()). T1MF_Meet computes the meet of two
+ * triangular or trapezoidal sets exactly, and that of sets which are not
+ * piecewise linear by sampling them; both must describe the same set. For
+ * random pairs of normal triangles, normal trapezoids and trapezoids with
+ * flat tops below 1, the meet is built from the sets themselves and from
+ * wrappers which hide their type, and
+ * <ul>
+ * <li>the supports must be equal;</li>
+ * <li>the memberships must agree on a grid, except within two sampling
+ * steps of the peaks, which the sampled meet only finds up to its
+ * resolution.</li>
+ * </ul>
+ * Run with
+ * <pre>
+ *     java tools.PiecewiseLinearMeetTest [seed]
+ * </pre>
+ * which exits with status 1 if any result differed.
+ * @author Rafael Bastos
+ */
+public class PiecewiseLinearMeetTest
+{
+    private static final double DOMAIN = 10.0;
+    private static final int PAIRS = 2000;
+    private static final int GRID = 1001;
+    /** the resolution at which T1MF_Meet samples the peaks */
+    private static final int SAMPLES = 10000;
+    /** T1MF_Trapezoidal rounds memberships within 1e-6 of 0 and 1 */
+    private static final double TOLERANCE = 1e-6;
+
+    private final Random random;
+    private long comparisons = 0;
+    private long failures = 0;
+    private String firstFailure = null;
+
+    public PiecewiseLinearMeetTest(long seed)
+    {
+        this.random = new Random(seed);
+    }
+
+    public static void main(String[] args)
+    {
+        long seed = args.length>0 ? Long.parseLong(args[0]) : 42;
+        PiecewiseLinearMeetTest test = new PiecewiseLinearMeetTest(seed);
+        long failed = test.run();
+        System.out.println(test.getNumberOfComparisons()+" comparisons, "+failed+" failures");
+        if(failed>0)
+        {
+            System.out.println("First failure: "+test.getFirstFailure());
+            System.exit(1);
+        }
+    }
+
+    /**
+     * Runs all checks.
+     * @return The number of results which differed between both meets.
+     */
+    public long run()
+    {
+        for(int i=0;i<PAIRS;i++)
+            checkMeet(randomSet("a"+i), randomSet("b"+i));
+        return failures;
+    }
+
+    public long getNumberOfComparisons()
+    {
+        return comparisons;
+    }
+
+    public String getFirstFailure()
+    {
+        return firstFailure;
+    }
+
+    private void checkMeet(T1MF_Interface a, T1MF_Interface b)
+    {
+        T1MF_Meet exact = new T1MF_Meet(a, b);
+        T1MF_Meet sampled = new T1MF_Meet(new Hidden(a), new Hidden(b));
+        String subject = exact.getName();
+        if(exact.getPiecewiseLinear()==null || sampled.getPiecewiseLinear()!=null)
+        {
+            fail(subject+": not computed exactly and by sampling");
+            return;
+        }
+
+        comparisons++;
+        Tuple exactSupport = exact.getSupport(), sampledSupport = sampled.getSupport();
+        if(exactSupport.getLeft()!=sampledSupport.getLeft() || exactSupport.getRight()!=sampledSupport.getRight())
+            fail(subject+": support "+exactSupport+", sampled "+sampledSupport);
+
+        double[] peaks = new double[]{T1MF_PiecewiseLinear.valueOf(a).getMaximumPosition(),
+            T1MF_PiecewiseLinear.valueOf(b).getMaximumPosition()};
+        double[] steps = new double[]{a.getSupport().getSize()/(SAMPLES-1), b.getSupport().getSize()/(SAMPLES-1)};
+        for(int i=0;i<GRID;i++)
+        {
+            double x = -1.0+i*(DOMAIN+2.0)/(GRID-1);
+            if(Math.abs(x-peaks[0])<=2*steps[0] || Math.abs(x-peaks[1])<=2*steps[1])
+                continue;
+            comparisons++;
+            double e = exact.getFS(x), s = sampled.getFS(x);
+            if(!(Math.abs(e-s)<=TOLERANCE))
+                fail(subject+" at "+x+": "+e+", sampled "+s);
+        }
+    }
+
+    private void fail(String message)
+    {
+        failures++;
+        if(firstFailure==null)
+            firstFailure = message;
+    }
+
+    private T1MF_Interface randomSet(String name)
+    {
+        double a = random.nextDouble()*DOMAIN*0.6, width = 1+random.nextDouble()*3;
+        switch(random.nextInt(3))
+        {
+            case 0:
+                return new T1MF_Triangular(name, a, a+width*(0.1+0.8*random.nextDouble()), a+width);
+            case 1:
+            {
+                double b = a+width*0.4*random.nextDouble(), d = a+width, c = d-width*0.4*random.nextDouble();
+                return new T1MF_Trapezoidal(name, new double[]{a, b, c, d});
+            }
+            default:
+            {
+                double b = a+width*0.4*random.nextDouble(), d = a+width, c = d-width*0.4*random.nextDouble();
+                double height = 0.2+0.7*random.nextDouble();
+                return new T1MF_Trapezoidal(name, new double[]{a, b, c, d}, new double[]{height, height});
+            }
+        }
+    }
+
+    /**
+     * Hides the type of a set, so that T1MF_Meet samples it.
+     */
+    private static class Hidden extends T1MF_Prototype
+    {
+        private static final long serialVersionUID = 1L;
+        private final T1MF_Interface set;
+
+        Hidden(T1MF_Interface set)
+        {
+            super(set.getName());
+            this.set = set;
+            this.support = set.getSupport();
+        }
+
+        @Override
+        public double getFS(double x)
+        {
+            return set.getFS(x);
+        }
+
+        @Override
+        public Tuple getAlphaCut(double alpha)
+        {
+            return set.getAlphaCut(alpha);
+        }
+
+        @Override
+        public double getPeak()
+        {
+            return set.getPeak();
+        }
+
+        @Override
+        public int compareTo(Object o)
+        {
+            return Double.compare(getPeak(), ((T1MF_Interface)o).getPeak());
+        }
+    }
+}
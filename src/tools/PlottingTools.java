@@ -51,23 +51,28 @@ public class PlottingTools
         {
             Arrays.fill(((double[][]) result[2])[i],0.0);
         }
-        // then, go through every slice of the set and update z[][]
-        int nZ = sets[0].getNumberOfSlices(); // every set should have the same number of slices
-        double zValue;
-        Tuple temp;
+        // then, go through the vertical slices of every set and update z[][]
+        int nZ = 0;
         for (int s = 0; s < sets.length; s++) 
         {
-            for (int k = 0; k < nZ; k++) 
+            nZ = Math.max(nZ, sets[s].getNumberOfSlices());
+        }
+        double[] zValues = new double[nZ], lower = new double[nZ], upper = new double[nZ];
+        double[] x = (double[]) result[0], y = (double[]) result[1];
+        double[][] z = (double[][]) result[2];
+        int n;
+        for (int s = 0; s < sets.length; s++) 
+        {
+            for (int i = 0; i < xDisc; i++) 
             {
-                zValue = sets[s].getZValue(k);
-                for (int i = 0; i < xDisc; i++) 
+                n = sets[s].getVerticalSlice(x[i], zValues, lower, upper);
+                for (int k = 0; k < n; k++) 
                 {
-                    temp = sets[s].getZSlice(k).getFS(((double[]) result[0])[i]);
                     for (int j = 0; j < yDisc; j++) 
                     {
-                        if (((double[]) result[1])[j] >= temp.getLeft() && ((double[]) result[1])[j] <= temp.getRight()) 
+                        if (y[j] >= lower[k] && y[j] <= upper[k]) 
                         {
-                            ((double[][]) result[2])[i][j] = Math.max(zValue, ((double[][]) result[2])[i][j]);
+                            z[i][j] = Math.max(zValues[k], z[i][j]);
                         }
                     }
                 }
@@ -0,0 +1,293 @@
+/*
+ * InferenceMetrics.java
+ *
+ * Rafael Bastos
+ */
+package tools.metrics;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+/**
+ * Instrumentation of the inference engines. Disabled by default, in which
+ * case every hook costs a single volatile read: start() returns DISABLED and
+ * all record methods return immediately.
+ * Once enabled, the rulebases and the centroid engine report the latency of
+ * their stages, the Karnik-Mendel iterations, the number of rules fired and
+ * the bytes allocated per evaluation (where the JVM supports per-thread
+ * allocation counters) to a MetricsRecorder. The data can be read through
+ * getRecorder(), via JMX after registerMBean() and over HTTP with a
+ * MetricsHttpServer.
+ * Hooks are used like:
+ * <pre>
+ *     long t = InferenceMetrics.start();
+ *     ...
+ *     InferenceMetrics.stop(InferenceMetrics.FIRING, t);
+ * </pre>
+ * @author Rafael Bastos
+ */
+public final class InferenceMetrics
+{
+    /** A whole IT2 or T1 evaluation. */
+    public static final int EVALUATION = 0;
+    /** Computing the antecedent memberships (where done separately). */
+    public static final int FUZZIFICATION = 1;
+    /** Computing the rule firing strengths. */
+    public static final int FIRING = 2;
+    /** Combining the fired consequents into the output set(s). */
+    public static final int AGGREGATION = 3;
+    /** Centroid or center of sets type reduction. */
+    public static final int TYPE_REDUCTION = 4;
+    /** Sorting the consequent centroids for center of sets type reduction (once per rulebase layout). */
+    public static final int COS_SORT = 5;
+    /** One Karnik-Mendel centroid computation. */
+    public static final int KARNIK_MENDEL = 6;
+    /** Type-1 defuzzification. */
+    public static final int DEFUZZIFICATION = 7;
+    /** A whole zSlices based general type-2 evaluation. */
+    public static final int ZSLICES = 8;
+    public static final int NUMBER_OF_STAGES = 9;
+
+    private static final String[] STAGE_NAMES = new String[]{"evaluation", "fuzzification", "firing",
+        "aggregation", "typeReduction", "cosSort", "karnikMendel", "defuzzification", "zSlices"};
+
+    /** Returned by start() and startAllocation() while disabled. */
+    public static final long DISABLED = Long.MIN_VALUE;
+
+    private static volatile MetricsRecorder active = null;
+    private static MetricsRecorder recorder = null;  //kept while disabled
+    private static com.sun.management.ThreadMXBean allocationCounter = null;
+    private static ObjectName mBeanName = null;
+
+    private InferenceMetrics()
+    {
+    }
+
+    /**
+     * Starts recording (continuing with the data recorded so far, if any).
+     * @return The recorder the data is collected in.
+     */
+    public static synchronized MetricsRecorder enable()
+    {
+        if(recorder==null)
+            recorder = new MetricsRecorder();
+        ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+        if(threads instanceof com.sun.management.ThreadMXBean
+                && ((com.sun.management.ThreadMXBean)threads).isThreadAllocatedMemorySupported())
+        {
+            allocationCounter = (com.sun.management.ThreadMXBean)threads;
+            allocationCounter.setThreadAllocatedMemoryEnabled(true);
+        }
+        active = recorder;
+        return recorder;
+    }
+
+    /**
+     * Stops recording; the data recorded so far remains available.
+     */
+    public static synchronized void disable()
+    {
+        active = null;
+    }
+
+    public static boolean isEnabled()
+    {
+        return active!=null;
+    }
+
+    /**
+     * @return The recorder, or null if metrics have never been enabled.
+     */
+    public static synchronized MetricsRecorder getRecorder()
+    {
+        return recorder;
+    }
+
+    public static String getStageName(int stage)
+    {
+        return STAGE_NAMES[stage];
+    }
+
+    /**
+     * @return The start time of a stage, or DISABLED.
+     */
+    public static long start()
+    {
+        return active==null ? DISABLED : System.nanoTime();
+    }
+
+    /**
+     * Records the latency of a stage started with start().
+     */
+    public static void stop(int stage, long start)
+    {
+        MetricsRecorder r = active;
+        if(r!=null && start!=DISABLED)
+            r.recordLatency(stage, System.nanoTime()-start);
+    }
+
+    /**
+     * @return The bytes allocated by the current thread so far, or DISABLED.
+     */
+    public static long startAllocation()
+    {
+        if(active==null || allocationCounter==null)
+            return DISABLED;
+        return allocationCounter.getThreadAllocatedBytes(Thread.currentThread().getId());
+    }
+
+    /**
+     * Records the bytes allocated by the current thread since startAllocation().
+     */
+    public static void stopAllocation(int stage, long start)
+    {
+        MetricsRecorder r = active;
+        if(r!=null && start!=DISABLED && start>=0)
+        {
+            long now = allocationCounter.getThreadAllocatedBytes(Thread.currentThread().getId());
+            if(now>=0)
+                r.recordAllocation(stage, now-start);
+        }
+    }
+
+    public static void recordKMIterations(int left, int right)
+    {
+        MetricsRecorder r = active;
+        if(r!=null)
+            r.recordKMIterations(left, right);
+    }
+
+    public static void recordRulesFired(int fired)
+    {
+        MetricsRecorder r = active;
+        if(r!=null)
+            r.recordRulesFired(fired);
+    }
+
+    /**
+     * Registers the metrics with the platform MBean server as
+     * "fuzzy:type=InferenceMetrics" (once; later calls return the same name).
+     * Registering does not enable recording.
+     */
+    public static synchronized ObjectName registerMBean() throws JMException
+    {
+        if(mBeanName==null)
+        {
+            MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+            ObjectName name = new ObjectName("fuzzy:type=InferenceMetrics");
+            server.registerMBean(new MXBean(), name);
+            mBeanName = name;
+        }
+        return mBeanName;
+    }
+
+    private static class MXBean implements InferenceMetricsMXBean
+    {
+        public boolean isEnabled()
+        {
+            return InferenceMetrics.isEnabled();
+        }
+
+        public void setEnabled(boolean enabled)
+        {
+            if(enabled)
+                enable();
+            else
+                disable();
+        }
+
+        public void reset()
+        {
+            MetricsRecorder r = getRecorder();
+            if(r!=null)
+                r.reset();
+        }
+
+        public String[] getStages()
+        {
+            return STAGE_NAMES.clone();
+        }
+
+        public long[] getStageCounts()
+        {
+            long[] values = new long[NUMBER_OF_STAGES];
+            MetricsRecorder r = getRecorder();
+            for(int i=0;r!=null && i<values.length;i++)
+                values[i] = r.getLatency(i).getCount();
+            return values;
+        }
+
+        public double[] getStageMeanNanos()
+        {
+            double[] values = new double[NUMBER_OF_STAGES];
+            MetricsRecorder r = getRecorder();
+            for(int i=0;r!=null && i<values.length;i++)
+                values[i] = r.getLatency(i).getMean();
+            return values;
+        }
+
+        public long[] getStageP50Nanos()
+        {
+            return getStagePercentiles(50);
+        }
+
+        public long[] getStageP99Nanos()
+        {
+            return getStagePercentiles(99);
+        }
+
+        public long[] getStageMaxNanos()
+        {
+            long[] values = new long[NUMBER_OF_STAGES];
+            MetricsRecorder r = getRecorder();
+            for(int i=0;r!=null && i<values.length;i++)
+                values[i] = r.getLatency(i).getMax();
+            return values;
+        }
+
+        private long[] getStagePercentiles(double p)
+        {
+            long[] values = new long[NUMBER_OF_STAGES];
+            MetricsRecorder r = getRecorder();
+            for(int i=0;r!=null && i<values.length;i++)
+                values[i] = r.getLatency(i).getPercentile(p);
+            return values;
+        }
+
+        public double[] getStageMeanAllocatedBytes()
+        {
+            double[] values = new double[NUMBER_OF_STAGES];
+            MetricsRecorder r = getRecorder();
+            for(int i=0;r!=null && i<values.length;i++)
+                values[i] = r.getAllocation(i).getMean();
+            return values;
+        }
+
+        public double getMeanKMIterationsLeft()
+        {
+            MetricsRecorder r = getRecorder();
+            return r==null ? 0.0 : r.getKMIterationsLeft().getMean();
+        }
+
+        public double getMeanKMIterationsRight()
+        {
+            MetricsRecorder r = getRecorder();
+            return r==null ? 0.0 : r.getKMIterationsRight().getMean();
+        }
+
+        public long[] getRulesFiredDistribution()
+        {
+            MetricsRecorder r = getRecorder();
+            return r==null ? new long[0] : r.getRulesFiredDistribution();
+        }
+
+        public String getJSON()
+        {
+            MetricsRecorder r = getRecorder();
+            return r==null ? "{}" : r.toJSON();
+        }
+    }
+}
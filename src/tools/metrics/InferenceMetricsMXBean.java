@@ -0,0 +1,35 @@
+/*
+ * InferenceMetricsMXBean.java
+ *
+ * Rafael Bastos
+ */
+package tools.metrics;
+
+/**
+ * JMX view of InferenceMetrics. Per-stage arrays are indexed like
+ * getStages(); latencies are given in nanoseconds.
+ * @author Rafael Bastos
+ */
+public interface InferenceMetricsMXBean
+{
+    public boolean isEnabled();
+    public void setEnabled(boolean enabled);
+    public void reset();
+
+    public String[] getStages();
+    public long[] getStageCounts();
+    public double[] getStageMeanNanos();
+    public long[] getStageP50Nanos();
+    public long[] getStageP99Nanos();
+    public long[] getStageMaxNanos();
+    public double[] getStageMeanAllocatedBytes();
+
+    public double getMeanKMIterationsLeft();
+    public double getMeanKMIterationsRight();
+    public long[] getRulesFiredDistribution();
+
+    /**
+     * @return All data as returned by MetricsRecorder.toJSON().
+     */
+    public String getJSON();
+}
@@ -0,0 +1,119 @@
+/*
+ * Log2Histogram.java
+ *
+ * Rafael Bastos
+ */
+package tools.metrics;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * A lock-free histogram of non-negative long values (latencies in
+ * nanoseconds, byte counts, iteration counts) with power-of-two buckets:
+ * bucket 0 counts zeros, bucket b the values in [2^(b-1), 2^b - 1].
+ * Count, sum and maximum are kept exactly, percentiles are approximated by
+ * the upper bound of the bucket they fall into (i.e. within a factor of two).
+ * @author Rafael Bastos
+ */
+public class Log2Histogram
+{
+    public static final int NUMBER_OF_BUCKETS = 64;
+
+    private final AtomicLongArray buckets = new AtomicLongArray(NUMBER_OF_BUCKETS);
+    private final AtomicLong count = new AtomicLong();
+    private final AtomicLong sum = new AtomicLong();
+    private final AtomicLong max = new AtomicLong();
+
+    public void record(long value)
+    {
+        if(value<0)
+            value = 0;
+        buckets.incrementAndGet(64-Long.numberOfLeadingZeros(value));
+        count.incrementAndGet();
+        sum.addAndGet(value);
+        long m = max.get();
+        while(value>m && !max.compareAndSet(m, value))
+            m = max.get();
+    }
+
+    public long getCount()
+    {
+        return count.get();
+    }
+
+    public long getSum()
+    {
+        return sum.get();
+    }
+
+    public long getMax()
+    {
+        return max.get();
+    }
+
+    public double getMean()
+    {
+        long n = count.get();
+        return n==0 ? 0.0 : (double)sum.get()/n;
+    }
+
+    /**
+     * @param p The percentile, between 0 and 100.
+     * @return The upper bound of the bucket holding the given percentile, 0 if
+     * nothing has been recorded.
+     */
+    public long getPercentile(double p)
+    {
+        long n = 0;
+        long[] snapshot = getBuckets();
+        for(int b=0;b<NUMBER_OF_BUCKETS;b++)
+            n += snapshot[b];
+        long rank = (long)Math.ceil(p/100.0*n);
+        long seen = 0;
+        for(int b=0;b<NUMBER_OF_BUCKETS;b++)
+        {
+            seen += snapshot[b];
+            if(seen>=rank && seen>0)
+                return Math.min(getUpperBound(b), max.get());
+        }
+        return 0;
+    }
+
+    /**
+     * @return The largest value counted in the given bucket.
+     */
+    public static long getUpperBound(int bucket)
+    {
+        return bucket>=63 ? Long.MAX_VALUE : (1L<<bucket)-1;
+    }
+
+    public long[] getBuckets()
+    {
+        long[] snapshot = new long[NUMBER_OF_BUCKETS];
+        for(int b=0;b<NUMBER_OF_BUCKETS;b++)
+            snapshot[b] = buckets.get(b);
+        return snapshot;
+    }
+
+    public void reset()
+    {
+        for(int b=0;b<NUMBER_OF_BUCKETS;b++)
+            buckets.set(b, 0);
+        count.set(0);
+        sum.set(0);
+        max.set(0);
+    }
+
+    /**
+     * Appends count, mean, p50, p99 and max as JSON object.
+     */
+    void appendJSON(StringBuilder s)
+    {
+        s.append("{\"count\":").append(getCount())
+                .append(",\"mean\":").append(getMean())
+                .append(",\"p50\":").append(getPercentile(50))
+                .append(",\"p99\":").append(getPercentile(99))
+                .append(",\"max\":").append(getMax()).append('}');
+    }
+}
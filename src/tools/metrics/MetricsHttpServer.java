@@ -0,0 +1,64 @@
+/*
+ * MetricsHttpServer.java
+ *
+ * Rafael Bastos
+ */
+package tools.metrics;
+
+import java.io.IOException;
+import org.glassfish.grizzly.http.Method;
+import org.glassfish.grizzly.http.server.HttpHandler;
+import org.glassfish.grizzly.http.server.HttpServer;
+import org.glassfish.grizzly.http.server.Request;
+import org.glassfish.grizzly.http.server.Response;
+
+/**
+ * Serves the data of InferenceMetrics as JSON over HTTP using the embedded
+ * Grizzly server: GET /metrics returns MetricsRecorder.toJSON(), POST
+ * /metrics/reset clears the data. The server is optional - nothing is started
+ * unless start() is called - and does not enable recording by itself.
+ * @author Rafael Bastos
+ */
+public class MetricsHttpServer
+{
+    private final HttpServer server;
+
+    /**
+     * @param host The host name or address to bind to, e.g. "localhost".
+     */
+    public MetricsHttpServer(String host, int port)
+    {
+        server = HttpServer.createSimpleServer(null, host, port);
+        server.getServerConfiguration().addHttpHandler(new HttpHandler()
+        {
+            @Override
+            public void service(Request request, Response response) throws Exception
+            {
+                MetricsRecorder r = InferenceMetrics.getRecorder();
+                if(request.getRequestURI().endsWith("/reset"))
+                {
+                    if(request.getMethod()!=Method.POST)
+                    {
+                        response.setStatus(405);
+                        return;
+                    }
+                    if(r!=null)
+                        r.reset();
+                }
+                response.setContentType("application/json");
+                response.setCharacterEncoding("UTF-8");
+                response.getWriter().write(r==null ? "{}" : r.toJSON());
+            }
+        }, "/metrics", "/metrics/reset");
+    }
+
+    public void start() throws IOException
+    {
+        server.start();
+    }
+
+    public void stop()
+    {
+        server.shutdownNow();
+    }
+}
@@ -0,0 +1,161 @@
+/*
+ * MetricsRecorder.java
+ *
+ * Rafael Bastos
+ */
+package tools.metrics;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Holds the data collected while InferenceMetrics is enabled: a latency and
+ * an allocation histogram per stage, the Karnik-Mendel iterations for the
+ * left and right end points and the distribution of the number of rules
+ * fired per evaluation. All methods are thread-safe.
+ * @author Rafael Bastos
+ */
+public class MetricsRecorder
+{
+    /** Evaluations firing more rules are counted in the last slot. */
+    public static final int MAX_TRACKED_RULES = 256;
+
+    private final Log2Histogram[] latencies = new Log2Histogram[InferenceMetrics.NUMBER_OF_STAGES];
+    private final Log2Histogram[] allocations = new Log2Histogram[InferenceMetrics.NUMBER_OF_STAGES];
+    private final Log2Histogram kmIterationsLeft = new Log2Histogram();
+    private final Log2Histogram kmIterationsRight = new Log2Histogram();
+    private final AtomicLongArray rulesFired = new AtomicLongArray(MAX_TRACKED_RULES+1);
+    private volatile long startTime = System.currentTimeMillis();
+
+    public MetricsRecorder()
+    {
+        for(int i=0;i<latencies.length;i++)
+        {
+            latencies[i] = new Log2Histogram();
+            allocations[i] = new Log2Histogram();
+        }
+    }
+
+    public void recordLatency(int stage, long nanos)
+    {
+        latencies[stage].record(nanos);
+    }
+
+    public void recordAllocation(int stage, long bytes)
+    {
+        allocations[stage].record(bytes);
+    }
+
+    public void recordKMIterations(int left, int right)
+    {
+        kmIterationsLeft.record(left);
+        kmIterationsRight.record(right);
+    }
+
+    public void recordRulesFired(int fired)
+    {
+        rulesFired.incrementAndGet(Math.min(fired, MAX_TRACKED_RULES));
+    }
+
+    public Log2Histogram getLatency(int stage)
+    {
+        return latencies[stage];
+    }
+
+    /**
+     * Only stages timed with InferenceMetrics.startAllocation() have
+     * allocation data (the evaluation stages).
+     */
+    public Log2Histogram getAllocation(int stage)
+    {
+        return allocations[stage];
+    }
+
+    public Log2Histogram getKMIterationsLeft()
+    {
+        return kmIterationsLeft;
+    }
+
+    public Log2Histogram getKMIterationsRight()
+    {
+        return kmIterationsRight;
+    }
+
+    /**
+     * @return Entry i holds the number of evaluations in which exactly i rules
+     * fired (the last entry: at least MAX_TRACKED_RULES).
+     */
+    public long[] getRulesFiredDistribution()
+    {
+        long[] snapshot = new long[rulesFired.length()];
+        for(int i=0;i<snapshot.length;i++)
+            snapshot[i] = rulesFired.get(i);
+        return snapshot;
+    }
+
+    /**
+     * @return The time of creation or of the last reset, in milliseconds.
+     */
+    public long getStartTime()
+    {
+        return startTime;
+    }
+
+    public void reset()
+    {
+        for(int i=0;i<latencies.length;i++)
+        {
+            latencies[i].reset();
+            allocations[i].reset();
+        }
+        kmIterationsLeft.reset();
+        kmIterationsRight.reset();
+        for(int i=0;i<rulesFired.length();i++)
+            rulesFired.set(i, 0);
+        startTime = System.currentTimeMillis();
+    }
+
+    /**
+     * Returns all data as JSON; latencies are given in nanoseconds, allocations
+     * in bytes. Stages without data and trailing zeros of the rules fired
+     * distribution are omitted.
+     */
+    public String toJSON()
+    {
+        StringBuilder s = new StringBuilder(2048);
+        s.append("{\"since\":").append(startTime).append(",\"latencyNanos\":{");
+        appendStages(s, latencies);
+        s.append("},\"allocatedBytes\":{");
+        appendStages(s, allocations);
+        s.append("},\"kmIterations\":{\"left\":");
+        kmIterationsLeft.appendJSON(s);
+        s.append(",\"right\":");
+        kmIterationsRight.appendJSON(s);
+        s.append("},\"rulesFired\":[");
+        long[] fired = getRulesFiredDistribution();
+        int last = fired.length-1;
+        while(last>0 && fired[last]==0)
+            last--;
+        for(int i=0;i<=last;i++)
+        {
+            if(i>0)
+                s.append(',');
+            s.append(fired[i]);
+        }
+        s.append("]}");
+        return s.toString();
+    }
+
+    private static void appendStages(StringBuilder s, Log2Histogram[] histograms)
+    {
+        boolean first = true;
+        for(int i=0;i<histograms.length;i++)
+            if(histograms[i].getCount()>0)
+            {
+                if(!first)
+                    s.append(',');
+                s.append('"').append(InferenceMetrics.getStageName(i)).append("\":");
+                histograms[i].appendJSON(s);
+                first = false;
+            }
+    }
+}
@@ -29,13 +29,10 @@ public class T1MF_Discretized extends T1MF_Prototype
 {
     protected ArrayList<Tuple> set;
     protected double peak;
-    protected boolean sorted = false;
+    protected volatile boolean sorted = false;
     protected int discretizationLevel;
     private boolean leftShoulder = false, rightShoulder = false;
     private double leftShoulderStart = 0.0, rightShoulderStart = 0.0;
-    private double a;
-    private double temp,temp2,left, right,min;
-    private double temp3;
 
     private final boolean DEBUG = false;
     private int alphaCutDiscLevel = 60;
@@ -69,8 +66,9 @@ public class T1MF_Discretized extends T1MF_Prototype
      * (add array of points in one go to avoid sorting overhead)
      * @param p 2-D coordinates of the point in the order y,x.
      */
-    public void addPoint(Tuple p)
+    public synchronized void addPoint(Tuple p)
     {
+        checkNotFrozen();
         set.add(p);
         sorted = false;
     }
@@ -79,8 +77,9 @@ public class T1MF_Discretized extends T1MF_Prototype
      * Adds a series of points to the discretized set - forces resorting.
      * @param p 2-D coordinates of the points in the order y,x.
      */    
-    public void addPoints(Tuple[] p)
+    public synchronized void addPoints(Tuple[] p)
     {
+        checkNotFrozen();
         set.addAll(Arrays.asList(p));
         sorted = false;
     } 
@@ -92,6 +91,7 @@ public class T1MF_Discretized extends T1MF_Prototype
     
     public void setAlphaCutDisretizationLevel(int alphaCutDiscLevel)
     {
+        checkNotFrozen();
         this.alphaCutDiscLevel = alphaCutDiscLevel;
     }
     
@@ -150,6 +150,7 @@ public class T1MF_Discretized extends T1MF_Prototype
         
         if(alpha == 1.0)
         {
+            sort();
             //rely on convexity and search from the outside inwards
             for(int i =0;i<set.size();i++)
             {
@@ -168,6 +169,7 @@ public class T1MF_Discretized extends T1MF_Prototype
         double stepSize = (this.getSupport().getSize())/(alphaCutDiscLevel-1);
         double currentStep = this.getSupport().getLeft();
         Tuple alphaCut = null;        
+        double temp;
         findLeft:
             for(int i=0;i<alphaCutDiscLevel;i++)
             {
@@ -209,7 +211,7 @@ public class T1MF_Discretized extends T1MF_Prototype
      */
     private double interpolate(int x_0, double x_1, int x_2)
     {
-        a = (set.get(x_2).getRight() - set.get(x_0).getRight()) / (x_1 - set.get(x_0).getRight());
+        double a = (set.get(x_2).getRight() - set.get(x_0).getRight()) / (x_1 - set.get(x_0).getRight());
         return set.get(x_0).getLeft()-((set.get(x_0).getLeft()-set.get(x_2).getLeft())/a);
     }
     
@@ -278,13 +280,13 @@ public class T1MF_Discretized extends T1MF_Prototype
         if(set==null)
             return null;
         sort();       
+        //a new Tuple on every call, so reading the support does not modify the set
         if(leftShoulder)
-            support = new Tuple(Double.NEGATIVE_INFINITY,set.get(set.size()-1).getRight());
+            return new Tuple(Double.NEGATIVE_INFINITY,set.get(set.size()-1).getRight());
             else if (rightShoulder)
-                support = new Tuple(set.get(0).getRight(),Double.POSITIVE_INFINITY);
+                return new Tuple(set.get(0).getRight(),Double.POSITIVE_INFINITY);
                 else
-                    support = new Tuple(set.get(0).getRight(),set.get(set.size()-1).getRight());
-        return support;
+                    return new Tuple(set.get(0).getRight(),set.get(set.size()-1).getRight());
     }
     
     public String toString()
@@ -301,9 +303,22 @@ public class T1MF_Discretized extends T1MF_Prototype
     
     /**
      * Sorts the ArrayList holding all points defining the set.
-     * No sort is performed if the set is already sorted.
+     * No sort is performed if the set is already sorted. As the set is sorted
+     * lazily on first read, concurrent readers synchronize on the set until
+     * it is sorted; sorted is only set once the points are in their final
+     * order.
      */
     private void sort()
+    {
+        if(sorted)
+            return;
+        synchronized(this)
+        {
+            sortAndPrune();
+        }
+    }
+
+    private void sortAndPrune()
     {
         //sort and prune (i.e. remove points with more than one degree of
         //membership) if necessary.
@@ -313,7 +328,6 @@ public class T1MF_Discretized extends T1MF_Prototype
             Collections.sort(set);
             support.setLeft(set.get(0).getRight());
             support.setRight(set.get(set.size()-1).getRight());
-            sorted = true;
             
             //prune
             if(set.size()>1);
@@ -329,8 +343,19 @@ public class T1MF_Discretized extends T1MF_Prototype
                 else
                     lastX = set.get(i).getRight();
             }
+            sorted = true;
         }
     }
+
+    /**
+     * Sorts the points before freezing the set.
+     */
+    @Override
+    public void freeze()
+    {
+        sort();
+        super.freeze();
+    }
     
     public String writeToFile(String filename)
     { 
@@ -386,6 +411,7 @@ public class T1MF_Discretized extends T1MF_Prototype
     
     public void setLeftShoulderSet(double shoulderStart)
     {
+        checkNotFrozen();
         leftShoulder = true;
         leftShoulderStart = shoulderStart;
         support.setLeft(Double.NEGATIVE_INFINITY);
@@ -393,6 +419,7 @@ public class T1MF_Discretized extends T1MF_Prototype
     
     public void setRightShoulderSet(double shoulderStart)
     {
+        checkNotFrozen();
         rightShoulder = true;
         rightShoulderStart = shoulderStart;
         support.setRight(Double.POSITIVE_INFINITY);
@@ -36,7 +36,7 @@ public class T1MF_Gaussian extends T1MF_Prototype implements T1MF_Interface
     @Override
     public double getFS(double x) 
     {
-        if(x>=this.getSupport().getLeft() && x<=this.getSupport().getRight())
+        if(x>=support.getLeft() && x<=support.getRight())
         {
             if(isLeftShoulder && x<=mean) return 1.0;
             if(isRightShoulder && x>=mean) return 1.0;
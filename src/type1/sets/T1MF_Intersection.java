@@ -6,28 +6,91 @@
  */
 package type1.sets;
 
+import generic.BadParameterException;
 import generic.Tuple;
+import java.util.ArrayList;
 
 /**
- *
+ * Intersection (minimum) of an arbitrary number of type-1 sets. Intersections
+ * given as operands are flattened into this set, so that getFS() loops over
+ * all operands once rather than recursing through a tree of binary 
+ * intersections.
  * @author Christian Wagner
  */
 public class T1MF_Intersection extends T1MF_Prototype
 {
-    private T1MF_Interface setA, setB;
+    private final T1MF_Interface[] sets;
     
-    public T1MF_Intersection(String name, T1MF_Interface setA, T1MF_Interface setB)
+    /**
+     * @param name The name of the set or null, in which case a name is built 
+     * from the names of the sets when it is first asked for.
+     * @param sets 
+     */
+    public T1MF_Intersection(String name, T1MF_Interface... sets)
+    {
+        super(name);
+        if(sets.length==0)
+            throw new BadParameterException("The intersection needs at least one set.");
+        ArrayList<T1MF_Interface> operands = new ArrayList<>(sets.length);
+        for(T1MF_Interface set : sets)
+        {
+            if(set instanceof T1MF_Intersection)
+                for(T1MF_Interface s : ((T1MF_Intersection)set).sets)
+                    operands.add(s);
+            else
+                operands.add(set);
+        }
+        this.sets = operands.toArray(new T1MF_Interface[operands.size()]);
+        
+        double left = Double.NEGATIVE_INFINITY, right = Double.POSITIVE_INFINITY;
+        for(T1MF_Interface set : this.sets)
+        {
+            left = Math.max(left, set.getSupport().getLeft());
+            right = Math.min(right, set.getSupport().getRight());
+        }
+        this.support = new Tuple(left, right);
+    }
+
+    /**
+     * @return A copy of the (flattened) sets this intersection is made of.
+     */
+    public T1MF_Interface[] getSets()
     {
-        super("Intersection: "+setA.getName()+"_"+setB.getName());
-        this.support = new Tuple(Math.max(setA.getSupport().getLeft(),setB.getSupport().getLeft()),
-                Math.min(setA.getSupport().getRight(),setB.getSupport().getRight()));        
-        this.setA = setA;
-        this.setB = setB;
+        return sets.clone();
     }
 
     @Override
-    public double getFS(double x) {
-        return Math.min(setA.getFS(x), setB.getFS(x));
+    public String getName()
+    {
+        if(name==null)
+        {
+            StringBuilder b = new StringBuilder("Intersection: ");
+            for(int i=0;i<sets.length;i++)
+            {
+                if(i>0)
+                    b.append('_');
+                b.append(sets[i].getName());
+            }
+            name = b.toString();
+        }
+        return name;
+    }
+
+    @Override
+    public void freeze()
+    {
+        for(T1MF_Interface set : sets)
+            set.freeze();
+        super.freeze();
+    }
+
+    @Override
+    public double getFS(double x) 
+    {
+        double fs = sets[0].getFS(x);
+        for(int i=1;i<sets.length;i++)
+            fs = Math.min(fs, sets[i].getFS(x));
+        return fs;
     }
 
     @Override
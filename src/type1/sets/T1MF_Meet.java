@@ -12,6 +12,9 @@ import generic.Tuple;
 
 /**
  * Meet operation for 2 Type-1 sets, mostly used while computing general Type-2 FLSs.
+ * If both sets are piecewise linear (see T1MF_PiecewiseLinear.valueOf()), the
+ * meet is computed exactly from their breakpoints; otherwise the peaks and
+ * alpha-cuts are found by sampling the sets.
  * @author Christian Wagner
  */
 public class T1MF_Meet extends T1MF_Prototype
@@ -19,7 +22,8 @@ public class T1MF_Meet extends T1MF_Prototype
     private final boolean DEBUG = false;
     private T1MF_Interface f1, f2;
     private boolean intersectionExists = false;
-    private double v1, v2, temp, temp2;
+    private double v1, v2;
+    private T1MF_PiecewiseLinear exact = null;
 
     
     private final int resolution = 30;
@@ -39,9 +43,16 @@ public class T1MF_Meet extends T1MF_Prototype
         {
             name = a.getName()+" <meet> "+b.getName();
             intersectionExists = true;
+            T1MF_PiecewiseLinear pa = T1MF_PiecewiseLinear.valueOf(a), pb = T1MF_PiecewiseLinear.valueOf(b);
+            if(pa!=null && pb!=null)
+            {
+                exact = T1MF_PiecewiseLinear.getMeet(pa, pb);
+                this.support = exact.getSupport();
+                return;
+            }
             //find v1 and v2 (maximums of both sets/functions
-            temp = findMax(a);
-            temp2 = findMax(b);
+            double temp = findMax(a);
+            double temp2 = findMax(b);
 
             this.support = new Tuple(Math.min(a.getSupport().getLeft(),b.getSupport().getLeft()), 
                     Math.min(a.getSupport().getRight(),b.getSupport().getRight()));
@@ -67,6 +78,8 @@ public class T1MF_Meet extends T1MF_Prototype
     
     public double getFS(double x) 
     {
+        if(exact!=null)
+            return exact.getFS(x);
         if(x<v1)
             return Math.max(f1.getFS(x),f2.getFS(x));
         else
@@ -82,6 +95,27 @@ public class T1MF_Meet extends T1MF_Prototype
     {
         return intersectionExists;
     }
+
+    @Override
+    public void freeze()
+    {
+        if(exact!=null)
+            exact.freeze();
+        if(f1!=null)
+            f1.freeze();
+        if(f2!=null)
+            f2.freeze();
+        super.freeze();
+    }
+
+    /**
+     * @return The meet as piecewise linear set if it was computed exactly,
+     * otherwise null.
+     */
+    public T1MF_PiecewiseLinear getPiecewiseLinear()
+    {
+        return exact;
+    }
     
     private double findMax(T1MF_Interface set)
     {
@@ -112,8 +146,10 @@ public class T1MF_Meet extends T1MF_Prototype
      */
     public Tuple getAlphaCut(double alpha)
     {
+        if(exact!=null)
+            return exact.getAlphaCut(alpha);
         double stepSize = this.getSupport().getSize()/(alphaCutDiscLevel-1.0);
-        double currentStep;
+        double currentStep, temp;
         Tuple alphaCut = null;
         double left=0, right=0;
 
@@ -151,6 +187,8 @@ public class T1MF_Meet extends T1MF_Prototype
 
     @Override
     public double getPeak() {
+        if(exact!=null)
+            return exact.getPeak();
         throw new UnsupportedOperationException("Not supported yet.");
     }
 
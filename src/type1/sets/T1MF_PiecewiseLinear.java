@@ -0,0 +1,448 @@
+/*
+ * T1MF_PiecewiseLinear.java
+ *
+ * Rafael Bastos
+ */
+package type1.sets;
+
+import generic.BadParameterException;
+import generic.Tuple;
+import java.util.ArrayList;
+import java.util.Arrays;
+
+/**
+ * Type-1 set given by breakpoints which are joined by straight lines; the
+ * membership is 0 outside the first and last breakpoint. Two breakpoints may
+ * share an x coordinate to describe a jump, in which case getFS() returns the
+ * larger of both memberships at that x.
+ * As all operations work on the breakpoints, peaks and alpha-cuts are exact
+ * and meet and join of two sets (see getMeet() and getJoin()) are computed
+ * in O(breakpoints) rather than by sampling the operands.
+ * @author Rafael Bastos
+ */
+public class T1MF_PiecewiseLinear extends T1MF_Prototype
+{
+    private static final long serialVersionUID = 1L;
+
+    private final double[] x, y;
+    private final int maxIndex;     //first breakpoint of maximum membership
+    private final int lastMaxIndex; //last breakpoint of maximum membership
+
+    /**
+     * @param x The x coordinates of the breakpoints in ascending order; at
+     * most two breakpoints may have the same x coordinate.
+     * @param y The membership degrees at the breakpoints.
+     */
+    public T1MF_PiecewiseLinear(String name, double[] x, double[] y)
+    {
+        super(name);
+        if(x.length==0 || x.length!=y.length)
+            throw new BadParameterException("A piecewise linear set needs the same (non-zero) number of x and y coordinates.");
+        int max = 0, lastMax = 0;
+        for(int i=0;i<x.length;i++)
+        {
+            if(!(y[i]>=0.0 && y[i]<=1.0))
+                throw new BadParameterException("The membership degrees need to be between 0 and 1, found: "+y[i]);
+            if(i>0 && !(x[i]>=x[i-1]))
+                throw new BadParameterException("The breakpoints need to be given in ascending order of x.");
+            if(i>1 && x[i]==x[i-2])
+                throw new BadParameterException("At most two breakpoints may share the x coordinate "+x[i]+".");
+            if(y[i]>y[max])
+                max = i;
+            if(y[i]>=y[lastMax])
+                lastMax = i;
+        }
+        this.x = x.clone();
+        this.y = y.clone();
+        this.maxIndex = max;
+        this.lastMaxIndex = lastMax;
+        this.support = new Tuple(x[0], x[x.length-1]);
+    }
+
+    /**
+     * Converts sets which are piecewise linear by definition - discretized,
+     * triangular and trapezoidal sets without shoulders and the sets of
+     * T1MF_Meet which were computed exactly.
+     * @return The set as T1MF_PiecewiseLinear, or null if it is not piecewise
+     * linear (or null).
+     */
+    public static T1MF_PiecewiseLinear valueOf(T1MF_Interface set)
+    {
+        if(set==null || set.isLeftShoulder() || set.isRightShoulder())
+            return null;
+        if(set instanceof T1MF_PiecewiseLinear)
+            return (T1MF_PiecewiseLinear)set;
+        if(set instanceof T1MF_Meet)
+            return ((T1MF_Meet)set).getPiecewiseLinear();
+        if(set instanceof T1MF_Triangular)
+        {
+            T1MF_Triangular t = (T1MF_Triangular)set;
+            if(t.getStart()==t.getEnd())
+                return null;
+            return new T1MF_PiecewiseLinear(set.getName(), new double[]{t.getStart(), t.getPeak(), t.getEnd()},
+                    new double[]{0.0, 1.0, 0.0});
+        }
+        if(set instanceof T1MF_Trapezoidal)
+        {
+            double[] p = ((T1MF_Trapezoidal)set).getParameters();
+            return new T1MF_PiecewiseLinear(set.getName(), p, new double[]{0.0, set.getFS(p[1]), set.getFS(p[2]), 0.0});
+        }
+        if(set instanceof T1MF_Discretized)
+        {
+            //shoulders of discretized sets only show in their support
+            Tuple support = set.getSupport();
+            if(Double.isInfinite(support.getLeft()) || Double.isInfinite(support.getRight()))
+                return null;
+            ArrayList<?> points = ((T1MF_Discretized)set).getPoints();
+            double[] px = new double[points.size()], py = new double[points.size()];
+            for(int i=0;i<px.length;i++)
+            {
+                Tuple point = (Tuple)points.get(i);
+                px[i] = point.getRight();
+                py[i] = point.getLeft();
+            }
+            return new T1MF_PiecewiseLinear(set.getName(), px, py);
+        }
+        return null;
+    }
+
+    /**
+     * The meet of two sets under the minimum t-norm. With v1 the peak of the
+     * set f peaking first and v2 the peak of the other set g, it is
+     * max(f,g) left of v1, f between v1 and v2 and min(f,g) from v2 onwards,
+     * as in T1MF_Meet (exact for normal convex sets). The peaks are taken as
+     * getMaximumPosition() and the support is that of T1MF_Meet, from the
+     * smaller left to the smaller right end of both supports.
+     */
+    public static T1MF_PiecewiseLinear getMeet(T1MF_PiecewiseLinear a, T1MF_PiecewiseLinear b)
+    {
+        return combine(a.getName()+" <meet> "+b.getName(), a, b, true);
+    }
+
+    /**
+     * The join of two sets under the maximum t-conorm: min(f,g) left of v1,
+     * g between v1 and v2 and max(f,g) from v2 onwards (see getMeet()).
+     */
+    public static T1MF_PiecewiseLinear getJoin(T1MF_PiecewiseLinear a, T1MF_PiecewiseLinear b)
+    {
+        return combine(a.getName()+" <join> "+b.getName(), a, b, false);
+    }
+
+    private static T1MF_PiecewiseLinear combine(String name, T1MF_PiecewiseLinear a, T1MF_PiecewiseLinear b, boolean meet)
+    {
+        //as T1MF_Meet, f is the set peaking first (b on ties)
+        T1MF_PiecewiseLinear f = a.getMaximumPosition()<b.getMaximumPosition() ? a : b;
+        T1MF_PiecewiseLinear g = f==a ? b : a;
+        double v1 = f.getMaximumPosition(), v2 = g.getMaximumPosition();
+
+        //the candidate breakpoints: those of both sets and the peaks
+        double[] p = new double[f.x.length+g.x.length+2];
+        System.arraycopy(f.x, 0, p, 0, f.x.length);
+        System.arraycopy(g.x, 0, p, f.x.length, g.x.length);
+        p[p.length-2] = v1;
+        p[p.length-1] = v2;
+        Arrays.sort(p);
+        //min(f,g) is zero beyond the smaller right end, which ends the meet
+        double right = meet ? Math.min(f.x[f.x.length-1], g.x[g.x.length-1]) : p[p.length-1];
+
+        PointList result = new PointList(2*p.length+2);
+        for(int k=0;k+1<p.length;k++)
+        {
+            double x0 = p[k], x1 = p[k+1];
+            if(!(x0<x1) || x0>=right)
+                continue;
+            //within (x0,x1) both sets are linear
+            double f0 = f.getRightLimit(x0), f1 = f.getLeftLimit(x1);
+            double g0 = g.getRightLimit(x0), g1 = g.getLeftLimit(x1);
+            double middle = (x0+x1)/2.0;
+            if(middle>=v1 && middle<v2)
+            {
+                if(meet)
+                    result.addSegment(x0, f0, x1, f1);
+                else
+                    result.addSegment(x0, g0, x1, g1);
+                continue;
+            }
+            //max or min of both sets, split where they cross
+            boolean larger = meet ? middle<v1 : middle>=v2;
+            double d0 = f0-g0, d1 = f1-g1;
+            if((d0<0.0 && d1>0.0) || (d0>0.0 && d1<0.0))
+            {
+                double t = d0/(d0-d1);
+                double xc = x0+t*(x1-x0), yc = f0+t*(f1-f0);
+                result.addSegment(x0, select(f0, g0, larger), xc, yc);
+                result.addSegment(xc, yc, x1, select(f1, g1, larger));
+            }
+            else
+                result.addSegment(x0, select(f0, g0, larger), x1, select(f1, g1, larger));
+        }
+        if(result.size==0)
+        {
+            //both sets are single points at the same x
+            result.add(p[0], meet ? Math.min(a.getFS(p[0]), b.getFS(p[0])) : Math.max(a.getFS(p[0]), b.getFS(p[0])));
+        }
+        return new T1MF_PiecewiseLinear(name, result.getX(), result.getY());
+    }
+
+    private static double select(double f, double g, boolean larger)
+    {
+        return larger ? Math.max(f, g) : Math.min(f, g);
+    }
+
+    @Override
+    public double getFS(double x)
+    {
+        int i = lastIndexAtOrBefore(x);
+        if(i<0)
+            return 0.0;
+        if(this.x[i]==x)
+            return i>0 && this.x[i-1]==x ? Math.max(y[i-1], y[i]) : y[i];
+        if(i==this.x.length-1)
+            return 0.0;
+        return interpolate(i, x);
+    }
+
+    /**
+     * The membership just right of x.
+     */
+    private double getRightLimit(double x)
+    {
+        int i = lastIndexAtOrBefore(x);
+        if(i<0 || i==this.x.length-1)
+            return 0.0;
+        return interpolate(i, x);
+    }
+
+    /**
+     * The membership just left of x.
+     */
+    private double getLeftLimit(double x)
+    {
+        int i = lastIndexBefore(x);
+        if(i<0 || i==this.x.length-1)
+            return 0.0;
+        return interpolate(i, x);
+    }
+
+    /**
+     * The membership at x on the line from breakpoint i to breakpoint i+1.
+     */
+    private double interpolate(int i, double x)
+    {
+        if(x==this.x[i])
+            return y[i];
+        if(x==this.x[i+1])
+            return y[i+1];
+        return y[i]+(y[i+1]-y[i])*(x-this.x[i])/(this.x[i+1]-this.x[i]);
+    }
+
+    private int lastIndexAtOrBefore(double x)
+    {
+        int low = 0, high = this.x.length-1, index = -1;
+        while(low<=high)
+        {
+            int middle = (low+high)>>>1;
+            if(this.x[middle]<=x)
+            {
+                index = middle;
+                low = middle+1;
+            }
+            else
+                high = middle-1;
+        }
+        return index;
+    }
+
+    private int lastIndexBefore(double x)
+    {
+        int low = 0, high = this.x.length-1, index = -1;
+        while(low<=high)
+        {
+            int middle = (low+high)>>>1;
+            if(this.x[middle]<x)
+            {
+                index = middle;
+                low = middle+1;
+            }
+            else
+                high = middle-1;
+        }
+        return index;
+    }
+
+    /**
+     * Returns the x values where the alpha cut using the alpha (y) value
+     * provided "cuts" the function curve, i.e. the first and last x with a
+     * membership of at least alpha. For an alpha of 0 the support is
+     * returned; if no membership reaches alpha the cut is [0,0], as with the
+     * sampled T1MF_Meet.
+     */
+    @Override
+    public Tuple getAlphaCut(double alpha)
+    {
+        if(alpha<=0.0)
+            return new Tuple(x[0], x[x.length-1]);
+        if(y[maxIndex]<alpha)
+            return new Tuple(0.0, 0.0);
+        double left = x[0], right = x[x.length-1];
+        for(int i=0;i<x.length;i++)
+        {
+            if(y[i]>=alpha)
+            {
+                left = i==0 || x[i-1]==x[i] ? x[i] : x[i-1]+(alpha-y[i-1])/(y[i]-y[i-1])*(x[i]-x[i-1]);
+                break;
+            }
+        }
+        for(int i=x.length-1;i>=0;i--)
+        {
+            if(y[i]>=alpha)
+            {
+                right = i==x.length-1 || x[i+1]==x[i] ? x[i] : x[i+1]-(alpha-y[i+1])/(y[i]-y[i+1])*(x[i+1]-x[i]);
+                break;
+            }
+        }
+        return new Tuple(left, right);
+    }
+
+    /**
+     * Returns the x coordinate of the peak value; for a "flat top" the
+     * center of the flat top is returned (as T1MF_Discretized).
+     */
+    @Override
+    public double getPeak()
+    {
+        int last = maxIndex;
+        while(last+1<x.length && y[last+1]==y[maxIndex])
+            last++;
+        return (x[maxIndex]+x[last])/2.0;
+    }
+
+    /**
+     * @return The position of the maximum as T1MF_Meet finds it when
+     * sampling: the first x with membership 1 or, for sets which are not
+     * normal, the last x with the maximum membership. It decides the order of
+     * the operands in getMeet() and getJoin().
+     */
+    public double getMaximumPosition()
+    {
+        return y[maxIndex]==1.0 ? x[maxIndex] : x[lastMaxIndex];
+    }
+
+    public double getMaximum()
+    {
+        return y[maxIndex];
+    }
+
+    public int getNumberOfBreakpoints()
+    {
+        return x.length;
+    }
+
+    public double[] getBreakpointsX()
+    {
+        return x.clone();
+    }
+
+    public double[] getBreakpointsY()
+    {
+        return y.clone();
+    }
+
+    /**
+     * Returns the defuzzified value of this set computed using the centroid
+     * algorithm. The centroid is integrated exactly over the line segments;
+     * the number of discretizations is not used.
+     */
+    @Override
+    public double getDefuzzifiedCentroid(int numberOfDiscretizations)
+    {
+        double numerator = 0.0, denominator = 0.0;
+        for(int i=0;i+1<x.length;i++)
+        {
+            double w = x[i+1]-x[i];
+            denominator += w*(y[i]+y[i+1])/2.0;
+            numerator += w*(x[i]*(2*y[i]+y[i+1])+x[i+1]*(y[i]+2*y[i+1]))/6.0;
+        }
+        if(denominator==0.0)
+            return x.length==1 ? x[0] : 0.0;
+        return numerator/denominator;
+    }
+
+    @Override
+    public String toString()
+    {
+        String s = name+" - piecewise linear:";
+        for(int i=0;i<x.length;i++)
+            s += " ("+x[i]+", "+y[i]+")";
+        return s;
+    }
+
+    /**
+     * Orders type-1 sets by their peak, sets with the same peak by the left
+     * and then the right end of their support.
+     */
+    @Override
+    public int compareTo(Object o)
+    {
+        if(!(o instanceof T1MF_Interface))
+            throw new ClassCastException("A type-1 membership function (implementing T1MF_Interface) is expected for comparison.");
+        T1MF_Interface other = (T1MF_Interface)o;
+        int result = Double.compare(getPeak(), other.getPeak());
+        if(result==0)
+            result = Double.compare(getSupport().getLeft(), other.getSupport().getLeft());
+        if(result==0)
+            result = Double.compare(getSupport().getRight(), other.getSupport().getRight());
+        return result;
+    }
+
+    /**
+     * Collects the result of combine(), merging points which coincide.
+     */
+    private static class PointList
+    {
+        private double[] x, y;
+        private int size = 0;
+
+        PointList(int capacity)
+        {
+            x = new double[capacity];
+            y = new double[capacity];
+        }
+
+        void addSegment(double x0, double y0, double x1, double y1)
+        {
+            add(x0, y0);
+            add(x1, y1);
+        }
+
+        void add(double px, double py)
+        {
+            if(size>0 && x[size-1]==px && y[size-1]==py)
+                return;
+            //three points at one x: keep the outer two
+            if(size>1 && x[size-1]==px && x[size-2]==px)
+                size--;
+            //drop points in the middle of a flat line
+            if(size>1 && y[size-1]==py && y[size-2]==py && x[size-2]<x[size-1])
+                size--;
+            if(size==x.length)
+            {
+                x = Arrays.copyOf(x, 2*size);
+                y = Arrays.copyOf(y, 2*size);
+            }
+            x[size] = px;
+            y[size] = py;
+            size++;
+        }
+
+        double[] getX()
+        {
+            return Arrays.copyOf(x, size);
+        }
+
+        double[] getY()
+        {
+            return Arrays.copyOf(y, size);
+        }
+    }
+}
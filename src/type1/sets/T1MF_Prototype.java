@@ -22,6 +22,7 @@ public abstract class T1MF_Prototype implements T1MF_Interface, Comparable, Seri
     protected String name;
     protected Tuple support;  
     private final boolean DEBUG = false;
+    private volatile boolean frozen = false;
 
     public T1MF_Prototype(String name)
     {
@@ -31,12 +32,15 @@ public abstract class T1MF_Prototype implements T1MF_Interface, Comparable, Seri
     @Override
     public Tuple getSupport()
     {
+        if(frozen && support!=null)
+            return support.clone();
         return support;
     }
     
     @Override
     public void setSupport(Tuple support)
     {
+        checkNotFrozen();
         this.support = support;
     }    
 
@@ -49,9 +53,35 @@ public abstract class T1MF_Prototype implements T1MF_Interface, Comparable, Seri
     @Override
     public void setName(String name)
     {
+        checkNotFrozen();
         this.name = name;
     }
 
+    /**
+     * Freezes the set. Subclasses which compute parts of the set lazily or
+     * are built from other sets complete respectively freeze these first.
+     */
+    @Override
+    public void freeze()
+    {
+        frozen = true;
+    }
+
+    @Override
+    public boolean isFrozen()
+    {
+        return frozen;
+    }
+
+    /**
+     * To be called by all methods which modify the set.
+     */
+    protected void checkNotFrozen()
+    {
+        if(frozen)
+            throw new UnsupportedOperationException("The set "+name+" is frozen.");
+    }
+
     @Override
     public boolean isLeftShoulder() 
     {
@@ -67,12 +97,14 @@ public abstract class T1MF_Prototype implements T1MF_Interface, Comparable, Seri
     @Override
     public void setLeftShoulder(boolean value) 
     {
+        checkNotFrozen();
         isLeftShoulder=value;
     }
 
     @Override
     public void setRightShoulder(boolean value) 
     {
+        checkNotFrozen();
         isRightShoulder = value;
     }	    
 
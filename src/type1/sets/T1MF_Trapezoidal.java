@@ -20,9 +20,6 @@ import generic.Tuple;
 public class T1MF_Trapezoidal extends T1MF_Prototype
 {
     private double a, b, c, d;
-    private double lS = Double.NaN, rS = Double.NaN;    //left and right "leg" slope
-    private double lI = Double.NaN, rI = Double.NaN;    //left and right "leg" intercept    
-    private double output;
     private double peak = Double.NaN;    //peak is generally defined as the avg of b and c,
     //however as part of some applications this may be changed using the setPeak() method.
 
@@ -68,6 +65,7 @@ public class T1MF_Trapezoidal extends T1MF_Prototype
     @Override
     public double getFS(double x) 
     {
+        double output;
         if(isLeftShoulder && x<=c) return 1.0;
         if(isRightShoulder && x>=b) return 1.0;
         
@@ -135,11 +133,12 @@ public class T1MF_Trapezoidal extends T1MF_Prototype
     public double getPeak() 
     {
         if(Double.isNaN(peak))
-            peak = (b+c)/2.0;        
+            return (b+c)/2.0;        
         return peak;
     }
     public void setPeak(double peak)
     {
+        checkNotFrozen();
         this.peak = peak;
     }
 
@@ -149,6 +148,8 @@ public class T1MF_Trapezoidal extends T1MF_Prototype
      * @return The degrees of membership of the inner parameters of the MF.
      */
     public double[] getyLevels() {
+        if(isFrozen())
+            return yLevels.clone();
         return yLevels;
     }
 
@@ -157,6 +158,7 @@ public class T1MF_Trapezoidal extends T1MF_Prototype
      * @param yLevels 
      */
     public void setyLevels(double[] yLevels) {
+        checkNotFrozen();
         this.yLevels = yLevels;
     }
     
@@ -178,32 +180,18 @@ public class T1MF_Trapezoidal extends T1MF_Prototype
     @Override
     public Tuple getAlphaCut(double alpha) 
     {
-        findLinearEquationParameters(); //make sure we have the basics
+        //slopes and intercepts of the left and right "leg", computed per call
+        //(rather than cached) so that the set can be shared between threads
+        double lS = 1.0 / (b-a);
+        double lI = 0 - lS * a;
+        double rS = -1.0 / (d-c);
+        double rI = 0 - rS * d;
         Tuple cut = new Tuple(
                 (alpha - lI)/lS,
                 (alpha-rI)/rS);
         return cut;
     }
     
-    /**
-     * Finds the slopes and intercepts for the left and right "leg" of the membership function.
-     * If the parameters for the given set have previously been computed, the method returns directly.
-     */
-    private void findLinearEquationParameters()
-    {
-        //check if values have already been populated
-        if(!Double.isNaN(lS))
-            return;
-        
-        //left leg
-        lS = 1.0 / (b-a);
-        lI = 0 - lS * a;
-        
-        //right leg
-        rS = -1.0 / (d-c);
-        rI = 0 - rS * d;   
-    }
-    
     public String toString()
     {
         String s = "T1MF_Trapezoidal: "+name+"  -  "+a+"  "+b+" (y="+yLevels[0]+")  "+c+" (y="+yLevels[1]+")  "+d;
@@ -15,9 +15,6 @@ import generic.Tuple;
 public class T1MF_Triangular extends T1MF_Prototype
 {
     private double start, peak, end;
-    private double lS = Double.NaN, rS = Double.NaN;    //left and right "leg" slope
-    private double lI = Double.NaN, rI = Double.NaN;    //left and right "leg" intercept
-    private double output;
 
     public T1MF_Triangular(String n, double start, double peak, double end)
     {
@@ -32,6 +29,7 @@ public class T1MF_Triangular extends T1MF_Prototype
     @Override
     public double getFS(double x) 
     {
+        double output;
         if(isLeftShoulder && x<=peak) return 1.0;
         if(isRightShoulder && x>=peak) return 1.0;
         
@@ -99,31 +97,17 @@ public class T1MF_Triangular extends T1MF_Prototype
     @Override
     public Tuple getAlphaCut(double alpha) 
     {
-        findLinearEquationParameters(); //make sure we have the basics
+        //slopes and intercepts of the left and right "leg", computed per call
+        //(rather than cached) so that the set can be shared between threads
+        double lS = 1.0 / (peak-start);
+        double lI = 0 - lS * start;
+        double rS = -1.0 / (end-peak);
+        double rI = 0 - rS * end;
         Tuple cut = new Tuple(
                 (alpha - lI)/lS,
                 (alpha-rI)/rS);
         return cut;
     }
-    
-    /**
-     * Finds the slopes and intercepts for the left and right "leg" of the membership function.
-     * If the parameters for the given set have previously been computed, the method returns directly.
-     */
-    private void findLinearEquationParameters()
-    {
-        //check if values have already been populated
-        if(!Double.isNaN(lS))
-            return;
-        
-        //left leg
-        lS = 1.0 / (peak-start);
-        lI = 0 - lS * start;
-        
-        //right leg
-        rS = -1.0 / (end-peak);
-        rI = 0 - rS * end;        
-    }
 }
 
 
@@ -6,28 +6,86 @@
  */
 package type1.sets;
 
+import generic.BadParameterException;
 import generic.Tuple;
+import java.util.ArrayList;
 
 /**
- *
+ * Union (maximum) of an arbitrary number of type-1 sets. Unions given as
+ * operands are flattened into this set, so that getFS() loops over all 
+ * operands once rather than recursing through a tree of binary unions.
+ * The name is only built when it is asked for.
  * @author Christian Wagner
  */
 public class T1MF_Union extends T1MF_Prototype
 {
-    private T1MF_Interface setA, setB;
+    private final T1MF_Interface[] sets;
     
-    public T1MF_Union(T1MF_Interface setA, T1MF_Interface setB)
+    public T1MF_Union(T1MF_Interface... sets)
+    {
+        super(null);
+        if(sets.length==0)
+            throw new BadParameterException("The union needs at least one set.");
+        ArrayList<T1MF_Interface> operands = new ArrayList<>(sets.length);
+        for(T1MF_Interface set : sets)
+        {
+            if(set instanceof T1MF_Union)
+                for(T1MF_Interface s : ((T1MF_Union)set).sets)
+                    operands.add(s);
+            else
+                operands.add(set);
+        }
+        this.sets = operands.toArray(new T1MF_Interface[operands.size()]);
+        
+        double left = Double.POSITIVE_INFINITY, right = Double.NEGATIVE_INFINITY;
+        for(T1MF_Interface set : this.sets)
+        {
+            left = Math.min(left, set.getSupport().getLeft());
+            right = Math.max(right, set.getSupport().getRight());
+        }
+        this.support = new Tuple(left, right);
+    }
+
+    /**
+     * @return A copy of the (flattened) sets this union is made of.
+     */
+    public T1MF_Interface[] getSets()
     {
-        super("Union: "+setA.getName()+"_"+setB.getName());
-        this.support = new Tuple(Math.min(setA.getSupport().getLeft(),setB.getSupport().getLeft()),
-                Math.max(setA.getSupport().getRight(),setB.getSupport().getRight()));
-        this.setA = setA;
-        this.setB = setB;
+        return sets.clone();
     }
 
     @Override
-    public double getFS(double x) {
-        return Math.max(setA.getFS(x), setB.getFS(x));
+    public String getName()
+    {
+        if(name==null)
+        {
+            StringBuilder b = new StringBuilder("Union: ");
+            for(int i=0;i<sets.length;i++)
+            {
+                if(i>0)
+                    b.append('_');
+                b.append(sets[i].getName());
+            }
+            name = b.toString();
+        }
+        return name;
+    }
+
+    @Override
+    public void freeze()
+    {
+        for(T1MF_Interface set : sets)
+            set.freeze();
+        super.freeze();
+    }
+
+    @Override
+    public double getFS(double x) 
+    {
+        double fs = sets[0].getFS(x);
+        for(int i=1;i<sets.length;i++)
+            fs = Math.max(fs, sets[i].getFS(x));
+        return fs;
     }
 
     @Override
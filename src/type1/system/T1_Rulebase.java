@@ -18,6 +18,7 @@ import java.util.Iterator;
 import java.util.SortedMap;
 import java.util.TreeMap;
 import java.util.Vector;
+import tools.metrics.InferenceMetrics;
 
 
  /**
@@ -172,12 +173,38 @@ public class T1_Rulebase implements Serializable
      */
     public TreeMap<Output, Double> evaluate(int defuzzificationType)
     {
+        long start = InferenceMetrics.start();
+        long allocation = InferenceMetrics.startAllocation();
+        TreeMap<Output, Double> returnValue;
         if(defuzzificationType==0)
-            return heightDefuzzification();
+            returnValue = heightDefuzzification();
         else if (defuzzificationType==1)
-            return centroidDefuzzification(); 
+            returnValue = centroidDefuzzification(); 
         else
             throw new BadParameterException("The T1 evaluate() method only supports height defuzzification (0) and centroid defuzzification (1).");
+        InferenceMetrics.stopAllocation(InferenceMetrics.EVALUATION, allocation);
+        InferenceMetrics.stop(InferenceMetrics.EVALUATION, start);
+        return returnValue;
+    }
+
+    private void computeFiringStrengths()
+    {
+        long start = InferenceMetrics.start();
+        fStrengths = new double[rules.size()];
+        for (int i=0;i<rules.size();i++)
+        {
+                fStrengths[i] = ((T1_Rule)rules.elementAt(i)).getFStrength(implicationMethod);
+                if(DEBUG)System.out.println("fStrength of rule "+i+" is: "+fStrengths[i]);
+        }
+        InferenceMetrics.stop(InferenceMetrics.FIRING, start);
+        if(InferenceMetrics.isEnabled())
+        {
+            int fired = 0;
+            for (int i=0;i<fStrengths.length;i++)
+                if(fStrengths[i]>0.0)
+                    fired++;
+            InferenceMetrics.recordRulesFired(fired);
+        }
     }
 
     /**
@@ -198,13 +225,9 @@ public class T1_Rulebase implements Serializable
                 outputSetBuffers.put(o,new double[o.getDiscretisationLevel()]);
         }
         
-        fStrengths = new double[rules.size()];
-        for (int i=0;i<rules.size();i++)
-        {
-                fStrengths[i] = ((T1_Rule)rules.elementAt(i)).getFStrength(implicationMethod);
-                if(DEBUG)System.out.println("fStrength of rule "+i+" is: "+fStrengths[i]);
-        }
+        computeFiringStrengths();
         
+        long start = InferenceMetrics.start();
         Iterator<T1_Consequent> consequentIterator;
         T1_Consequent c;
         //for each rule
@@ -232,7 +255,10 @@ public class T1_Rulebase implements Serializable
             }
         }
         
+        InferenceMetrics.stop(InferenceMetrics.AGGREGATION, start);
+
         //calculate center of gravity for each output
+        start = InferenceMetrics.start();
         numerator = 0.0; denominator = 0.0;
         Iterator<Output> outputs = outputBuffers.keySet().iterator();
         while(outputs.hasNext())
@@ -246,6 +272,7 @@ public class T1_Rulebase implements Serializable
             }
             outputBuffers.put(o, numerator/denominator);
         }
+        InferenceMetrics.stop(InferenceMetrics.DEFUZZIFICATION, start);
         return outputBuffers;
     }
     
@@ -267,14 +294,10 @@ public class T1_Rulebase implements Serializable
                 outputSetBuffers.put(o,new double[2]);
         }        
 
-        fStrengths = new double[rules.size()];
-        for (int i=0;i<rules.size();i++)
-        {
-                fStrengths[i] = ((T1_Rule)rules.elementAt(i)).getFStrength(implicationMethod);
-                if(DEBUG)System.out.println("fStrength of rule "+i+" is: "+fStrengths[i]);
-        }
+        computeFiringStrengths();
 
         //for each rule
+        long start = InferenceMetrics.start();
         T1_Consequent c;
         Iterator<T1_Consequent> consequentIterator;
         for(int r=0;r<rules.size();r++)
@@ -297,6 +320,7 @@ public class T1_Rulebase implements Serializable
             o = outputs.next();
             outputBuffers.put(o, outputSetBuffers.get(o)[0] / outputSetBuffers.get(o)[1]);
         }
+        InferenceMetrics.stop(InferenceMetrics.DEFUZZIFICATION, start);
         return outputBuffers;
     }
 